@@ -377,7 +377,8 @@ public class HDHomerun_Control {
 				if (perror != null) {
 					for(int i = 0; i < len[0] - 1; ++i)
 						perror.append((char) rx_pkt.buffer[rx_pkt.posIndex + i]);
-					dbg.printf(String.format("hdhomerun_control_get_set: %s\n", perror));
+					if (dbg != null)
+						dbg.printf(String.format("hdhomerun_control_get_set: %s\n", perror));
 				}
 				rx_pkt.buffer[rx_pkt.posIndex + len[0]] = 0;
 				
@@ -1,6 +1,7 @@
 package com.silicondust.libhdhomerun;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Scanner;
 
@@ -1240,6 +1241,16 @@ public final class HDHomerun_Device {
 		return mVS.recv(max_size, pactual_size);
 	}
 
+	public ByteBuffer stream_recv_buffer(int max_size)
+	{
+		if (null == mVS) {
+			mDbg.printf("hdhomerun_device_stream_recv: video not initialized\n");
+			return null;
+		}
+
+		return mVS.recv_buffer(max_size);
+	}
+
 	public void stream_flush()
 	{
 		if (null == mVS) {
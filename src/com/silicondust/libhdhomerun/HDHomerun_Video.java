@@ -1,5 +1,14 @@
 package com.silicondust.libhdhomerun;
 
+import java.nio.ByteBuffer;
+
+/*
+ * The ring buffer has a single producer (the video thread) and a single
+ * consumer (whoever calls recv).  The producer only writes mHead and the
+ * consumer only writes mTail, both are volatile so the data copied into
+ * the ring before a head update is visible to the consumer without a lock.
+ * One packet slot is always left empty so head == tail means empty.
+ */
 public final class HDHomerun_Video {
 
 	public static class hdhomerun_video_stats_t {
@@ -187,7 +196,7 @@ public final class HDHomerun_Video {
 
 	private void stats_ts_pkt(byte[] ptr, int start)
 	{
-		short packet_identifier = (short) (((short)(ptr[start + 1] & 0x1F) << 8) | (short)ptr[start + 2]);
+		int packet_identifier = ((ptr[start + 1] & 0x1F) << 8) | (ptr[start + 2] & 0xFF);
 		if (packet_identifier == 0x1FFF) {
 			return;
 		}
@@ -204,7 +213,7 @@ public final class HDHomerun_Video {
 		byte previous_sequence = mSequence[packet_identifier];
 		mSequence[packet_identifier] = btyeSequence;
 
-		if (previous_sequence == 0xFF) {
+		if (previous_sequence == (byte) 0xFF) {
 			return;
 		}
 		if (btyeSequence == ((previous_sequence + 1) & 0x0F)) {
@@ -220,7 +229,7 @@ public final class HDHomerun_Video {
 	private void parse_rtp(HDHomerun_Pkt pkt)
 	{
 		pkt.posIndex += 2;
-		long iRTP_sequence = pkt.read_u16();
+		long iRTP_sequence = pkt.read_u16() & 0xFFFF;
 		pkt.posIndex += 8;
 
 		long previous_rtp_sequence = mRTP_Sequence;
@@ -250,13 +259,13 @@ public final class HDHomerun_Video {
 		public void run()
 		{
 			HDHomerun_Pkt pkt = new HDHomerun_Pkt();
+			int[] length = new int[1];
 	
 			while (!mTerminate) {
 
 				pkt.reset();
 				
 				/* Receive. */
-				int[] length = new int[1];
 				length[0] = VIDEO_RTP_DATA_PACKET_SIZE;
 				if (!mSock.recv(pkt.buffer, pkt.endIndex, length, 25)) {
 					continue;
@@ -274,13 +283,19 @@ public final class HDHomerun_Video {
 					continue;
 				}
 	
-				mLock.lock();
-	
-				/* Store in ring buffer. */
+				/* Check for buffer overflow before storing. */
 				int head = mHead;
-				for(int i = 0; i < length[0]; ++i)
-					mBuffer[head + i] = pkt.buffer[pkt.posIndex + i];
+				int next = head + VIDEO_DATA_PACKET_SIZE;
+				if (next >= mBuffer_size) {
+					next -= mBuffer_size;
+				}
+				if (next == mTail) {
+					mOverflow_error_count++;
+					continue;
+				}
 
+				/* Store in ring buffer. */
+				System.arraycopy(pkt.buffer, pkt.posIndex, mBuffer, head, VIDEO_DATA_PACKET_SIZE);
 	
 				/* Stats. */
 				mPacket_count++;
@@ -292,31 +307,20 @@ public final class HDHomerun_Video {
 				stats_ts_pkt(mBuffer, head + (TS_PACKET_SIZE * 5));
 				stats_ts_pkt(mBuffer, head + (TS_PACKET_SIZE * 6));
 	
-				/* Calculate new head. */
-				head += length[0];
-				if (head >= mBuffer_size) {
-					head -= mBuffer_size;
-				}
-	
-				/* Check for buffer overflow. */
-				if (head == mTail) {
-					mOverflow_error_count++;
-					mLock.unlock();
-					continue;
-				}
-	
-				mHead = head;
-	
-				mLock.unlock();
+				/* Publish the new head. */
+				mHead = next;
 			}
 	
 		}
 	}
 	
-	byte[] recv(int max_size, int[] pactual_size)
+	/*
+	 * Returns a view of the next block of data in the ring.  The view is
+	 * valid until the next call to recv_buffer or recv, when the space is
+	 * given back to the video thread.  Returns null if there is no data.
+	 */
+	public ByteBuffer recv_buffer(int max_size)
 	{
-		mLock.lock();
-
 		int head = mHead;
 		int tail = mTail;
 
@@ -327,20 +331,15 @@ public final class HDHomerun_Video {
 			}
 		
 			mTail = tail;
+			mAdvance = 0;
 		}
 
 		if (head == tail) {
-			mAdvance = 0;
-			pactual_size[0]= 0;
-			mLock.unlock();
 			return null;
 		}
 
 		int size = (max_size / VIDEO_DATA_PACKET_SIZE) * VIDEO_DATA_PACKET_SIZE;
 		if (size == 0) {
-			mAdvance = 0;
-			pactual_size[0] = 0;
-			mLock.unlock();
 			return null;
 		}
 
@@ -354,13 +353,21 @@ public final class HDHomerun_Video {
 			size = avail;
 		}
 		mAdvance = size;
-		pactual_size[0] = size;
-		int result_len = mBuffer_size - mTail;
-		byte[] result = new byte[result_len];
-		for(int i = 0; i < result_len; ++i)
-			result[i] = mBuffer[mTail + i];
 
-		mLock.unlock();
+		return ByteBuffer.wrap(mBuffer, tail, size);
+	}
+
+	byte[] recv(int max_size, int[] pactual_size)
+	{
+		ByteBuffer bb = recv_buffer(max_size);
+		if (bb == null) {
+			pactual_size[0] = 0;
+			return null;
+		}
+
+		pactual_size[0] = bb.remaining();
+		byte[] result = new byte[bb.remaining()];
+		bb.get(result);
 		return result;
 	}
 
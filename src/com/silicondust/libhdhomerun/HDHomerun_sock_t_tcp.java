@@ -63,7 +63,7 @@ public class HDHomerun_sock_t_tcp implements hdhomerun_sock_t {
 		
 		@Override
 		public int getSocketPort() {
-			return channel.socket().getPort();
+			return channel.socket().getLocalPort();
 		}
 
 		@Override
@@ -7,6 +7,7 @@ import java.net.MulticastSocket;
 import java.net.InetAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 
 import com.silicondust.libhdhomerun.HDHomerun_Sock.hdhomerun_sock_t;
 
@@ -15,6 +16,7 @@ public class HDHomerun_sock_t_udp implements hdhomerun_sock_t {
 //	DatagramChannel channel = null;;
 	MulticastSocket multiSocket = null;
 	private boolean mValid = false;
+	private DatagramPacket recvPacket = null;
 
 	public HDHomerun_sock_t_udp(SocketAddress socketAddr, int sendBufferSize, int recBufferSize, boolean allowReuse) throws Exception {
 		
@@ -68,7 +70,7 @@ public class HDHomerun_sock_t_udp implements hdhomerun_sock_t {
 	
 	@Override
 	public int getSocketPort() {
-		return multiSocket.getPort();
+		return multiSocket.getLocalPort();
 	}
 	
 	@Override
@@ -113,24 +115,32 @@ public class HDHomerun_sock_t_udp implements hdhomerun_sock_t {
 	@Override
 	public boolean recv(byte[] data, int start, int length[], int timeout) throws IOException{
 		
-		long endTime = HDHomerun_OS.getcurrenttime() + timeout;
-		int packetSize = multiSocket.getReceiveBufferSize();
-		if(length[0] < packetSize)
-			packetSize = length[0];
-		while (true) {
+		if (timeout <= 0)
+			timeout = HDHomerun_Sock.DEFAULT_NONBLOCKING_TIMEOUT;
+		if (multiSocket.getSoTimeout() != timeout)
+			multiSocket.setSoTimeout(timeout);
 
-			DatagramPacket p = new DatagramPacket(data, start, length[0]);
-			multiSocket.receive(p);
-			int ret = p.getOffset();
-			if (ret > 0) {
-				length[0] = ret;
-				return true;
-			}
+		/* The packet is reused so receiving does not allocate. */
+		if (recvPacket == null)
+			recvPacket = new DatagramPacket(data, start, length[0]);
+		else
+			recvPacket.setData(data, start, length[0]);
 
-			if(endTime <= HDHomerun_OS.getcurrenttime())
-				return false;
-			}
+		try {
+			multiSocket.receive(recvPacket);
 		}
+		catch (SocketTimeoutException e) {
+			return false;
+		}
+
+		int ret = recvPacket.getLength();
+		if (ret > 0) {
+			length[0] = ret;
+			return true;
+		}
+
+		return false;
+	}
 
 	@Override
 	public InetSocketAddress recvfrom(byte[] data, int start, int length[], int timeout) throws IOException 
@@ -3,6 +3,7 @@ package com.silicondust.libhdhomerun_config;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Scanner;
 
 import com.silicondust.libhdhomerun.HDHomerun_Channels;
@@ -383,8 +384,7 @@ public class HDHomerun_Config {
 				siginfo_flag = false;
 			}*/
 
-			int[] actual_size = new int[1];
-			byte[] ptr = hd.stream_recv(HDHomerun_Video.VIDEO_DATA_BUFFER_SIZE_1S, actual_size);
+			ByteBuffer ptr = hd.stream_recv_buffer(HDHomerun_Video.VIDEO_DATA_BUFFER_SIZE_1S);
 			if (null == ptr) {
 				HDHomerun_OS.msleep_approx(64);
 				continue;
@@ -392,7 +392,7 @@ public class HDHomerun_Config {
 
 			if (fp != null) {
 				try {
-					fp.write(ptr, 0, actual_size[0]);
+					fp.write(ptr.array(), ptr.arrayOffset() + ptr.position(), ptr.remaining());
 				}
 				catch(IOException e)
 				{
@@ -401,7 +401,7 @@ public class HDHomerun_Config {
 				}
 			}
 			else if(printToConsole)
-				System.out.println(String.format("Bytes Received : %d", actual_size[0]));
+				System.out.println(String.format("Bytes Received : %d", ptr.remaining()));
 
 			if (loop_start_time >= next_progress) {
 				next_progress += 1000;
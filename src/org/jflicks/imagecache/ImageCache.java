@@ -17,6 +17,7 @@
 package org.jflicks.imagecache;
 
 import java.awt.image.BufferedImage;
+import java.util.concurrent.Future;
 
 /**
  * The ImageCache interface defines a service to cache images both locally
@@ -61,6 +62,20 @@ public interface ImageCache {
      */
     BufferedImage getImage(String url, boolean keepInMemory);
 
+    /**
+     * Like getImage but the work is done on another thread so the caller
+     * does not wait on the network or the disk.  Many requests for the
+     * same URL at the same time share one fetch.  If the image is already
+     * in memory the listener is told right away on the calling thread.
+     *
+     * @param url A given URL that points to an image.
+     * @param keepInMemory If True.
+     * @param l A listener to tell when the image is ready, can be null.
+     * @return A Future for the image.
+     */
+    Future<BufferedImage> getImageAsync(String url, boolean keepInMemory,
+        ImageCacheListener l);
+
     /**
      * If the cache has the image pointed to by the given URL, then get it's
      * modified date of the local cache file.
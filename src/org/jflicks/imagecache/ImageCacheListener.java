@@ -0,0 +1,38 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.imagecache;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Told when an image asked for with getImageAsync is ready.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public interface ImageCacheListener {
+
+    /**
+     * The image is ready.  This is called on a cache thread so a user
+     * interface will want to move over to it's own thread before using
+     * the image.
+     *
+     * @param url The URL that was asked for.
+     * @param bi The image or null if it could not be loaded.
+     */
+    void imageReady(String url, BufferedImage bi);
+}
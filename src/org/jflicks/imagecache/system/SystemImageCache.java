@@ -17,35 +17,98 @@
 package org.jflicks.imagecache.system;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.net.URLConnection;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.imageio.ImageIO;
 
 import org.jflicks.imagecache.BaseImageCache;
+import org.jflicks.imagecache.ImageCacheListener;
 import org.jflicks.util.LogUtil;
 import org.jflicks.util.Util;
 
 /**
  * This is our implementation of an ImageCache.
  *
+ * Images are kept in two tiers.  In memory we keep decoded images up to
+ * a number of bytes of pixels, and on disk we keep the image files up to
+ * a number of bytes too.  Both throw out what was used least recently
+ * when they get full.  The sizes in megabytes can be set with the system
+ * properties org.jflicks.imagecache.memory and
+ * org.jflicks.imagecache.disk.
+ *
+ * Only one fetch is ever done for a URL at a time, anyone else asking
+ * for it waits on that one.  The server is asked if a file on disk has
+ * changed at most every few minutes instead of on every read.
+ *
  * @author Doug Barnum
  * @version 1.0
  */
 public class SystemImageCache extends BaseImageCache {
 
-    private HashMap<String, BufferedImage> hashMap;
+    private static final String PROPERTY = "org.jflicks.imagecache.";
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final long DEFAULT_MEMORY = 128L;
+    private static final long DEFAULT_DISK = 1024L;
+    private static final long CHECK_INTERVAL = 10L * 60L * 1000L;
+    private static final int THREADS = 4;
+
+    private LinkedHashMap<String, BufferedImage> memoryMap;
+    private long memoryBytes;
+    private long memoryLimit;
+    private LinkedHashMap<String, Long> diskMap;
+    private long diskBytes;
+    private long diskLimit;
+    private ConcurrentHashMap<String, LoadTask> loadMap;
+    private ConcurrentHashMap<String, Long> checkedMap;
+    private ExecutorService executorService;
     private File directoryFile;
 
+    private AtomicLong hitCount;
+    private AtomicLong missCount;
+    private AtomicLong diskHitCount;
+    private AtomicLong fetchCount;
+    private AtomicLong evictionCount;
+    private AtomicLong diskEvictionCount;
+
     /**
      * Default empty constructor.
      */
     public SystemImageCache() {
 
         setTitle("SystemImageCache");
-        setHashMap(new HashMap<String, BufferedImage>());
+        memoryMap = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true);
+        memoryLimit = getLimit("memory", DEFAULT_MEMORY);
+        diskMap = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        diskLimit = getLimit("disk", DEFAULT_DISK);
+        loadMap = new ConcurrentHashMap<String, LoadTask>();
+        checkedMap = new ConcurrentHashMap<String, Long>();
+        executorService = Executors.newFixedThreadPool(THREADS,
+            new ImageCacheThreadFactory());
+
+        hitCount = new AtomicLong();
+        missCount = new AtomicLong();
+        diskHitCount = new AtomicLong();
+        fetchCount = new AtomicLong();
+        evictionCount = new AtomicLong();
+        diskEvictionCount = new AtomicLong();
 
         File home = new File(".");
         File f = new File(home, "imagecache");
@@ -62,25 +125,27 @@ public class SystemImageCache extends BaseImageCache {
         }
 
         setDirectoryFile(f);
+        indexDisk(f);
     }
 
-    private HashMap<String, BufferedImage> getHashMap() {
-        return (hashMap);
-    }
+    private long getLimit(String name, long def) {
 
-    private void setHashMap(HashMap<String, BufferedImage> m) {
-        hashMap = m;
-    }
+        long result = def;
+
+        String s = System.getProperty(PROPERTY + name);
+        if (s != null) {
 
-    private File getHome() {
+            try {
 
-        String dir = System.getProperty("FE_HOME");
-        if (dir == null) {
+                result = Long.parseLong(s.trim());
 
-            dir = ".";
+            } catch (NumberFormatException ex) {
+
+                result = def;
+            }
         }
 
-        return (new File(dir));
+        return (Math.max(1L, result) * MEGABYTE);
     }
 
     private File getDirectoryFile() {
@@ -91,14 +156,127 @@ public class SystemImageCache extends BaseImageCache {
         directoryFile = f;
     }
 
+    /**
+     * The number of times an image was found in memory.
+     *
+     * @return A long value.
+     */
+    public long getHitCount() {
+        return (hitCount.get());
+    }
+
+    /**
+     * The number of times an image was not in memory.
+     *
+     * @return A long value.
+     */
+    public long getMissCount() {
+        return (missCount.get());
+    }
+
+    /**
+     * The number of times an image not in memory was found on disk.
+     *
+     * @return A long value.
+     */
+    public long getDiskHitCount() {
+        return (diskHitCount.get());
+    }
+
+    /**
+     * The number of times an image had to be fetched from it's URL.
+     *
+     * @return A long value.
+     */
+    public long getFetchCount() {
+        return (fetchCount.get());
+    }
+
+    /**
+     * The number of images thrown out of memory to make room.
+     *
+     * @return A long value.
+     */
+    public long getEvictionCount() {
+        return (evictionCount.get());
+    }
+
+    /**
+     * The number of files deleted from disk to make room.
+     *
+     * @return A long value.
+     */
+    public long getDiskEvictionCount() {
+        return (diskEvictionCount.get());
+    }
+
+    /**
+     * The bytes of pixels held in memory right now.
+     *
+     * @return A long value.
+     */
+    public long getMemoryBytes() {
+
+        long result = 0L;
+
+        synchronized (memoryMap) {
+            result = memoryBytes;
+        }
+
+        return (result);
+    }
+
+    /**
+     * The bytes of image files held on disk right now.
+     *
+     * @return A long value.
+     */
+    public long getDiskBytes() {
+
+        long result = 0L;
+
+        synchronized (diskMap) {
+            result = diskBytes;
+        }
+
+        return (result);
+    }
+
+    private String getStatistics() {
+
+        return ("hits " + getHitCount() + " misses " + getMissCount()
+            + " disk hits " + getDiskHitCount() + " fetches "
+            + getFetchCount() + " evictions " + getEvictionCount() + "/"
+            + getDiskEvictionCount() + " memory " + getMemoryBytes()
+            + " disk " + getDiskBytes());
+    }
+
+    private String toKey(String url) {
+
+        String result = null;
+
+        String hash = Util.toMD5(url);
+        if (hash != null) {
+            result = hash + "." + getExtension(url);
+        }
+
+        return (result);
+    }
+
+    private long sizeOf(BufferedImage bi) {
+
+        DataBuffer db = bi.getRaster().getDataBuffer();
+
+        return ((long) db.getSize() * (long) db.getNumBanks()
+            * (long) (DataBuffer.getDataTypeSize(db.getDataType()) / 8));
+    }
+
     private BufferedImage find(String hash) {
 
         BufferedImage result = null;
 
-        HashMap<String, BufferedImage> m = getHashMap();
-        if (m != null) {
-
-            result = m.get(hash);
+        synchronized (memoryMap) {
+            result = memoryMap.get(hash);
         }
 
         return (result);
@@ -106,10 +284,119 @@ public class SystemImageCache extends BaseImageCache {
 
     private void place(String hash, BufferedImage bi) {
 
-        HashMap<String, BufferedImage> m = getHashMap();
-        if (m != null) {
+        long size = sizeOf(bi);
+
+        // Something bigger than a quarter of memory would push out most
+        // everything else for just one image.
+        if (size <= memoryLimit / 4L) {
+
+            int evicted = 0;
+            synchronized (memoryMap) {
+
+                BufferedImage old = memoryMap.put(hash, bi);
+                if (old != null) {
+                    memoryBytes -= sizeOf(old);
+                }
+                memoryBytes += size;
+
+                Iterator<Map.Entry<String, BufferedImage>> iter =
+                    memoryMap.entrySet().iterator();
+                while ((memoryBytes > memoryLimit) && (iter.hasNext())) {
+
+                    Map.Entry<String, BufferedImage> entry = iter.next();
+                    if (entry.getValue() != bi) {
+
+                        memoryBytes -= sizeOf(entry.getValue());
+                        iter.remove();
+                        evicted++;
+                    }
+                }
+            }
+
+            if (evicted > 0) {
 
-            m.put(hash, bi);
+                evictionCount.addAndGet(evicted);
+                LogUtil.log(LogUtil.DEBUG, "imagecache: " + getStatistics());
+            }
+        }
+    }
+
+    private void forget(String hash) {
+
+        synchronized (memoryMap) {
+
+            BufferedImage old = memoryMap.remove(hash);
+            if (old != null) {
+                memoryBytes -= sizeOf(old);
+            }
+        }
+        checkedMap.remove(hash);
+    }
+
+    private void indexDisk(File dir) {
+
+        File[] array = dir.listFiles();
+        if (array != null) {
+
+            // Oldest first so they are the first to go.
+            Arrays.sort(array, new Comparator<File>() {
+
+                public int compare(File f0, File f1) {
+
+                    long diff = f0.lastModified() - f1.lastModified();
+                    return ((diff < 0L) ? -1 : ((diff > 0L) ? 1 : 0));
+                }
+            });
+
+            for (int i = 0; i < array.length; i++) {
+
+                if (array[i].isFile()) {
+                    stored(array[i].getName(), array[i].length());
+                }
+            }
+        }
+    }
+
+    private void touched(String hash) {
+
+        synchronized (diskMap) {
+            diskMap.get(hash);
+        }
+    }
+
+    private void stored(String hash, long length) {
+
+        ArrayList<String> victims = new ArrayList<String>();
+        synchronized (diskMap) {
+
+            Long old = diskMap.put(hash, Long.valueOf(length));
+            if (old != null) {
+                diskBytes -= old.longValue();
+            }
+            diskBytes += length;
+
+            Iterator<Map.Entry<String, Long>> iter =
+                diskMap.entrySet().iterator();
+            while ((diskBytes > diskLimit) && (iter.hasNext())) {
+
+                Map.Entry<String, Long> entry = iter.next();
+                if (!hash.equals(entry.getKey())) {
+
+                    diskBytes -= entry.getValue().longValue();
+                    victims.add(entry.getKey());
+                    iter.remove();
+                }
+            }
+        }
+
+        File dir = getDirectoryFile();
+        for (int i = 0; i < victims.size(); i++) {
+
+            if (!new File(dir, victims.get(i)).delete()) {
+                LogUtil.log(LogUtil.DEBUG, "Can't delete " + victims.get(i));
+            }
+            checkedMap.remove(victims.get(i));
+            diskEvictionCount.incrementAndGet();
         }
     }
 
@@ -125,13 +412,22 @@ public class SystemImageCache extends BaseImageCache {
         return (result);
     }
 
-    private boolean isNewerURL(File f, String url) {
+    private boolean isNewerURL(File f, String url, String hash) {
 
         boolean result = false;
 
         if ((f != null) && (url != null)) {
 
-            result = (f.lastModified() < Util.lastModifiedURL(url));
+            // A HEAD request every time we read from disk made it hardly
+            // worth having a disk cache, so only now and then.
+            long now = System.currentTimeMillis();
+            Long checked = checkedMap.get(hash);
+            if ((checked == null)
+                || (now - checked.longValue() > CHECK_INTERVAL)) {
+
+                result = (f.lastModified() < Util.lastModifiedURL(url));
+                checkedMap.put(hash, Long.valueOf(now));
+            }
         }
 
         return (result);
@@ -157,6 +453,78 @@ public class SystemImageCache extends BaseImageCache {
         return (result);
     }
 
+    private BufferedImage load(String url, String hash, boolean keepInMemory) {
+
+        BufferedImage result = null;
+
+        File dir = getDirectoryFile();
+        if (dir != null) {
+
+            File f = new File(dir, hash);
+            if ((f.exists()) && (!isNewerURL(f, url, hash))) {
+
+                try {
+
+                    result = ImageIO.read(f);
+                    diskHitCount.incrementAndGet();
+                    touched(hash);
+
+                } catch (IOException ex) {
+
+                    LogUtil.log(LogUtil.WARNING, ex.getMessage());
+                }
+
+            } else {
+
+                result = readURL(url);
+                fetchCount.incrementAndGet();
+                if (result != null) {
+
+                    try {
+
+                        ImageIO.write(result, getExtension(url), f);
+                        checkedMap.put(hash,
+                            Long.valueOf(System.currentTimeMillis()));
+                        stored(hash, f.length());
+
+                    } catch (IOException ex) {
+
+                        LogUtil.log(LogUtil.WARNING, ex.getMessage());
+                    }
+                }
+            }
+
+            if ((result != null) && (keepInMemory)) {
+                place(hash, result);
+            }
+        }
+
+        return (result);
+    }
+
+    private LoadTask getLoadTask(String url, String hash, boolean keepInMemory,
+        boolean async) {
+
+        LoadTask result = loadMap.get(hash);
+        if (result == null) {
+
+            LoadTask task = new LoadTask(url, hash, keepInMemory);
+            result = loadMap.putIfAbsent(hash, task);
+            if (result == null) {
+
+                result = task;
+                missCount.incrementAndGet();
+                if (async) {
+                    executorService.execute(task);
+                } else {
+                    task.run();
+                }
+            }
+        }
+
+        return (result);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -173,53 +541,65 @@ public class SystemImageCache extends BaseImageCache {
 
         if (url != null) {
 
-            String hash = Util.toMD5(url);
+            String hash = toKey(url);
             if (hash != null) {
 
-                String ext = getExtension(url);
-                hash = hash + "." + ext;
                 result = find(hash);
-                if (result == null) {
+                if (result != null) {
 
-                    File dir = getDirectoryFile();
-                    if (dir != null) {
+                    hitCount.incrementAndGet();
 
-                        File f = new File(dir, hash);
-                        if ((f.exists()) && (!isNewerURL(f, url))) {
+                } else {
 
-                            try {
+                    result = getLoadTask(url, hash, keepInMemory, false)
+                        .getImage();
 
-                                result = ImageIO.read(f);
-                                if (keepInMemory) {
-                                    place(hash, result);
-                                }
-
-                            } catch (IOException ex) {
+                    // Someone else may have started it not wanting it
+                    // kept but we do.
+                    if ((result != null) && (keepInMemory)) {
+                        place(hash, result);
+                    }
+                }
+            }
+        }
 
-                                LogUtil.log(LogUtil.WARNING, ex.getMessage());
-                            }
+        return (result);
+    }
 
-                        } else {
+    /**
+     * {@inheritDoc}
+     */
+    public Future<BufferedImage> getImageAsync(String url,
+        boolean keepInMemory, ImageCacheListener l) {
 
-                            result = readURL(url);
-                            if (result != null) {
+        LoadTask result = null;
 
-                                if (keepInMemory) {
-                                    place(hash, result);
-                                }
-                                try {
+        String hash = null;
+        if (url != null) {
+            hash = toKey(url);
+        }
 
-                                    ImageIO.write(result, ext, f);
+        BufferedImage bi = null;
+        if (hash != null) {
+            bi = find(hash);
+        }
 
-                                } catch (IOException ex) {
+        if ((hash == null) || (bi != null)) {
 
-                                    LogUtil.log(LogUtil.WARNING, ex.getMessage());
-                                }
-                            }
-                        }
-                    }
-                }
+            // Nothing to wait for so we are done already.
+            if (bi != null) {
+                hitCount.incrementAndGet();
             }
+            result = new LoadTask(url, bi);
+            result.run();
+
+        } else {
+
+            result = getLoadTask(url, hash, keepInMemory, true);
+        }
+
+        if (l != null) {
+            result.addImageCacheListener(l);
         }
 
         return (result);
@@ -234,11 +614,9 @@ public class SystemImageCache extends BaseImageCache {
 
         if (url != null) {
 
-            String hash = Util.toMD5(url);
+            String hash = toKey(url);
             if (hash != null) {
 
-                String ext = getExtension(url);
-                hash = hash + "." + ext;
                 File dir = getDirectoryFile();
                 if (dir != null) {
 
@@ -261,12 +639,13 @@ public class SystemImageCache extends BaseImageCache {
         File dir = getDirectoryFile();
         if ((url != null) && (bi != null) && (dir != null)) {
 
-            String hash = Util.toMD5(url);
-            String ext = getExtension(url);
-            File f = new File(dir, hash + "." + ext);
+            String hash = toKey(url);
+            File f = new File(dir, hash);
             try {
 
-                ImageIO.write(bi, ext, f);
+                ImageIO.write(bi, getExtension(url), f);
+                forget(hash);
+                stored(hash, f.length());
 
             } catch (IOException ex) {
 
@@ -275,5 +654,131 @@ public class SystemImageCache extends BaseImageCache {
         }
     }
 
-}
+    /**
+     * Loads one image and tells anyone who wants to know when it's done.
+     */
+    class LoadTask extends FutureTask<BufferedImage> {
+
+        private String url;
+        private String hash;
+        private ArrayList<ImageCacheListener> listenerList;
+        private boolean finished;
 
+        LoadTask(String url, String hash, boolean keepInMemory) {
+
+            super(new Loader(url, hash, keepInMemory));
+            this.url = url;
+            this.hash = hash;
+            listenerList = new ArrayList<ImageCacheListener>();
+        }
+
+        LoadTask(String url, BufferedImage bi) {
+
+            super(new Runnable() {
+
+                public void run() {
+                }
+            }, bi);
+            this.url = url;
+            listenerList = new ArrayList<ImageCacheListener>();
+        }
+
+        BufferedImage getImage() {
+
+            BufferedImage result = null;
+
+            try {
+
+                result = get();
+
+            } catch (InterruptedException ex) {
+
+                Thread.currentThread().interrupt();
+
+            } catch (ExecutionException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "imagecache: " + url + " "
+                    + ex.getCause());
+            }
+
+            return (result);
+        }
+
+        void addImageCacheListener(ImageCacheListener l) {
+
+            boolean now = false;
+            synchronized (this) {
+
+                if (finished) {
+                    now = true;
+                } else {
+                    listenerList.add(l);
+                }
+            }
+
+            if (now) {
+                l.imageReady(url, getImage());
+            }
+        }
+
+        protected void done() {
+
+            if (hash != null) {
+                loadMap.remove(hash, this);
+            }
+
+            ImageCacheListener[] array = null;
+            synchronized (this) {
+
+                finished = true;
+                array = listenerList.toArray(
+                    new ImageCacheListener[listenerList.size()]);
+                listenerList.clear();
+            }
+
+            BufferedImage bi = getImage();
+            for (int i = 0; i < array.length; i++) {
+                array[i].imageReady(url, bi);
+            }
+        }
+    }
+
+    /**
+     * The work done by a LoadTask.
+     */
+    class Loader implements Callable<BufferedImage> {
+
+        private String url;
+        private String hash;
+        private boolean keepInMemory;
+
+        Loader(String url, String hash, boolean keepInMemory) {
+
+            this.url = url;
+            this.hash = hash;
+            this.keepInMemory = keepInMemory;
+        }
+
+        public BufferedImage call() {
+            return (load(url, hash, keepInMemory));
+        }
+    }
+
+    /**
+     * Daemon threads so the cache never keeps the program running.
+     */
+    static class ImageCacheThreadFactory implements ThreadFactory {
+
+        private AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+
+            Thread result = new Thread(r, "jflicks-imagecache-"
+                + count.incrementAndGet());
+            result.setDaemon(true);
+
+            return (result);
+        }
+    }
+
+}
@@ -16,23 +16,38 @@
 */
 package org.jflicks.job;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 
 /**
  * This job will listen on an input stream and fire events when data
  * is read.  It also will maintain a buffer where users can get all data
  * read.
  *
+ * The stream is read with blocking reads so the job wakes up only when
+ * there is data and finishes as soon as the stream is closed.  An UPDATE
+ * event is fired for each line read, with its line terminator, so
+ * listeners can still append the messages to get the full text.  A
+ * carriage return also ends a line as that is how progress is shown by
+ * programs like ffmpeg.  The text kept is bounded, once full only the
+ * most recent text is kept.
+ *
  * @author Doug Barnum
  * @version 1.0
  */
 public class InputStreamJob extends AbstractJob {
 
-    private static final int BUFFER_SIZE = 20480;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_SIZE = 4096;
     private static final int MAX_SIZE = 1024000 * 3;
 
     private InputStream inputStream;
-    private StringBuffer stringBuffer;
+    private char[] ring;
+    private int ringStart;
+    private int ringLength;
+    private boolean ended;
 
     private InputStreamJob() {
     }
@@ -45,7 +60,7 @@ public class InputStreamJob extends AbstractJob {
     public InputStreamJob(InputStream is) {
 
         setInputStream(is);
-        stringBuffer = new StringBuffer();
+        ring = new char[INITIAL_SIZE];
     }
 
     private InputStream getInputStream() {
@@ -61,8 +76,99 @@ public class InputStreamJob extends AbstractJob {
      *
      * @return The read data as a String instance.
      */
-    public String getOutputText() {
-        return (stringBuffer.toString());
+    public synchronized String getOutputText() {
+
+        String result = null;
+
+        int end = ringStart + ringLength;
+        if (end <= ring.length) {
+
+            result = new String(ring, ringStart, ringLength);
+
+        } else {
+
+            StringBuilder sb = new StringBuilder(ringLength);
+            sb.append(ring, ringStart, ring.length - ringStart);
+            sb.append(ring, 0, end - ring.length);
+            result = sb.toString();
+        }
+
+        return (result);
+    }
+
+    /**
+     * Wait for the stream to reach it's end, which usually happens when
+     * the process writing to it exits.
+     *
+     * @param timeout The most time to wait in milliseconds.
+     * @return True if the end was reached.
+     */
+    public synchronized boolean waitForEnd(long timeout) {
+
+        long deadline = System.currentTimeMillis() + timeout;
+        long left = timeout;
+        while ((!ended) && (left > 0L)) {
+
+            try {
+
+                wait(left);
+
+            } catch (InterruptedException ex) {
+
+                break;
+            }
+
+            left = deadline - System.currentTimeMillis();
+        }
+
+        return (ended);
+    }
+
+    private synchronized void append(char[] buf, int offset, int length) {
+
+        if (ringLength + length > ring.length) {
+
+            if (ring.length < MAX_SIZE) {
+
+                // Still room to grow so copy into a bigger array.
+                int size = Math.min(MAX_SIZE,
+                    Math.max(ring.length * 2, ringLength + length));
+                char[] bigger = new char[size];
+                String old = getOutputText();
+                old.getChars(0, old.length(), bigger, 0);
+                ring = bigger;
+                ringStart = 0;
+            }
+        }
+
+        if (length >= ring.length) {
+
+            // Just keep the tail of what we were given.
+            offset += length - ring.length;
+            length = ring.length;
+        }
+
+        int end = (ringStart + ringLength) % ring.length;
+        int first = Math.min(length, ring.length - end);
+        System.arraycopy(buf, offset, ring, end, first);
+        System.arraycopy(buf, offset + first, ring, 0, length - first);
+
+        int over = ringLength + length - ring.length;
+        if (over > 0) {
+
+            ringStart = (ringStart + over) % ring.length;
+            ringLength = ring.length;
+
+        } else {
+
+            ringLength += length;
+        }
+    }
+
+    private synchronized void setEnded(boolean b) {
+
+        ended = b;
+        notifyAll();
     }
 
     /**
@@ -78,58 +184,57 @@ public class InputStreamJob extends AbstractJob {
      */
     public void run() {
 
-        byte[] data = new byte[BUFFER_SIZE];
         InputStream is = getInputStream();
         if (is != null) {
 
-            stringBuffer.setLength(0);
-            try {
-
-                while (!isTerminate()) {
+            synchronized (this) {
 
-                    boolean done = false;
-                    while (!done) {
+                ringStart = 0;
+                ringLength = 0;
+            }
 
-                        int avail = is.available();
-                        if (avail > 0) {
+            char[] buf = new char[BUFFER_SIZE];
+            StringBuilder line = new StringBuilder();
+            Reader reader = new InputStreamReader(is);
+            try {
 
-                            byte[] buf = new byte[avail];
-                            int count = is.read(buf);
-                            if (count > 0) {
+                int count = 0;
+                while ((!isTerminate())
+                    && ((count = reader.read(buf, 0, buf.length)) != -1)) {
 
-                                String tmp = new String(buf, 0, count);
-                                //tmp = tmp.trim();
-                                fireJobEvent(JobEvent.UPDATE, tmp);
-                                if (stringBuffer.length() > MAX_SIZE) {
+                    append(buf, 0, count);
+                    int from = 0;
+                    for (int i = 0; i < count; i++) {
 
-                                    stringBuffer.setLength(0);
-                                }
-                                stringBuffer.append(tmp);
-                                //stringBuffer.append("\n");
+                        char c = buf[i];
+                        if ((c == '\n') || (c == '\r')) {
 
-                            } else {
+                            line.append(buf, from, i + 1 - from);
+                            fireJobEvent(JobEvent.UPDATE, line.toString());
+                            line.setLength(0);
+                            from = i + 1;
+                        }
+                    }
 
-                                done = true;
-                            }
+                    if (from < count) {
 
-                        } else {
+                        line.append(buf, from, count - from);
+                    }
+                }
 
-                            Thread.sleep(getSleepTime());
-                        }
+                if (line.length() > 0) {
 
-                        if (isTerminate()) {
-                            break;
-                        }
-                    }
+                    fireJobEvent(JobEvent.UPDATE, line.toString());
                 }
 
-            } catch (Exception ex) {
+            } catch (IOException ex) {
 
                 // We were probably shutdown or interrupted.
             }
         }
 
         setTerminate(true);
+        setEnded(true);
         fireJobEvent(JobEvent.COMPLETE);
     }
 
@@ -142,4 +247,3 @@ public class InputStreamJob extends AbstractJob {
     }
 
 }
-
@@ -16,14 +16,49 @@
 */
 package org.jflicks.job;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+
 /**
  * This is a high level class that returns a JobContainer for a Job instance.
  *
+ * A Job can either get it's own thread or be run by one of our named
+ * JobPool instances.  The pools are bounded so a busy system does not
+ * create hundreds of short lived threads, except the process I/O pool
+ * which reuses its threads but never makes a reader wait.  The size of
+ * a pool can be set with a system property named "org.jflicks.job.pool."
+ * plus the name of the pool.
+ *
  * @author Doug Barnum
  * @version 1.0
  */
 public final class JobManager {
 
+    /**
+     * Jobs that move recorded data from a tuner to disk.
+     */
+    public static final String RECORDING_POOL = "recording";
+
+    /**
+     * Jobs that do heavy work on a recording after it is finished.
+     */
+    public static final String POST_PROCESSING_POOL = "postproc";
+
+    /**
+     * Light jobs like indexing, screenshots and media information.
+     */
+    public static final String HOUSEKEEPING_POOL = "housekeeping";
+
+    /**
+     * Jobs that pump the stdin and stdout of a system process.
+     */
+    public static final String PROCESS_IO_POOL = "processio";
+
+    private static final String POOL_PROPERTY = "org.jflicks.job.pool.";
+
+    private static HashMap<String, JobPool> jobPoolMap =
+        new HashMap<String, JobPool>();
+
     private JobManager() {
     }
 
@@ -44,6 +79,127 @@ public final class JobManager {
         return (null);
     }
 
+    /**
+     * Given a Job create a JobContainer that will run it in the named
+     * JobPool.  If the pool is busy the Job waits its turn.
+     *
+     * @param j A given Job.
+     * @param pool The name of the JobPool to use.
+     * @return A JobContainer that can start the job.
+     */
+    public static JobContainer getJobContainer(Job j, String pool) {
+
+        if (j != null) {
+
+            JobPool jp = getJobPool(pool);
+            if (jp != null) {
+
+                return (new PoolContainer(j, jp));
+            }
+
+            return (new ThreadContainer(j));
+        }
+
+        return (null);
+    }
+
+    /**
+     * Find the JobPool by name.  The well known pools are created the
+     * first time they are asked for.
+     *
+     * @param name The name of the pool.
+     * @return A JobPool instance or null if the name is not known.
+     */
+    public static JobPool getJobPool(String name) {
+
+        JobPool result = null;
+
+        if (name != null) {
+
+            synchronized (jobPoolMap) {
+
+                result = jobPoolMap.get(name);
+                if (result == null) {
+
+                    int size = getDefaultPoolSize(name);
+                    if (size > 0) {
+
+                        size = getPoolSizeProperty(name, size);
+                        result = new JobPool(name, size);
+                        jobPoolMap.put(name, result);
+                    }
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * All the JobPool instances that have been created so far.  Handy
+     * to report their metrics.
+     *
+     * @return An array of JobPool instances.
+     */
+    public static JobPool[] getJobPools() {
+
+        synchronized (jobPoolMap) {
+
+            ArrayList<JobPool> l = new ArrayList<JobPool>(jobPoolMap.values());
+            return (l.toArray(new JobPool[l.size()]));
+        }
+    }
+
+    private static int getDefaultPoolSize(String name) {
+
+        int result = 0;
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        if (RECORDING_POOL.equals(name)) {
+
+            // A recording can never wait so this is set well above the
+            // number of tuners anyone would have.
+            result = 32;
+
+        } else if (POST_PROCESSING_POOL.equals(name)) {
+
+            result = Math.max(2, cpus);
+
+        } else if (HOUSEKEEPING_POOL.equals(name)) {
+
+            result = 4;
+
+        } else if (PROCESS_IO_POOL.equals(name)) {
+
+            // The readers live as long as their process and a process
+            // can't exit while its output is not read, so a reader must
+            // never wait behind another one.
+            result = JobPool.UNBOUNDED;
+        }
+
+        return (result);
+    }
+
+    private static int getPoolSizeProperty(String name, int def) {
+
+        int result = def;
+
+        String value = System.getProperty(POOL_PROPERTY + name);
+        if (value != null) {
+
+            try {
+
+                result = Integer.parseInt(value.trim());
+
+            } catch (NumberFormatException ex) {
+
+                result = def;
+            }
+        }
+
+        return (result);
+    }
+
     /**
      * Simple method to sleep.  The time is in milliseconds.
      *
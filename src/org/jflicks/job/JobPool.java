@@ -0,0 +1,225 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.job;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A named pool of threads that run Job instances.  The pool will never
+ * have more than "size" threads running at once.  Any more jobs are put
+ * in a queue and run when a thread frees up.  Idle threads go away after
+ * a short time so a quiet system does not keep threads around.
+ *
+ * An UNBOUNDED pool never queues, every job gets a thread right away.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class JobPool {
+
+    /**
+     * The size of a pool that runs every job at once.
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private static final long KEEP_ALIVE_SECONDS = 10L;
+
+    private String name;
+    private int size;
+    private int stuckCount;
+    private ThreadPoolExecutor threadPoolExecutor;
+
+    /**
+     * Create a pool with a name and a bound.
+     *
+     * @param name The name of the pool, used to name the threads.
+     * @param size The most number of jobs that can run at once, or
+     * UNBOUNDED.
+     */
+    public JobPool(String name, int size) {
+
+        this.name = name;
+        this.size = Math.max(1, size);
+
+        if (isUnbounded()) {
+
+            threadPoolExecutor = new ThreadPoolExecutor(0, UNBOUNDED,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                new NamedThreadFactory(name));
+
+        } else {
+
+            threadPoolExecutor = new ThreadPoolExecutor(this.size, this.size,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new NamedThreadFactory(name));
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     * The name of this pool.
+     *
+     * @return The name as a String.
+     */
+    public String getName() {
+        return (name);
+    }
+
+    /**
+     * The most number of jobs that can run at once.
+     *
+     * @return An int value.
+     */
+    public int getSize() {
+        return (size);
+    }
+
+    /**
+     * True when every job gets a thread right away.
+     *
+     * @return A boolean value.
+     */
+    public boolean isUnbounded() {
+        return (size == UNBOUNDED);
+    }
+
+    /**
+     * The number of jobs waiting for a thread.
+     *
+     * @return An int value.
+     */
+    public int getQueueDepth() {
+        return (threadPoolExecutor.getQueue().size());
+    }
+
+    /**
+     * The number of jobs running right now.
+     *
+     * @return An int value.
+     */
+    public int getActiveCount() {
+        return (threadPoolExecutor.getActiveCount());
+    }
+
+    /**
+     * The number of threads alive in the pool, busy or idle.
+     *
+     * @return An int value.
+     */
+    public int getThreadCount() {
+        return (threadPoolExecutor.getPoolSize());
+    }
+
+    /**
+     * The number of jobs that have been run to completion.
+     *
+     * @return A long value.
+     */
+    public long getCompletedCount() {
+        return (threadPoolExecutor.getCompletedTaskCount());
+    }
+
+    /**
+     * The number of running jobs that are stuck where they can't be
+     * stopped, each of which the pool has made up for with another thread.
+     *
+     * @return An int value.
+     */
+    public synchronized int getStuckCount() {
+        return (stuckCount);
+    }
+
+    /**
+     * A running job is stuck and can't be stopped.  Until it ends the pool
+     * may run one more thread so the stuck one doesn't take up a place.
+     */
+    synchronized void stuck() {
+
+        stuckCount++;
+        if (!isUnbounded()) {
+
+            threadPoolExecutor.setMaximumPoolSize(size + stuckCount);
+            threadPoolExecutor.setCorePoolSize(size + stuckCount);
+        }
+    }
+
+    /**
+     * A job we were told was stuck has ended.
+     */
+    synchronized void unstuck() {
+
+        if (stuckCount > 0) {
+
+            stuckCount--;
+            if (!isUnbounded()) {
+
+                threadPoolExecutor.setCorePoolSize(size + stuckCount);
+                threadPoolExecutor.setMaximumPoolSize(size + stuckCount);
+            }
+        }
+    }
+
+    void execute(Runnable r) {
+        threadPoolExecutor.execute(r);
+    }
+
+    boolean remove(Runnable r) {
+        return (threadPoolExecutor.remove(r));
+    }
+
+    /**
+     * Override so the metrics can be logged easily.
+     *
+     * @return A String representation of this pool.
+     */
+    public String toString() {
+
+        String s = (isUnbounded()) ? "unbounded" : String.valueOf(getSize());
+        return (getName() + " size=" + s + " active="
+            + getActiveCount() + " stuck=" + getStuckCount() + " queued="
+            + getQueueDepth() + " threads=" + getThreadCount()
+            + " completed=" + getCompletedCount());
+    }
+
+    static class NamedThreadFactory implements ThreadFactory {
+
+        private String prefix;
+        private AtomicInteger count;
+
+        NamedThreadFactory(String s) {
+
+            prefix = "jflicks-" + s + "-";
+            count = new AtomicInteger();
+        }
+
+        public Thread newThread(Runnable r) {
+
+            Thread result = new Thread(r, prefix + count.incrementAndGet());
+            result.setPriority(Thread.NORM_PRIORITY);
+
+            return (result);
+        }
+    }
+
+}
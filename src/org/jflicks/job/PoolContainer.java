@@ -0,0 +1,172 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.job;
+
+/**
+ * This runs a Job on a thread borrowed from a JobPool.  A job that is
+ * waiting in the pool queue is considered alive, it just has not begun
+ * to run yet.  Interrupting a queued job takes it out of the queue.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class PoolContainer extends JobContainer implements Runnable {
+
+    private JobPool jobPool;
+    private Thread thread;
+    private int priority;
+    private boolean alive;
+    private boolean interrupted;
+
+    /**
+     * Given a Job and a JobPool, run the Job in the pool.
+     *
+     * @param j A given Job interface to run.
+     * @param p The JobPool that will run the job.
+     */
+    public PoolContainer(Job j, JobPool p) {
+
+        setJob(j);
+        jobPool = p;
+        priority = Thread.NORM_PRIORITY;
+    }
+
+    /**
+     * The pool that runs our job.
+     *
+     * @return A JobPool instance.
+     */
+    public JobPool getJobPool() {
+        return (jobPool);
+    }
+
+    /**
+     * The start method.
+     */
+    public void start() {
+
+        Job j = getJob();
+        if ((j != null) && (jobPool != null)) {
+
+            j.start();
+
+            synchronized (this) {
+
+                alive = true;
+                interrupted = false;
+            }
+            jobPool.execute(this);
+        }
+    }
+
+    /**
+     * Run the job.
+     */
+    public void run() {
+
+        Thread t = Thread.currentThread();
+        synchronized (this) {
+
+            if (!alive) {
+                return;
+            }
+            thread = t;
+            t.setPriority(priority);
+        }
+
+        try {
+
+            Job j = getJob();
+            if (j != null) {
+
+                j.run();
+            }
+
+        } finally {
+
+            synchronized (this) {
+
+                thread = null;
+                alive = false;
+            }
+
+            // The thread goes back to the pool so it should not carry
+            // anything from this job.
+            Thread.interrupted();
+            t.setPriority(Thread.NORM_PRIORITY);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized boolean isInterrupted() {
+
+        boolean result = interrupted;
+        if (thread != null) {
+
+            result = thread.isInterrupted();
+        }
+
+        return (result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized boolean isAlive() {
+        return (alive);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void interrupt() {
+
+        interrupted = true;
+        if (thread != null) {
+
+            thread.interrupt();
+
+        } else if (alive) {
+
+            // Never got to run so just take it out of the queue.
+            jobPool.remove(this);
+            alive = false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int getPriority() {
+        return (priority);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void setPriority(int i) {
+
+        priority = i;
+        if (thread != null) {
+
+            thread.setPriority(i);
+        }
+    }
+
+}
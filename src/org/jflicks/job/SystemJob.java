@@ -19,19 +19,23 @@ package org.jflicks.job;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jflicks.util.LogUtil;
 import org.jflicks.util.Util;
 
 /**
  * This class will run any system executable.  It uses Input and Output jobs
- * to monitor and control stdin and stdout from the system process.
+ * to monitor and control stdin and stdout from the system process.  The
+ * job completes as soon as the process exits and it's output is read.
  *
  * @author Doug Barnum
  * @version 1.0
  */
 public final class SystemJob extends AbstractJob implements JobListener {
 
+    private static final long DRAIN_TIMEOUT = 5000L;
+
     private String shell;
     private String shellSwitch;
     private String command;
@@ -40,10 +44,9 @@ public final class SystemJob extends AbstractJob implements JobListener {
 
     private Process process;
     private int exitValue;
-    private InputStreamJob inputStreamJob;
-    private JobContainer inputJobContainer;
-    private OutputStreamJob outputStreamJob;
-    private JobContainer outputJobContainer;
+    private volatile InputStreamJob inputStreamJob;
+    private volatile JobContainer inputJobContainer;
+    private volatile OutputStreamJob outputStreamJob;
 
     private SystemJob() {
     }
@@ -189,9 +192,10 @@ public final class SystemJob extends AbstractJob implements JobListener {
      */
     public void write(byte[] array, int offset, int length) throws IOException {
 
-        if ((outputStreamJob != null) && (array != null)) {
+        OutputStreamJob job = outputStreamJob;
+        if ((job != null) && (array != null)) {
 
-            outputStreamJob.write(array, offset, length);
+            job.write(array, offset, length);
         }
     }
 
@@ -247,6 +251,42 @@ public final class SystemJob extends AbstractJob implements JobListener {
         }
     }
 
+    private void stuck(InputStreamJob job) {
+
+        final JobPool pool = JobManager.getJobPool(JobManager.PROCESS_IO_POOL);
+        final AtomicBoolean once = new AtomicBoolean();
+        pool.stuck();
+        job.addJobListener(new JobListener() {
+
+            public void jobUpdate(JobEvent event) {
+
+                if ((event.getType() == JobEvent.COMPLETE)
+                    && (once.compareAndSet(false, true))) {
+
+                    pool.unstuck();
+                }
+            }
+        });
+
+        // It may have ended before we were listening.
+        if ((job.waitForEnd(0L)) && (once.compareAndSet(false, true))) {
+            pool.unstuck();
+        }
+    }
+
+    private void close(Process p) {
+
+        try {
+
+            p.getInputStream().close();
+            p.getOutputStream().close();
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.DEBUG, "SystemJob: " + ex.getMessage());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -257,31 +297,38 @@ public final class SystemJob extends AbstractJob implements JobListener {
 
             try {
 
-                inputStreamJob = new InputStreamJob(p.getInputStream());
-                inputJobContainer = JobManager.getJobContainer(inputStreamJob);
+                // Nothing has to watch stdin, we write to it directly when
+                // asked.  Only stdout needs a job to keep reading it so the
+                // process never blocks on a full pipe.
                 outputStreamJob = new OutputStreamJob(p.getOutputStream());
-                outputJobContainer =
-                    JobManager.getJobContainer(outputStreamJob);
-                if ((inputStreamJob != null) && (inputJobContainer != null)
-                    && (outputStreamJob != null)
-                    && (outputJobContainer != null)) {
+                inputStreamJob = new InputStreamJob(p.getInputStream());
+                inputJobContainer = JobManager.getJobContainer(inputStreamJob,
+                    JobManager.PROCESS_IO_POOL);
+                if ((inputStreamJob != null) && (inputJobContainer != null)) {
 
                     inputStreamJob.addJobListener(this);
                     inputJobContainer.start();
-                    JobManager.sleep(1000);
-                    outputStreamJob.addJobListener(this);
-                    outputJobContainer.start();
-                    JobManager.sleep(1000);
 
                     setExitValue(p.waitFor());
+
+                    // The end of the stream comes right after the exit
+                    // unless some child of the process still has it open.
+                    if (!inputStreamJob.waitForEnd(DRAIN_TIMEOUT)) {
+
+                        // A child still has stdout open.  Closing our end
+                        // makes the read fail the next time the child
+                        // writes or ends, but nothing can wake it before
+                        // then, so the pool runs another thread meanwhile.
+                        LogUtil.log(LogUtil.DEBUG, "SystemJob: output of "
+                            + getCommand() + " still open after exit");
+                        close(p);
+                        stuck(inputStreamJob);
+                    }
                     setOutputText(inputStreamJob.getOutputText());
                     inputJobContainer.stop();
                     inputJobContainer = null;
                     inputStreamJob.removeJobListener(this);
                     inputStreamJob = null;
-                    outputJobContainer.stop();
-                    outputJobContainer = null;
-                    outputStreamJob.removeJobListener(this);
                     outputStreamJob = null;
                 }
 
@@ -307,18 +354,15 @@ public final class SystemJob extends AbstractJob implements JobListener {
 
                 p.destroy();
                 setExitValue(p.waitFor());
+                close(p);
                 setProcess(null);
 
-                if (inputJobContainer != null) {
-
-                    inputJobContainer.stop();
-                    inputStreamJob.removeJobListener(this);
-                }
-
-                if (outputJobContainer != null) {
+                JobContainer jc = inputJobContainer;
+                InputStreamJob job = inputStreamJob;
+                if ((jc != null) && (job != null)) {
 
-                    outputJobContainer.stop();
-                    outputStreamJob.removeJobListener(this);
+                    jc.stop();
+                    job.removeJobListener(this);
                 }
 
             } catch (Exception ex) {
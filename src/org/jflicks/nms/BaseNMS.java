@@ -16,11 +16,10 @@
 */
 package org.jflicks.nms;
 
-import java.awt.Graphics2D;
-import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.Serializable;
@@ -35,7 +34,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.jflicks.autoart.AutoArt;
 import org.jflicks.cleaner.Cleaner;
@@ -49,9 +51,11 @@ import org.jflicks.trailer.Trailer;
 import org.jflicks.tv.Airing;
 import org.jflicks.tv.Channel;
 import org.jflicks.tv.ChannelLogo;
+import org.jflicks.tv.GuideEntry;
 import org.jflicks.tv.Listing;
 import org.jflicks.tv.LiveTV;
 import org.jflicks.tv.Recording;
+import org.jflicks.tv.RecordingDelta;
 import org.jflicks.tv.RecordingRule;
 import org.jflicks.tv.Show;
 import org.jflicks.tv.ShowAiring;
@@ -107,6 +111,10 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
     private EventSender eventSender;
     private HashMap<Channel, ArrayList<ShowAiring>> showAiringCacheMap;
     private ArrayList<InUse> inUseList;
+    private Recording[] recordingCache;
+    private long recordingCacheVersion;
+    private String recordingCacheKey;
+    private ImageDerivatives imageDerivatives;
 
     /**
      * Simple empty constructor.
@@ -1384,6 +1392,46 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
         return (result);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public GuideEntry[] getGuideEntries(Channel c, long start, long end) {
+
+        GuideEntry[] result = null;
+
+        ProgramData[] array = getProgramData();
+        if ((array != null) && (c != null)) {
+
+            Date from = new Date(start);
+            Date to = new Date(end);
+            ArrayList<GuideEntry> list = new ArrayList<GuideEntry>();
+            for (int i = 0; i < array.length; i++) {
+
+                Airing[] airs = array[i].getAiringsByChannel(c, from, to);
+                if (airs != null) {
+
+                    for (int j = 0; j < airs.length; j++) {
+
+                        Show show = array[i].getShowByAiring(airs[j]);
+                        Date d = airs[j].getAirDateUTC();
+                        if ((show != null) && (d != null)) {
+
+                            list.add(new GuideEntry(c.getId(), d.getTime(),
+                                airs[j].getDuration(), show.getId(),
+                                show.getTitle()));
+                        }
+                    }
+                }
+            }
+
+            if (list.size() > 0) {
+                result = list.toArray(new GuideEntry[list.size()]);
+            }
+        }
+
+        return (result);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1632,9 +1680,12 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
                     String sid = result[i].getSeriesId();
                     if (sid != null) {
 
-                            result[i].setBannerURL(top + sid + "_banner.jpg");
-                            result[i].setPosterURL(top + sid + "_poster.jpg");
-                            result[i].setFanartURL(top + sid + "_fanart.jpg");
+                            result[i].setBannerURL(toImageURL(top,
+                                sid + "_banner.jpg"));
+                            result[i].setPosterURL(toImageURL(top,
+                                sid + "_poster.jpg"));
+                            result[i].setFanartURL(toImageURL(top,
+                                sid + "_fanart.jpg"));
                     }
 
                     // We should sync up the PostProc Workers with the
@@ -1691,33 +1742,33 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
         LogUtil.log(LogUtil.DEBUG, "getRecordings: scheduler <" + s + ">");
         if (s != null) {
 
-            result = s.getRecordings();
-            LogUtil.log(LogUtil.DEBUG, "getRecordings: result from scheduler <" + result + ">");
+            // The scheduler only changes its version when a recording
+            // changes, so until then we can hand out the same URLs.
+            long version = s.getRecordingsVersion();
+            String key = getRecordingURLKey();
+            synchronized (this) {
 
-            // We should update the image URLs for the client.  Persisting
-            // the URLs is not a good idea because the URL could change.
-            // Either by config the port changes or less likely the IP
-            // changes.  Either way we will update them.  We don't check
-            // if they actually exist, we will just build them by rule.
-            if (result != null) {
+                if ((recordingCache != null)
+                    && (version == recordingCacheVersion)
+                    && (key.equals(recordingCacheKey))) {
 
-                String h = getHost();
-                int p = getHttpPort();
-                if (h != null) {
+                    result = recordingCache.clone();
+                }
+            }
 
-                    String hp = h + ":" + port;
-                    String top = "http://" + h + ":" + p + "/" + NMSConstants.HTTP_IMAGES_NAME + "/";
-                    for (int i = 0; i < result.length; i++) {
+            if (result == null) {
 
-                        String sid = result[i].getSeriesId();
-                        if (sid != null) {
+                result = s.getRecordings();
+                LogUtil.log(LogUtil.DEBUG, "getRecordings: result from scheduler <" + result + ">");
+                applyRecordingURLs(result);
 
-                            result[i].setBannerURL(top + sid + "_banner.jpg");
-                            result[i].setPosterURL(top + sid + "_poster.jpg");
-                            result[i].setFanartURL(top + sid + "_fanart.jpg");
-                        }
-                        result[i].setHostPort(hp);
-                        result[i].setStreamURL(computeStreamURL(result[i]));
+                if (result != null) {
+
+                    synchronized (this) {
+
+                        recordingCache = result.clone();
+                        recordingCacheVersion = version;
+                        recordingCacheKey = key;
                     }
                 }
             }
@@ -1726,6 +1777,67 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
         return (result);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public RecordingDelta getRecordingsSince(long version) {
+
+        RecordingDelta result = null;
+
+        Scheduler s = getScheduler();
+        if (s != null) {
+
+            result = s.getRecordingsSince(version);
+            if (result != null) {
+                applyRecordingURLs(result.getRecordings());
+            }
+        }
+
+        return (result);
+    }
+
+    private String getRecordingURLKey() {
+
+        return (getHost() + ":" + port + ":" + getHttpPort() + ":"
+            + getStreamPort() + ":"
+            + Arrays.toString(getConfiguredStreamPaths()) + ":"
+            + getImageDerivatives().getChangeCount());
+    }
+
+    private void applyRecordingURLs(Recording[] array) {
+
+        // We should update the image URLs for the client.  Persisting
+        // the URLs is not a good idea because the URL could change.
+        // Either by config the port changes or less likely the IP
+        // changes.  Either way we will update them.  The image URLs
+        // carry the version of the image if it is there.
+        if (array != null) {
+
+            String h = getHost();
+            int p = getHttpPort();
+            if (h != null) {
+
+                String hp = h + ":" + port;
+                String top = "http://" + h + ":" + p + "/" + NMSConstants.HTTP_IMAGES_NAME + "/";
+                for (int i = 0; i < array.length; i++) {
+
+                    String sid = array[i].getSeriesId();
+                    if (sid != null) {
+
+                        array[i].setBannerURL(toImageURL(top,
+                            sid + "_banner.jpg"));
+                        array[i].setPosterURL(toImageURL(top,
+                            sid + "_poster.jpg"));
+                        array[i].setFanartURL(toImageURL(top,
+                            sid + "_fanart.jpg"));
+                    }
+                    array[i].setHostPort(hp);
+                    array[i].setStreamURL(computeStreamURL(array[i]));
+                }
+            }
+        }
+    }
+
     private String computeStreamURL(String path) {
 
         String result = null;
@@ -2075,8 +2187,8 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
             // We should update the image URLs for the client.  Persisting
             // the URLs is not a good idea because the URL could change.
             // Either by config the port changes or less likely the IP
-            // changes.  Either way we will update them.  We don't check
-            // if they actually exist, we will just build them by rule.
+            // changes.  Either way we will update them.  The image URLs
+            // carry the version of the image if it is there.
             if (result != null) {
 
                 String h = getHost();
@@ -2091,9 +2203,12 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
                         String sid = result[i].getSeriesId();
                         if (sid != null) {
 
-                            result[i].setBannerURL(top + sid + "_banner.jpg");
-                            result[i].setPosterURL(top + sid + "_poster.jpg");
-                            result[i].setFanartURL(top + sid + "_fanart.jpg");
+                            result[i].setBannerURL(toImageURL(top,
+                                sid + "_banner.jpg"));
+                            result[i].setPosterURL(toImageURL(top,
+                                sid + "_poster.jpg"));
+                            result[i].setFanartURL(toImageURL(top,
+                                sid + "_fanart.jpg"));
                         }
                         result[i].setHostPort(hp);
                     }
@@ -2140,126 +2255,166 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
 
         if ((data != null) && (id != null)) {
 
-            String imageHome = getConfiguredImageHome();
-            if (imageHome == null) {
-                imageHome = ".";
-            }
+            saveImage(imageType, data, id);
+        }
+    }
 
-            String name = null;
-            String rokusdname = null;
-            String rokuhdname = null;
-            switch (imageType) {
+    /**
+     * {@inheritDoc}
+     */
+    public void save(int imageType, String url, String id) {
 
-            default:
-            case NMSConstants.BANNER_IMAGE_TYPE:
-                name = imageHome + "/" + id + "_banner.jpg";
-                break;
+        if ((url != null) && (id != null)) {
 
-            case NMSConstants.FANART_IMAGE_TYPE:
-                name = imageHome + "/" + id + "_fanart.jpg";
-                break;
+            byte[] data = readFromUrl(url);
+            if (data != null) {
 
-            case NMSConstants.POSTER_IMAGE_TYPE:
-                name = imageHome + "/" + id + "_poster.jpg";
-                break;
+                saveImage(imageType, data, id);
 
+            } else {
+
+                LogUtil.log(LogUtil.WARNING, "can't load url <" + url + ">");
             }
-            try {
+        }
+    }
 
-                ByteArrayInputStream bais = new ByteArrayInputStream(data);
-                BufferedImage bi = ImageIO.read(bais);
-                if (bi != null) {
+    private void saveImage(int imageType, byte[] data, String id) {
 
-                    ImageIO.write(bi, "jpg", new File(name));
+        String imageHome = getConfiguredImageHome();
+        if (imageHome == null) {
+            imageHome = ".";
+        }
 
-                    if (rokuhdname != null) {
+        String name = null;
+        switch (imageType) {
 
-                        BufferedImage hd = createImage(bi, 388);
-                        hd = hd.getSubimage(49, 0, 290, 218);
-                        ImageIO.write(hd, "jpg", new File(rokuhdname));
+        default:
+        case NMSConstants.BANNER_IMAGE_TYPE:
+            name = id + "_banner.jpg";
+            break;
 
-                        BufferedImage sd = createImage(bi, 256);
-                        sd = sd.getSubimage(21, 0, 214, 144);
-                        ImageIO.write(sd, "jpg", new File(rokusdname));
-                    }
+        case NMSConstants.FANART_IMAGE_TYPE:
+            name = id + "_fanart.jpg";
+            break;
+
+        case NMSConstants.POSTER_IMAGE_TYPE:
+            name = id + "_poster.jpg";
+            break;
+
+        }
+
+        File file = new File(imageHome, name);
+        try {
+
+            if (isJpeg(data)) {
+
+                // Already a JPEG so keep the bytes we were given rather
+                // than decode and encode it again.
+                FileOutputStream fos = new FileOutputStream(file);
+                try {
+
+                    fos.write(data);
+
+                } finally {
+
+                    fos.close();
+                }
+                getImageDerivatives().invalidate(name);
+
+            } else {
+
+                ByteArrayInputStream bais = new ByteArrayInputStream(data);
+                BufferedImage bi = ImageIO.read(bais);
+                if (bi != null) {
+
+                    ImageIO.write(bi, "jpg", file);
+                    getImageDerivatives().invalidate(name);
 
                 } else {
 
                     LogUtil.log(LogUtil.WARNING, "can't load byte array <" + data + ">");
                 }
+            }
 
-            } catch (IOException ex) {
+        } catch (IOException ex) {
 
-                LogUtil.log(LogUtil.WARNING, "save image: " + ex.getMessage());
-            }
+            LogUtil.log(LogUtil.WARNING, "save image: " + ex.getMessage());
         }
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    public void save(int imageType, String url, String id) {
+    private boolean isJpeg(byte[] data) {
 
-        if ((url != null) && (id != null)) {
+        boolean result = false;
 
-            String imageHome = getConfiguredImageHome();
-            if (imageHome == null) {
-                imageHome = ".";
-            }
+        // A JPEG starts with a start of image marker.  We still make sure
+        // ImageIO can read its size so we don't keep a broken one.
+        if ((data.length > 3) && ((data[0] & 0xFF) == 0xFF)
+            && ((data[1] & 0xFF) == 0xD8) && ((data[2] & 0xFF) == 0xFF)) {
 
-            String name = null;
-            String rokusdname = null;
-            String rokuhdname = null;
-            switch (imageType) {
+            try {
 
-            default:
-            case NMSConstants.BANNER_IMAGE_TYPE:
-                name = imageHome + "/" + id + "_banner.jpg";
-                break;
+                ImageInputStream iis = ImageIO.createImageInputStream(
+                    new ByteArrayInputStream(data));
+                Iterator<ImageReader> iter = ImageIO.getImageReaders(iis);
+                if (iter.hasNext()) {
 
-            case NMSConstants.FANART_IMAGE_TYPE:
-                name = imageHome + "/" + id + "_fanart.jpg";
-                break;
+                    ImageReader reader = iter.next();
+                    reader.setInput(iis, true, true);
+                    result = (reader.getWidth(0) > 0)
+                        && (reader.getHeight(0) > 0);
+                    reader.dispose();
+                }
+                iis.close();
 
-            case NMSConstants.POSTER_IMAGE_TYPE:
-                name = imageHome + "/" + id + "_poster.jpg";
-                break;
+            } catch (IOException ex) {
 
+                result = false;
             }
-            try {
+        }
 
-                //BufferedImage bi = ImageIO.read(new URL(url));
-                BufferedImage bi = readFromUrl(url);
-                if (bi != null) {
+        return (result);
+    }
 
-                    ImageIO.write(bi, "jpg", new File(name));
+    /**
+     * The smaller versions of our images are made and kept by this
+     * instance.
+     *
+     * @return An ImageDerivatives instance.
+     */
+    public synchronized ImageDerivatives getImageDerivatives() {
 
-                    if (rokuhdname != null) {
+        String imageHome = getConfiguredImageHome();
+        if (imageHome == null) {
+            imageHome = ".";
+        }
 
-                        BufferedImage hd = createImage(bi, 388);
-                        hd = hd.getSubimage(49, 0, 290, 218);
-                        ImageIO.write(hd, "jpg", new File(rokuhdname));
+        File home = new File(imageHome);
+        if ((imageDerivatives == null)
+            || (!home.equals(imageDerivatives.getHome()))) {
 
-                        BufferedImage sd = createImage(bi, 256);
-                        sd = sd.getSubimage(21, 0, 214, 144);
-                        ImageIO.write(sd, "jpg", new File(rokusdname));
-                    }
+            imageDerivatives = new ImageDerivatives(home);
+        }
 
-                } else {
+        return (imageDerivatives);
+    }
 
-                    LogUtil.log(LogUtil.WARNING, "can't load url <" + url + ">");
-                }
+    private String toImageURL(String top, String name) {
 
-            } catch (IOException ex) {
+        String result = top + name;
 
-                LogUtil.log(LogUtil.WARNING, "save image: " + ex.getMessage());
-            }
+        // The version changes when the image does so clients can keep it
+        // for as long as they like.
+        long version = getImageDerivatives().getVersion(name);
+        if (version > 0L) {
+            result = result + "?v=" + Long.toString(version, 36);
         }
+
+        return (result);
     }
 
-    private BufferedImage readFromUrl(String url) {
+    private byte[] readFromUrl(String url) {
 
-        BufferedImage result = null;
+        byte[] result = null;
 
         URLConnection con = null;
         InputStream in = null;
@@ -2271,14 +2426,10 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
             con.connect();
             LogUtil.log(LogUtil.DEBUG, "connected url: " + con.getURL());
             in = con.getInputStream();
-            byte[] bytes = IOUtils.toByteArray(in);
-            LogUtil.log(LogUtil.DEBUG, "after IOUtils.toByteArray " + bytes);
-            if (bytes != null) {
+            result = IOUtils.toByteArray(in);
+            if (result != null) {
 
-                LogUtil.log(LogUtil.DEBUG, "after IOUtils.toByteArray " + bytes.length);
-                ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-                result = ImageIO.read(bais);
-                LogUtil.log(LogUtil.DEBUG, "after ImageIO.read " + result);
+                LogUtil.log(LogUtil.DEBUG, "after IOUtils.toByteArray " + result.length);
             }
 
         } catch (IOException ex) {
@@ -2330,31 +2481,6 @@ public abstract class BaseNMS extends BaseConfig implements NMS,
         return conn;
     }
 
-    private BufferedImage createImage(BufferedImage bi, int scalex) {
-
-        BufferedImage result = null;
-
-        if (bi != null) {
-
-            Image scaled = bi.getScaledInstance(388, -1, Image.SCALE_DEFAULT);
-            if (scaled instanceof BufferedImage) {
-
-                LogUtil.log(LogUtil.INFO, "It's a BufferedImage already...");
-                result = (BufferedImage) scaled;
-
-            } else {
-
-                LogUtil.log(LogUtil.INFO, "Have to Make a BufferedImage!");
-                result = new BufferedImage(scaled.getWidth(null),
-                    scaled.getHeight(null), bi.getType());
-                Graphics2D g2d = result.createGraphics();
-                g2d.drawImage(scaled, 0, 0, null);
-            }
-        }
-
-        return (result);
-    }
-
     /**
      * {@inheritDoc}
      */
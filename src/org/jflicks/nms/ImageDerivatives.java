@@ -0,0 +1,511 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.nms;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.jflicks.util.LogUtil;
+
+/**
+ * The images we keep for series and videos are full size, which is a lot
+ * of bytes for a client that shows them as a thumbnail or in a list.
+ * This class makes smaller versions of an image the first time a size is
+ * asked for and keeps them in a "derived" directory under the image home
+ * so the next time they are just read.  A smaller version is made again
+ * when the image it came from is newer, and they can be thrown away
+ * when the image is saved again.
+ *
+ * An image already no wider than a size is used as is for that size.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class ImageDerivatives {
+
+    /**
+     * The directory under the image home the smaller images go in.
+     */
+    public static final String DERIVED = "derived";
+
+    /**
+     * The width of a thumbnail.
+     */
+    public static final int THUMBNAIL_WIDTH = 240;
+
+    /**
+     * The width of an image in a list.
+     */
+    public static final int LIST_WIDTH = 480;
+
+    /**
+     * The width of an image filling the screen.
+     */
+    public static final int FULLSCREEN_WIDTH = 1920;
+
+    private static final String[] SIZES = {
+        NMSConstants.IMAGE_SIZE_THUMBNAIL,
+        NMSConstants.IMAGE_SIZE_LIST,
+        NMSConstants.IMAGE_SIZE_FULLSCREEN
+    };
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private File home;
+    private File derived;
+    private HashMap<String, HashSet<String>> idMap;
+    private HashMap<String, Object> lockMap;
+    private HashMap<String, Long> smallMap;
+    private long generatedCount;
+    private long hitCount;
+    private long changeCount;
+
+    /**
+     * Constructor with the required image home.
+     *
+     * @param home The directory the images are in.
+     */
+    public ImageDerivatives(File home) {
+
+        this.home = home;
+        derived = new File(home, DERIVED);
+        idMap = new HashMap<String, HashSet<String>>();
+        lockMap = new HashMap<String, Object>();
+        smallMap = new HashMap<String, Long>();
+    }
+
+    /**
+     * The directory the images are in.
+     *
+     * @return A File instance.
+     */
+    public File getHome() {
+        return (home);
+    }
+
+    /**
+     * The number of smaller images made since we started.
+     *
+     * @return A long value.
+     */
+    public synchronized long getGeneratedCount() {
+        return (generatedCount);
+    }
+
+    /**
+     * The number of times a smaller image was already there.
+     *
+     * @return A long value.
+     */
+    public synchronized long getHitCount() {
+        return (hitCount);
+    }
+
+    /**
+     * Goes up each time an image is saved again, so a cache of URLs can
+     * tell its versions are old.
+     *
+     * @return A long value.
+     */
+    public synchronized long getChangeCount() {
+        return (changeCount);
+    }
+
+    /**
+     * The width of a size, or zero if it is not one we know.
+     *
+     * @param size One of the NMSConstants IMAGE_SIZE values.
+     * @return An int value.
+     */
+    public static int toWidth(String size) {
+
+        int result = 0;
+
+        if (NMSConstants.IMAGE_SIZE_THUMBNAIL.equals(size)) {
+            result = THUMBNAIL_WIDTH;
+        } else if (NMSConstants.IMAGE_SIZE_LIST.equals(size)) {
+            result = LIST_WIDTH;
+        } else if (NMSConstants.IMAGE_SIZE_FULLSCREEN.equals(size)) {
+            result = FULLSCREEN_WIDTH;
+        }
+
+        return (result);
+    }
+
+    /**
+     * Our images are named with the series or video id, an underscore
+     * and then what they are, like "EP0123_fanart.jpg".
+     *
+     * @param name The name of an image.
+     * @return The id part of the name.
+     */
+    public static String toId(String name) {
+
+        String result = name;
+
+        if (name != null) {
+
+            int index = name.lastIndexOf('_');
+            if (index > 0) {
+                result = name.substring(0, index);
+            }
+        }
+
+        return (result);
+    }
+
+    private static String toExtension(String name) {
+
+        String result = null;
+
+        int index = name.lastIndexOf('.');
+        if (index > 0) {
+
+            String ext = name.substring(index + 1).toLowerCase();
+            if ((ext.equals("jpg")) || (ext.equals("jpeg"))
+                || (ext.equals("png"))) {
+
+                result = ext;
+            }
+        }
+
+        return (result);
+    }
+
+    private static String toDerivedName(String name, String size) {
+
+        int index = name.lastIndexOf('.');
+        return (name.substring(0, index) + "_" + size
+            + name.substring(index));
+    }
+
+    /**
+     * A version of an image that changes when it is saved again, which is
+     * just when it was last modified.
+     *
+     * @param name The name of an image in the image home.
+     * @return The version or zero when the image is not there.
+     */
+    public long getVersion(String name) {
+
+        long result = 0L;
+
+        if (name != null) {
+            result = new File(home, name).lastModified();
+        }
+
+        return (result);
+    }
+
+    private Object lock(String name) {
+
+        Object result = null;
+
+        synchronized (lockMap) {
+
+            result = lockMap.get(name);
+            if (result == null) {
+
+                result = new Object();
+                lockMap.put(name, result);
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * Find the file to send for an image at a size.  If the size is null
+     * or not one we know, or the image is not one we can make smaller,
+     * the image itself is the answer.
+     *
+     * @param name The name of an image in the image home.
+     * @param size One of the NMSConstants IMAGE_SIZE values or null.
+     * @return The File to send or null if the image is not there.
+     */
+    public File getFile(String name, String size) {
+
+        File result = null;
+
+        if (name != null) {
+
+            File original = new File(home, name);
+            if (original.isFile()) {
+
+                result = original;
+                int width = toWidth(size);
+                String ext = toExtension(name);
+                if ((width > 0) && (ext != null)) {
+
+                    String dname = toDerivedName(name, size);
+                    synchronized (lock(dname)) {
+
+                        File f = getDerived(original, dname, ext, width);
+                        if (f != null) {
+                            result = f;
+                        }
+                    }
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    private File getDerived(File original, String dname, String ext,
+        int width) {
+
+        File result = null;
+
+        long modified = original.lastModified();
+        File f = new File(derived, dname);
+        if (f.lastModified() >= modified) {
+
+            synchronized (this) {
+                hitCount++;
+            }
+            result = f;
+
+        } else {
+
+            Long small = null;
+            synchronized (this) {
+                small = smallMap.get(dname);
+            }
+
+            if ((small == null) || (small.longValue() != modified)) {
+
+                try {
+
+                    long start = System.currentTimeMillis();
+                    if (generate(original, f, ext, width)) {
+
+                        result = f;
+                        synchronized (this) {
+
+                            generatedCount++;
+                            track(original.getName(), dname);
+                        }
+                        LogUtil.log(LogUtil.DEBUG, "Made " + dname + " in "
+                            + (System.currentTimeMillis() - start) + " ms");
+
+                    } else {
+
+                        synchronized (this) {
+                            smallMap.put(dname, Long.valueOf(modified));
+                        }
+                    }
+
+                } catch (IOException ex) {
+
+                    LogUtil.log(LogUtil.WARNING, "Could not make " + dname
+                        + ": " + ex.getMessage());
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    private void track(String name, String dname) {
+
+        String id = toId(name);
+        HashSet<String> set = idMap.get(id);
+        if (set == null) {
+
+            set = new HashSet<String>();
+            idMap.put(id, set);
+        }
+        set.add(dname);
+    }
+
+    private boolean generate(File original, File f, String ext, int width)
+        throws IOException {
+
+        boolean result = false;
+
+        ImageInputStream iis = ImageIO.createImageInputStream(original);
+        if (iis != null) {
+
+            BufferedImage bi = null;
+            try {
+
+                Iterator<ImageReader> iter = ImageIO.getImageReaders(iis);
+                if (iter.hasNext()) {
+
+                    ImageReader reader = iter.next();
+                    try {
+
+                        reader.setInput(iis, true, true);
+                        int w = reader.getWidth(0);
+                        if (w > width) {
+
+                            // Skip pixels while reading so we decode no
+                            // more than twice what we need.  Scaling from
+                            // there still looks good.
+                            ImageReadParam param = reader.getDefaultReadParam();
+                            int sub = Math.max(1, w / (width * 2));
+                            param.setSourceSubsampling(sub, sub, 0, 0);
+                            bi = reader.read(0, param);
+                        }
+
+                    } finally {
+
+                        reader.dispose();
+                    }
+                }
+
+            } finally {
+
+                iis.close();
+            }
+
+            if (bi != null) {
+
+                boolean jpeg = !ext.equals("png");
+                int height = Math.max(1,
+                    (bi.getHeight() * width) / bi.getWidth());
+                BufferedImage scaled = new BufferedImage(width, height,
+                    (jpeg) ? BufferedImage.TYPE_INT_RGB
+                    : BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g2d = scaled.createGraphics();
+                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2d.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+                g2d.drawImage(bi, 0, 0, width, height, null);
+                g2d.dispose();
+
+                // Write to a temp file and rename so a client never gets
+                // half an image.
+                derived.mkdirs();
+                File tmp = new File(derived, f.getName() + ".tmp");
+                write(scaled, tmp, jpeg);
+                f.delete();
+                if (!tmp.renameTo(f)) {
+
+                    tmp.delete();
+                    throw new IOException("rename of " + tmp + " failed");
+                }
+                result = true;
+            }
+        }
+
+        return (result);
+    }
+
+    private void write(BufferedImage bi, File f, boolean jpeg)
+        throws IOException {
+
+        if (jpeg) {
+
+            ImageWriter writer =
+                ImageIO.getImageWritersByFormatName("jpg").next();
+            ImageOutputStream ios = ImageIO.createImageOutputStream(f);
+            try {
+
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(ios);
+                writer.write(null, new IIOImage(bi, null, null), param);
+
+            } finally {
+
+                writer.dispose();
+                ios.close();
+            }
+
+        } else {
+
+            ImageIO.write(bi, "png", f);
+        }
+    }
+
+    /**
+     * Throw away the smaller images of an image because it has been saved
+     * again.
+     *
+     * @param name The name of the image in the image home.
+     */
+    public void invalidate(String name) {
+
+        if ((name != null) && (toExtension(name) != null)) {
+
+            for (int i = 0; i < SIZES.length; i++) {
+
+                String dname = toDerivedName(name, SIZES[i]);
+                synchronized (lock(dname)) {
+
+                    new File(derived, dname).delete();
+                    synchronized (this) {
+                        smallMap.remove(dname);
+                    }
+                }
+            }
+
+            synchronized (this) {
+
+                HashSet<String> set = idMap.get(toId(name));
+                if (set != null) {
+
+                    for (int i = 0; i < SIZES.length; i++) {
+                        set.remove(toDerivedName(name, SIZES[i]));
+                    }
+                    if (set.isEmpty()) {
+                        idMap.remove(toId(name));
+                    }
+                }
+                changeCount++;
+            }
+        }
+    }
+
+    /**
+     * The names of the smaller images we have made for a series or video
+     * id since we started.
+     *
+     * @param id A series or video id.
+     * @return An array of names in the derived directory.
+     */
+    public synchronized String[] getDerivedNames(String id) {
+
+        String[] result = new String[0];
+
+        HashSet<String> set = idMap.get(id);
+        if (set != null) {
+            result = set.toArray(new String[set.size()]);
+        }
+
+        return (result);
+    }
+
+}
@@ -27,8 +27,10 @@ import org.jflicks.photomanager.Tag;
 import org.jflicks.trailer.Trailer;
 import org.jflicks.tv.Airing;
 import org.jflicks.tv.Channel;
+import org.jflicks.tv.GuideEntry;
 import org.jflicks.tv.LiveTV;
 import org.jflicks.tv.Recording;
+import org.jflicks.tv.RecordingDelta;
 import org.jflicks.tv.RecordingRule;
 import org.jflicks.tv.Show;
 import org.jflicks.tv.ShowAiring;
@@ -264,6 +266,16 @@ public interface NMS extends Config {
      */
     Recording[] getRecordings();
 
+    /**
+     * Retrieve only what has changed in the recordings on this server
+     * since a version the client got from an earlier delta.  A client
+     * can start by passing zero which always returns everything.
+     *
+     * @param version A version from a previous RecordingDelta.
+     * @return A RecordingDelta instance.
+     */
+    RecordingDelta getRecordingsSince(long version);
+
     /**
      * Get a particular Recording by Id.
      *
@@ -423,6 +435,18 @@ public interface NMS extends Config {
      */
     ShowAiring[] getShowAiringsByChannel(Channel c);
 
+    /**
+     * Compact guide rows for a Channel that are on at some time in a
+     * window, sorted by start time.  This comes straight from the guide
+     * index so it is cheap to call for many channels.
+     *
+     * @param c A given Channel.
+     * @param start The beginning of the window in milliseconds UTC.
+     * @param end The end of the window in milliseconds UTC.
+     * @return An array of GuideEntry instances.
+     */
+    GuideEntry[] getGuideEntries(Channel c, long start, long end);
+
     /**
      * Given a Channel, and a series Id, find all the ShowAiring instances
      * that match.  For example, using this method one could find all
@@ -0,0 +1,572 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.nms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.jflicks.tv.Recording;
+import org.jflicks.tv.RecordingDelta;
+import org.jflicks.util.LogUtil;
+
+/**
+ * A read-through cache in front of a remote NMS for clients.  A client
+ * wraps each NMS it finds and uses the wrapper just like the real thing.
+ * Recordings, rules, upcomings, channels and guide rows are served from
+ * memory.  They are refreshed when the server sends a message saying
+ * they have changed, which the client passes on with messageReceived.
+ *
+ * Recordings are kept up to date with getRecordingsSince so only the
+ * ones that changed come over the wire.  Everything else is dropped and
+ * fetched again the next time it is asked for.  In case a message gets
+ * lost, entries other than the server identity also expire after a
+ * while.  Calls made through the wrapper that change things on the
+ * server drop what they affect right away.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class NMSCache implements InvocationHandler {
+
+    private static final String IDENTITY = "identity";
+    private static final String RULES = "rules";
+    private static final String UPCOMINGS = "upcomings";
+    private static final String CHANNELS = "channels";
+    private static final String GUIDE = "guide";
+
+    private static final long MINUTE = 60L * 1000L;
+
+    private static final HashMap<String, String> GROUPS =
+        new HashMap<String, String>();
+    private static final HashMap<String, Long> LIFETIMES =
+        new HashMap<String, Long>();
+
+    static {
+
+        GROUPS.put("getTitle", IDENTITY);
+        GROUPS.put("getHost", IDENTITY);
+        GROUPS.put("getPort", IDENTITY);
+        GROUPS.put("getHttpPort", IDENTITY);
+        GROUPS.put("getStreamPort", IDENTITY);
+        GROUPS.put("getGroupName", IDENTITY);
+        GROUPS.put("getRecordingRules", RULES);
+        GROUPS.put("getUpcomings", UPCOMINGS);
+        GROUPS.put("getChannels", CHANNELS);
+        GROUPS.put("getRecordableChannels", CHANNELS);
+        GROUPS.put("getChannelsByListingName", CHANNELS);
+        GROUPS.put("getChannelById", CHANNELS);
+        GROUPS.put("getAiringsByChannel", GUIDE);
+        GROUPS.put("getShowAiringsByChannel", GUIDE);
+        GROUPS.put("getShowAiringsByChannelAndSeriesId", GUIDE);
+
+        LIFETIMES.put(RULES, Long.valueOf(15L * MINUTE));
+        LIFETIMES.put(UPCOMINGS, Long.valueOf(15L * MINUTE));
+        LIFETIMES.put(CHANNELS, Long.valueOf(60L * MINUTE));
+        LIFETIMES.put(GUIDE, Long.valueOf(15L * MINUTE));
+    }
+
+    private NMS nms;
+    private HashMap<List<Object>, Entry> entryMap;
+    private LinkedHashMap<String, Recording> recordingMap;
+    private Object recordingLock;
+    private long recordingVersion;
+    private boolean recordingsStale;
+    private boolean deltaSupported;
+    private long generation;
+    private long hitCount;
+    private long missCount;
+
+    private NMSCache(NMS n) {
+
+        nms = n;
+        entryMap = new HashMap<List<Object>, Entry>();
+        recordingMap = new LinkedHashMap<String, Recording>();
+        recordingLock = new Object();
+        recordingsStale = true;
+        deltaSupported = true;
+    }
+
+    /**
+     * Wrap a NMS with a cache.  If it is already wrapped it is returned
+     * as is.
+     *
+     * @param n A given NMS.
+     * @return A NMS that caches.
+     */
+    public static NMS wrap(NMS n) {
+
+        NMS result = n;
+
+        if ((n != null) && (getNMSCache(n) == null)) {
+
+            result = (NMS) Proxy.newProxyInstance(NMS.class.getClassLoader(),
+                new Class<?>[] {NMS.class}, new NMSCache(n));
+        }
+
+        return (result);
+    }
+
+    /**
+     * Wrap an array of NMS instances.
+     *
+     * @param array A given array of NMS instances.
+     * @return An array of NMS that cache.
+     */
+    public static NMS[] wrap(NMS[] array) {
+
+        NMS[] result = null;
+
+        if (array != null) {
+
+            result = new NMS[array.length];
+            for (int i = 0; i < array.length; i++) {
+                result[i] = wrap(array[i]);
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * Find the cache behind a wrapped NMS.
+     *
+     * @param n A given NMS.
+     * @return The NMSCache or null if the NMS is not wrapped.
+     */
+    public static NMSCache getNMSCache(NMS n) {
+
+        NMSCache result = null;
+
+        if ((n != null) && (Proxy.isProxyClass(n.getClass()))) {
+
+            InvocationHandler ih = Proxy.getInvocationHandler(n);
+            if (ih instanceof NMSCache) {
+                result = (NMSCache) ih;
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * Pass along a message from the EventAdmin to each wrapped NMS.  A
+     * message does not say which server sent it so they all check.
+     *
+     * @param array A given array of NMS instances.
+     * @param message The message.
+     */
+    public static void messageReceived(NMS[] array, String message) {
+
+        if (array != null) {
+
+            for (int i = 0; i < array.length; i++) {
+
+                NMSCache c = getNMSCache(array[i]);
+                if (c != null) {
+                    c.messageReceived(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * The NMS being cached.
+     *
+     * @return A NMS instance.
+     */
+    public NMS getNMS() {
+        return (nms);
+    }
+
+    /**
+     * The number of calls answered from memory.
+     *
+     * @return A long value.
+     */
+    public synchronized long getHitCount() {
+        return (hitCount);
+    }
+
+    /**
+     * The number of calls that had to go to the server.
+     *
+     * @return A long value.
+     */
+    public synchronized long getMissCount() {
+        return (missCount);
+    }
+
+    /**
+     * Drop what a message from the server says has changed.
+     *
+     * @param message A given message.
+     */
+    public void messageReceived(String message) {
+
+        if (message != null) {
+
+            if ((message.startsWith(NMSConstants.MESSAGE_RECORDING_UPDATE))
+                || (message.startsWith(NMSConstants.MESSAGE_RECORDING_ADDED))
+                || (message.startsWith(
+                    NMSConstants.MESSAGE_RECORDING_REMOVED))) {
+
+                // A show that starts recording, or stops, changes what
+                // is upcoming too.
+                recordingsChanged();
+                invalidate(UPCOMINGS);
+
+            } else if (message.startsWith(NMSConstants.MESSAGE_RULE_UPDATE)
+                || (message.startsWith(NMSConstants.MESSAGE_RULE_ADDED))) {
+
+                invalidate(RULES);
+                invalidate(UPCOMINGS);
+
+            } else if (message.startsWith(
+                NMSConstants.MESSAGE_SCHEDULE_UPDATE)) {
+
+                // The scheduler runs again after new guide data too.
+                invalidate(UPCOMINGS);
+                invalidate(GUIDE);
+
+            } else if (message.startsWith(
+                NMSConstants.MESSAGE_RECORDER_SCAN_UPDATE)) {
+
+                invalidate(CHANNELS);
+                invalidate(GUIDE);
+            }
+        }
+    }
+
+    /**
+     * Drop everything.
+     */
+    public void clear() {
+
+        synchronized (this) {
+
+            generation++;
+            entryMap.clear();
+        }
+        recordingsChanged();
+    }
+
+    private synchronized void invalidate(String group) {
+
+        generation++;
+        Iterator<Entry> iter = entryMap.values().iterator();
+        while (iter.hasNext()) {
+
+            if (group.equals(iter.next().group)) {
+                iter.remove();
+            }
+        }
+    }
+
+    private void recordingsChanged() {
+
+        synchronized (recordingLock) {
+            recordingsStale = true;
+        }
+    }
+
+    private synchronized void count(boolean hit) {
+
+        if (hit) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object invoke(Object proxy, Method m, Object[] args)
+        throws Throwable {
+
+        Object result = null;
+
+        String name = m.getName();
+        if (m.getDeclaringClass() == Object.class) {
+
+            result = invokeObject(name, args);
+
+        } else if ("getRecordings".equals(name)) {
+
+            result = getRecordings();
+
+        } else if (("getRecordingById".equals(name)) && (deltaSupported)) {
+
+            result = getRecordingById((String) args[0]);
+
+        } else if (GROUPS.containsKey(name)) {
+
+            result = invokeCached(m, args, GROUPS.get(name));
+
+        } else {
+
+            result = call(m, args);
+
+            // Some calls change things we have.
+            if (("removeRecording".equals(name))
+                || ("stopRecording".equals(name))) {
+
+                recordingsChanged();
+
+            } else if ("schedule".equals(name)) {
+
+                invalidate(RULES);
+                invalidate(UPCOMINGS);
+
+            } else if ("overrideUpcoming".equals(name)) {
+
+                invalidate(UPCOMINGS);
+
+            } else if ("performChannelScan".equals(name)) {
+
+                invalidate(CHANNELS);
+                invalidate(GUIDE);
+            }
+        }
+
+        return (result);
+    }
+
+    private Object invokeObject(String name, Object[] args) {
+
+        Object result = null;
+
+        if ("equals".equals(name)) {
+
+            Object o = args[0];
+            if (o instanceof NMS) {
+
+                NMSCache c = getNMSCache((NMS) o);
+                if (c != null) {
+                    o = c.getNMS();
+                }
+            }
+            result = Boolean.valueOf(nms.equals(o));
+
+        } else if ("hashCode".equals(name)) {
+
+            result = Integer.valueOf(nms.hashCode());
+
+        } else {
+
+            result = nms.toString();
+        }
+
+        return (result);
+    }
+
+    private Object call(Method m, Object[] args) throws Throwable {
+
+        try {
+
+            return (m.invoke(nms, args));
+
+        } catch (InvocationTargetException ex) {
+
+            throw ex.getCause();
+        }
+    }
+
+    private Object invokeCached(Method m, Object[] args, String group)
+        throws Throwable {
+
+        Object result = null;
+
+        ArrayList<Object> key = new ArrayList<Object>();
+        key.add(m.getName());
+        if (args != null) {
+            Collections.addAll(key, args);
+        }
+
+        long now = System.currentTimeMillis();
+        long gen = 0L;
+        boolean found = false;
+        synchronized (this) {
+
+            Entry e = entryMap.get(key);
+            if ((e != null) && ((e.expires == 0L) || (e.expires > now))) {
+
+                result = e.value;
+                found = true;
+            }
+            gen = generation;
+        }
+        count(found);
+
+        if (!found) {
+
+            result = call(m, args);
+
+            // Only keep it if nothing was dropped while we were asking.
+            Long life = LIFETIMES.get(group);
+            synchronized (this) {
+
+                if (gen == generation) {
+
+                    Entry e = new Entry();
+                    e.group = group;
+                    e.value = result;
+                    e.expires = (life != null) ? now + life.longValue() : 0L;
+                    entryMap.put(key, e);
+                }
+            }
+        }
+
+        return (copy(result));
+    }
+
+    private Object copy(Object o) {
+
+        Object result = o;
+
+        // Callers are free to change what they get back.
+        if (o instanceof Object[]) {
+            result = ((Object[]) o).clone();
+        }
+
+        return (result);
+    }
+
+    private Recording[] getRecordings() {
+
+        Recording[] result = null;
+
+        synchronized (recordingLock) {
+
+            if (recordingsStale) {
+
+                // Only fresh once the refresh worked, if the server
+                // call throws we try again next time.
+                count(false);
+                refreshRecordings();
+                recordingsStale = false;
+
+            } else {
+
+                count(true);
+            }
+
+            if (recordingVersion != 0L) {
+
+                result = new Recording[recordingMap.size()];
+                int index = 0;
+                Iterator<Recording> iter = recordingMap.values().iterator();
+                while (iter.hasNext()) {
+                    result[index++] = new Recording(iter.next());
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    private Recording getRecordingById(String id) {
+
+        Recording result = null;
+
+        getRecordings();
+        synchronized (recordingLock) {
+
+            Recording r = recordingMap.get(id);
+            if (r != null) {
+                result = new Recording(r);
+            }
+        }
+
+        return (result);
+    }
+
+    private void refreshRecordings() {
+
+        RecordingDelta delta = null;
+        if (deltaSupported) {
+
+            try {
+
+                delta = nms.getRecordingsSince(recordingVersion);
+
+            } catch (RuntimeException ex) {
+
+                // An older server, fall back to getting them all.
+                LogUtil.log(LogUtil.INFO, "NMSCache: no recording deltas: "
+                    + ex.getMessage());
+                deltaSupported = false;
+            }
+        }
+
+        if (delta == null) {
+
+            Recording[] array = nms.getRecordings();
+            delta = new RecordingDelta(-1L, true, array, null);
+        }
+
+        if (delta.isFull()) {
+            recordingMap.clear();
+        }
+
+        String[] removed = delta.getRemovedIds();
+        if (removed != null) {
+
+            for (int i = 0; i < removed.length; i++) {
+                recordingMap.remove(removed[i]);
+            }
+        }
+
+        Recording[] changed = delta.getRecordings();
+        if ((changed != null) && (changed.length > 0)) {
+
+            for (int i = 0; i < changed.length; i++) {
+                recordingMap.put(changed[i].getId(), changed[i]);
+            }
+
+            // Keep them in the order the server has them in.
+            Recording[] all = recordingMap.values().toArray(
+                new Recording[recordingMap.size()]);
+            Arrays.sort(all);
+            recordingMap.clear();
+            for (int i = 0; i < all.length; i++) {
+                recordingMap.put(all[i].getId(), all[i]);
+            }
+        }
+
+        recordingVersion = delta.getVersion();
+        LogUtil.log(LogUtil.DEBUG, "NMSCache: recordings now "
+            + recordingMap.size() + " at version " + recordingVersion);
+    }
+
+    static class Entry {
+
+        String group;
+        Object value;
+        long expires;
+    }
+
+}
@@ -172,6 +172,12 @@ public final class NMSConstants {
      */
     public static final String HLS_MODE = "HLS Mode";
 
+    /**
+     * The configuration for the segment length in seconds when a Recorder
+     * makes HLS for live TV in process.  Zero means use ffmpeg.
+     */
+    public static final String LIVE_SEGMENT_SECONDS = "Live Segment Seconds";
+
     /**
      * A Recorder can have a custom Channel list associated with it.  Using
      * this a user can say a particular Recorder only supports a subset
@@ -365,6 +371,22 @@ public final class NMSConstants {
      */
     public static final String HTTP_IMAGES_NAME = "images";
 
+    /**
+     * An image can be asked for as a thumbnail by adding a "size"
+     * parameter to its URL.
+     */
+    public static final String IMAGE_SIZE_THUMBNAIL = "thumbnail";
+
+    /**
+     * An image can be asked for at the size used in a list.
+     */
+    public static final String IMAGE_SIZE_LIST = "list";
+
+    /**
+     * An image can be asked for at a size that fills the screen.
+     */
+    public static final String IMAGE_SIZE_FULLSCREEN = "fullscreen";
+
     /**
      * The configuration name for a "Trailer" service.
      */
@@ -55,5 +55,32 @@ public final class NMSUtil {
         return (result);
     }
 
+    /**
+     * Images served by an NMS can be asked for at a smaller size so we
+     * don't download more than we will show.  URLs from anywhere else are
+     * returned as they are.
+     *
+     * @param url The URL of an image.
+     * @param size One of the NMSConstants IMAGE_SIZE values.
+     * @return The URL for the image at that size.
+     */
+    public static String toImageURL(String url, String size) {
+
+        String result = url;
+
+        if ((url != null) && (size != null)
+            && (url.startsWith("http://"))
+            && (url.indexOf("/" + NMSConstants.HTTP_IMAGES_NAME + "/") != -1)) {
+
+            if (url.indexOf('?') != -1) {
+                result = url + "&size=" + size;
+            } else {
+                result = url + "?size=" + size;
+            }
+        }
+
+        return (result);
+    }
+
 }
 
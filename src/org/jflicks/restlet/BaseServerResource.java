@@ -22,6 +22,8 @@ import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.jflicks.configure.Configuration;
@@ -39,7 +41,10 @@ import org.jflicks.tv.Task;
 import org.jflicks.tv.Upcoming;
 import org.jflicks.util.Util;
 
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
 import org.restlet.ext.wadl.WadlServerResource;
+import org.restlet.representation.Representation;
 import org.restlet.resource.ResourceException;
 
 import com.google.gson.Gson;
@@ -49,6 +54,11 @@ import com.thoughtworks.xstream.io.xml.DomDriver;
 /**
  * This class is a base implementation of a restlet ServerResource.
  *
+ * Restlet makes a new resource for each request so the serializers are
+ * shared.  Gson is thread safe as is.  XStream is thread safe once it is
+ * set up, so each resource class gets one of its own, set up once by its
+ * configure method, as the aliases differ between them.
+ *
  * @author Doug Barnum
  * @version 1.0
  */
@@ -57,11 +67,13 @@ public abstract class BaseServerResource extends WadlServerResource {
     public static final String JSON = "json";
     public static final String XML = "xml";
 
+    private static final Gson GSON = new Gson();
+    private static final HashMap<Class<?>, XStream> XSTREAMS =
+        new HashMap<Class<?>, XStream>();
+
     private String version;
     private String lang;
     private String format;
-    private Gson gson;
-    private XStream xstream;
     private String recordingId;
     private boolean allowRerecord;
     private String recorderId;
@@ -83,8 +95,15 @@ public abstract class BaseServerResource extends WadlServerResource {
         setVersion("1.0");
         setLang("en");
         setFormat("xml");
-        setGson(new Gson());
-        setXStream(new XStream(new DomDriver()));
+    }
+
+    /**
+     * Extensions set up the XStream used for their class here, usually
+     * by adding aliases.  It is called once for each class.
+     *
+     * @param x The XStream to set up.
+     */
+    protected void configure(XStream x) {
     }
 
     public String getVersion() {
@@ -208,19 +227,80 @@ public abstract class BaseServerResource extends WadlServerResource {
     }
 
     public Gson getGson() {
-        return (gson);
+        return (GSON);
     }
 
-    private void setGson(Gson g) {
-        gson = g;
+    public XStream getXStream() {
+
+        XStream result = null;
+
+        synchronized (XSTREAMS) {
+
+            result = XSTREAMS.get(getClass());
+            if (result == null) {
+
+                result = new XStream(new DomDriver());
+                configure(result);
+                XSTREAMS.put(getClass(), result);
+            }
+        }
+
+        return (result);
     }
 
-    public XStream getXStream() {
-        return (xstream);
+    /**
+     * Make a Representation of the given object in the format asked for.
+     * It is written straight to the response.
+     *
+     * @param data A given object.
+     * @return A Representation or null if there is no data.
+     */
+    public Representation toRepresentation(Object data) {
+
+        Representation result = null;
+
+        if (data != null) {
+
+            if (isFormatJson()) {
+                result = new SerializedRepresentation(data, getGson());
+            } else if (isFormatXml()) {
+                result = new SerializedRepresentation(data, getXStream());
+            }
+        }
+
+        return (result);
     }
 
-    private void setXStream(XStream x) {
-        xstream = x;
+    /**
+     * Check if the client already has the data with the given tag.  If
+     * so the status is set to 304 and there is nothing to send.
+     *
+     * @param t The Tag the data would have.
+     * @return True if the client has it.
+     */
+    public boolean isNotModified(Tag t) {
+
+        boolean result = false;
+
+        List<Tag> list = getRequest().getConditions().getNoneMatch();
+        if ((t != null) && (list != null)) {
+
+            for (int i = 0; i < list.size(); i++) {
+
+                Tag ct = list.get(i);
+                if ((Tag.ALL.equals(ct)) || (t.equals(ct, false))) {
+
+                    result = true;
+                    break;
+                }
+            }
+        }
+
+        if (result) {
+            setStatus(Status.REDIRECTION_NOT_MODIFIED);
+        }
+
+        return (result);
     }
 
     public boolean isFormatJson() {
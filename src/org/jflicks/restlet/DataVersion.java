@@ -0,0 +1,172 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.restlet;
+
+import org.jflicks.nms.NMSConstants;
+
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+import org.restlet.data.Tag;
+
+/**
+ * This class is a singleton that keeps a version for each kind of data
+ * the REST resources hand out so they can make an ETag without looking
+ * at the data.  The versions go up when the NMS sends a message through
+ * the EventAdmin that something changed, or when the NMS instances come
+ * and go.
+ *
+ * In case a message is missed a tag also changes every few minutes.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class DataVersion implements EventHandler {
+
+    /**
+     * The recordings.
+     */
+    public static final int RECORDINGS = 0;
+
+    /**
+     * The upcoming recordings.
+     */
+    public static final int UPCOMINGS = 1;
+
+    /**
+     * The channels.
+     */
+    public static final int CHANNELS = 2;
+
+    /**
+     * The guide data.
+     */
+    public static final int GUIDE = 3;
+
+    private static final long BUCKET = 5L * 60L * 1000L;
+
+    private static DataVersion instance = new DataVersion();
+
+    private long epoch;
+    private long[] versions;
+
+    /**
+     * Default empty constructor.
+     */
+    private DataVersion() {
+
+        epoch = System.currentTimeMillis();
+        versions = new long[GUIDE + 1];
+    }
+
+    /**
+     * We are a singleton, so users need access to it.
+     *
+     * @return A DataVersion instance.
+     */
+    public static DataVersion getInstance() {
+        return (instance);
+    }
+
+    /**
+     * The current version of a kind of data.
+     *
+     * @param kind One of RECORDINGS, UPCOMINGS, CHANNELS or GUIDE.
+     * @return The version as a long.
+     */
+    public synchronized long getVersion(int kind) {
+        return (versions[kind]);
+    }
+
+    /**
+     * Note that a kind of data has changed.
+     *
+     * @param kind One of RECORDINGS, UPCOMINGS, CHANNELS or GUIDE.
+     */
+    public synchronized void changed(int kind) {
+        versions[kind]++;
+    }
+
+    /**
+     * Note that everything has changed.
+     */
+    public synchronized void changedAll() {
+
+        for (int i = 0; i < versions.length; i++) {
+            versions[i]++;
+        }
+    }
+
+    /**
+     * Make an ETag for a kind of data.
+     *
+     * @param kind One of RECORDINGS, UPCOMINGS, CHANNELS or GUIDE.
+     * @param extra Anything else the data depends on like the format.
+     * @return A Tag instance.
+     */
+    public Tag getTag(int kind, String extra) {
+
+        long bucket = System.currentTimeMillis() / BUCKET;
+        String s = Long.toString(epoch, 36) + "-" + kind + "-"
+            + getVersion(kind) + "-" + Long.toString(bucket, 36);
+        if (extra != null) {
+            s = s + "-" + extra;
+        }
+
+        return (new Tag(s, false));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void handleEvent(Event event) {
+
+        String message = (String) event.getProperty("message");
+        if (message != null) {
+
+            if ((message.startsWith(NMSConstants.MESSAGE_RECORDING_UPDATE))
+                || (message.startsWith(NMSConstants.MESSAGE_RECORDING_ADDED))
+                || (message.startsWith(
+                    NMSConstants.MESSAGE_RECORDING_REMOVED))) {
+
+                // An upcoming changes status when its recording starts
+                // or finishes.
+                changed(RECORDINGS);
+                changed(UPCOMINGS);
+
+            } else if (message.startsWith(NMSConstants.MESSAGE_RULE_UPDATE)
+                || (message.startsWith(NMSConstants.MESSAGE_RULE_ADDED))) {
+
+                changed(UPCOMINGS);
+
+            } else if (message.startsWith(
+                NMSConstants.MESSAGE_SCHEDULE_UPDATE)) {
+
+                // The scheduler runs again after new guide data too.
+                changed(UPCOMINGS);
+                changed(GUIDE);
+
+            } else if (message.startsWith(
+                NMSConstants.MESSAGE_RECORDER_SCAN_UPDATE)) {
+
+                changed(CHANNELS);
+                changed(GUIDE);
+            }
+        }
+    }
+
+}
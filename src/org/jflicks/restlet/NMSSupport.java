@@ -19,6 +19,7 @@ package org.jflicks.restlet;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 
 import org.jflicks.configure.Configuration;
@@ -30,6 +31,7 @@ import org.jflicks.nms.NMSUtil;
 import org.jflicks.nms.State;
 import org.jflicks.nms.Video;
 import org.jflicks.tv.Channel;
+import org.jflicks.tv.GuideEntry;
 import org.jflicks.tv.Recording;
 import org.jflicks.tv.RecordingRule;
 import org.jflicks.tv.Show;
@@ -69,6 +71,15 @@ public final class NMSSupport extends BaseSupport {
         return (instance);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void setNMS(NMS[] array) {
+
+        super.setNMS(array);
+        DataVersion.getInstance().changedAll();
+    }
+
     public Channel[] getChannels() {
 
         Channel[] result = null;
@@ -176,6 +187,39 @@ public final class NMSSupport extends BaseSupport {
         return (result);
     }
 
+    /**
+     * Compact guide rows for a Channel from every NMS that are on at some
+     * time in a window.
+     *
+     * @param c A given Channel.
+     * @param start The beginning of the window in milliseconds UTC.
+     * @param end The end of the window in milliseconds UTC.
+     * @return An array of GuideEntry instances or null if none.
+     */
+    public GuideEntry[] getGuideEntries(Channel c, long start, long end) {
+
+        GuideEntry[] result = null;
+
+        NMS[] array = getNMS();
+        if ((array != null) && (c != null)) {
+
+            ArrayList<GuideEntry> list = new ArrayList<GuideEntry>();
+            for (int i = 0; i < array.length; i++) {
+
+                GuideEntry[] garray = array[i].getGuideEntries(c, start, end);
+                if (garray != null) {
+                    Collections.addAll(list, garray);
+                }
+            }
+
+            if (list.size() > 0) {
+                result = list.toArray(new GuideEntry[list.size()]);
+            }
+        }
+
+        return (result);
+    }
+
     public String[] getRecordingTitles() {
 
         String[] result = null;
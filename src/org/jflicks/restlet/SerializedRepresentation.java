@@ -0,0 +1,96 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.restlet;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
+import org.restlet.representation.WriterRepresentation;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * A Representation that writes an object as JSON or XML straight to
+ * the response instead of building it up in a String first.  Nothing is
+ * done until the response is written so if the client already has it
+ * and gets a 304 the object is never serialized at all.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class SerializedRepresentation extends WriterRepresentation {
+
+    private Object data;
+    private Gson gson;
+    private XStream xstream;
+
+    /**
+     * Write the given object as JSON.
+     *
+     * @param data The object to write.
+     * @param g The Gson to write it with.
+     */
+    public SerializedRepresentation(Object data, Gson g) {
+
+        super(MediaType.APPLICATION_JSON);
+        setCharacterSet(CharacterSet.UTF_8);
+        this.data = data;
+        gson = g;
+    }
+
+    /**
+     * Write the given object as XML.
+     *
+     * @param data The object to write.
+     * @param x The XStream to write it with.
+     */
+    public SerializedRepresentation(Object data, XStream x) {
+
+        super(MediaType.TEXT_XML);
+        setCharacterSet(CharacterSet.UTF_8);
+        this.data = data;
+        xstream = x;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void write(Writer w) throws IOException {
+
+        if (gson != null) {
+
+            try {
+
+                gson.toJson(data, w);
+
+            } catch (JsonIOException ex) {
+
+                throw new IOException(ex.getMessage());
+            }
+
+        } else if (xstream != null) {
+
+            xstream.toXML(data, w);
+        }
+        w.flush();
+    }
+
+}
@@ -16,17 +16,23 @@
 */
 package org.jflicks.restlet.nms;
 
+import java.util.Hashtable;
+
 import javax.jmdns.JmDNS;
 import javax.jmdns.ServiceInfo;
 
+import org.jflicks.restlet.DataVersion;
 import org.jflicks.restlet.NMSTracker;
 import org.jflicks.restlet.servercomponent.ServerComponentTracker;
 import org.jflicks.util.BaseActivator;
+import org.jflicks.util.EventSender;
 import org.jflicks.util.LogUtil;
 import org.jflicks.util.Util;
 
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 import org.osgi.util.tracker.ServiceTracker;
 
 /**
@@ -56,6 +62,17 @@ public class Activator extends BaseActivator {
         serverComponentTracker = new ServerComponentTracker(bc, app);
         serverComponentTracker.open();
 
+        // Keep track of data changes so clients can be told they already
+        // have the latest.
+        String[] topics = new String[] {
+            EventSender.MESSAGE_TOPIC_PATH
+        };
+
+        Hashtable<String, String[]> eprops = new Hashtable<String, String[]>();
+        eprops.put(EventConstants.EVENT_TOPIC, topics);
+        bc.registerService(EventHandler.class.getName(),
+            DataVersion.getInstance(), eprops);
+
         // Setup DNS for discovery.
         try {
 
@@ -17,16 +17,14 @@
 package org.jflicks.restlet.nms;
 
 import org.jflicks.restlet.BaseServerResource;
+import org.jflicks.restlet.DataVersion;
 import org.jflicks.restlet.NMSSupport;
 import org.jflicks.tv.Channel;
 
-import org.restlet.data.MediaType;
-import org.restlet.ext.json.JsonRepresentation;
+import org.restlet.data.Tag;
 import org.restlet.resource.Get;
 import org.restlet.representation.Representation;
-import org.restlet.representation.StringRepresentation;
 
-import com.google.gson.Gson;
 import com.thoughtworks.xstream.XStream;
 
 /**
@@ -42,48 +40,35 @@ public class ChannelResource extends BaseServerResource {
      */
     public ChannelResource() {
 
-        XStream x = getXStream();
-        x.alias("channel", Channel.class);
-        x.alias("channels", Channel[].class);
-
         setName("Channel Information");
         setDescription("The currently defined Channels that can be recorded");
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
+
+        x.alias("channel", Channel.class);
+        x.alias("channels", Channel[].class);
+    }
+
     @Get
     public Representation get() {
 
         Representation result = null;
 
-        NMSSupport nsup = NMSSupport.getInstance();
-
-        if (isFormatJson()) {
+        // The tag is made before getting the data so if it changes while we
+        // are at it the client will just get it again next time.
+        Tag t = DataVersion.getInstance().getTag(DataVersion.CHANNELS,
+            getFormat());
+        if (!isNotModified(t)) {
 
+            NMSSupport nsup = NMSSupport.getInstance();
             Channel[] array = nsup.getChannels();
-            Gson g = getGson();
-            if ((g != null) && (array != null)) {
-
-                String data = g.toJson(array);
-                if (data != null) {
-
-                    JsonRepresentation jr = new JsonRepresentation(data);
-                    result = jr;
-                }
-            }
-
-        } else if (isFormatXml()) {
-
-            Channel[] array = nsup.getChannels();
-            XStream x = getXStream();
-            if ((x != null) && (array != null)) {
-
-                String data = x.toXML(array);
-                if (data != null) {
-
-                    StringRepresentation sr = new StringRepresentation(data);
-                    sr.setMediaType(MediaType.TEXT_XML);
-                    result = sr;
-                }
+            result = toRepresentation(array);
+            if (result != null) {
+                result.setTag(t);
             }
         }
 
@@ -17,17 +17,15 @@
 package org.jflicks.restlet.nms;
 
 import org.jflicks.restlet.BaseServerResource;
+import org.jflicks.restlet.DataVersion;
 import org.jflicks.restlet.NMSSupport;
 import org.jflicks.tv.ShowAiring;
 import org.jflicks.util.LogUtil;
 
-import org.restlet.data.MediaType;
-import org.restlet.ext.json.JsonRepresentation;
+import org.restlet.data.Tag;
 import org.restlet.resource.Get;
 import org.restlet.representation.Representation;
-import org.restlet.representation.StringRepresentation;
 
-import com.google.gson.Gson;
 import com.thoughtworks.xstream.XStream;
 
 /**
@@ -43,53 +41,38 @@ public class GuideChannelResource extends BaseServerResource {
      */
     public GuideChannelResource() {
 
-        XStream x = getXStream();
-        x.alias("showairings", ShowAiring[].class);
-        x.alias("showairing", ShowAiring.class);
-
         setName("Guide Information");
         setDescription("The shows to be aired on a given channel.");
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
+
+        x.alias("showairings", ShowAiring[].class);
+        x.alias("showairing", ShowAiring.class);
+    }
+
     @Get("xml|json")
     public Representation get() {
 
         Representation result = null;
 
-        NMSSupport nsup = NMSSupport.getInstance();
-
-        if (isFormatJson()) {
+        // The tag is made before getting the data so if it changes while we
+        // are at it the client will just get it again next time.
+        Tag t = DataVersion.getInstance().getTag(DataVersion.GUIDE,
+            getFormat() + "-" + getChannelId());
+        if (!isNotModified(t)) {
 
+            NMSSupport nsup = NMSSupport.getInstance();
             ShowAiring[] array = nsup.getShowAiringsByChannel(
                 nsup.getChannelById(getChannelId()));
             LogUtil.log(LogUtil.DEBUG, "getShowAiringsByChannel array null = "
                 + (array == null));
-            Gson g = getGson();
-            if ((g != null) && (array != null)) {
-
-                String data = g.toJson(array);
-                LogUtil.log(LogUtil.DEBUG, "json data null = " + (data == null));
-                if (data != null) {
-
-                    JsonRepresentation jr = new JsonRepresentation(data);
-                    result = jr;
-                }
-            }
-
-        } else if (isFormatXml()) {
-
-            ShowAiring[] array = nsup.getShowAiringsByChannel(
-                nsup.getChannelById(getChannelId()));
-            XStream x = getXStream();
-            if ((x != null) && (array != null)) {
-
-                String data = x.toXML(array);
-                if (data != null) {
-
-                    StringRepresentation sr = new StringRepresentation(data);
-                    sr.setMediaType(MediaType.TEXT_XML);
-                    result = sr;
-                }
+            result = toRepresentation(array);
+            if (result != null) {
+                result.setTag(t);
             }
         }
 
@@ -0,0 +1,357 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.restlet.nms;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.StringTokenizer;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.jflicks.restlet.BaseServerResource;
+import org.jflicks.restlet.DataVersion;
+import org.jflicks.restlet.NMSSupport;
+import org.jflicks.tv.Channel;
+import org.jflicks.tv.GuideEntry;
+import org.jflicks.util.LogUtil;
+import org.jflicks.util.Util;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
+import org.restlet.data.Tag;
+import org.restlet.resource.Get;
+import org.restlet.representation.Representation;
+import org.restlet.representation.WriterRepresentation;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * This class will export the guide for many channels at once as XML or
+ * JSON.  A client that wants to draw a whole guide grid would otherwise
+ * ask for each channel one at a time and get every detail of every show
+ * for the next two weeks.  Here only a window of time is sent, each show
+ * is just a row of start, duration, show id and title, and it is written
+ * one channel at a time so we never hold the whole guide in memory.
+ *
+ * The query parameters are all optional:
+ *
+ *   start - The start of the window in milliseconds UTC, now by default.
+ *   hours - The length of the window in hours, 12 by default.
+ *   channels - A comma separated list of channel ids, all by default.
+ *   cursor - Where to start in the list of channels, 0 by default.
+ *   limit - About how many rows to send, 10000 by default which is a 12
+ *     hour grid of 400 channels with room to spare.  We never split a
+ *     channel so a page can go over by one channel.
+ *
+ * If there are more channels the response ends with the cursor to ask
+ * for next.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class GuideExportResource extends BaseServerResource {
+
+    private static final long HALF_HOUR = 30L * 60L * 1000L;
+    private static final long HOUR = 60L * 60L * 1000L;
+    private static final int DEFAULT_HOURS = 12;
+    private static final int MAXIMUM_HOURS = 14 * 24;
+    private static final int DEFAULT_LIMIT = 10000;
+    private static final int MAXIMUM_LIMIT = 100000;
+
+    private static XMLOutputFactory xmlOutputFactory =
+        XMLOutputFactory.newInstance();
+
+    /**
+     * Simple empty constructor.
+     */
+    public GuideExportResource() {
+
+        setName("Guide Export");
+        setDescription("The guide for many channels over a window of time.");
+    }
+
+    private long getLongQuery(String name, long def) {
+
+        long result = def;
+
+        String s = getQueryValue(name);
+        if (s != null) {
+
+            try {
+
+                result = Long.parseLong(s.trim());
+
+            } catch (NumberFormatException ex) {
+
+                result = def;
+            }
+        }
+
+        return (result);
+    }
+
+    private long clamp(long value, long min, long max) {
+        return (Math.max(min, Math.min(max, value)));
+    }
+
+    private Channel[] getExportChannels(NMSSupport nsup) {
+
+        Channel[] result = null;
+
+        Channel[] array = nsup.getChannels();
+        if (array != null) {
+
+            String s = getQueryValue("channels");
+            if ((s != null) && (s.trim().length() > 0)) {
+
+                ArrayList<Channel> list = new ArrayList<Channel>();
+                StringTokenizer st = new StringTokenizer(s, ",");
+                while (st.hasMoreTokens()) {
+
+                    int id = Util.str2int(st.nextToken().trim(), 0);
+                    for (int i = 0; i < array.length; i++) {
+
+                        if (array[i].getId() == id) {
+
+                            list.add(array[i]);
+                            break;
+                        }
+                    }
+                }
+                result = list.toArray(new Channel[list.size()]);
+
+            } else {
+
+                result = array;
+            }
+        }
+
+        return (result);
+    }
+
+    @Get("xml|json")
+    public Representation get() {
+
+        Representation result = null;
+
+        long now = System.currentTimeMillis();
+        long start = getLongQuery("start", now - (now % HALF_HOUR));
+        long hours = clamp(getLongQuery("hours", DEFAULT_HOURS), 1,
+            MAXIMUM_HOURS);
+        int cursor = (int) clamp(getLongQuery("cursor", 0), 0,
+            Integer.MAX_VALUE);
+        int limit = (int) clamp(getLongQuery("limit", DEFAULT_LIMIT), 1,
+            MAXIMUM_LIMIT);
+        long end = start + hours * HOUR;
+
+        // When the start is the default it will change every half hour and
+        // the 5 minute bucket in the tag will catch it.
+        Tag t = DataVersion.getInstance().getTag(DataVersion.GUIDE,
+            getFormat() + "-" + getQueryValue("start") + "-" + hours + "-"
+            + getQueryValue("channels") + "-" + cursor + "-" + limit);
+        if (!isNotModified(t)) {
+
+            NMSSupport nsup = NMSSupport.getInstance();
+            Channel[] array = getExportChannels(nsup);
+            if (array == null) {
+                array = new Channel[0];
+            }
+
+            GuideRepresentation gr = new GuideRepresentation(isFormatJson(),
+                nsup, array, start, end, cursor, limit);
+            gr.setTag(t);
+            result = gr;
+        }
+
+        LogUtil.log(LogUtil.DEBUG, "Finished getting guide export.");
+
+        return (result);
+    }
+
+    /**
+     * Writes the guide one channel at a time as the response goes out.
+     */
+    static class GuideRepresentation extends WriterRepresentation {
+
+        private boolean json;
+        private NMSSupport nmsSupport;
+        private Channel[] channels;
+        private long start;
+        private long end;
+        private int cursor;
+        private int limit;
+
+        GuideRepresentation(boolean json, NMSSupport nsup, Channel[] array,
+            long start, long end, int cursor, int limit) {
+
+            super((json) ? MediaType.APPLICATION_JSON : MediaType.TEXT_XML);
+            setCharacterSet(CharacterSet.UTF_8);
+            this.json = json;
+            nmsSupport = nsup;
+            channels = array;
+            this.start = start;
+            this.end = end;
+            this.cursor = cursor;
+            this.limit = limit;
+        }
+
+        private GuideEntry[] getEntries(Channel c) {
+
+            GuideEntry[] result = nmsSupport.getGuideEntries(c, start, end);
+            if (result != null) {
+
+                Arrays.sort(result, new Comparator<GuideEntry>() {
+
+                    public int compare(GuideEntry e0, GuideEntry e1) {
+
+                        long diff = e0.getStart() - e1.getStart();
+                        return ((diff < 0L) ? -1 : ((diff > 0L) ? 1 : 0));
+                    }
+                });
+            }
+
+            return (result);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void write(Writer w) throws IOException {
+
+            if (json) {
+
+                writeJson(w);
+
+            } else {
+
+                try {
+
+                    writeXml(w);
+
+                } catch (XMLStreamException ex) {
+
+                    throw new IOException(ex.getMessage());
+                }
+            }
+            w.flush();
+        }
+
+        private void writeJson(Writer w) throws IOException {
+
+            JsonWriter jw = new JsonWriter(w);
+            jw.beginObject();
+            jw.name("start").value(start);
+            jw.name("end").value(end);
+            jw.name("cursor").value(cursor);
+            jw.name("channels").beginArray();
+
+            int rows = 0;
+            int index = cursor;
+            while ((index < channels.length) && (rows < limit)) {
+
+                Channel c = channels[index++];
+                jw.beginObject();
+                jw.name("id").value(c.getId());
+                jw.name("number").value(c.getNumber());
+                jw.name("name").value(c.getName());
+                jw.name("rows").beginArray();
+                GuideEntry[] array = getEntries(c);
+                if (array != null) {
+
+                    for (int i = 0; i < array.length; i++) {
+
+                        jw.beginArray();
+                        jw.value(array[i].getStart());
+                        jw.value(array[i].getDuration());
+                        jw.value(array[i].getShowId());
+                        jw.value(array[i].getTitle());
+                        jw.endArray();
+                    }
+                    rows += array.length;
+                }
+                jw.endArray();
+                jw.endObject();
+            }
+
+            jw.endArray();
+            if (index < channels.length) {
+                jw.name("next").value(index);
+            }
+            jw.endObject();
+            jw.flush();
+        }
+
+        private void writeXml(Writer w) throws XMLStreamException {
+
+            XMLStreamWriter xw = xmlOutputFactory.createXMLStreamWriter(w);
+            xw.writeStartDocument("UTF-8", "1.0");
+            xw.writeStartElement("guide");
+            xw.writeAttribute("start", Long.toString(start));
+            xw.writeAttribute("end", Long.toString(end));
+            xw.writeAttribute("cursor", Integer.toString(cursor));
+
+            int rows = 0;
+            int index = cursor;
+            while ((index < channels.length) && (rows < limit)) {
+
+                Channel c = channels[index++];
+                xw.writeStartElement("channel");
+                xw.writeAttribute("id", Integer.toString(c.getId()));
+                writeAttribute(xw, "number", c.getNumber());
+                writeAttribute(xw, "name", c.getName());
+                GuideEntry[] array = getEntries(c);
+                if (array != null) {
+
+                    for (int i = 0; i < array.length; i++) {
+
+                        xw.writeEmptyElement("row");
+                        xw.writeAttribute("start",
+                            Long.toString(array[i].getStart()));
+                        xw.writeAttribute("duration",
+                            Long.toString(array[i].getDuration()));
+                        writeAttribute(xw, "showId", array[i].getShowId());
+                        writeAttribute(xw, "title", array[i].getTitle());
+                    }
+                    rows += array.length;
+                }
+                xw.writeEndElement();
+            }
+
+            if (index < channels.length) {
+
+                xw.writeEmptyElement("next");
+                xw.writeAttribute("cursor", Integer.toString(index));
+            }
+            xw.writeEndElement();
+            xw.writeEndDocument();
+            xw.flush();
+        }
+
+        private void writeAttribute(XMLStreamWriter xw, String name,
+            String value) throws XMLStreamException {
+
+            if (value != null) {
+                xw.writeAttribute(name, value);
+            }
+        }
+    }
+
+}
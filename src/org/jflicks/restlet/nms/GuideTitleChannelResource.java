@@ -45,14 +45,19 @@ public class GuideTitleChannelResource extends BaseServerResource {
      */
     public GuideTitleChannelResource() {
 
-        XStream x = getXStream();
-        x.alias("showairings", ShowAiring[].class);
-        x.alias("showairing", ShowAiring.class);
-
         setName("Guide Information");
         setDescription("The shows to be aired on a given channel.");
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
+
+        x.alias("showairings", ShowAiring[].class);
+        x.alias("showairing", ShowAiring.class);
+    }
+
     @Get("xml|json")
     public Representation get() {
 
@@ -42,8 +42,13 @@ public class J4ccConfigurationResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public J4ccConfigurationResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("j4ccrecorders", J4ccRecorder[].class);
         x.alias("j4ccconfiguration", J4ccConfiguration.class);
     }
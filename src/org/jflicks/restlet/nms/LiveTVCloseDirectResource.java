@@ -45,8 +45,12 @@ public class LiveTVCloseDirectResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public LiveTVCloseDirectResource() {
+    }
 
-        XStream x = getXStream();
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
         x.alias("liveTV", LiveTVBean.class);
     }
 
@@ -45,8 +45,13 @@ public class LiveTVItemRefreshResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public LiveTVItemRefreshResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("liveTVItem", LiveTVItem.class);
         x.alias("channel", Channel.class);
         x.alias("showAiring", ShowAiring.class);
@@ -45,8 +45,13 @@ public class LiveTVItemResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public LiveTVItemResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("liveTVItems", LiveTVItem[].class);
         x.alias("liveTVItem", LiveTVItem.class);
         x.alias("channel", Channel.class);
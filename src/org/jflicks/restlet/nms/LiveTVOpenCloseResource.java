@@ -45,8 +45,12 @@ public class LiveTVOpenCloseResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public LiveTVOpenCloseResource() {
+    }
 
-        XStream x = getXStream();
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
         x.alias("liveTV", LiveTVBean.class);
     }
 
@@ -45,8 +45,12 @@ public class LiveTVOpenDirectResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public LiveTVOpenDirectResource() {
+    }
 
-        XStream x = getXStream();
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
         x.alias("liveTV", LiveTVBean.class);
     }
 
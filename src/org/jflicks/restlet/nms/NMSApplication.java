@@ -69,6 +69,7 @@ public class NMSApplication extends BaseApplication {
         router.attach("/{version}/videos.{format}", VideoResource.class);
         router.attach("/{version}/guide/{channelId}.{format}", GuideChannelResource.class);
         router.attach("/{version}/guide/{term}/{channelId}.{format}", GuideTitleChannelResource.class);
+        router.attach("/{version}/guideexport.{format}", GuideExportResource.class);
         router.attach("/{version}/livetv/items.{format}", LiveTVItemResource.class);
         router.attach("/{version}/livetv/itemrefresh/{channelId}.{format}", LiveTVItemRefreshResource.class);
         router.attach("/{version}/livetv/opendirect/{recorderId}.{format}", LiveTVOpenDirectResource.class);
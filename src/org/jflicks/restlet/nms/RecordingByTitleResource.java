@@ -45,8 +45,13 @@ public class RecordingByTitleResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public RecordingByTitleResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("recordings", Recording[].class);
         x.alias("recording", Recording.class);
         x.alias("commercial", Commercial.class);
@@ -46,8 +46,13 @@ public class RecordingRefreshResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public RecordingRefreshResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("recording", Recording.class);
         x.alias("commercial", Commercial.class);
         x.alias("date", Date.class);
@@ -19,19 +19,17 @@ package org.jflicks.restlet.nms;
 import java.util.Date;
 
 import org.jflicks.restlet.BaseServerResource;
+import org.jflicks.restlet.DataVersion;
 import org.jflicks.restlet.NMSSupport;
 import org.jflicks.tv.Commercial;
 import org.jflicks.tv.Recording;
 import org.jflicks.util.LogUtil;
 
-import org.restlet.data.MediaType;
-import org.restlet.ext.json.JsonRepresentation;
+import org.restlet.data.Tag;
 import org.restlet.resource.Delete;
 import org.restlet.resource.Get;
 import org.restlet.representation.Representation;
-import org.restlet.representation.StringRepresentation;
 
-import com.google.gson.Gson;
 import com.thoughtworks.xstream.XStream;
 
 /**
@@ -46,8 +44,13 @@ public class RecordingResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public RecordingResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("recordings", Recording[].class);
         x.alias("recording", Recording.class);
         x.alias("commercial", Commercial.class);
@@ -59,41 +62,20 @@ public class RecordingResource extends BaseServerResource {
 
         Representation result = null;
 
-        NMSSupport nsup = NMSSupport.getInstance();
-
         LogUtil.log(LogUtil.DEBUG, "GET recordings.");
-        if (isFormatJson()) {
 
-            LogUtil.log(LogUtil.DEBUG, "User wants JSON.");
-            Recording[] array = nsup.getRecordings();
-            LogUtil.log(LogUtil.DEBUG, "getRecordings array null = " + (array == null));
-            Gson g = getGson();
-            if ((g != null) && (array != null)) {
+        // The tag is made before getting the data so if it changes while we
+        // are at it the client will just get it again next time.
+        Tag t = DataVersion.getInstance().getTag(DataVersion.RECORDINGS,
+            getFormat());
+        if (!isNotModified(t)) {
 
-                String data = g.toJson(array);
-                LogUtil.log(LogUtil.DEBUG, "JSON data null = " + (data == null));
-                if (data != null) {
-
-                    JsonRepresentation sr = new JsonRepresentation(data);
-                    result = sr;
-                }
-            }
-
-        } else if (isFormatXml()) {
-
-            LogUtil.log(LogUtil.DEBUG, "User wants XML.");
+            NMSSupport nsup = NMSSupport.getInstance();
             Recording[] array = nsup.getRecordings();
             LogUtil.log(LogUtil.DEBUG, "getRecordings array null = " + (array == null));
-            XStream x = getXStream();
-            if ((x != null) && (array != null)) {
-
-                String data = x.toXML(array);
-                if (data != null) {
-
-                    StringRepresentation sr = new StringRepresentation(data);
-                    sr.setMediaType(MediaType.TEXT_XML);
-                    result = sr;
-                }
+            result = toRepresentation(array);
+            if (result != null) {
+                result.setTag(t);
             }
         }
 
@@ -47,8 +47,13 @@ public class RecordingRuleResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public RecordingRuleResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("recordingrules", RecordingRule[].class);
         x.alias("recordingrule", RecordingRule.class);
         x.alias("tasks", Task[].class);
@@ -45,8 +45,13 @@ public class RecordingTitleResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public RecordingTitleResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("titles", String[].class);
         x.alias("title", String.class);
     }
@@ -0,0 +1,344 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.restlet.nms;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jflicks.nms.NMS;
+import org.jflicks.restlet.NMSSupport;
+import org.jflicks.tv.Commercial;
+import org.jflicks.tv.Recording;
+
+import org.restlet.Component;
+import org.restlet.Restlet;
+import org.restlet.data.MediaType;
+import org.restlet.data.Protocol;
+import org.restlet.ext.json.JsonRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import org.restlet.routing.Router;
+
+import com.google.gson.Gson;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+
+/**
+ * A load test for the REST resources that reports requests per second.
+ *
+ * Usage: RestLoadTest [url] [threads] [seconds] [recordings]
+ *
+ * Given a URL it is fetched as fast as possible both without and with
+ * If-None-Match.  Without one a local instance is started with a made
+ * up NMS of 3000 recordings by default.  The recordings are fetched the way they
+ * used to be made, with new serializers and a String for each request,
+ * then from RecordingResource, then again with If-None-Match.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class RestLoadTest {
+
+    private RestLoadTest() {
+    }
+
+    private static NMS makeNMS(int count) {
+
+        final Recording[] recs = new Recording[count];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+
+            Recording r = new Recording();
+            r.setTitle("Show " + (i % 200));
+            r.setSubtitle("Episode " + i);
+            r.setDescription("A made up recording to see how fast we can "
+                + "hand them out over REST.  It is number " + i + ".");
+            r.setPath("/home/jflicks/recordings/show" + i + ".ts");
+            r.setSeriesId("SH" + (100000 + i % 200));
+            r.setShowId("EP" + (100000 + i));
+            r.setDate(new Date(now - i * 3600000L));
+            r.setDuration(1800L);
+            r.setCommercials(new Commercial[0]);
+            recs[i] = r;
+        }
+
+        return ((NMS) Proxy.newProxyInstance(NMS.class.getClassLoader(),
+            new Class<?>[] {NMS.class}, new InvocationHandler() {
+
+                public Object invoke(Object p, Method m, Object[] args) {
+
+                    Object result = null;
+
+                    String name = m.getName();
+                    if ("getRecordings".equals(name)) {
+                        result = recs.clone();
+                    } else if ("getHost".equals(name)) {
+                        result = "localhost";
+                    } else if ("hashCode".equals(name)) {
+                        result = Integer.valueOf(System.identityHashCode(p));
+                    } else if ("equals".equals(name)) {
+                        result = Boolean.valueOf(p == args[0]);
+                    } else if ("toString".equals(name)) {
+                        result = "RestLoadTest NMS";
+                    } else if (m.getReturnType() == Integer.TYPE) {
+                        result = Integer.valueOf(0);
+                    } else if (m.getReturnType() == Long.TYPE) {
+                        result = Long.valueOf(0L);
+                    } else if (m.getReturnType() == Boolean.TYPE) {
+                        result = Boolean.FALSE;
+                    }
+
+                    return (result);
+                }
+            }));
+    }
+
+    private static String[] fetch(String url, String tag) throws Exception {
+
+        HttpURLConnection c =
+            (HttpURLConnection) new URL(url).openConnection();
+        if (tag != null) {
+            c.setRequestProperty("If-None-Match", tag);
+        }
+
+        int status = c.getResponseCode();
+        long bytes = 0L;
+        InputStream in = (status == 200) ? c.getInputStream()
+            : c.getErrorStream();
+        if (in != null) {
+
+            byte[] buf = new byte[65536];
+            int count = 0;
+            while ((count = in.read(buf)) != -1) {
+                bytes += count;
+            }
+            in.close();
+        }
+
+        return (new String[] {
+            Integer.toString(status), Long.toString(bytes), c.getHeaderField("ETag")
+        });
+    }
+
+    private static void run(String label, final String url, final String tag,
+        int threads, int seconds) throws Exception {
+
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong notModified = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final long end = System.currentTimeMillis() + seconds * 1000L;
+
+        Thread[] array = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+
+            array[i] = new Thread(new Runnable() {
+
+                public void run() {
+
+                    while (System.currentTimeMillis() < end) {
+
+                        try {
+
+                            String[] r = fetch(url, tag);
+                            requests.incrementAndGet();
+                            bytes.addAndGet(Long.parseLong(r[1]));
+                            if ("304".equals(r[0])) {
+                                notModified.incrementAndGet();
+                            } else if (!"200".equals(r[0])) {
+                                errors.incrementAndGet();
+                            }
+
+                        } catch (Exception ex) {
+
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            array[i].start();
+        }
+
+        for (int i = 0; i < threads; i++) {
+            array[i].join();
+        }
+
+        long n = requests.get();
+        System.out.printf("%-12s %8.1f req/s %10d bytes/req %6d 304 %4d"
+            + " errors%n", label, n / (double) seconds,
+            (n > 0) ? bytes.get() / n : 0L, notModified.get(), errors.get());
+    }
+
+    private static void test(String label, String url, int threads,
+        int seconds) throws Exception {
+
+        // Warm up the JIT and see what tag we get.
+        String[] first = fetch(url, null);
+        for (int i = 0; i < 20; i++) {
+            fetch(url, null);
+        }
+
+        run(label, url, null, threads, seconds);
+        if (first[2] != null) {
+
+            fetch(url, first[2]);
+            run(label + " 304", url, first[2], threads, seconds);
+        }
+    }
+
+    /**
+     * Simple main to run the load test.
+     *
+     * @param args The arguments as described above.
+     * @throws Exception on error.
+     */
+    public static void main(String[] args) throws Exception {
+
+        String url = null;
+        int index = 0;
+        if ((args.length > 0) && (args[0].startsWith("http"))) {
+            url = args[index++];
+        }
+
+        int threads = 8;
+        int seconds = 10;
+        if (args.length > index) {
+            threads = Integer.parseInt(args[index]);
+        }
+        if (args.length > index + 1) {
+            seconds = Integer.parseInt(args[index + 1]);
+        }
+        int recordings = 3000;
+        if (args.length > index + 2) {
+            recordings = Integer.parseInt(args[index + 2]);
+        }
+
+        if (url != null) {
+
+            test("url", url, threads, seconds);
+            System.exit(0);
+        }
+
+        // Our logging goes to stderr without a LogService.
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(new OutputStream() {
+
+            public void write(int b) {
+            }
+        }));
+
+        // Otherwise Nagle holds up each response on the built in server.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        ServerSocket ss = new ServerSocket(0);
+        int port = ss.getLocalPort();
+        ss.close();
+
+        NMSSupport.getInstance().setNMS(new NMS[] {makeNMS(recordings)});
+        Component c = new Component();
+        c.getServers().add(Protocol.HTTP, port);
+        c.getDefaultHost().attach("/jflicks/nms", new NMSApplication() {
+
+            public Restlet createInboundRoot() {
+
+                Router router = (Router) super.createInboundRoot();
+                router.attach("/{version}/legacy.{format}",
+                    LegacyRecordingResource.class);
+
+                return (router);
+            }
+        });
+        c.start();
+
+        String top = "http://127.0.0.1:" + port + "/jflicks/nms/1.0/";
+        System.out.printf("%d recordings, %d threads, %d seconds each%n",
+            recordings, threads, seconds);
+        String[] formats = new String[] {"json", "xml"};
+        for (int i = 0; i < formats.length; i++) {
+
+            test("legacy " + formats[i], top + "legacy." + formats[i],
+                threads, seconds);
+            test("shared " + formats[i], top + "recordings." + formats[i],
+                threads, seconds);
+        }
+
+        c.stop();
+        System.setErr(err);
+        System.exit(0);
+    }
+
+    /**
+     * Recordings made the way they were before the serializers were
+     * shared, to compare against.
+     */
+    public static class LegacyRecordingResource extends ServerResource {
+
+        /**
+         * Simple empty constructor.
+         */
+        public LegacyRecordingResource() {
+        }
+
+        /**
+         * Make the recordings in a String with new serializers.
+         *
+         * @return A Representation instance.
+         */
+        @Get("xml|json")
+        public Representation get() {
+
+            Representation result = null;
+
+            Gson g = new Gson();
+            XStream x = new XStream(new DomDriver());
+            x.alias("recordings", Recording[].class);
+            x.alias("recording", Recording.class);
+            x.alias("commercial", Commercial.class);
+            x.alias("date", Date.class);
+
+            Recording[] array = NMSSupport.getInstance().getRecordings();
+            String format = (String) getRequestAttributes().get("format");
+            if ("json".equals(format)) {
+
+                result = new JsonRepresentation(g.toJson(array));
+
+            } else {
+
+                StringRepresentation sr =
+                    new StringRepresentation(x.toXML(array));
+                sr.setMediaType(MediaType.TEXT_XML);
+                result = sr;
+            }
+
+            return (result);
+        }
+    }
+
+}
@@ -44,8 +44,13 @@ public class SearchResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public SearchResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("showairings", ShowAiring[].class);
         x.alias("showairing", ShowAiring.class);
         x.alias("date", Date.class);
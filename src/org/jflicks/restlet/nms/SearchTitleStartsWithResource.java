@@ -43,14 +43,19 @@ public class SearchTitleStartsWithResource extends BaseServerResource {
      */
     public SearchTitleStartsWithResource() {
 
-        XStream x = getXStream();
-        x.alias("showairings", ShowAiring[].class);
-        x.alias("showairing", ShowAiring.class);
-
         setName("Search By Title start string");
         setDescription("The shows that title starts with a given string.");
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
+
+        x.alias("showairings", ShowAiring[].class);
+        x.alias("showairing", ShowAiring.class);
+    }
+
     @Get("xml|json")
     public Representation get() {
 
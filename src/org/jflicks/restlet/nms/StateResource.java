@@ -41,8 +41,12 @@ public class StateResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public StateResource() {
+    }
 
-        XStream x = getXStream();
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
         x.alias("state", State.class);
     }
 
@@ -41,8 +41,13 @@ public class TaskResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public TaskResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("tasks", Task[].class);
         x.alias("task", Task.class);
     }
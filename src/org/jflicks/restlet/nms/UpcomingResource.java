@@ -20,19 +20,17 @@ import java.io.IOException;
 import java.util.Date;
 
 import org.jflicks.restlet.BaseServerResource;
+import org.jflicks.restlet.DataVersion;
 import org.jflicks.restlet.NMSSupport;
 import org.jflicks.tv.Upcoming;
 import org.jflicks.util.LogUtil;
 
-import org.restlet.data.MediaType;
 import org.restlet.data.Status;
-import org.restlet.ext.json.JsonRepresentation;
+import org.restlet.data.Tag;
 import org.restlet.resource.Get;
 import org.restlet.resource.Put;
 import org.restlet.representation.Representation;
-import org.restlet.representation.StringRepresentation;
 
-import com.google.gson.Gson;
 import com.thoughtworks.xstream.XStream;
 
 /**
@@ -47,8 +45,13 @@ public class UpcomingResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public UpcomingResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("upcomings", Upcoming[].class);
         x.alias("upcoming", Upcoming.class);
         x.alias("date", Date.class);
@@ -59,42 +62,20 @@ public class UpcomingResource extends BaseServerResource {
 
         Representation result = null;
 
-        NMSSupport nsup = NMSSupport.getInstance();
-
-        if (isFormatJson()) {
+        // The tag is made before getting the data so if it changes while we
+        // are at it the client will just get it again next time.
+        Tag t = DataVersion.getInstance().getTag(DataVersion.UPCOMINGS,
+            getFormat());
+        if (!isNotModified(t)) {
 
+            NMSSupport nsup = NMSSupport.getInstance();
             Upcoming[] array = nsup.getUpcomings();
             if (array == null) {
                 array = new Upcoming[0];
             }
-
-            Gson g = getGson();
-            if ((g != null) && (array != null)) {
-
-                String data = g.toJson(array);
-                if (data != null) {
-
-                    JsonRepresentation sr = new JsonRepresentation(data);
-                    result = sr;
-                }
-            }
-
-        } else if (isFormatXml()) {
-
-            Upcoming[] array = nsup.getUpcomings();
-            if (array == null) {
-                array = new Upcoming[0];
-            }
-            XStream x = getXStream();
-            if ((x != null) && (array != null)) {
-
-                String data = x.toXML(array);
-                if (data != null) {
-
-                    StringRepresentation sr = new StringRepresentation(data);
-                    sr.setMediaType(MediaType.TEXT_XML);
-                    result = sr;
-                }
+            result = toRepresentation(array);
+            if (result != null) {
+                result.setTag(t);
             }
         }
 
@@ -124,6 +105,8 @@ public class UpcomingResource extends BaseServerResource {
                     if (u != null) {
 
                         nsup.overrideUpcoming(u);
+                        DataVersion.getInstance().changed(
+                            DataVersion.UPCOMINGS);
                         setStatus(Status.SUCCESS_OK);
                     }
                 }
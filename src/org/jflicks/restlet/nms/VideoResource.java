@@ -41,8 +41,13 @@ public class VideoResource extends BaseServerResource {
      * Simple empty constructor.
      */
     public VideoResource() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void configure(XStream x) {
 
-        XStream x = getXStream();
         x.alias("videos", Video[].class);
         x.alias("video", Video.class);
     }
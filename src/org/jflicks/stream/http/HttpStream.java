@@ -22,6 +22,8 @@ import javax.servlet.ServletException;
 import org.jflicks.job.JobContainer;
 import org.jflicks.job.JobEvent;
 import org.jflicks.job.JobListener;
+import org.jflicks.nms.BaseNMS;
+import org.jflicks.nms.ImageDerivatives;
 import org.jflicks.nms.NMS;
 import org.jflicks.nms.NMSConstants;
 import org.jflicks.stream.BaseStream;
@@ -44,6 +46,7 @@ public class HttpStream extends BaseStream implements JobListener,
     private HttpService httpService;
     private MimeHttpContext mimeHttpContext;
     private JobContainer soundJobContainer;
+    private ImageDerivatives imageDerivatives;
 
     /**
      * Default empty constructor.
@@ -97,10 +100,15 @@ public class HttpStream extends BaseStream implements JobListener,
                 httpService.registerResources("/"
                     + NMSConstants.HTTP_STREAM_NAME, web.getAbsolutePath(),
                     getMimeHttpContext());
-                httpService.registerResources("/"
-                    + NMSConstants.HTTP_IMAGES_NAME, web.getAbsolutePath(),
+                httpService.registerServlet("/"
+                    + NMSConstants.HTTP_IMAGES_NAME,
+                    new ImageServlet(this, getMimeHttpContext()), null,
                     getMimeHttpContext());
 
+            } catch (ServletException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "ServletException: " + ex.getMessage());
+
             } catch (NamespaceException ex) {
 
                 LogUtil.log(LogUtil.WARNING, "NamespaceException: " + ex.getMessage());
@@ -108,6 +116,27 @@ public class HttpStream extends BaseStream implements JobListener,
         }
     }
 
+    /**
+     * The images are kept by the NMS, but if we don't have one yet we
+     * still serve what is in the www directory.
+     *
+     * @return An ImageDerivatives instance.
+     */
+    public synchronized ImageDerivatives getImageDerivatives() {
+
+        NMS nms = getNMS();
+        if (nms instanceof BaseNMS) {
+
+            imageDerivatives = ((BaseNMS) nms).getImageDerivatives();
+
+        } else if (imageDerivatives == null) {
+
+            imageDerivatives = new ImageDerivatives(new File("www"));
+        }
+
+        return (imageDerivatives);
+    }
+
     private String[] getRecordingDirectories() {
 
         String[] result = null;
@@ -0,0 +1,153 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.stream.http;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jflicks.nms.ImageDerivatives;
+
+/**
+ * Serve the files in the image home.  A "size" parameter of thumbnail,
+ * list or fullscreen sends a smaller version of an image that is made
+ * the first time it is asked for.  A "v" parameter is the version of the
+ * image put there by the NMS, and as the URL changes when the image does
+ * we tell clients to keep it for a year.  Without it clients have to
+ * check with us, which is cheap as we answer "not modified" when they
+ * already have it.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class ImageServlet extends HttpServlet {
+
+    private static final String FOREVER = "public, max-age=31536000";
+    private static final String CHECK = "public, no-cache";
+
+    private HttpStream httpStream;
+    private MimeHttpContext mimeHttpContext;
+
+    /**
+     * Constructor with our required arguments.
+     *
+     * @param s The HttpStream that knows the image home.
+     * @param c The MimeHttpContext that knows mime types.
+     */
+    public ImageServlet(HttpStream s, MimeHttpContext c) {
+
+        httpStream = s;
+        mimeHttpContext = c;
+    }
+
+    private static String toETag(File f) {
+
+        return ("\"" + Long.toHexString(f.length()) + "-"
+            + Long.toHexString(f.lastModified()) + "\"");
+    }
+
+    private static boolean isNotModified(HttpServletRequest req, File f,
+        String etag) {
+
+        boolean result = false;
+
+        String match = req.getHeader("If-None-Match");
+        if (match != null) {
+
+            result = (match.indexOf(etag) != -1) || (match.trim().equals("*"));
+
+        } else {
+
+            // Dates in headers are only to the second.
+            long since = req.getDateHeader("If-Modified-Since");
+            result = (since != -1L)
+                && ((f.lastModified() / 1000L) <= (since / 1000L));
+        }
+
+        return (result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+        throws IOException {
+
+        String name = req.getPathInfo();
+        if (name != null) {
+            name = name.substring(1);
+        }
+
+        File f = null;
+        ImageDerivatives id = httpStream.getImageDerivatives();
+        if ((id != null) && (name != null) && (name.length() > 0)
+            && (name.indexOf('/') == -1) && (name.indexOf('\\') == -1)
+            && (!name.startsWith("."))) {
+
+            f = id.getFile(name, req.getParameter("size"));
+        }
+
+        if (f != null) {
+
+            String etag = toETag(f);
+            resp.setHeader("ETag", etag);
+            resp.setDateHeader("Last-Modified", f.lastModified());
+            if (req.getParameter("v") != null) {
+                resp.setHeader("Cache-Control", FOREVER);
+            } else {
+                resp.setHeader("Cache-Control", CHECK);
+            }
+
+            if (isNotModified(req, f, etag)) {
+
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+            } else {
+
+                String type = mimeHttpContext.getMimeType(f.getName());
+                if (type != null) {
+                    resp.setContentType(type);
+                }
+                resp.setContentLength((int) f.length());
+
+                FileInputStream fis = new FileInputStream(f);
+                try {
+
+                    OutputStream os = resp.getOutputStream();
+                    byte[] buffer = new byte[16384];
+                    int count = 0;
+                    while ((count = fis.read(buffer)) != -1) {
+                        os.write(buffer, 0, count);
+                    }
+
+                } finally {
+
+                    fis.close();
+                }
+            }
+
+        } else {
+
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+}
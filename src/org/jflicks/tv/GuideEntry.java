@@ -0,0 +1,152 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv;
+
+import java.io.Serializable;
+
+/**
+ * A compact row of guide data, just enough to draw a guide grid.  A
+ * ShowAiring has everything about a Show and an Airing which is a lot
+ * to send when a client wants hundreds of channels at once.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class GuideEntry implements Serializable {
+
+    private int channelId;
+    private long start;
+    private long duration;
+    private String showId;
+    private String title;
+
+    /**
+     * Simple empty constructor.
+     */
+    public GuideEntry() {
+    }
+
+    /**
+     * Constructor with all the properties.
+     *
+     * @param channelId The Id of the Channel.
+     * @param start The time it starts in milliseconds UTC.
+     * @param duration The length in seconds.
+     * @param showId The Id of the Show.
+     * @param title The title of the Show.
+     */
+    public GuideEntry(int channelId, long start, long duration,
+        String showId, String title) {
+
+        setChannelId(channelId);
+        setStart(start);
+        setDuration(duration);
+        setShowId(showId);
+        setTitle(title);
+    }
+
+    /**
+     * The Id of the Channel it airs on.
+     *
+     * @return An int value.
+     */
+    public int getChannelId() {
+        return (channelId);
+    }
+
+    /**
+     * The Id of the Channel it airs on.
+     *
+     * @param i An int value.
+     */
+    public void setChannelId(int i) {
+        channelId = i;
+    }
+
+    /**
+     * The time it starts in milliseconds UTC.
+     *
+     * @return A long value.
+     */
+    public long getStart() {
+        return (start);
+    }
+
+    /**
+     * The time it starts in milliseconds UTC.
+     *
+     * @param l A long value.
+     */
+    public void setStart(long l) {
+        start = l;
+    }
+
+    /**
+     * The length in seconds.
+     *
+     * @return A long value.
+     */
+    public long getDuration() {
+        return (duration);
+    }
+
+    /**
+     * The length in seconds.
+     *
+     * @param l A long value.
+     */
+    public void setDuration(long l) {
+        duration = l;
+    }
+
+    /**
+     * The Id of the Show.
+     *
+     * @return A String instance.
+     */
+    public String getShowId() {
+        return (showId);
+    }
+
+    /**
+     * The Id of the Show.
+     *
+     * @param s A String instance.
+     */
+    public void setShowId(String s) {
+        showId = s;
+    }
+
+    /**
+     * The title of the Show.
+     *
+     * @return A String instance.
+     */
+    public String getTitle() {
+        return (title);
+    }
+
+    /**
+     * The title of the Show.
+     *
+     * @param s A String instance.
+     */
+    public void setTitle(String s) {
+        title = s;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv;
+
+import java.io.Serializable;
+
+/**
+ * The changes to the recordings on a server since a given version.  A
+ * client keeps the version of the last delta it applied and asks for
+ * the changes since then.  When the server can't tell what changed, for
+ * example it has been restarted since, the delta is full and has every
+ * Recording so the client should start over with it.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class RecordingDelta implements Serializable {
+
+    private long version;
+    private boolean full;
+    private Recording[] recordings;
+    private String[] removedIds;
+
+    /**
+     * Simple empty constructor.
+     */
+    public RecordingDelta() {
+    }
+
+    /**
+     * Constructor with all the required arguments.
+     *
+     * @param version The version of the recordings now.
+     * @param full True when recordings has every Recording.
+     * @param recordings The added or changed Recording instances.
+     * @param removedIds The Ids of the Recording instances removed.
+     */
+    public RecordingDelta(long version, boolean full, Recording[] recordings,
+        String[] removedIds) {
+
+        setVersion(version);
+        setFull(full);
+        setRecordings(recordings);
+        setRemovedIds(removedIds);
+    }
+
+    /**
+     * The version of the recordings this delta brings a client up to.
+     *
+     * @return A long value.
+     */
+    public long getVersion() {
+        return (version);
+    }
+
+    /**
+     * The version of the recordings this delta brings a client up to.
+     *
+     * @param l A long value.
+     */
+    public void setVersion(long l) {
+        version = l;
+    }
+
+    /**
+     * When true the Recording array is everything and the client should
+     * throw away what it has.
+     *
+     * @return True if this is a full list.
+     */
+    public boolean isFull() {
+        return (full);
+    }
+
+    /**
+     * When true the Recording array is everything and the client should
+     * throw away what it has.
+     *
+     * @param b True if this is a full list.
+     */
+    public void setFull(boolean b) {
+        full = b;
+    }
+
+    /**
+     * The Recording instances added or changed since the asked version.
+     *
+     * @return An array of Recording instances.
+     */
+    public Recording[] getRecordings() {
+        return (recordings);
+    }
+
+    /**
+     * The Recording instances added or changed since the asked version.
+     *
+     * @param array An array of Recording instances.
+     */
+    public void setRecordings(Recording[] array) {
+        recordings = array;
+    }
+
+    /**
+     * The Ids of the Recording instances removed since the asked version.
+     *
+     * @return An array of String Ids.
+     */
+    public String[] getRemovedIds() {
+        return (removedIds);
+    }
+
+    /**
+     * The Ids of the Recording instances removed since the asked version.
+     *
+     * @param array An array of String Ids.
+     */
+    public void setRemovedIds(String[] array) {
+        removedIds = array;
+    }
+
+    /**
+     * Nothing has changed.
+     *
+     * @return True if there is nothing to apply.
+     */
+    public boolean isEmpty() {
+
+        return ((!isFull())
+            && ((recordings == null) || (recordings.length == 0))
+            && ((removedIds == null) || (removedIds.length == 0)));
+    }
+
+}
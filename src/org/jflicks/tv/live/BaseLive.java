@@ -16,6 +16,8 @@
 */
 package org.jflicks.tv.live;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -326,6 +328,14 @@ public abstract class BaseLive extends BaseConfig implements Live {
 
                         LogUtil.log(LogUtil.DEBUG, "recording to file <" + output + ">");
                         s.setCurrentRecorder(r);
+
+                        // Recorders that segment in process tell us as
+                        // each segment is done so we listen before we
+                        // start.
+                        SegmentWaiter waiter = new SegmentWaiter();
+                        r.addPropertyChangeListener(
+                            Recorder.SEGMENT_COUNT_PROPERTY, waiter);
+                        long started = System.currentTimeMillis();
                         r.startRecording(c, 60 * 60 * 4, output, true);
 
                         String hls = output.getPath();
@@ -339,26 +349,13 @@ public abstract class BaseLive extends BaseConfig implements Live {
                         // have a valid files.  Things take time
                         // to spin up.
                         int minseg = getConfiguredMinimumSegmentCount();
-                        int loopmax = minseg * 10;
-                        File m3u8 = new File(hls);
-                        int loops = 0;
-                        boolean done = false;
-                        while (!done) {
-
-                            loops++;
-                            done = count(l) >= minseg;
-                            if (!done) {
-
-                                done = loops > loopmax;
-                            }
-
-                            try {
-
-                                Thread.sleep(1000);
-
-                            } catch (Exception ex) {
-                            }
-                        }
+                        long deadline = started + minseg * 10000L;
+                        int segs = waiter.await(l, minseg, deadline);
+                        r.removePropertyChangeListener(
+                            Recorder.SEGMENT_COUNT_PROPERTY, waiter);
+                        LogUtil.log(LogUtil.INFO, "live TV playable after "
+                            + (System.currentTimeMillis() - started) + " ms ("
+                            + segs + " segments)");
 
                     } else {
 
@@ -379,7 +376,7 @@ public abstract class BaseLive extends BaseConfig implements Live {
         return (l);
     }
 
-    private int count(LiveTV l) {
+    private static int count(LiveTV l) {
 
         int result = 0;
 
@@ -401,6 +398,52 @@ public abstract class BaseLive extends BaseConfig implements Live {
         return (result);
     }
 
+    /**
+     * Waits for a recorder to have enough segments.  If the recorder tells
+     * us about each segment we wake up right away, otherwise we fall back
+     * to counting files once a second.
+     */
+    static class SegmentWaiter implements PropertyChangeListener {
+
+        private int reported = -1;
+
+        public synchronized void propertyChange(PropertyChangeEvent event) {
+
+            Object o = event.getNewValue();
+            if (o instanceof Integer) {
+
+                reported = ((Integer) o).intValue();
+                notifyAll();
+            }
+        }
+
+        synchronized int await(LiveTV l, int minimum, long deadline) {
+
+            int result = 0;
+
+            boolean done = false;
+            while (!done) {
+
+                result = (reported >= 0) ? reported : count(l);
+                long left = deadline - System.currentTimeMillis();
+                done = (result >= minimum) || (left <= 0);
+                if (!done) {
+
+                    try {
+
+                        wait((reported >= 0) ? left : Math.min(left, 1000));
+
+                    } catch (InterruptedException ex) {
+
+                        done = true;
+                    }
+                }
+            }
+
+            return (result);
+        }
+    }
+
     private void cleanup(LiveTV l) {
 
         if (l != null) {
@@ -485,7 +528,7 @@ public abstract class BaseLive extends BaseConfig implements Live {
 
     private int getConfiguredMinimumSegmentCount() {
 
-        int result = 6;
+        int result = 3;
 
         Configuration c = getConfiguration();
         if (c != null) {
@@ -16,6 +16,7 @@
 */
 package org.jflicks.tv.postproc;
 
+import java.io.File;
 import java.util.StringTokenizer;
 
 import org.jflicks.job.AbstractJob;
@@ -29,7 +30,8 @@ import org.jflicks.util.LogUtil;
 import org.jflicks.util.Util;
 
 /**
- * Use ffmpeg to find true duration of a recording.
+ * Find the true duration of a recording.  Transport streams are read
+ * with TsProbe, anything else is handed to ffmpeg.
  *
  * @author Doug Barnum
  * @version 1.0
@@ -95,8 +97,23 @@ public class RecordingLengthJob extends AbstractJob implements JobListener {
     public void start() {
 
         Recording r = getRecording();
+        TsProbe probe = null;
         if (r != null) {
 
+            probe = new TsProbe(new File(r.getPath() + "."
+                + r.getIndexedExtension()));
+        }
+
+        if ((probe != null) && (probe.probe())) {
+
+            setSeconds(probe.getDurationMillis() / 1000L);
+            LogUtil.log(LogUtil.DEBUG, "real length from probe: "
+                + getSeconds() + " in " + probe.getProbeMillis() + " ms");
+            setTerminate(true);
+
+        } else if (r != null) {
+
+            // Not a transport stream so let ffmpeg figure it out.
             SystemJob job = SystemJob.getInstance("ffmpeg -i " + r.getPath()
                 + "." + r.getIndexedExtension());
             LogUtil.log(LogUtil.DEBUG, "getting real length: " + job.getCommand());
@@ -200,33 +217,48 @@ public class RecordingLengthJob extends AbstractJob implements JobListener {
 
         long result = 0L;
 
-        RecordingLengthJob job = new RecordingLengthJob(r);
-        JobContainer jc = JobManager.getJobContainer(job);
-        jc.start();
+        // No need for a thread when the probe can do it.
+        TsProbe probe = null;
+        if (r != null) {
 
-        boolean done = false;
-        int count = 0;
-        while (jc.isAlive()) {
+            probe = new TsProbe(new File(r.getPath() + "."
+                + r.getIndexedExtension()));
+        }
 
-            if (!jc.isAlive()) {
+        if ((probe != null) && (probe.probe())) {
 
-                done = true;
+            result = probe.getDurationMillis() / 1000L;
 
-            } else {
+        } else {
 
-                count += 100;
-                if (count > 2900) {
+            RecordingLengthJob job = new RecordingLengthJob(r);
+            JobContainer jc = JobManager.getJobContainer(job);
+            jc.start();
+
+            boolean done = false;
+            int count = 0;
+            while (jc.isAlive()) {
+
+                if (!jc.isAlive()) {
 
                     done = true;
 
                 } else {
 
-                    JobManager.sleep(100);
+                    count += 100;
+                    if (count > 2900) {
+
+                        done = true;
+
+                    } else {
+
+                        JobManager.sleep(100);
+                    }
                 }
             }
-        }
 
-        result = job.getSeconds();
+            result = job.getSeconds();
+        }
 
         return (result);
     }
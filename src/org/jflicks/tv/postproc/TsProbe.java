@@ -0,0 +1,965 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.postproc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jflicks.nms.NMSConstants;
+
+/**
+ * Find out about an MPEG-TS file without running ffmpeg.  Only the head
+ * and the tail of the file are read.  The head gives us the programs,
+ * the streams, the codecs, the video size and the first clock value,
+ * the tail gives us the last clock value so we know the duration.  This
+ * takes a few milliseconds where starting ffmpeg takes a second or more.
+ *
+ * The PCR is used for the duration when there is one, otherwise the PTS
+ * of the video.  A file that is not a transport stream fails the probe
+ * and the caller can fall back to ffmpeg.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class TsProbe {
+
+    private static final int PACKET_SIZE = 188;
+    private static final int SYNC = 0x47;
+    private static final int HEAD_SIZE = 4 * 1024 * 1024;
+    private static final int TAIL_SIZE = 2 * 1024 * 1024;
+    private static final int ES_SIZE = 8 * 1024;
+    private static final long CLOCK_MASK = (1L << 33) - 1;
+    private static final long CLOCK = 90000L;
+    private static final int[] AC3_CHANNELS = {2, 1, 2, 3, 3, 4, 4, 5};
+
+    private File file;
+    private LinkedHashMap<Integer, Integer> programMap;
+    private LinkedHashMap<Integer, Integer> streamMap;
+    private int pcrPid;
+    private int videoPid;
+    private int audioPid;
+    private String videoCodec;
+    private String audioCodec;
+    private int width;
+    private int height;
+    private boolean interlaced;
+    private int audioChannels;
+    private long durationMillis;
+    private long probeMillis;
+
+    private byte[] videoData;
+    private int videoLength;
+    private byte[] audioData;
+    private int audioLength;
+    private long firstPcr;
+    private long firstPts;
+    private long lastPcr;
+    private long lastPts;
+
+    /**
+     * Probe the given file.  Call probe to do the work.
+     *
+     * @param f A given File.
+     */
+    public TsProbe(File f) {
+
+        file = f;
+        programMap = new LinkedHashMap<Integer, Integer>();
+        streamMap = new LinkedHashMap<Integer, Integer>();
+        pcrPid = -1;
+        videoPid = -1;
+        audioPid = -1;
+        firstPcr = -1L;
+        firstPts = -1L;
+        lastPcr = -1L;
+        lastPts = -1L;
+    }
+
+    /**
+     * The programs found in the PAT, the program number mapped to the
+     * PID of its PMT.
+     *
+     * @return A Map instance.
+     */
+    public Map<Integer, Integer> getPrograms() {
+        return (programMap);
+    }
+
+    /**
+     * The elementary streams found in the PMTs, the PID mapped to its
+     * stream type.
+     *
+     * @return A Map instance.
+     */
+    public Map<Integer, Integer> getStreams() {
+        return (streamMap);
+    }
+
+    /**
+     * The PID of the first video stream or -1 if there is none.
+     *
+     * @return An int value.
+     */
+    public int getVideoPid() {
+        return (videoPid);
+    }
+
+    /**
+     * The PID of the first audio stream or -1 if there is none.
+     *
+     * @return An int value.
+     */
+    public int getAudioPid() {
+        return (audioPid);
+    }
+
+    /**
+     * The video codec named the way ffmpeg names it, for example "h264".
+     *
+     * @return A String instance or null if there is no video.
+     */
+    public String getVideoCodec() {
+        return (videoCodec);
+    }
+
+    /**
+     * The audio codec named the way ffmpeg names it, for example "ac3".
+     *
+     * @return A String instance or null if there is no audio.
+     */
+    public String getAudioCodec() {
+        return (audioCodec);
+    }
+
+    /**
+     * The width of the video or zero if it could not be found.
+     *
+     * @return An int value.
+     */
+    public int getWidth() {
+        return (width);
+    }
+
+    /**
+     * The height of the video or zero if it could not be found.
+     *
+     * @return An int value.
+     */
+    public int getHeight() {
+        return (height);
+    }
+
+    /**
+     * True when the video is interlaced.
+     *
+     * @return A boolean value.
+     */
+    public boolean isInterlaced() {
+        return (interlaced);
+    }
+
+    /**
+     * The number of audio channels counting the LFE, so 5.1 is 6.  Zero
+     * if it could not be found.
+     *
+     * @return An int value.
+     */
+    public int getAudioChannels() {
+        return (audioChannels);
+    }
+
+    /**
+     * The duration from the first to the last clock value.
+     *
+     * @return The duration in milliseconds.
+     */
+    public long getDurationMillis() {
+        return (durationMillis);
+    }
+
+    /**
+     * How long the probe took.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getProbeMillis() {
+        return (probeMillis);
+    }
+
+    /**
+     * The video format as one of the NMSConstants VIDEO values.
+     *
+     * @return An int value, zero if it is not known.
+     */
+    public int getVideoFormat() {
+
+        int result = 0;
+
+        if (height >= 1000) {
+            result = (interlaced) ? NMSConstants.VIDEO_1080I
+                : NMSConstants.VIDEO_1080P;
+        } else if (height >= 700) {
+            result = NMSConstants.VIDEO_720P;
+        } else if (height >= 400) {
+            result = (interlaced) ? NMSConstants.VIDEO_480I
+                : NMSConstants.VIDEO_480P;
+        }
+
+        return (result);
+    }
+
+    /**
+     * The audio format as one of the NMSConstants AUDIO values.
+     *
+     * @return An int value, zero if it is not known.
+     */
+    public int getAudioFormat() {
+
+        int result = 0;
+
+        if (audioChannels >= 6) {
+            result = NMSConstants.AUDIO_DOLBY_DIGITAL_5_1;
+        } else if (audioChannels > 0) {
+            result = NMSConstants.AUDIO_DOLBY_DIGITAL_2_0;
+        }
+
+        return (result);
+    }
+
+    /**
+     * Read the head and the tail of the file.
+     *
+     * @return True if the file is a transport stream with a duration.
+     */
+    public boolean probe() {
+
+        boolean result = false;
+
+        long before = System.currentTimeMillis();
+        RandomAccessFile raf = null;
+        try {
+
+            raf = new RandomAccessFile(file, "r");
+            FileChannel fc = raf.getChannel();
+            long size = fc.size();
+
+            // Plain reads rather than a mapping, a mapped file can't be
+            // deleted on some platforms until the mapping is collected.
+            ByteBuffer head = read(fc, 0L, (int) Math.min(size, HEAD_SIZE));
+            int start = findSync(head);
+            if (start != -1) {
+
+                scan(head, start, true);
+                if (size > HEAD_SIZE) {
+
+                    long from = Math.max(HEAD_SIZE, size - TAIL_SIZE);
+                    ByteBuffer tail = read(fc, from, (int) (size - from));
+                    int tstart = findSync(tail);
+                    if (tstart != -1) {
+                        scan(tail, tstart, false);
+                    }
+                }
+
+                parseVideo();
+                parseAudio();
+
+                // The clocks are 33 bits and may wrap during a recording.
+                if ((firstPcr != -1L) && (lastPcr != -1L)) {
+                    durationMillis = ((lastPcr - firstPcr) & CLOCK_MASK)
+                        * 1000L / CLOCK;
+                } else if ((firstPts != -1L) && (lastPts != -1L)) {
+                    durationMillis = ((lastPts - firstPts) & CLOCK_MASK)
+                        * 1000L / CLOCK;
+                }
+                result = durationMillis > 0L;
+            }
+
+        } catch (IOException ex) {
+
+            result = false;
+
+        } finally {
+
+            if (raf != null) {
+
+                try {
+
+                    raf.close();
+
+                } catch (IOException ex) {
+                }
+            }
+        }
+
+        videoData = null;
+        audioData = null;
+        probeMillis = System.currentTimeMillis() - before;
+
+        return (result);
+    }
+
+    private static ByteBuffer read(FileChannel fc, long position, int length)
+        throws IOException {
+
+        ByteBuffer result = ByteBuffer.allocate(length);
+        while (result.hasRemaining()) {
+
+            if (fc.read(result, position + result.position()) < 0) {
+                break;
+            }
+        }
+        result.flip();
+
+        return (result);
+    }
+
+    private static int u8(ByteBuffer bb, int index) {
+        return (bb.get(index) & 0xff);
+    }
+
+    private static int findSync(ByteBuffer bb) {
+
+        int result = -1;
+
+        int limit = bb.limit();
+        for (int i = 0; (i < PACKET_SIZE) && (i < limit); i++) {
+
+            if ((u8(bb, i) == SYNC)
+                && ((i + PACKET_SIZE >= limit)
+                || (u8(bb, i + PACKET_SIZE) == SYNC))
+                && ((i + 2 * PACKET_SIZE >= limit)
+                || (u8(bb, i + 2 * PACKET_SIZE) == SYNC))) {
+
+                result = i;
+                break;
+            }
+        }
+
+        return (result);
+    }
+
+    private void scan(ByteBuffer bb, int start, boolean head) {
+
+        int limit = bb.limit();
+        for (int off = start; off + PACKET_SIZE <= limit;
+            off += PACKET_SIZE) {
+
+            if (u8(bb, off) != SYNC) {
+
+                // Lost sync in the middle, find it again.
+                ByteBuffer rest = bb.duplicate();
+                rest.position(off);
+                rest = rest.slice();
+                int next = findSync(rest);
+                if (next == -1) {
+                    break;
+                }
+                off += next;
+                if (u8(bb, off) != SYNC) {
+                    break;
+                }
+            }
+
+            packet(bb, off, head);
+        }
+    }
+
+    private void packet(ByteBuffer bb, int off, boolean head) {
+
+        int pid = ((u8(bb, off + 1) & 0x1f) << 8) | u8(bb, off + 2);
+        boolean pusi = (u8(bb, off + 1) & 0x40) != 0;
+        int afc = (u8(bb, off + 3) >> 4) & 0x03;
+        int end = off + PACKET_SIZE;
+        int payload = off + 4;
+        if ((afc & 0x02) != 0) {
+
+            int alen = u8(bb, off + 4);
+            if ((alen >= 7) && ((u8(bb, off + 5) & 0x10) != 0)) {
+
+                int pcrpid = (pcrPid != -1) ? pcrPid : pid;
+                if (pid == pcrpid) {
+
+                    long pcr = ((long) u8(bb, off + 6) << 25)
+                        | ((long) u8(bb, off + 7) << 17)
+                        | ((long) u8(bb, off + 8) << 9)
+                        | ((long) u8(bb, off + 9) << 1)
+                        | ((long) u8(bb, off + 10) >> 7);
+                    if (firstPcr == -1L) {
+
+                        firstPcr = pcr;
+                        pcrPid = pid;
+
+                    } else {
+
+                        lastPcr = later(firstPcr, lastPcr, pcr);
+                    }
+                }
+            }
+            payload += 1 + alen;
+        }
+
+        if (((afc & 0x01) == 0) || (payload >= end)) {
+            return;
+        }
+
+        if ((head) && (pusi) && (pid == 0)) {
+
+            parsePat(bb, payload, end);
+
+        } else if ((head) && (pusi) && (programMap.containsValue(pid))) {
+
+            parsePmt(bb, payload, end);
+
+        } else if ((pid == videoPid)
+            || ((videoPid == -1) && (pid == audioPid))) {
+
+            if (pusi) {
+
+                long pts = parsePts(bb, payload, end);
+                if (pts != -1L) {
+
+                    if (firstPts == -1L) {
+                        firstPts = pts;
+                    } else {
+                        lastPts = later(firstPts, lastPts, pts);
+                    }
+                }
+            }
+        }
+
+        if ((head) && (pid == videoPid)) {
+
+            if ((videoData == null) && (pusi)) {
+                videoData = new byte[ES_SIZE];
+            }
+            videoLength = append(videoData, videoLength, bb, payload, end,
+                pusi);
+
+        } else if ((head) && (pid == audioPid)) {
+
+            if ((audioData == null) && (pusi)) {
+                audioData = new byte[ES_SIZE];
+            }
+            audioLength = append(audioData, audioLength, bb, payload, end,
+                pusi);
+        }
+    }
+
+    private static long later(long first, long last, long value) {
+
+        // Clocks wrap so compare how far each is from the first.
+        long result = last;
+        if ((last == -1L) || (((value - first) & CLOCK_MASK)
+            > ((last - first) & CLOCK_MASK))) {
+            result = value;
+        }
+
+        return (result);
+    }
+
+    private static int append(byte[] data, int length, ByteBuffer bb,
+        int payload, int end, boolean pusi) {
+
+        if (data != null) {
+
+            int p = payload;
+            if ((pusi) && (p + 9 <= end) && (u8(bb, p) == 0x00)
+                && (u8(bb, p + 1) == 0x00) && (u8(bb, p + 2) == 0x01)) {
+
+                // Skip the PES header, we only want the elementary stream.
+                p += 9 + u8(bb, p + 8);
+            }
+            for (; (p < end) && (length < data.length); p++) {
+                data[length++] = bb.get(p);
+            }
+        }
+
+        return (length);
+    }
+
+    private void parsePat(ByteBuffer bb, int p, int end) {
+
+        p += 1 + u8(bb, p);
+        if ((p + 8 <= end) && (u8(bb, p) == 0x00)) {
+
+            int length = ((u8(bb, p + 1) & 0x0f) << 8) | u8(bb, p + 2);
+            int last = Math.min(end, p + 3 + length - 4);
+            for (int i = p + 8; i + 4 <= last; i += 4) {
+
+                int program = (u8(bb, i) << 8) | u8(bb, i + 1);
+                if (program != 0) {
+
+                    int pid = ((u8(bb, i + 2) & 0x1f) << 8) | u8(bb, i + 3);
+                    programMap.put(Integer.valueOf(program),
+                        Integer.valueOf(pid));
+                }
+            }
+        }
+    }
+
+    private void parsePmt(ByteBuffer bb, int p, int end) {
+
+        p += 1 + u8(bb, p);
+        if ((p + 12 <= end) && (u8(bb, p) == 0x02)) {
+
+            int length = ((u8(bb, p + 1) & 0x0f) << 8) | u8(bb, p + 2);
+            int pcr = ((u8(bb, p + 8) & 0x1f) << 8) | u8(bb, p + 9);
+            int info = ((u8(bb, p + 10) & 0x0f) << 8) | u8(bb, p + 11);
+            int last = Math.min(end, p + 3 + length - 4);
+            if ((pcrPid == -1) || (firstPcr == -1L)) {
+                pcrPid = (pcr == 0x1fff) ? -1 : pcr;
+            }
+            for (int i = p + 12 + info; i + 5 <= last;) {
+
+                int type = u8(bb, i);
+                int pid = ((u8(bb, i + 1) & 0x1f) << 8) | u8(bb, i + 2);
+                int eslength = ((u8(bb, i + 3) & 0x0f) << 8) | u8(bb, i + 4);
+                if (type == 0x06) {
+                    type = privateType(bb, i + 5, Math.min(last,
+                        i + 5 + eslength));
+                }
+                streamMap.put(Integer.valueOf(pid), Integer.valueOf(type));
+
+                String codec = toCodec(type);
+                if ((videoPid == -1) && (isVideo(type))) {
+
+                    videoPid = pid;
+                    videoCodec = codec;
+
+                } else if ((audioPid == -1) && (codec != null)
+                    && (!isVideo(type))) {
+
+                    audioPid = pid;
+                    audioCodec = codec;
+                }
+                i += 5 + eslength;
+            }
+        }
+    }
+
+    private static int privateType(ByteBuffer bb, int p, int end) {
+
+        int result = 0x06;
+
+        // DVB puts AC-3 in private data with a descriptor saying so.
+        while (p + 2 <= end) {
+
+            int tag = u8(bb, p);
+            if (tag == 0x6a) {
+
+                result = 0x81;
+                break;
+
+            } else if (tag == 0x7a) {
+
+                result = 0x87;
+                break;
+            }
+            p += 2 + u8(bb, p + 1);
+        }
+
+        return (result);
+    }
+
+    private static boolean isVideo(int type) {
+
+        return ((type == 0x01) || (type == 0x02) || (type == 0x10)
+            || (type == 0x1b) || (type == 0x24));
+    }
+
+    private static String toCodec(int type) {
+
+        String result = null;
+
+        switch (type) {
+
+        default:
+            break;
+
+        case 0x01:
+            result = "mpeg1video";
+            break;
+
+        case 0x02:
+            result = "mpeg2video";
+            break;
+
+        case 0x10:
+            result = "mpeg4";
+            break;
+
+        case 0x1b:
+            result = "h264";
+            break;
+
+        case 0x24:
+            result = "hevc";
+            break;
+
+        case 0x03:
+        case 0x04:
+            result = "mp2";
+            break;
+
+        case 0x0f:
+            result = "aac";
+            break;
+
+        case 0x11:
+            result = "aac_latm";
+            break;
+
+        case 0x81:
+            result = "ac3";
+            break;
+
+        case 0x87:
+            result = "eac3";
+            break;
+        }
+
+        return (result);
+    }
+
+    private static long parsePts(ByteBuffer bb, int p, int end) {
+
+        long result = -1L;
+
+        if ((p + 14 <= end) && (u8(bb, p) == 0x00) && (u8(bb, p + 1) == 0x00)
+            && (u8(bb, p + 2) == 0x01) && ((u8(bb, p + 7) & 0x80) != 0)) {
+
+            result = (((long) (u8(bb, p + 9) >> 1) & 0x07) << 30)
+                | ((long) u8(bb, p + 10) << 22)
+                | ((long) (u8(bb, p + 11) >> 1) << 15)
+                | ((long) u8(bb, p + 12) << 7)
+                | ((long) u8(bb, p + 13) >> 1);
+        }
+
+        return (result);
+    }
+
+    private void parseVideo() {
+
+        byte[] b = videoData;
+        int len = videoLength;
+        if ((b == null) || (videoCodec == null)) {
+            return;
+        }
+
+        boolean mpeg2 = "mpeg2video".equals(videoCodec)
+            || "mpeg1video".equals(videoCodec);
+        boolean h264 = "h264".equals(videoCodec);
+        boolean foundSize = false;
+        for (int i = 0; i + 4 < len; i++) {
+
+            if ((b[i] != 0x00) || (b[i + 1] != 0x00) || (b[i + 2] != 0x01)) {
+                continue;
+            }
+
+            int code = b[i + 3] & 0xff;
+            if ((mpeg2) && (code == 0xb3) && (i + 8 < len) && (!foundSize)) {
+
+                width = ((b[i + 4] & 0xff) << 4) | ((b[i + 5] & 0xf0) >> 4);
+                height = ((b[i + 5] & 0x0f) << 8) | (b[i + 6] & 0xff);
+
+                // MPEG-1 has no extension and is always progressive.
+                interlaced = false;
+                foundSize = true;
+
+            } else if ((mpeg2) && (code == 0xb5) && (i + 5 < len)
+                && ((b[i + 4] & 0xf0) == 0x10)) {
+
+                interlaced = (b[i + 5] & 0x08) == 0;
+                if (foundSize) {
+                    break;
+                }
+
+            } else if ((h264) && ((code & 0x1f) == 7)) {
+
+                parseSps(b, i + 4, len);
+                break;
+            }
+        }
+    }
+
+    private void parseSps(byte[] b, int p, int end) {
+
+        // Take out the emulation prevention bytes first.
+        byte[] rbsp = new byte[end - p];
+        int n = 0;
+        int zeros = 0;
+        for (int i = p; i < end; i++) {
+
+            if ((zeros >= 2) && (b[i] == 0x03)) {
+
+                zeros = 0;
+                continue;
+            }
+            zeros = (b[i] == 0x00) ? zeros + 1 : 0;
+            rbsp[n++] = b[i];
+        }
+
+        BitReader br = new BitReader(rbsp, n);
+        int profile = br.bits(8);
+        br.bits(16);
+        br.ue();
+        int chroma = 1;
+        if ((profile == 100) || (profile == 110) || (profile == 122)
+            || (profile == 244) || (profile == 44) || (profile == 83)
+            || (profile == 86) || (profile == 118) || (profile == 128)
+            || (profile == 138) || (profile == 139) || (profile == 134)
+            || (profile == 135)) {
+
+            chroma = br.ue();
+            if ((chroma == 3) && (br.bits(1) == 1)) {
+                chroma = 0;
+            }
+            br.ue();
+            br.ue();
+            br.bits(1);
+            if (br.bits(1) == 1) {
+
+                int count = (chroma != 3) ? 8 : 12;
+                for (int i = 0; i < count; i++) {
+
+                    if (br.bits(1) == 1) {
+                        skipScalingList(br, (i < 6) ? 16 : 64);
+                    }
+                }
+            }
+        }
+
+        br.ue();
+        int pocType = br.ue();
+        if (pocType == 0) {
+
+            br.ue();
+
+        } else if (pocType == 1) {
+
+            br.bits(1);
+            br.se();
+            br.se();
+            int cycle = br.ue();
+            for (int i = 0; (i < cycle) && (!br.isEnd()); i++) {
+                br.se();
+            }
+        }
+        br.ue();
+        br.bits(1);
+        int mbWidth = br.ue() + 1;
+        int mapHeight = br.ue() + 1;
+        int frameMbsOnly = br.bits(1);
+        if (frameMbsOnly == 0) {
+            br.bits(1);
+        }
+        br.bits(1);
+
+        int cropx = 1;
+        int cropy = 2 - frameMbsOnly;
+        if ((chroma == 1) || (chroma == 2)) {
+            cropx = 2;
+        }
+        if (chroma == 1) {
+            cropy *= 2;
+        }
+        int left = 0;
+        int right = 0;
+        int top = 0;
+        int bottom = 0;
+        if (br.bits(1) == 1) {
+
+            left = br.ue();
+            right = br.ue();
+            top = br.ue();
+            bottom = br.ue();
+        }
+
+        if (!br.isEnd()) {
+
+            width = mbWidth * 16 - (left + right) * cropx;
+            height = (2 - frameMbsOnly) * mapHeight * 16
+                - (top + bottom) * cropy;
+            interlaced = frameMbsOnly == 0;
+        }
+    }
+
+    private static void skipScalingList(BitReader br, int size) {
+
+        int last = 8;
+        int next = 8;
+        for (int i = 0; (i < size) && (next != 0); i++) {
+
+            next = (last + br.se() + 256) % 256;
+            if (next != 0) {
+                last = next;
+            }
+        }
+    }
+
+    private void parseAudio() {
+
+        byte[] b = audioData;
+        int len = audioLength;
+        if ((b == null) || (audioCodec == null)) {
+            return;
+        }
+
+        boolean ac3 = "ac3".equals(audioCodec) || "eac3".equals(audioCodec);
+        boolean aac = "aac".equals(audioCodec);
+        boolean mp2 = "mp2".equals(audioCodec);
+        for (int i = 0; i + 8 < len; i++) {
+
+            int b0 = b[i] & 0xff;
+            int b1 = b[i + 1] & 0xff;
+            if ((ac3) && (b0 == 0x0b) && (b1 == 0x77)) {
+
+                int bsid = (b[i + 5] & 0xff) >> 3;
+                if (bsid > 10) {
+
+                    // E-AC-3 keeps acmod and lfeon in one byte.
+                    int acmod = ((b[i + 4] & 0xff) >> 1) & 0x07;
+                    int lfe = b[i + 4] & 0x01;
+                    audioChannels = AC3_CHANNELS[acmod] + lfe;
+
+                } else {
+
+                    BitReader br = new BitReader(b, len);
+                    br.skip((i + 6) * 8);
+                    int acmod = br.bits(3);
+                    if (((acmod & 0x01) != 0) && (acmod != 1)) {
+                        br.bits(2);
+                    }
+                    if ((acmod & 0x04) != 0) {
+                        br.bits(2);
+                    }
+                    if (acmod == 2) {
+                        br.bits(2);
+                    }
+                    audioChannels = AC3_CHANNELS[acmod] + br.bits(1);
+                }
+                break;
+
+            } else if ((aac) && (b0 == 0xff) && ((b1 & 0xf6) == 0xf0)) {
+
+                int config = ((b[i + 2] & 0x01) << 2)
+                    | ((b[i + 3] & 0xc0) >> 6);
+                audioChannels = (config == 7) ? 8 : config;
+                break;
+
+            } else if ((mp2) && (b0 == 0xff) && ((b1 & 0xe0) == 0xe0)) {
+
+                audioChannels = (((b[i + 3] & 0xc0) >> 6) == 3) ? 1 : 2;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Read bits and Exp-Golomb codes from a byte array.
+     */
+    static class BitReader {
+
+        private byte[] data;
+        private int length;
+        private int position;
+
+        BitReader(byte[] data, int length) {
+
+            this.data = data;
+            this.length = length;
+        }
+
+        boolean isEnd() {
+            return (position > length * 8);
+        }
+
+        void skip(int n) {
+            position += n;
+        }
+
+        int bits(int n) {
+
+            int result = 0;
+
+            for (int i = 0; i < n; i++) {
+
+                int index = position >> 3;
+                int bit = 0;
+                if (index < length) {
+                    bit = (data[index] >> (7 - (position & 0x07))) & 0x01;
+                }
+                result = (result << 1) | bit;
+                position++;
+            }
+
+            return (result);
+        }
+
+        int ue() {
+
+            int zeros = 0;
+            while ((bits(1) == 0) && (zeros < 31) && (!isEnd())) {
+                zeros++;
+            }
+
+            return ((1 << zeros) - 1 + bits(zeros));
+        }
+
+        int se() {
+
+            int value = ue();
+            int result = (value + 1) / 2;
+            if ((value & 0x01) == 0) {
+                result = -result;
+            }
+
+            return (result);
+        }
+    }
+
+    /**
+     * Print what we find out about the files given as arguments and how
+     * long it took.
+     *
+     * @param args The paths of the files.
+     */
+    public static void main(String[] args) {
+
+        for (int i = 0; i < args.length; i++) {
+
+            TsProbe p = new TsProbe(new File(args[i]));
+            boolean ok = p.probe();
+            System.out.println(args[i] + ": " + ((ok) ? "ok" : "failed")
+                + " in " + p.getProbeMillis() + " ms");
+            System.out.println("  duration: " + p.getDurationMillis() + " ms");
+            System.out.println("  programs: " + p.getPrograms());
+            System.out.println("  streams: " + p.getStreams());
+            System.out.println("  video: " + p.getVideoCodec() + " "
+                + p.getWidth() + "x" + p.getHeight()
+                + ((p.isInterlaced()) ? "i" : "p"));
+            System.out.println("  audio: " + p.getAudioCodec() + " "
+                + p.getAudioChannels() + " channels");
+        }
+    }
+
+}
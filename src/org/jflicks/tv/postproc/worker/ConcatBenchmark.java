@@ -0,0 +1,265 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.postproc.worker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Compare joining HLS segments with cat, the way ConcatJob used to, to
+ * joining them in the JVM.  A segment set is made up in the given
+ * directory with continuity counters running across the segments, or
+ * with them starting over half way through when "reset" is given.
+ *
+ * Usage: ConcatBenchmark directory [megabytes] [keep|reset]
+ *
+ * For each way we print the time, the CPU used, and how many continuity
+ * errors are in the result.  The CPU used by cat is only known on linux.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class ConcatBenchmark {
+
+    private static final String PREFIX = "concat_benchmark";
+    private static final int PACKET_SIZE = 188;
+    private static final int SEGMENT_PACKETS = 32000;
+    private static final int VIDEO_PID = 0x100;
+    private static final int AUDIO_PID = 0x101;
+    private static final int PMT_PID = 0x1000;
+
+    private ConcatBenchmark() {
+    }
+
+    private static int[] makeSegments(File dir, long megabytes,
+        boolean reset) throws IOException {
+
+        long packets = megabytes * 1024L * 1024L / PACKET_SIZE;
+        int segments = (int) Math.max(2L, packets / SEGMENT_PACKETS);
+        int[] cc = new int[8192];
+        byte[] p = new byte[PACKET_SIZE];
+        for (int i = 0; i < segments; i++) {
+
+            if ((reset) && (i == segments / 2)) {
+                Arrays.fill(cc, 7);
+            }
+
+            File f = new File(dir, PREFIX + "." + String.format("%06d", i)
+                + ".ts");
+            OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(f), 1024 * 1024);
+            try {
+
+                for (int j = 0; j < SEGMENT_PACKETS; j++) {
+
+                    int pid = VIDEO_PID;
+                    if (j % 100 == 0) {
+                        pid = 0;
+                    } else if (j % 100 == 1) {
+                        pid = PMT_PID;
+                    } else if (j % 10 == 2) {
+                        pid = AUDIO_PID;
+                    }
+
+                    Arrays.fill(p, (byte) (j & 0xff));
+                    p[0] = 0x47;
+                    p[1] = (byte) (pid >> 8);
+                    p[2] = (byte) pid;
+                    p[3] = (byte) (0x10 | cc[pid]);
+                    cc[pid] = (cc[pid] + 1) & 0x0f;
+                    out.write(p);
+                }
+
+            } finally {
+
+                out.close();
+            }
+        }
+
+        return (new int[] {segments, SEGMENT_PACKETS * PACKET_SIZE});
+    }
+
+    private static int countErrors(File f) throws IOException {
+
+        int result = 0;
+
+        int[] last = new int[8192];
+        Arrays.fill(last, -1);
+        byte[] p = new byte[PACKET_SIZE];
+        InputStream in = new BufferedInputStream(new FileInputStream(f),
+            1024 * 1024);
+        try {
+
+            while (read(in, p)) {
+
+                int pid = ((p[1] & 0x1f) << 8) | (p[2] & 0xff);
+                int cc = p[3] & 0x0f;
+                if ((last[pid] != -1) && (cc != ((last[pid] + 1) & 0x0f))
+                    && (cc != last[pid])) {
+                    result++;
+                }
+                last[pid] = cc;
+            }
+
+        } finally {
+
+            in.close();
+        }
+
+        return (result);
+    }
+
+    private static boolean read(InputStream in, byte[] b) throws IOException {
+
+        int off = 0;
+        while (off < b.length) {
+
+            int count = in.read(b, off, b.length - off);
+            if (count < 0) {
+                break;
+            }
+            off += count;
+        }
+
+        return (off == b.length);
+    }
+
+    private static long childCpuMillis() {
+
+        long result = -1L;
+
+        // Fields 16 and 17 of /proc/self/stat are the CPU of children that
+        // have been waited for, in clock ticks that are 1/100 of a second
+        // on just about every linux.
+        try {
+
+            byte[] b = new byte[4096];
+            FileInputStream fis = new FileInputStream("/proc/self/stat");
+            int count = fis.read(b);
+            fis.close();
+            String s = new String(b, 0, Math.max(0, count), "US-ASCII");
+            String[] fields = s.substring(s.lastIndexOf(')') + 2).split(" ");
+            result = (Long.parseLong(fields[13]) + Long.parseLong(fields[14]))
+                * 10L;
+
+        } catch (Exception ex) {
+
+            result = -1L;
+        }
+
+        return (result);
+    }
+
+    private static void run(String label, File dir, boolean nativeConcat,
+        long size) throws IOException {
+
+        File target = new File(dir, PREFIX + ".ts");
+        target.delete();
+
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long child = childCpuMillis();
+        long cpu = mx.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+
+        ConcatJob job = new ConcatJob(PREFIX, dir);
+        job.setNativeConcat(nativeConcat);
+        job.setSleepTime(10);
+        job.start();
+        job.run();
+
+        double secs = (System.nanoTime() - start) / 1000000000.0;
+        long used = (mx.getCurrentThreadCpuTime() - cpu) / 1000000L;
+        if (!nativeConcat) {
+
+            long after = childCpuMillis();
+            used = ((child >= 0L) && (after >= 0L)) ? after - child : -1L;
+        }
+
+        long length = target.length();
+        System.out.printf("%-8s %8.2f s %8.1f MB/s %8s ms CPU %6d cc errors"
+            + "%s%n", label, secs, length / secs / (1024.0 * 1024.0),
+            (used >= 0L) ? Long.toString(used) : "n/a", countErrors(target),
+            (length == size) ? "" : " WRONG SIZE " + length);
+        target.delete();
+    }
+
+    /**
+     * Simple main to run the benchmark.
+     *
+     * @param args The arguments as described above.
+     * @throws Exception on error.
+     */
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 1) {
+
+            System.out.println("Usage: ConcatBenchmark directory [megabytes] "
+                + "[keep|reset]");
+            System.exit(1);
+        }
+
+        File dir = new File(args[0]);
+        long megabytes = 2048L;
+        boolean reset = false;
+        for (int i = 1; i < args.length; i++) {
+
+            if ("reset".equals(args[i])) {
+                reset = true;
+            } else if (!"keep".equals(args[i])) {
+                megabytes = Long.parseLong(args[i]);
+            }
+        }
+
+        // Our logging goes to stderr without a LogService.
+        System.setErr(new java.io.PrintStream(new OutputStream() {
+
+            public void write(int b) {
+            }
+        }));
+
+        dir.mkdirs();
+        int[] made = makeSegments(dir, megabytes, reset);
+        long size = (long) made[0] * (long) made[1];
+        System.out.printf("%d segments of %d bytes, %d MB%s%n", made[0],
+            made[1], size / (1024L * 1024L),
+            (reset) ? ", counters reset half way" : "");
+
+        // Twice each so both see the segments cached and not.
+        for (int i = 0; i < 2; i++) {
+
+            run("cat", dir, false, size);
+            run("native", dir, true, size);
+        }
+
+        for (int i = 0; i < made[0]; i++) {
+
+            new File(dir, PREFIX + "." + String.format("%06d", i)
+                + ".ts").delete();
+        }
+        System.exit(0);
+    }
+
+}
@@ -18,6 +18,11 @@ package org.jflicks.tv.postproc.worker;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
 import org.jflicks.job.AbstractJob;
@@ -26,20 +31,44 @@ import org.jflicks.job.JobEvent;
 import org.jflicks.job.JobListener;
 import org.jflicks.job.JobManager;
 import org.jflicks.job.SystemJob;
+import org.jflicks.util.LogUtil;
 import org.jflicks.util.Util;
 
 /**
- * Transfer a file using curl.
+ * Join the .NNNNNN.ts segments of an HLS recording back into one file.
+ * Transport stream segments can be joined byte for byte so by default
+ * this is done in the JVM with FileChannel.transferTo, which lets the
+ * kernel move the data without it ever coming up to us.  Nothing is
+ * decoded.
+ *
+ * Each segment should continue the continuity counters of the one
+ * before it.  When a segment doesn't, say the recording was restarted,
+ * that segment is copied through a buffer and the counters are fixed on
+ * the way so players don't think packets were lost.  The PAT and PMT
+ * repeated at the top of each segment have the same counter as the last
+ * ones and are left alone as legal duplicates.
+ *
+ * Setting NativeConcat to false runs cat, or copy on windows, like we
+ * used to.
  *
  * @author Doug Barnum
  * @version 1.0
  */
 public class ConcatJob extends AbstractJob implements JobListener {
 
+    private static final int PACKET_SIZE = 188;
+    private static final int SYNC = 0x47;
+    private static final int CHECK_SIZE = 256 * 1024;
+    private static final int COPY_SIZE = PACKET_SIZE * 5576;
+    private static final long TRANSFER_SIZE = 64L * 1024L * 1024L;
+
     private SystemJob systemJob;
     private JobContainer jobContainer;
     private String prefix;
     private File directory;
+    private boolean nativeConcat;
+    private int fixedCount;
+    private long bytes;
 
     /**
      * Simple one argument constructor.
@@ -51,6 +80,7 @@ public class ConcatJob extends AbstractJob implements JobListener {
 
         setPrefix(prefix);
         setDirectory(directory);
+        setNativeConcat(true);
     }
 
     /**
@@ -79,6 +109,43 @@ public class ConcatJob extends AbstractJob implements JobListener {
         prefix = s;
     }
 
+    /**
+     * Join the segments in the JVM instead of running a program.
+     *
+     * @return True if done in the JVM.
+     */
+    public boolean isNativeConcat() {
+        return (nativeConcat);
+    }
+
+    /**
+     * Join the segments in the JVM instead of running a program.
+     *
+     * @param b True if done in the JVM.
+     */
+    public void setNativeConcat(boolean b) {
+        nativeConcat = b;
+    }
+
+    /**
+     * The number of segments that needed their continuity counters fixed
+     * by the last native concat.
+     *
+     * @return An int value.
+     */
+    public int getFixedCount() {
+        return (fixedCount);
+    }
+
+    /**
+     * The number of bytes written by the last native concat.
+     *
+     * @return A long value.
+     */
+    public long getBytes() {
+        return (bytes);
+    }
+
     private SystemJob getSystemJob() {
         return (systemJob);
     }
@@ -114,7 +181,21 @@ public class ConcatJob extends AbstractJob implements JobListener {
 
             TSFileFilter tsff = new TSFileFilter(pref);
             File[] array = f.listFiles(tsff);
-            if ((array != null) && (array.length > 0)) {
+            if ((array != null) && (array.length > 0) && (isNativeConcat())) {
+
+                Arrays.sort(array);
+                File target = new File(f, pref + ".ts");
+                try {
+
+                    concat(array, target);
+
+                } catch (IOException ex) {
+
+                    LogUtil.log(LogUtil.WARNING, "ConcatJob: " + target
+                        + ": " + ex.getMessage());
+                }
+
+            } else if ((array != null) && (array.length > 0)) {
 
                 Arrays.sort(array);
                 StringBuilder sb = new StringBuilder();
@@ -162,6 +243,216 @@ public class ConcatJob extends AbstractJob implements JobListener {
         fireJobEvent(JobEvent.COMPLETE);
     }
 
+    private void concat(File[] array, File target) throws IOException {
+
+        fixedCount = 0;
+        bytes = 0L;
+        long begin = System.currentTimeMillis();
+
+        // Append like cat did so nothing already there is lost.
+        FileOutputStream fos = new FileOutputStream(target, true);
+        try {
+
+            FileChannel out = fos.getChannel();
+            int[] last = new int[8192];
+            Arrays.fill(last, -1);
+            for (int i = 0; (i < array.length) && (!isTerminate()); i++) {
+
+                FileInputStream fis = new FileInputStream(array[i]);
+                try {
+
+                    FileChannel in = fis.getChannel();
+                    int[] delta = getDelta(in, last);
+                    if (delta != null) {
+
+                        fixedCount++;
+                        bytes += copy(in, out, delta);
+
+                    } else {
+
+                        bytes += transfer(in, out);
+                    }
+                    updateLast(in, last, delta);
+
+                } finally {
+
+                    fis.close();
+                }
+
+                fireJobEvent(JobEvent.UPDATE, "ConcatJob: " + (i + 1) + " of "
+                    + array.length + " " + array[i].getName());
+            }
+
+        } finally {
+
+            fos.close();
+        }
+
+        LogUtil.log(LogUtil.INFO, "ConcatJob: " + array.length + " segments "
+            + bytes + " bytes to " + target.getName() + " in "
+            + (System.currentTimeMillis() - begin) + " ms, fixed "
+            + fixedCount);
+    }
+
+    private long transfer(FileChannel in, FileChannel out)
+        throws IOException {
+
+        long size = in.size();
+        long position = 0L;
+        while ((position < size) && (!isTerminate())) {
+
+            long count = in.transferTo(position,
+                Math.min(TRANSFER_SIZE, size - position), out);
+            if (count <= 0L) {
+                break;
+            }
+            position += count;
+        }
+
+        return (position);
+    }
+
+    private long copy(FileChannel in, FileChannel out, int[] delta)
+        throws IOException {
+
+        long result = 0L;
+
+        ByteBuffer bb = ByteBuffer.allocateDirect(COPY_SIZE);
+        long position = 0L;
+        while (!isTerminate()) {
+
+            // Fill the buffer so we always look at whole packets.
+            bb.clear();
+            int count = 0;
+            while (bb.hasRemaining()) {
+
+                int n = in.read(bb, position + count);
+                if (n <= 0) {
+                    break;
+                }
+                count += n;
+            }
+            if (count == 0) {
+                break;
+            }
+            position += count;
+
+            for (int p = 0; p + PACKET_SIZE <= count; p += PACKET_SIZE) {
+
+                if ((bb.get(p) & 0xff) == SYNC) {
+
+                    int pid = ((bb.get(p + 1) & 0x1f) << 8)
+                        | (bb.get(p + 2) & 0xff);
+                    if (delta[pid] != 0) {
+
+                        int b3 = bb.get(p + 3) & 0xff;
+                        int cc = ((b3 & 0x0f) + delta[pid]) & 0x0f;
+                        bb.put(p + 3, (byte) ((b3 & 0xf0) | cc));
+                    }
+                }
+            }
+
+            bb.flip();
+            while (bb.hasRemaining()) {
+                result += out.write(bb);
+            }
+        }
+
+        return (result);
+    }
+
+    private static ByteBuffer read(FileChannel in, long position, int length)
+        throws IOException {
+
+        ByteBuffer result = ByteBuffer.allocate(length);
+        while (result.hasRemaining()) {
+
+            if (in.read(result, position + result.position()) < 0) {
+                break;
+            }
+        }
+        result.flip();
+
+        return (result);
+    }
+
+    private int[] getDelta(FileChannel in, int[] last) throws IOException {
+
+        int[] result = null;
+
+        long size = in.size();
+        if ((size % PACKET_SIZE) == 0L) {
+
+            ByteBuffer bb = read(in, 0L, (int) Math.min(size, CHECK_SIZE));
+            boolean[] seen = new boolean[last.length];
+            int limit = bb.limit();
+            for (int p = 0; p + PACKET_SIZE <= limit; p += PACKET_SIZE) {
+
+                if ((bb.get(p) & 0xff) != SYNC) {
+
+                    // Not something we understand so leave it be.
+                    result = null;
+                    break;
+                }
+
+                int pid = ((bb.get(p + 1) & 0x1f) << 8)
+                    | (bb.get(p + 2) & 0xff);
+                if ((pid != 0x1fff) && (!seen[pid])) {
+
+                    seen[pid] = true;
+                    int b3 = bb.get(p + 3) & 0xff;
+                    int cc = b3 & 0x0f;
+                    int expected = last[pid];
+                    if ((expected != -1) && ((b3 & 0x10) != 0)) {
+                        expected = (expected + 1) & 0x0f;
+                    }
+
+                    // The same counter as the last one is a duplicate
+                    // which is fine.
+                    if ((expected != -1) && (cc != expected)
+                        && (cc != last[pid])) {
+
+                        if (result == null) {
+                            result = new int[last.length];
+                        }
+                        result[pid] = (expected - cc) & 0x0f;
+                    }
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    private void updateLast(FileChannel in, int[] last, int[] delta)
+        throws IOException {
+
+        // Only what shows up near the end is known, forget the rest so
+        // we don't fix against an old value.
+        Arrays.fill(last, -1);
+        long size = in.size();
+        if ((size % PACKET_SIZE) == 0L) {
+
+            long from = Math.max(0L, size - CHECK_SIZE);
+            from -= from % PACKET_SIZE;
+            ByteBuffer bb = read(in, from, (int) (size - from));
+            int limit = bb.limit();
+            for (int p = 0; p + PACKET_SIZE <= limit; p += PACKET_SIZE) {
+
+                if ((bb.get(p) & 0xff) == SYNC) {
+
+                    int pid = ((bb.get(p + 1) & 0x1f) << 8)
+                        | (bb.get(p + 2) & 0xff);
+                    int cc = bb.get(p + 3) & 0x0f;
+                    if (delta != null) {
+                        cc = (cc + delta[pid]) & 0x0f;
+                    }
+                    last[pid] = cc;
+                }
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -205,7 +496,8 @@ public class ConcatJob extends AbstractJob implements JobListener {
             if ((prefix != null) && (f != null)) {
 
                 String name = f.getName();
-                if ((name.startsWith(prefix)) && (name.endsWith(".ts"))) {
+                if ((name.startsWith(prefix)) && (name.endsWith(".ts"))
+                    && (!name.equals(prefix + ".ts"))) {
 
                     result = true;
                 }
@@ -137,7 +137,8 @@ public class ComratWorker extends BaseWorker implements JobListener {
             job.setVerbose(isVerbose());
             job.setDetectRatingPlans(getDetectRatingPlans());
             job.addJobListener(this);
-            JobContainer jc = JobManager.getJobContainer(job);
+            JobContainer jc = JobManager.getJobContainer(job,
+                JobManager.POST_PROCESSING_POOL);
             addJobContainer(jc);
             jc.start();
         }
@@ -47,19 +47,16 @@ import org.apache.commons.io.FileUtils;
  */
 public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
 
-    private static final int MODE_SILENT = 1;
-    private static final int MODE_BLACK = 2;
-    private static final int MODE_RATING = 3;
-    private static final int MODE_CHAPTER = 4;
+    private static final int MODE_DETECT = 1;
+    private static final int MODE_CHAPTER = 2;
 
     private static final int TYPE_IGNORE = 1;
     private static final int TYPE_START = 2;
     private static final int TYPE_END = 3;
 
     private String mp4Path;
-    private String devNull;
-    private String silenceText;
-    private String blackText;
+    private DetectionCollector detectionCollector;
+    private int commercialCount;
     private int mode;
     private File directory;
     private int backup;
@@ -90,36 +87,20 @@ public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
         mode = i;
     }
 
-    private boolean isModeSilent() {
-        return (getMode() == MODE_SILENT);
-    }
-
-    private boolean isModeBlack() {
-        return (getMode() == MODE_BLACK);
-    }
-
-    private boolean isModeRating() {
-        return (getMode() == MODE_RATING);
+    private boolean isModeDetect() {
+        return (getMode() == MODE_DETECT);
     }
 
     private boolean isModeChapter() {
         return (getMode() == MODE_CHAPTER);
     }
 
-    private String getSilenceText() {
-        return (silenceText);
+    private DetectionCollector getDetectionCollector() {
+        return (detectionCollector);
     }
 
-    private void setSilenceText(String s) {
-        silenceText = s;
-    }
-
-    private String getBlackText() {
-        return (blackText);
-    }
-
-    private void setBlackText(String s) {
-        blackText = s;
+    private void setDetectionCollector(DetectionCollector dc) {
+        detectionCollector = dc;
     }
 
     private String getMp4Path() {
@@ -130,14 +111,6 @@ public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
         mp4Path = s;
     }
 
-    private String getDevNull() {
-        return (devNull);
-    }
-
-    private void setDevNull(String s) {
-        devNull = s;
-    }
-
     /**
      * We want to actually adjust the break a few seconds.
      *
@@ -252,7 +225,7 @@ public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
      */
     public void start() {
 
-        setMode(MODE_SILENT);
+        setMode(MODE_DETECT);
         Recording r = getRecording();
         if (r != null) {
 
@@ -260,19 +233,22 @@ public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
             setDirectory(dir);
 
             setMp4Path(r.getPath() + ".mp4");
-            String dn = "/dev/null";
-            if (Util.isWindows()) {
-
-                dn = "NUL";
-            }
-
-            setDevNull(dn);
-
-            // First job to set up is silence detection.
+            setDetectionCollector(new DetectionCollector());
+            commercialCount = 0;
+
+            // We used to read and decode the whole file three times, once
+            // each for silence, black and the rating frames.  Now it is
+            // done in one pass.  The audio goes to silencedetect and the
+            // video is decoded once for both blackdetect and the frame
+            // grabs.  Nothing is encoded but the grabs, and we look at
+            // what ffmpeg finds as it prints it.
             SystemJob job = SystemJob.getInstance("ffmpeg -i "
                 + getMp4Path()
-                + " -filter_complex \"[0:a]silencedetect=n=-20dB:d=1[outa]\" -map [outa] -f mp3 -y "
-                + dn);
+                + " -filter_complex \"[0:a]silencedetect=n=-20dB:d=1[outa];"
+                + "[0:v]blackdetect=d=0.1:pix_th=.1[outv]\""
+                + " -map [outa] -map [outv] -f null -"
+                + " -map 0:v -r 1/" + getSpan() + " -s hd480 -y "
+                + dir.getPath() + File.separator + "frame-%6d.jpg");
             job.addJobListener(this);
             setSystemJob(job);
             JobContainer jc = JobManager.getJobContainer(job);
@@ -306,7 +282,7 @@ public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
                     File indexed = new File(getMp4Path());
                     if (indexed.exists()) {
 
-                        LogUtil.log(LogUtil.INFO, "indexer done for " + r.getTitle() + " kick off silencedetect.");
+                        LogUtil.log(LogUtil.INFO, "indexer done for " + r.getTitle() + " kick off detection.");
 
                         // We are ready to start ffmpeg.
                         JobContainer jc = getJobContainer();
@@ -314,7 +290,7 @@ public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
 
                             jc.start();
                             working = true;
-                            LogUtil.log(LogUtil.INFO, "Actually kicked off silencedetect ffmpeg " + r.getTitle());
+                            LogUtil.log(LogUtil.INFO, "Actually kicked off detection ffmpeg " + r.getTitle());
                         }
 
                     } else {
@@ -358,47 +334,25 @@ public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
 
         if ((dir != null) && (r != null)) {
 
-            if (event.getType() == JobEvent.COMPLETE) {
-
-                if (isModeSilent()) {
-
-                    // We have finished the silencedetect so we have to fire off blackdetect.
-                    SystemJob job = getSystemJob();
-                    setSilenceText(job.getOutputText());
-
-                    // Next job to set up is black detection.
-                    job = SystemJob.getInstance("ffmpeg -i "
-                        + getMp4Path() + " -vf blackdetect=d=0.1:pix_th=.1 -f rawvideo -y "
-                        + getDevNull());
-                    job.addJobListener(this);
-                    setSystemJob(job);
-                    JobContainer jc = JobManager.getJobContainer(job);
-                    setJobContainer(jc);
-                    jc.start();
-                    setMode(MODE_BLACK);
-                    LogUtil.log(LogUtil.INFO, "started: " + job.getCommand());
-
-                } else if (isModeBlack()) {
-
-                    // We have finished the blackdetect so we have to fire off rating.
-                    SystemJob job = getSystemJob();
-                    setBlackText(job.getOutputText());
-
-                    job = SystemJob.getInstance("ffmpeg -i "
-                        + getMp4Path() + " -r 1/" + getSpan() + " -s hd480 "
-                        + dir.getPath() + File.separator + "frame-%6d.jpg");
-                    job.addJobListener(this);
-                    setSystemJob(job);
-                    JobContainer jc = JobManager.getJobContainer(job);
-                    setJobContainer(jc);
-                    jc.start();
-                    setMode(MODE_RATING);
-                    LogUtil.log(LogUtil.INFO, "started: " + job.getCommand());
-
-                } else if (isModeRating()) {
+            if (event.getType() == JobEvent.UPDATE) {
+
+                if (isModeDetect()) {
+
+                    DetectionCollector dc = getDetectionCollector();
+                    if ((dc != null) && (dc.add(event.getMessage()))) {
+                        updateCommercials(r, dc);
+                    }
+                }
+
+            } else if (event.getType() == JobEvent.COMPLETE) {
+
+                if (isModeDetect()) {
 
                     // We can reconcile our silent and black data.
-                    Detection[] sbarray = process(getSilenceText(), getBlackText());
+                    DetectionCollector dc = getDetectionCollector();
+                    LogUtil.log(LogUtil.INFO, "Found " + dc.getSilenceCount() + " silent and "
+                        + dc.getBlackCount() + " black");
+                    Detection[] sbarray = dc.getDetections();
                     if ((sbarray != null) && (sbarray.length > 0)) {
 
                         LogUtil.log(LogUtil.INFO, "Found " + sbarray.length + " silent/blacks");
@@ -512,41 +466,19 @@ public class ComSilentBlackJob extends BaseWorkerJob implements JobListener {
         return (result);
     }
 
-    private Detection[] process(String silence, String black) {
-
-        Detection[] result = null;
-
-        if ((silence != null) && (black != null)) {
-
-            Detection[] sdetect = Detection.parseSilence(silence);
-            Detection[] bdetect = Detection.parseBlack(black);
-            if ((sdetect != null) && (sdetect.length > 0) && (bdetect != null) && (bdetect.length > 0)) {
-
-                List<Detection> blist = Arrays.asList(bdetect);
-                ArrayList<Detection> list = new ArrayList<Detection>();
-                for (int i = 0; i < sdetect.length; i++) {
+    private void updateCommercials(Recording r, DetectionCollector dc) {
 
-                    if (blist.contains(sdetect[i])) {
+        // As each commercial is found let everyone know so they can skip
+        // them before we are done.  The rating frames are only looked at
+        // when we are done, so these are just from silence and black.
+        Commercial[] coms = toCommercials(dc.getDetections());
+        if ((coms != null) && (coms.length > commercialCount)) {
 
-                        list.add(sdetect[i]);
-                    }
-                }
-
-                if (list.size() > 0) {
-
-                    // We should put in a Detection for the start of the video.  If the
-                    // first silent/black frame is the first commercial, we lose it because
-                    // this first part of the show is not counted.
-                    Detection begin = new Detection();
-                    begin.setStart(Double.valueOf(0));
-                    begin.setEnd(Double.valueOf(0));
-                    list.add(0, begin);
-                    result = list.toArray(new Detection[list.size()]);
-                }
-            }
+            commercialCount = coms.length;
+            r.setCommercials(coms);
+            LogUtil.log(LogUtil.INFO, "So far " + coms.length + " commercials in " + r.getTitle());
+            fireJobEvent(JobEvent.UPDATE, "commercials");
         }
-
-        return (result);
     }
 
     private Detection[] processRating() {
@@ -137,7 +137,8 @@ public class ComSilentBlackWorker extends BaseWorker implements JobListener {
             job.setVerbose(isVerbose());
             job.setDetectRatingPlans(getDetectRatingPlans());
             job.addJobListener(this);
-            JobContainer jc = JobManager.getJobContainer(job);
+            JobContainer jc = JobManager.getJobContainer(job,
+                JobManager.POST_PROCESSING_POOL);
             addJobContainer(jc);
             jc.start();
         }
@@ -155,6 +156,13 @@ public class ComSilentBlackWorker extends BaseWorker implements JobListener {
             removeJobContainer(job);
             fireWorkerEvent(WorkerEvent.COMPLETE, job.getRecording(), true);
 
+        } else if ("commercials".equals(event.getMessage())) {
+
+            // The job found more commercials, save them so they can be
+            // skipped while it keeps going.
+            ComSilentBlackJob job = (ComSilentBlackJob) event.getSource();
+            fireWorkerEvent(WorkerEvent.UPDATE, job.getRecording(), true);
+
         } else {
 
             //LogUtil.log(LogUtil.DEBUG, "ComSilentBlackWorker: " + event.getMessage());
@@ -0,0 +1,220 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.postproc.worker.comsilentblack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.jflicks.util.LogUtil;
+
+/**
+ * Collect the silence and black detections from ffmpeg one line at a
+ * time as it prints them.  We used to wait for ffmpeg to finish each
+ * pass and then parse all of its output at once, now silencedetect and
+ * blackdetect run in the same pass and a silence that is also black is
+ * known as soon as both lines have been seen.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class DetectionCollector {
+
+    private static final String SILENCE_START = "silence_start:";
+    private static final String SILENCE_END = "silence_end:";
+    private static final String BLACK_START = "black_start:";
+    private static final String BLACK_END = "black_end:";
+
+    private ArrayList<Detection> silenceList;
+    private ArrayList<Detection> blackList;
+    private ArrayList<Detection> matchList;
+    private Double silenceStart;
+
+    /**
+     * Simple empty constructor.
+     */
+    public DetectionCollector() {
+
+        silenceList = new ArrayList<Detection>();
+        blackList = new ArrayList<Detection>();
+        matchList = new ArrayList<Detection>();
+    }
+
+    /**
+     * Look at one line of ffmpeg output.
+     *
+     * @param line A line of output from ffmpeg.
+     * @return True if a new silent black Detection was found.
+     */
+    public synchronized boolean add(String line) {
+
+        boolean result = false;
+
+        if (line != null) {
+
+            line = line.trim();
+            if (line.startsWith("[silencedetect")) {
+
+                Double start = valueOf(line, SILENCE_START);
+                Double end = valueOf(line, SILENCE_END);
+                if (start != null) {
+
+                    silenceStart = start;
+
+                } else if ((end != null) && (silenceStart != null)) {
+
+                    Detection d = create(silenceStart, end);
+                    silenceStart = null;
+                    silenceList.add(d);
+                    LogUtil.log(LogUtil.DEBUG, "Silence Detection: " + d);
+
+                    // The original silence is what we keep, as long as
+                    // it is black some of the time.
+                    if (blackList.contains(d)) {
+                        result = match(d);
+                    }
+                }
+
+            } else if (line.indexOf(BLACK_START) != -1) {
+
+                Double start = valueOf(line, BLACK_START);
+                Double end = valueOf(line, BLACK_END);
+                if ((start != null) && (end != null)) {
+
+                    Detection d = create(start, end);
+                    blackList.add(d);
+                    LogUtil.log(LogUtil.DEBUG, "Black Detection: " + d);
+
+                    for (int i = 0; i < silenceList.size(); i++) {
+
+                        Detection silence = silenceList.get(i);
+                        if ((d.equals(silence)) && (match(silence))) {
+                            result = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * The silences that are also black, in time order, with one added at
+     * the very start so the first part of the show counts.
+     *
+     * @return An array of Detection instances or null if none found.
+     */
+    public synchronized Detection[] getDetections() {
+
+        Detection[] result = null;
+
+        if (matchList.size() > 0) {
+
+            ArrayList<Detection> list = new ArrayList<Detection>(matchList);
+            Collections.sort(list);
+
+            // We should put in a Detection for the start of the video.  If
+            // the first silent/black frame is the first commercial, we lose
+            // it because this first part of the show is not counted.
+            list.add(0, create(Double.valueOf(0), Double.valueOf(0)));
+            result = list.toArray(new Detection[list.size()]);
+        }
+
+        return (result);
+    }
+
+    /**
+     * The number of silences found so far.
+     *
+     * @return An int value.
+     */
+    public synchronized int getSilenceCount() {
+        return (silenceList.size());
+    }
+
+    /**
+     * The number of black spans found so far.
+     *
+     * @return An int value.
+     */
+    public synchronized int getBlackCount() {
+        return (blackList.size());
+    }
+
+    private boolean match(Detection d) {
+
+        boolean result = false;
+
+        // Identity here, equals means overlap for a Detection.
+        boolean found = false;
+        for (int i = 0; i < matchList.size(); i++) {
+
+            if (matchList.get(i) == d) {
+
+                found = true;
+                break;
+            }
+        }
+
+        if (!found) {
+
+            matchList.add(d);
+            result = true;
+        }
+
+        return (result);
+    }
+
+    private Detection create(Double start, Double end) {
+
+        Detection result = new Detection();
+        result.setStart(start);
+        result.setEnd(end);
+        result.setDuration(end - start);
+
+        return (result);
+    }
+
+    private Double valueOf(String line, String key) {
+
+        Double result = null;
+
+        int index = line.indexOf(key);
+        if (index != -1) {
+
+            String s = line.substring(index + key.length()).trim();
+            int end = 0;
+            while ((end < s.length()) && (s.charAt(end) != ' ')
+                && (s.charAt(end) != '|')) {
+
+                end++;
+            }
+
+            try {
+
+                result = Double.valueOf(s.substring(0, end));
+
+            } catch (NumberFormatException ex) {
+
+                result = null;
+            }
+        }
+
+        return (result);
+    }
+
+}
@@ -54,7 +54,8 @@ public class ComskipWorker extends BaseWorker implements JobListener {
 
             ComskipJob job = new ComskipJob(r, this);
             job.addJobListener(this);
-            JobContainer jc = JobManager.getJobContainer(job);
+            JobContainer jc = JobManager.getJobContainer(job,
+                JobManager.POST_PROCESSING_POOL);
             addJobContainer(jc);
             jc.start();
         }
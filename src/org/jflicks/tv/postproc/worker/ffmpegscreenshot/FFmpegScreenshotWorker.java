@@ -54,7 +54,8 @@ public class FFmpegScreenshotWorker extends BaseWorker implements JobListener {
 
             FFmpegScreenshotJob job = new FFmpegScreenshotJob(r, this);
             job.addJobListener(this);
-            JobContainer jc = JobManager.getJobContainer(job);
+            JobContainer jc = JobManager.getJobContainer(job,
+                JobManager.HOUSEKEEPING_POOL);
             addJobContainer(jc);
             jc.start();
         }
@@ -107,7 +107,8 @@ public class IndexerWorker extends BaseWorker implements JobListener {
                 IndexerJob job = new IndexerJob(r, this,
                     getCommandLine(), getExtension());
                 job.addJobListener(this);
-                JobContainer jc = JobManager.getJobContainer(job);
+                JobContainer jc = JobManager.getJobContainer(job,
+                    JobManager.HOUSEKEEPING_POOL);
                 addJobContainer(jc);
                 jc.start();
 
@@ -119,7 +120,8 @@ public class IndexerWorker extends BaseWorker implements JobListener {
                 ConcatJob job = new ConcatJob(prefix, dir);
                 job.addJobListener(this);
                 setConcatJob(job);
-                JobContainer jc = JobManager.getJobContainer(job);
+                JobContainer jc = JobManager.getJobContainer(job,
+                    JobManager.HOUSEKEEPING_POOL);
                 jc.start();
             }
         }
@@ -137,7 +139,8 @@ public class IndexerWorker extends BaseWorker implements JobListener {
                 IndexerJob job = new IndexerJob(getRecording(), this,
                     getCommandLine(), getExtension());
                 job.addJobListener(this);
-                JobContainer jc = JobManager.getJobContainer(job);
+                JobContainer jc = JobManager.getJobContainer(job,
+                    JobManager.HOUSEKEEPING_POOL);
                 addJobContainer(jc);
                 jc.start();
 
@@ -16,6 +16,8 @@
 */
 package org.jflicks.tv.postproc.worker.mediainfo;
 
+import java.io.File;
+
 import org.jflicks.job.JobContainer;
 import org.jflicks.job.JobEvent;
 import org.jflicks.job.JobListener;
@@ -23,12 +25,14 @@ import org.jflicks.job.JobManager;
 import org.jflicks.job.SystemJob;
 import org.jflicks.nms.NMSConstants;
 import org.jflicks.tv.Recording;
+import org.jflicks.tv.postproc.TsProbe;
 import org.jflicks.tv.postproc.worker.BaseWorker;
 import org.jflicks.tv.postproc.worker.BaseWorkerJob;
 import org.jflicks.util.LogUtil;
 
 /**
- * This job starts a system job that runs mediainfo.
+ * This job finds the video and audio format of a recording.  A transport
+ * stream is read with TsProbe, otherwise a system job runs ffmpeg.
  *
  * @author Doug Barnum
  * @version 1.0
@@ -105,7 +109,11 @@ public class FFmpegJob extends BaseWorkerJob implements JobListener {
                     // We might be done before it comes around again but lets
                     // use a flag just to be safe...
                     jobStarted = true;
-                    jc.start();
+                    if (probe()) {
+                        setTerminate(true);
+                    } else {
+                        jc.start();
+                    }
                 }
             }
 
@@ -115,6 +123,31 @@ public class FFmpegJob extends BaseWorkerJob implements JobListener {
         fireJobEvent(JobEvent.COMPLETE);
     }
 
+    private boolean probe() {
+
+        boolean result = false;
+
+        Recording r = getRecording();
+        if (r != null) {
+
+            TsProbe p = new TsProbe(new File(getRecordingPath(0)));
+            if ((p.probe()) && (p.getVideoFormat() != 0)) {
+
+                LogUtil.log(LogUtil.INFO, "probe: " + p.getVideoCodec() + " "
+                    + p.getWidth() + "x" + p.getHeight() + " "
+                    + p.getAudioCodec() + " " + p.getAudioChannels()
+                    + " channels in " + p.getProbeMillis() + " ms");
+                r.setVideoFormat(p.getVideoFormat());
+                if (p.getAudioFormat() != 0) {
+                    r.setAudioFormat(p.getAudioFormat());
+                }
+                result = true;
+            }
+        }
+
+        return (result);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -55,7 +55,8 @@ public class MediainfoWorker extends BaseWorker implements JobListener {
             //MediainfoJob job = new MediainfoJob(r, this);
             FFmpegJob job = new FFmpegJob(r, this);
             job.addJobListener(this);
-            JobContainer jc = JobManager.getJobContainer(job);
+            JobContainer jc = JobManager.getJobContainer(job,
+                JobManager.HOUSEKEEPING_POOL);
             addJobContainer(jc);
             jc.start();
         }
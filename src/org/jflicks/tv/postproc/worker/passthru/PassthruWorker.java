@@ -88,7 +88,8 @@ public class PassthruWorker extends BaseWorker implements JobListener {
 
                 PassthruJob job = new PassthruJob(r, this);
                 job.addJobListener(this);
-                JobContainer jc = JobManager.getJobContainer(job);
+                JobContainer jc = JobManager.getJobContainer(job,
+                    JobManager.POST_PROCESSING_POOL);
                 addJobContainer(jc);
                 jc.start();
 
@@ -101,7 +102,8 @@ public class PassthruWorker extends BaseWorker implements JobListener {
                 ConcatJob job = new ConcatJob(prefix, dir);
                 job.addJobListener(this);
                 setConcatJob(job);
-                JobContainer jc = JobManager.getJobContainer(job);
+                JobContainer jc = JobManager.getJobContainer(job,
+                    JobManager.POST_PROCESSING_POOL);
                 jc.start();
             }
         }
@@ -118,7 +120,8 @@ public class PassthruWorker extends BaseWorker implements JobListener {
 
                 PassthruJob job = new PassthruJob(getRecording(), this);
                 job.addJobListener(this);
-                JobContainer jc = JobManager.getJobContainer(job);
+                JobContainer jc = JobManager.getJobContainer(job,
+                    JobManager.POST_PROCESSING_POOL);
                 addJobContainer(jc);
                 jc.start();
 
@@ -16,6 +16,8 @@
 */
 package org.jflicks.tv.programdata;
 
+import java.util.Date;
+
 import org.jflicks.configure.Config;
 import org.jflicks.tv.Airing;
 import org.jflicks.tv.Channel;
@@ -133,6 +135,17 @@ public interface ProgramData extends Config, DataUpdateable {
      */
     Airing[] getAiringsByChannel(Channel c);
 
+    /**
+     * Acquire the Airings of a particular Channel that are on at some time
+     * in the given window, sorted by air time.
+     *
+     * @param c A given Channel Instance.
+     * @param start The beginning of the window.
+     * @param end The end of the window.
+     * @return An array of Airing instances.
+     */
+    Airing[] getAiringsByChannel(Channel c, Date start, Date end);
+
     /**
      * Acquire all the Airings of a particular Show.
      *
@@ -0,0 +1,522 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.programdata.sd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jflicks.tv.Airing;
+import org.jflicks.tv.Channel;
+import org.jflicks.tv.ChannelLogo;
+import org.jflicks.tv.Listing;
+import org.jflicks.tv.Show;
+
+/**
+ * An immutable in-memory index over the guide data.  The db4o container
+ * is still where the data is persisted but doing a Predicate query means
+ * every stored object gets evaluated.  With hundreds of thousands of
+ * Airing instances that is way too slow to build a guide row.  So once
+ * the data is stored we build one of these and do our lookups with
+ * hash maps and a time sorted array.
+ *
+ * An instance is never changed after it is built so it can be swapped in
+ * as a whole after an update and readers never see a partial index.  It
+ * also holds the Listing and ChannelLogo instances so a reader never has
+ * to go to the DB while an update is being written.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class GuideIndex {
+
+    private static final Airing[] EMPTY_AIRINGS = new Airing[0];
+
+    private Listing[] listings;
+    private ChannelLogo[] channelLogos;
+    private Channel[] channels;
+    private Show[] shows;
+    private HashMap<String, Show> showById;
+    private HashMap<Integer, Channel[]> channelsById;
+    private HashMap<String, Airing[]> airingsByChannel;
+    private HashMap<String, Airing[]> airingsByShow;
+    private Airing[] airingsByTime;
+    private long[] times;
+
+    /**
+     * Build an index from the given arrays.  Any of them can be null.
+     *
+     * @param channels All the known Channel instances.
+     * @param shows All the known Show instances.
+     * @param airings All the known Airing instances.
+     */
+    public GuideIndex(Channel[] channels, Show[] shows, Airing[] airings) {
+        this(null, null, channels, shows, airings);
+    }
+
+    /**
+     * Build an index from the given arrays.  Any of them can be null.
+     *
+     * @param listings All the known Listing instances.
+     * @param logos All the known ChannelLogo instances.
+     * @param channels All the known Channel instances.
+     * @param shows All the known Show instances.
+     * @param airings All the known Airing instances.
+     */
+    public GuideIndex(Listing[] listings, ChannelLogo[] logos,
+        Channel[] channels, Show[] shows, Airing[] airings) {
+
+        this.listings = copy(listings);
+        this.channelLogos = copy(logos);
+        this.channels = copy(channels);
+        this.shows = copy(shows);
+
+        showById = new HashMap<String, Show>();
+        if (shows != null) {
+
+            for (int i = 0; i < shows.length; i++) {
+
+                if ((shows[i] != null) && (shows[i].getId() != null)) {
+                    showById.put(shows[i].getId(), shows[i]);
+                }
+            }
+        }
+
+        HashMap<Integer, List<Channel>> cmap =
+            new HashMap<Integer, List<Channel>>();
+        if (channels != null) {
+
+            for (int i = 0; i < channels.length; i++) {
+
+                if (channels[i] != null) {
+                    add(cmap, Integer.valueOf(channels[i].getId()),
+                        channels[i]);
+                }
+            }
+        }
+        channelsById = new HashMap<Integer, Channel[]>();
+        for (Integer key : cmap.keySet()) {
+
+            List<Channel> l = cmap.get(key);
+            channelsById.put(key, l.toArray(new Channel[l.size()]));
+        }
+
+        ArrayList<Airing> all = new ArrayList<Airing>();
+        HashMap<String, List<Airing>> bychan =
+            new HashMap<String, List<Airing>>();
+        HashMap<String, List<Airing>> byshow =
+            new HashMap<String, List<Airing>>();
+        if (airings != null) {
+
+            for (int i = 0; i < airings.length; i++) {
+
+                Airing a = airings[i];
+                if (a != null) {
+
+                    all.add(a);
+                    add(bychan, toChannelKey(a.getChannelId(),
+                        a.getListingId()), a);
+                    if (a.getShowId() != null) {
+                        add(byshow, a.getShowId(), a);
+                    }
+                }
+            }
+        }
+        airingsByChannel = toArrayMap(bychan);
+        airingsByShow = toArrayMap(byshow);
+
+        airingsByTime = all.toArray(new Airing[all.size()]);
+        Arrays.sort(airingsByTime, new AiringTimeComparator());
+        times = new long[airingsByTime.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = toTime(airingsByTime[i]);
+        }
+    }
+
+    /**
+     * An index with nothing in it.
+     *
+     * @return A GuideIndex instance.
+     */
+    public static GuideIndex empty() {
+        return (new GuideIndex(null, null, null));
+    }
+
+    /**
+     * The number of Airing instances indexed.
+     *
+     * @return An int value.
+     */
+    public int getAiringCount() {
+        return (airingsByTime.length);
+    }
+
+    /**
+     * The number of Show instances indexed.
+     *
+     * @return An int value.
+     */
+    public int getShowCount() {
+        return (showById.size());
+    }
+
+    /**
+     * All the Listing instances.
+     *
+     * @return An array of Listing instances or null if none.
+     */
+    public Listing[] getListings() {
+        return (copy(listings));
+    }
+
+    /**
+     * Find a Listing by name.
+     *
+     * @param name A given listing name.
+     * @return A Listing if it exists.
+     */
+    public Listing getListingByName(String name) {
+
+        Listing result = null;
+
+        if ((listings != null) && (name != null)) {
+
+            for (int i = 0; i < listings.length; i++) {
+
+                if ((listings[i] != null)
+                    && (name.equals(listings[i].getName()))) {
+
+                    result = listings[i];
+                    break;
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * All the ChannelLogo instances.
+     *
+     * @return An array of ChannelLogo instances or null if none.
+     */
+    public ChannelLogo[] getChannelLogos() {
+        return (copy(channelLogos));
+    }
+
+    /**
+     * All the Channel instances.
+     *
+     * @return An array of Channel instances or null if none.
+     */
+    public Channel[] getChannels() {
+        return (copy(channels));
+    }
+
+    /**
+     * All the Channel instances in the given listing.
+     *
+     * @param lid A given listing ID.
+     * @return An array of Channel instances or null if none.
+     */
+    public Channel[] getChannelsByListing(String lid) {
+
+        Channel[] result = null;
+
+        if ((channels != null) && (lid != null)) {
+
+            ArrayList<Channel> l = new ArrayList<Channel>();
+            for (int i = 0; i < channels.length; i++) {
+
+                if ((channels[i] != null)
+                    && (lid.equals(channels[i].getListingId()))) {
+                    l.add(channels[i]);
+                }
+            }
+
+            if (l.size() > 0) {
+                result = l.toArray(new Channel[l.size()]);
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * All the Show instances.
+     *
+     * @return An array of Show instances or null if none.
+     */
+    public Show[] getShows() {
+        return (copy(shows));
+    }
+
+    /**
+     * Find a Show by it's unique ID.
+     *
+     * @param id A given show ID.
+     * @return A Show if it exists.
+     */
+    public Show getShowById(String id) {
+
+        Show result = null;
+
+        if (id != null) {
+            result = showById.get(id);
+        }
+
+        return (result);
+    }
+
+    /**
+     * All the Channel instances that share the given station ID.  There
+     * will be more than one when a station is in more than one listing.
+     *
+     * @param id A given station ID.
+     * @return An array of Channel instances or null if none.
+     */
+    public Channel[] getChannelsById(int id) {
+
+        Channel[] result = channelsById.get(Integer.valueOf(id));
+        if (result != null) {
+            result = Arrays.copyOf(result, result.length);
+        }
+
+        return (result);
+    }
+
+    /**
+     * Find a Channel by ID and listing ID.  The listing ID of the Channel
+     * only has to be contained in the given listing ID to match as the
+     * json data does not have a field that matches exactly.
+     *
+     * @param id A given station ID.
+     * @param lid A given listing ID.
+     * @return A Channel if it exists.
+     */
+    public Channel getChannelById(int id, String lid) {
+
+        Channel result = null;
+
+        Channel[] array = channelsById.get(Integer.valueOf(id));
+        if ((array != null) && (lid != null)) {
+
+            for (int i = 0; i < array.length; i++) {
+
+                String clid = array[i].getListingId();
+                if ((clid != null) && (lid.indexOf(clid) != -1)) {
+
+                    result = array[i];
+                    break;
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * All the Airing instances on the given channel.
+     *
+     * @param id A given station ID.
+     * @param lid A given listing ID.
+     * @return An array of Airing instances or null if none.
+     */
+    public Airing[] getAiringsByChannel(int id, String lid) {
+        return (copy(airingsByChannel.get(toChannelKey(id, lid))));
+    }
+
+    /**
+     * The Airing instances on the given channel that are on at some time
+     * in the given window, sorted by air time.  One that started before
+     * the window but is still on is included.
+     *
+     * @param id A given station ID.
+     * @param lid A given listing ID.
+     * @param start The beginning of the window.
+     * @param end The end of the window.
+     * @return An array of Airing instances or null if none.
+     */
+    public Airing[] getAiringsByChannel(int id, String lid, Date start,
+        Date end) {
+
+        Airing[] result = null;
+
+        Airing[] array = airingsByChannel.get(toChannelKey(id, lid));
+        if ((array != null) && (start != null) && (end != null)) {
+
+            long s = start.getTime();
+            int from = lowerBound(array, s);
+            while ((from > 0) && (toTime(array[from - 1])
+                + array[from - 1].getDuration() * 1000L > s)) {
+                from--;
+            }
+
+            int to = lowerBound(array, end.getTime());
+            if (to > from) {
+                result = Arrays.copyOfRange(array, from, to);
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * All the Airing instances of the given show ID.
+     *
+     * @param id A given show ID.
+     * @return An array of Airing instances or null if none.
+     */
+    public Airing[] getAiringsByShow(String id) {
+
+        Airing[] result = null;
+
+        if (id != null) {
+            result = copy(airingsByShow.get(id));
+        }
+
+        return (result);
+    }
+
+    /**
+     * All the Airing instances that start in the given time window.  The
+     * start is inclusive and the end is exclusive.  The result is sorted
+     * by air time.
+     *
+     * @param start The beginning of the window.
+     * @param end The end of the window.
+     * @return An array of Airing instances, never null.
+     */
+    public Airing[] getAiringsByTime(Date start, Date end) {
+
+        Airing[] result = EMPTY_AIRINGS;
+
+        if ((start != null) && (end != null)) {
+
+            int from = lowerBound(start.getTime());
+            int to = lowerBound(end.getTime());
+            if (to > from) {
+                result = Arrays.copyOfRange(airingsByTime, from, to);
+            }
+        }
+
+        return (result);
+    }
+
+    private int lowerBound(long time) {
+
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return (low);
+    }
+
+    private static int lowerBound(Airing[] array, long time) {
+
+        int low = 0;
+        int high = array.length;
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+            if (toTime(array[mid]) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return (low);
+    }
+
+    private static String toChannelKey(int id, String lid) {
+        return (id + "_" + lid);
+    }
+
+    private static long toTime(Airing a) {
+
+        long result = 0L;
+
+        Date d = a.getAirDateUTC();
+        if (d != null) {
+            result = d.getTime();
+        }
+
+        return (result);
+    }
+
+    private static <T> T[] copy(T[] array) {
+
+        T[] result = null;
+
+        if ((array != null) && (array.length > 0)) {
+            result = Arrays.copyOf(array, array.length);
+        }
+
+        return (result);
+    }
+
+    private static <K, V> void add(HashMap<K, List<V>> map, K key, V value) {
+
+        List<V> l = map.get(key);
+        if (l == null) {
+
+            l = new ArrayList<V>();
+            map.put(key, l);
+        }
+
+        l.add(value);
+    }
+
+    private static HashMap<String, Airing[]> toArrayMap(
+        HashMap<String, List<Airing>> map) {
+
+        HashMap<String, Airing[]> result = new HashMap<String, Airing[]>();
+        for (String key : map.keySet()) {
+
+            List<Airing> l = map.get(key);
+            Airing[] array = l.toArray(new Airing[l.size()]);
+            Arrays.sort(array, new AiringTimeComparator());
+            result.put(key, array);
+        }
+
+        return (result);
+    }
+
+    static class AiringTimeComparator implements Comparator<Airing> {
+
+        public int compare(Airing a0, Airing a1) {
+
+            long t0 = toTime(a0);
+            long t1 = toTime(a1);
+
+            return ((t0 < t1) ? -1 : ((t0 == t1) ? 0 : 1));
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.programdata.sd;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.jflicks.tv.Airing;
+import org.jflicks.tv.Channel;
+import org.jflicks.tv.Show;
+
+import com.db4o.query.Predicate;
+
+/**
+ * Compare per lookup latency of a full scan Predicate against the
+ * GuideIndex on a synthetic guide.  The scan runs the same Predicate
+ * code against an in memory list so it is a best case for db4o, which
+ * also has to activate each object from disk.
+ *
+ * Usage: GuideIndexBenchmark [airings] [channels] [lookups]
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class GuideIndexBenchmark {
+
+    private GuideIndexBenchmark() {
+    }
+
+    private static List<Airing> scan(List<Airing> all, Predicate<Airing> p) {
+
+        ArrayList<Airing> result = new ArrayList<Airing>();
+        for (int i = 0; i < all.size(); i++) {
+
+            Airing a = all.get(i);
+            if (p.match(a)) {
+                result.add(a);
+            }
+        }
+
+        return (result);
+    }
+
+    private static void report(String name, long nanos, int count) {
+
+        System.out.printf("%-28s %12.3f us/lookup%n", name,
+            (nanos / 1000.0) / count);
+    }
+
+    /**
+     * Simple main to run the benchmark.
+     *
+     * @param args Optional airing, channel and lookup counts.
+     */
+    public static void main(String[] args) {
+
+        int acount = 500000;
+        int ccount = 400;
+        int lookups = 200;
+        if (args.length > 0) {
+            acount = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            ccount = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            lookups = Integer.parseInt(args[2]);
+        }
+
+        Random random = new Random(42L);
+        final String lid = "PC:10000";
+
+        Channel[] channels = new Channel[ccount];
+        for (int i = 0; i < ccount; i++) {
+
+            channels[i] = new Channel();
+            channels[i].setId(10000 + i);
+            channels[i].setListingId(lid);
+        }
+
+        int scount = acount / 5;
+        Show[] shows = new Show[scount];
+        for (int i = 0; i < scount; i++) {
+
+            shows[i] = new Show();
+            shows[i].setId("EP" + i);
+            shows[i].setTitle("Show " + i);
+        }
+
+        long base = System.currentTimeMillis();
+        ArrayList<Airing> all = new ArrayList<Airing>(acount);
+        for (int i = 0; i < acount; i++) {
+
+            Airing a = new Airing();
+            a.setChannelId(channels[i % ccount].getId());
+            a.setListingId(lid);
+            a.setShowId(shows[random.nextInt(scount)].getId());
+            a.setAirDateUTC(new Date(base + (i / ccount) * 1800000L));
+            a.setDuration(1800L);
+            all.add(a);
+        }
+
+        long start = System.nanoTime();
+        GuideIndex gi = new GuideIndex(channels, shows,
+            all.toArray(new Airing[all.size()]));
+        System.out.printf("Built index of %d airings in %d ms%n",
+            gi.getAiringCount(), (System.nanoTime() - start) / 1000000L);
+
+        int found = 0;
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+
+            final int cid = channels[random.nextInt(ccount)].getId();
+            found += scan(all, new Predicate<Airing>() {
+
+                public boolean match(Airing a) {
+                    return ((cid == a.getChannelId())
+                        && (lid.equals(a.getListingId())));
+                }
+            }).size();
+        }
+        report("scan getAiringsByChannel", System.nanoTime() - start, lookups);
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+
+            int cid = channels[random.nextInt(ccount)].getId();
+            found += gi.getAiringsByChannel(cid, lid).length;
+        }
+        report("index getAiringsByChannel", System.nanoTime() - start,
+            lookups);
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+
+            final String sid = shows[random.nextInt(scount)].getId();
+            found += scan(all, new Predicate<Airing>() {
+
+                public boolean match(Airing a) {
+                    return (sid.equals(a.getShowId()));
+                }
+            }).size();
+        }
+        report("scan getAiringsByShow", System.nanoTime() - start, lookups);
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+
+            Airing[] array =
+                gi.getAiringsByShow(shows[random.nextInt(scount)].getId());
+            if (array != null) {
+                found += array.length;
+            }
+        }
+        report("index getAiringsByShow", System.nanoTime() - start, lookups);
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+
+            final String sid = shows[random.nextInt(scount)].getId();
+            for (int j = 0; j < shows.length; j++) {
+
+                if (sid.equals(shows[j].getId())) {
+
+                    found++;
+                    break;
+                }
+            }
+        }
+        report("scan getShowById", System.nanoTime() - start, lookups);
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+
+            if (gi.getShowById(shows[random.nextInt(scount)].getId())
+                != null) {
+                found++;
+            }
+        }
+        report("index getShowById", System.nanoTime() - start, lookups);
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+
+            Date from = new Date(base + random.nextInt(48) * 1800000L);
+            Date to = new Date(from.getTime() + 3 * 3600000L);
+            found += gi.getAiringsByTime(from, to).length;
+        }
+        report("index getAiringsByTime 3h", System.nanoTime() - start,
+            lookups);
+
+        System.out.println("(matched " + found + ")");
+    }
+
+}
@@ -0,0 +1,579 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.programdata.sd;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.jflicks.tv.programdata.sd.json.Program;
+import org.jflicks.util.LogUtil;
+
+import com.google.gson.Gson;
+
+/**
+ * A keyed cache of Schedules Direct Program instances that lives in a
+ * single record file.  Lookups are done with a hash map so checking the
+ * md5 of a program is constant time.
+ *
+ * The file is a header followed by records.  Each record is a length, a
+ * state byte and then the program ID, md5 and JSON of the program.  When
+ * a program changes or goes away the state byte of its old record is
+ * flipped to dead in place and any new version is appended.  So after a
+ * guide refresh only the changed programs are written.  The file is read
+ * at startup with a memory map.  Once the dead records take up more space
+ * than the live ones the file is rewritten.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class ProgramCache {
+
+    private static final int MAGIC = 0x4A465043;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final byte LIVE = 1;
+    private static final byte DEAD = 0;
+    private static final int BATCH_SIZE = 1024 * 1024;
+    private static final long COMPACT_MINIMUM = 4L * 1024L * 1024L;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private File file;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel fileChannel;
+    private Gson gson;
+    private HashMap<String, Program> programMap;
+    private HashMap<String, Long> offsetMap;
+    private HashMap<String, Integer> lengthMap;
+    private HashSet<String> dirtySet;
+    private HashSet<String> removedSet;
+    private long liveBytes;
+    private long deadBytes;
+    private int lastWriteCount;
+    private long lastWriteBytes;
+
+    /**
+     * Create a cache backed by the given file.  Nothing is read until
+     * open is called.
+     *
+     * @param f The file to keep the programs.
+     */
+    public ProgramCache(File f) {
+
+        file = f;
+        gson = new Gson();
+        programMap = new HashMap<String, Program>();
+        offsetMap = new HashMap<String, Long>();
+        lengthMap = new HashMap<String, Integer>();
+        dirtySet = new HashSet<String>();
+        removedSet = new HashSet<String>();
+    }
+
+    /**
+     * The file that backs this cache.
+     *
+     * @return A File instance.
+     */
+    public File getFile() {
+        return (file);
+    }
+
+    /**
+     * The number of programs in the cache.
+     *
+     * @return An int value.
+     */
+    public synchronized int size() {
+        return (programMap.size());
+    }
+
+    /**
+     * The number of records written by the last commit.
+     *
+     * @return An int value.
+     */
+    public synchronized int getLastWriteCount() {
+        return (lastWriteCount);
+    }
+
+    /**
+     * The number of bytes written by the last commit.
+     *
+     * @return A long value.
+     */
+    public synchronized long getLastWriteBytes() {
+        return (lastWriteBytes);
+    }
+
+    /**
+     * Open the file and read all the live records.  A missing or bad
+     * file results in an empty cache.
+     *
+     * @return True if programs were read from an existing file.
+     */
+    public synchronized boolean open() {
+
+        boolean result = false;
+
+        close();
+        programMap.clear();
+        offsetMap.clear();
+        lengthMap.clear();
+        dirtySet.clear();
+        removedSet.clear();
+        liveBytes = 0L;
+        deadBytes = 0L;
+
+        try {
+
+            boolean exists = file.exists() && (file.length() >= HEADER_SIZE);
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            fileChannel = randomAccessFile.getChannel();
+            if (exists && read()) {
+
+                result = programMap.size() > 0;
+
+            } else {
+
+                programMap.clear();
+                offsetMap.clear();
+                lengthMap.clear();
+                writeHeader();
+            }
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.WARNING, "ProgramCache open: "
+                + ex.getMessage());
+            close();
+        }
+
+        return (result);
+    }
+
+    /**
+     * Close the file.  Anything not committed is lost.
+     */
+    public synchronized void close() {
+
+        if (randomAccessFile != null) {
+
+            try {
+
+                randomAccessFile.close();
+
+            } catch (IOException ex) {
+            }
+
+            randomAccessFile = null;
+            fileChannel = null;
+        }
+    }
+
+    /**
+     * Fetch a program by ID.
+     *
+     * @param pid A given program ID.
+     * @return A Program if it is in the cache.
+     */
+    public synchronized Program get(String pid) {
+
+        Program result = null;
+
+        if (pid != null) {
+            result = programMap.get(pid);
+        }
+
+        return (result);
+    }
+
+    /**
+     * Check if we have the given program and it has the given md5.
+     *
+     * @param pid A given program ID.
+     * @param md5 The md5 the program should have.
+     * @return True if the cached program is up to date.
+     */
+    public synchronized boolean isCurrent(String pid, String md5) {
+
+        boolean result = false;
+
+        if ((pid != null) && (md5 != null)) {
+
+            Program p = programMap.get(pid);
+            result = (p != null) && (md5.equals(p.getMd5()));
+        }
+
+        return (result);
+    }
+
+    /**
+     * Add or replace a program.  It is written on the next commit.
+     *
+     * @param p A given Program.
+     */
+    public synchronized void put(Program p) {
+
+        if ((p != null) && (p.getProgramID() != null)) {
+
+            String pid = p.getProgramID();
+            programMap.put(pid, p);
+            removedSet.remove(pid);
+            dirtySet.add(pid);
+        }
+    }
+
+    /**
+     * Drop every program whose ID is not in the given set.
+     *
+     * @param keep The program IDs to keep.
+     * @return The number of programs removed.
+     */
+    public synchronized int retain(Set<String> keep) {
+
+        int result = 0;
+
+        if (keep != null) {
+
+            Iterator<String> iter = programMap.keySet().iterator();
+            while (iter.hasNext()) {
+
+                String pid = iter.next();
+                if (!keep.contains(pid)) {
+
+                    iter.remove();
+                    dirtySet.remove(pid);
+                    removedSet.add(pid);
+                    result++;
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * All the cached programs.
+     *
+     * @return A Collection of Program instances.
+     */
+    public synchronized Collection<Program> getPrograms() {
+        return (new ArrayList<Program>(programMap.values()));
+    }
+
+    /**
+     * Write all the changes since the last commit to disk.
+     */
+    public synchronized void commit() {
+
+        lastWriteCount = 0;
+        lastWriteBytes = 0L;
+        if (fileChannel == null) {
+            return;
+        }
+
+        try {
+
+            Iterator<String> iter = removedSet.iterator();
+            while (iter.hasNext()) {
+
+                kill(iter.next());
+            }
+
+            // New records are gathered up so the file sees a few large
+            // writes instead of one per program.
+            long end = fileChannel.size();
+            ByteBuffer batch = ByteBuffer.allocate(BATCH_SIZE);
+            iter = dirtySet.iterator();
+            while (iter.hasNext()) {
+
+                String pid = iter.next();
+                Program p = programMap.get(pid);
+                if (p != null) {
+
+                    kill(pid);
+                    ByteBuffer bb = encode(p);
+                    int len = bb.remaining();
+                    if (len > batch.remaining()) {
+                        end = flush(batch, end);
+                    }
+                    long off = end + batch.position();
+                    if (len > batch.remaining()) {
+                        end = write(bb, end);
+                    } else {
+                        batch.put(bb);
+                    }
+                    offsetMap.put(pid, Long.valueOf(off));
+                    lengthMap.put(pid, Integer.valueOf(len));
+                    liveBytes += len;
+                    lastWriteCount++;
+                    lastWriteBytes += len;
+                }
+            }
+            flush(batch, end);
+
+            removedSet.clear();
+            dirtySet.clear();
+
+            if ((deadBytes > COMPACT_MINIMUM) && (deadBytes > liveBytes)) {
+
+                compact();
+
+            } else {
+
+                fileChannel.force(false);
+            }
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.WARNING, "ProgramCache commit: "
+                + ex.getMessage());
+        }
+    }
+
+    private long flush(ByteBuffer batch, long end) throws IOException {
+
+        batch.flip();
+        long result = write(batch, end);
+        batch.clear();
+
+        return (result);
+    }
+
+    private long write(ByteBuffer bb, long end) throws IOException {
+
+        long result = end;
+        while (bb.hasRemaining()) {
+            result += fileChannel.write(bb, result);
+        }
+
+        return (result);
+    }
+
+    private void kill(String pid) throws IOException {
+
+        Long off = offsetMap.remove(pid);
+        Integer len = lengthMap.remove(pid);
+        if ((off != null) && (len != null)) {
+
+            ByteBuffer bb = ByteBuffer.allocate(1);
+            bb.put(0, DEAD);
+            fileChannel.write(bb, off.longValue() + 4L);
+            liveBytes -= len.intValue();
+            deadBytes += len.intValue();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+
+        fileChannel.truncate(0L);
+        ByteBuffer bb = ByteBuffer.allocate(HEADER_SIZE);
+        bb.putInt(MAGIC);
+        bb.putInt(VERSION);
+        bb.flip();
+        while (bb.hasRemaining()) {
+            fileChannel.write(bb, HEADER_SIZE - bb.remaining());
+        }
+
+        // Everything in memory has to go to the new file.
+        dirtySet.addAll(programMap.keySet());
+        offsetMap.clear();
+        lengthMap.clear();
+        liveBytes = 0L;
+        deadBytes = 0L;
+    }
+
+    private boolean read() throws IOException {
+
+        boolean result = false;
+
+        long size = fileChannel.size();
+        MappedByteBuffer mbb =
+            fileChannel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        if ((mbb.getInt() == MAGIC) && (mbb.getInt() == VERSION)) {
+
+            result = true;
+            while (mbb.remaining() >= 5) {
+
+                int start = mbb.position();
+                int len = mbb.getInt();
+                if ((len < 5) || (len - 4 > mbb.remaining())) {
+
+                    // A partial record from a crash, just drop it.
+                    break;
+                }
+
+                byte state = mbb.get();
+                if (state == LIVE) {
+
+                    Program p = decode(mbb, start + len);
+                    if (p != null) {
+
+                        String pid = p.getProgramID();
+                        Long old = offsetMap.get(pid);
+                        if (old != null) {
+
+                            // Should not happen but last one wins.
+                            deadBytes += lengthMap.get(pid).intValue();
+                            liveBytes -= lengthMap.get(pid).intValue();
+                        }
+                        programMap.put(pid, p);
+                        offsetMap.put(pid, Long.valueOf(start));
+                        lengthMap.put(pid, Integer.valueOf(len));
+                        liveBytes += len;
+
+                    } else {
+
+                        deadBytes += len;
+                    }
+
+                } else {
+
+                    deadBytes += len;
+                }
+
+                mbb.position(start + len);
+            }
+
+            long good = mbb.position();
+            if (good < size) {
+                fileChannel.truncate(good);
+            }
+        }
+
+        return (result);
+    }
+
+    private Program decode(ByteBuffer bb, int end) {
+
+        Program result = null;
+
+        try {
+
+            String pid = getString(bb);
+            String md5 = getString(bb);
+            String json = getString(bb);
+            if ((pid != null) && (json != null) && (bb.position() <= end)) {
+
+                result = gson.fromJson(json, Program.class);
+                if (result != null) {
+
+                    result.setProgramID(pid);
+                    result.setMd5(md5);
+                }
+            }
+
+        } catch (RuntimeException ex) {
+
+            result = null;
+        }
+
+        return (result);
+    }
+
+    private ByteBuffer encode(Program p) {
+
+        byte[] pid = toBytes(p.getProgramID());
+        byte[] md5 = toBytes(p.getMd5());
+        byte[] json = toBytes(gson.toJson(p));
+
+        int len = 4 + 1 + 12 + pid.length + md5.length + json.length;
+        ByteBuffer result = ByteBuffer.allocate(len);
+        result.putInt(len);
+        result.put(LIVE);
+        result.putInt(pid.length);
+        result.put(pid);
+        result.putInt(md5.length);
+        result.put(md5);
+        result.putInt(json.length);
+        result.put(json);
+        result.flip();
+
+        return (result);
+    }
+
+    private void compact() throws IOException {
+
+        LogUtil.log(LogUtil.DEBUG, "ProgramCache compact live " + liveBytes
+            + " dead " + deadBytes);
+
+        File tmp = new File(file.getPath() + ".tmp");
+        ProgramCache pc = new ProgramCache(tmp);
+        if (tmp.exists()) {
+            tmp.delete();
+        }
+        pc.open();
+        pc.programMap.putAll(programMap);
+        pc.dirtySet.addAll(programMap.keySet());
+        pc.commit();
+        pc.close();
+
+        close();
+        if (file.delete() && tmp.renameTo(file)) {
+
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            fileChannel = randomAccessFile.getChannel();
+            offsetMap = pc.offsetMap;
+            lengthMap = pc.lengthMap;
+            liveBytes = pc.liveBytes;
+            deadBytes = 0L;
+
+        } else {
+
+            // Start the file over and let the next commit fill it.
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            fileChannel = randomAccessFile.getChannel();
+            writeHeader();
+        }
+    }
+
+    private static String getString(ByteBuffer bb) {
+
+        String result = null;
+
+        int len = bb.getInt();
+        if ((len >= 0) && (len <= bb.remaining())) {
+
+            byte[] array = new byte[len];
+            bb.get(array);
+            result = new String(array, UTF8);
+        }
+
+        return (result);
+    }
+
+    private static byte[] toBytes(String s) {
+
+        byte[] result = new byte[0];
+        if (s != null) {
+            result = s.getBytes(UTF8);
+        }
+
+        return (result);
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.programdata.sd;
+
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.jflicks.tv.programdata.sd.json.Client;
+import org.jflicks.tv.programdata.sd.json.Program;
+import org.jflicks.tv.programdata.sd.json.ProgramHandler;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Time a program download against a local stand-in for the Schedules
+ * Direct server at different numbers of requests in flight.  The stand-in
+ * waits a fixed time before it answers each request, like a real server
+ * on the other side of the internet, and sends gzip encoded programs.
+ *
+ * Usage: ProgramFetchBenchmark [programs] [latency ms] [chunk size]
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class ProgramFetchBenchmark {
+
+    private static final String DESCRIPTION = "A long enough description "
+        + "of the episode so the programs are about the size of the ones "
+        + "that come from the real service, more or less.";
+
+    private ProgramFetchBenchmark() {
+    }
+
+    private static void send(HttpExchange he, String json) throws IOException {
+
+        byte[] data = json.getBytes("UTF-8");
+        he.getResponseHeaders().set("Content-Type", "application/json");
+        he.sendResponseHeaders(200, data.length);
+        OutputStream os = he.getResponseBody();
+        os.write(data);
+        os.close();
+    }
+
+    private static HttpServer startServer(final int latency)
+        throws IOException {
+
+        final Gson gson = new Gson();
+        HttpServer result = HttpServer.create(new InetSocketAddress(
+            "127.0.0.1", 0), 0);
+        result.setExecutor(Executors.newCachedThreadPool());
+        result.createContext("/20141201/token", new HttpHandler() {
+
+            public void handle(HttpExchange he) throws IOException {
+
+                he.getRequestBody().close();
+                send(he, "{\"code\":0,\"message\":\"OK\",\"token\":\"abc\"}");
+            }
+        });
+        result.createContext("/20141201/programs", new HttpHandler() {
+
+            public void handle(HttpExchange he) throws IOException {
+
+                InputStreamReader r =
+                    new InputStreamReader(he.getRequestBody(), "UTF-8");
+                String[] pids = gson.fromJson(r, String[].class);
+                r.close();
+
+                try {
+
+                    Thread.sleep(latency);
+
+                } catch (InterruptedException ex) {
+                }
+
+                he.getResponseHeaders().set("Content-Type",
+                    "application/json");
+                he.getResponseHeaders().set("Content-Encoding", "gzip");
+                he.sendResponseHeaders(200, 0);
+                Writer w = new OutputStreamWriter(
+                    new GZIPOutputStream(he.getResponseBody()), "UTF-8");
+                w.write("[");
+                for (int i = 0; i < pids.length; i++) {
+
+                    Program p = new Program();
+                    p.setProgramID(pids[i]);
+                    p.setMd5("md5" + pids[i]);
+                    p.setShowType("Series");
+                    p.setEpisodeTitle150("Episode " + pids[i]);
+                    p.setOriginalDateTime("2015-01-01");
+                    p.setGenres(new String[] {"Drama", DESCRIPTION});
+                    if (i > 0) {
+                        w.write(",");
+                    }
+                    w.write(gson.toJson(p));
+                }
+                w.write("]");
+                w.close();
+            }
+        });
+        result.start();
+
+        return (result);
+    }
+
+    /**
+     * Simple main to run the benchmark.
+     *
+     * @param args Optional program count, latency and chunk size.
+     * @throws Exception on error.
+     */
+    public static void main(String[] args) throws Exception {
+
+        int count = 20000;
+        int latency = 250;
+        int chunk = 1000;
+        if (args.length > 0) {
+            count = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            latency = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            chunk = Integer.parseInt(args[2]);
+        }
+
+        HttpServer server = startServer(latency);
+        Client c = new Client();
+        c.setBaseUri("http://127.0.0.1:" + server.getAddress().getPort());
+        if (!c.doToken("user", "sha")) {
+
+            System.out.println("Could not get a token from the stand-in.");
+            System.exit(1);
+        }
+
+        String[] pids = new String[count];
+        for (int i = 0; i < count; i++) {
+            pids[i] = "EP" + (1000000 + i);
+        }
+
+        final AtomicInteger handled = new AtomicInteger();
+        ProgramHandler h = new ProgramHandler() {
+
+            public void handle(Program p) {
+                handled.incrementAndGet();
+            }
+        };
+
+        // Once to warm up.
+        ProgramFetcher pf = new ProgramFetcher(c);
+        pf.setChunkSize(chunk);
+        pf.fetch(pids, h);
+
+        System.out.printf("%d programs, %d per request, %d ms latency%n",
+            count, chunk, latency);
+        int[] levels = {1, 2, 4, 8, 16};
+        for (int i = 0; i < levels.length; i++) {
+
+            handled.set(0);
+            pf.setConcurrency(levels[i]);
+            long start = System.nanoTime();
+            int got = pf.fetch(pids, h);
+            long ms = (System.nanoTime() - start) / 1000000L;
+            System.out.printf("concurrency %2d: %6d ms %8d programs%n",
+                levels[i], ms, got);
+        }
+
+        server.stop(0);
+        System.exit(0);
+    }
+
+}
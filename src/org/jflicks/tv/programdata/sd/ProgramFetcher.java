@@ -0,0 +1,223 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.programdata.sd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jflicks.tv.programdata.sd.json.Client;
+import org.jflicks.tv.programdata.sd.json.ProgramHandler;
+import org.jflicks.util.LogUtil;
+
+/**
+ * Download programs from Schedules Direct in chunks with more than one
+ * chunk in flight at a time.  Each chunk is parsed as it streams in on
+ * the thread that asked for it, so parsing of one chunk overlaps with
+ * the download of the others.
+ *
+ * The number of chunks in flight can be set with the system property
+ * "org.jflicks.tv.programdata.sd.concurrency".
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class ProgramFetcher {
+
+    /**
+     * The system property to set the number of requests in flight.
+     */
+    public static final String CONCURRENCY_PROPERTY =
+        "org.jflicks.tv.programdata.sd.concurrency";
+
+    /**
+     * The default number of requests in flight.
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    /**
+     * The default number of program IDs asked for in one request.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private Client client;
+    private int concurrency;
+    private int chunkSize;
+
+    /**
+     * Create a fetcher using the given Client.  The concurrency comes
+     * from the system property if it is set.
+     *
+     * @param c A given logged in Client.
+     */
+    public ProgramFetcher(Client c) {
+
+        client = c;
+        chunkSize = DEFAULT_CHUNK_SIZE;
+        concurrency = DEFAULT_CONCURRENCY;
+
+        String value = System.getProperty(CONCURRENCY_PROPERTY);
+        if (value != null) {
+
+            try {
+
+                concurrency = Math.max(1, Integer.parseInt(value.trim()));
+
+            } catch (NumberFormatException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "Bad " + CONCURRENCY_PROPERTY
+                    + ": " + value);
+            }
+        }
+    }
+
+    /**
+     * The number of requests in flight at a time.
+     *
+     * @return An int value.
+     */
+    public int getConcurrency() {
+        return (concurrency);
+    }
+
+    /**
+     * The number of requests in flight at a time.
+     *
+     * @param i An int value.
+     */
+    public void setConcurrency(int i) {
+        concurrency = Math.max(1, i);
+    }
+
+    /**
+     * The number of program IDs asked for in one request.
+     *
+     * @return An int value.
+     */
+    public int getChunkSize() {
+        return (chunkSize);
+    }
+
+    /**
+     * The number of program IDs asked for in one request.
+     *
+     * @param i An int value.
+     */
+    public void setChunkSize(int i) {
+        chunkSize = Math.max(1, i);
+    }
+
+    /**
+     * Fetch all the given programs.  The handler is called from the
+     * download threads so it must be thread safe.  This does not return
+     * until all the chunks are done.
+     *
+     * @param pids The program IDs to fetch.
+     * @param h The ProgramHandler to get each Program.
+     * @return The number of programs handled.
+     */
+    public int fetch(String[] pids, ProgramHandler h) {
+
+        int result = 0;
+
+        if ((client != null) && (pids != null) && (pids.length > 0)
+            && (h != null)) {
+
+            ArrayList<String[]> chunks = new ArrayList<String[]>();
+            for (int i = 0; i < pids.length; i += chunkSize) {
+
+                chunks.add(Arrays.copyOfRange(pids, i,
+                    Math.min(pids.length, i + chunkSize)));
+            }
+
+            int threads = Math.min(concurrency, chunks.size());
+            ExecutorService es = Executors.newFixedThreadPool(threads,
+                new FetchThreadFactory());
+
+            try {
+
+                ArrayList<Future<Integer>> flist =
+                    new ArrayList<Future<Integer>>();
+                for (int i = 0; i < chunks.size(); i++) {
+
+                    flist.add(es.submit(new Chunk(chunks.get(i), h)));
+                }
+
+                for (int i = 0; i < flist.size(); i++) {
+
+                    try {
+
+                        int count = flist.get(i).get().intValue();
+                        if (count >= 0) {
+                            result += count;
+                        } else {
+                            LogUtil.log(LogUtil.WARNING, "program chunk " + i
+                                + " failed");
+                        }
+
+                    } catch (Exception ex) {
+
+                        LogUtil.log(LogUtil.WARNING, "program chunk " + i
+                            + ": " + ex.getMessage());
+                    }
+                }
+
+            } finally {
+
+                es.shutdownNow();
+            }
+        }
+
+        return (result);
+    }
+
+    class Chunk implements Callable<Integer> {
+
+        private String[] pids;
+        private ProgramHandler handler;
+
+        Chunk(String[] pids, ProgramHandler h) {
+
+            this.pids = pids;
+            handler = h;
+        }
+
+        public Integer call() {
+            return (Integer.valueOf(client.getPrograms(pids, handler)));
+        }
+    }
+
+    static class FetchThreadFactory implements ThreadFactory {
+
+        private AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+
+            Thread result = new Thread(r, "jflicks-sdfetch-"
+                + count.incrementAndGet());
+            result.setDaemon(true);
+
+            return (result);
+        }
+    }
+
+}
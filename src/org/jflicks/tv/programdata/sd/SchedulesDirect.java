@@ -23,15 +23,15 @@ import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -48,6 +48,7 @@ import org.jflicks.tv.programdata.sd.json.GuideRequest;
 import org.jflicks.tv.programdata.sd.json.Logo;
 import org.jflicks.tv.programdata.sd.json.Mapping;
 import org.jflicks.tv.programdata.sd.json.Program;
+import org.jflicks.tv.programdata.sd.json.ProgramHandler;
 import org.jflicks.tv.programdata.sd.json.Station;
 import org.jflicks.tv.programdata.sd.json.StationID;
 import org.jflicks.tv.programdata.sd.json.StationSchedule;
@@ -63,9 +64,12 @@ import org.jflicks.util.Util;
  */
 public class SchedulesDirect {
 
+    private static final String CACHE_FILE = "programCache.dat";
+    private static final String LEGACY_CACHE_FILE = "programMap.ser";
+
     private File workingFile;
     private ArrayList<ChannelLogo> channelLogoList;
-    private static HashMap<String, Program> programMap;
+    private ProgramCache programCache;
     private static SchedulesDirect instance;
 
     static {
@@ -73,10 +77,7 @@ public class SchedulesDirect {
         System.setProperty("propertiesDirectory", "conf");
         instance = new SchedulesDirect();
         instance.setChannelLogoList(new ArrayList<ChannelLogo>());
-        if (!instance.readCache()) {
-
-            instance.programMap = new HashMap<String, Program>();
-        }
+        instance.readCache();
     }
 
     private SchedulesDirect() {
@@ -124,26 +125,49 @@ public class SchedulesDirect {
         return (result);
     }
 
-    private boolean readCache() {
+    private void readCache() {
 
-        boolean result = false;
+        long start = System.currentTimeMillis();
+        programCache = new ProgramCache(new File(CACHE_FILE));
+        if (!programCache.open()) {
+
+            // Move the old serialized map over to the new cache once.
+            HashMap<String, Program> legacy = readLegacyCache();
+            if (legacy != null) {
+
+                Iterator<Program> iter = legacy.values().iterator();
+                while (iter.hasNext()) {
+
+                    programCache.put(iter.next());
+                }
+                programCache.commit();
+                new File(LEGACY_CACHE_FILE).delete();
+            }
+        }
+
+        LogUtil.log(LogUtil.INFO, "program cache read " + programCache.size()
+            + " programs in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private HashMap<String, Program> readLegacyCache() {
+
+        HashMap<String, Program> result = null;
 
         ObjectInputStream ois = null;
 
         try {
 
-            File f = new File("programMap.ser");
+            File f = new File(LEGACY_CACHE_FILE);
             if (f.exists()) {
 
                 FileInputStream fis = new FileInputStream(f);
                 ois = new ObjectInputStream(fis);
-                programMap = (HashMap<String, Program>) ois.readObject();
-                result = true;
+                result = (HashMap<String, Program>) ois.readObject();
             }
 
         }  catch (IOException | ClassNotFoundException ex) {
 
-            ex.printStackTrace();
+            LogUtil.log(LogUtil.WARNING, "readLegacyCache: " + ex.getMessage());
 
         }  finally {
             
@@ -162,32 +186,7 @@ public class SchedulesDirect {
     }
 
     private void writeCache() {
-
-        ObjectOutputStream oos = null;
-
-        try {
-
-            File f = new File("programMap.ser");
-            FileOutputStream fos = new FileOutputStream(f);
-            oos = new ObjectOutputStream(fos);
-            oos.writeObject(programMap);
-
-        }  catch (IOException ex) {
-
-            LogUtil.log(LogUtil.WARNING, "writeCache: " + ex.getMessage());
-
-        }  finally {
-            
-            if (oos != null) {
-
-                try {
-
-                    oos.close();
-
-                } catch (IOException ex) {
-                }
-            }
-        }
+        programCache.commit();
     }
 
     /**
@@ -203,112 +202,16 @@ public class SchedulesDirect {
         workingFile = f;
     }
 
-    private HashMap<String, Program> getProgramMap() {
-        return (programMap);
-    }
-
-    private void unmark() {
-
-        Set<Map.Entry<String, Program>> set = programMap.entrySet();
-        Iterator<Map.Entry<String, Program>> iter = set.iterator();
-        while (iter.hasNext()) {
-
-            Map.Entry<String, Program> me = iter.next();
-            Program p = me.getValue();
-            p.setMarked(false);
-        }
-    }
-
-    private void mark(String pid) {
-
-        if (pid != null) {
-
-            Set<Map.Entry<String, Program>> set = programMap.entrySet();
-            Iterator<Map.Entry<String, Program>> iter = set.iterator();
-            while (iter.hasNext()) {
-
-                Map.Entry<String, Program> me = iter.next();
-                String key = me.getKey();
-                if (pid.equals(key)) {
-
-                    Program p = me.getValue();
-                    p.setMarked(true);
-                }
-            }
-        }
-    }
-
-    private void mark(String[] array) {
-
-        if ((array != null) && (array.length > 0)) {
-
-            for (int i = 0; i < array.length; i++) {
-
-                mark(array[i]);
-            }
-        }
-    }
-
-    private void purge() {
-
-        ArrayList<String> purgeList = new ArrayList<String>();
-        Set<Map.Entry<String, Program>> set = programMap.entrySet();
-        Iterator<Map.Entry<String, Program>> iter = set.iterator();
-        while (iter.hasNext()) {
-
-            Map.Entry<String, Program> me = iter.next();
-            String pid = me.getKey();
-            Program p = me.getValue();
-            if (!p.isMarked()) {
-
-                purgeList.add(pid);
-            }
-        }
-
-        if (purgeList.size() > 0) {
-
-            for (int i = 0; i < purgeList.size(); i++) {
-
-                String pid = purgeList.get(i);
-                programMap.remove(pid);
-            }
-        }
+    private ProgramCache getProgramCache() {
+        return (programCache);
     }
 
     private boolean haveInCache(String pid, String md5) {
-
-        boolean result = false;
-
-        if ((pid != null) && (md5 != null)) {
-
-            Set<Map.Entry<String, Program>> set = programMap.entrySet();
-            Iterator<Map.Entry<String, Program>> iter = set.iterator();
-            while (iter.hasNext()) {
-
-                Map.Entry<String, Program> me = iter.next();
-                String key = me.getKey();
-                if (pid.equals(key)) {
-
-                    Program p = me.getValue();
-                    if (md5.equals(p.getMd5())) {
-
-                        result = true;
-                    }
-
-                    break;
-                }
-            }
-        }
-
-        return (result);
+        return (programCache.isCurrent(pid, md5));
     }
 
     private void putInCache(Program p) {
-
-        if (p != null) {
-
-            programMap.put(p.getProgramID(), p);
-        }
+        programCache.put(p);
     }
 
     private StationID[] getStationIDsByLineupName(String name) {
@@ -397,37 +300,6 @@ public class SchedulesDirect {
         return (result);
     }
 
-    private ArrayList<String[]> computeList(String[] array, int max) {
-
-        ArrayList<String[]> result = null;
-
-        if ((array != null) && (array.length > 0)) {
-
-            result = new ArrayList<String[]>();
-            int count = array.length / max;
-            if ((array.length % max) > 0) {
-                count++;
-            }
-
-            int broken = 0;
-            int start = 0;
-            int end = max;
-            for (int i = 0; i < count; i++) {
-
-                if (end > array.length) {
-                    end = array.length;
-                }
-                String[] sub = Arrays.copyOfRange(array, start, end);
-                broken += sub.length;
-                result.add(sub);
-                end += max;
-                start += max;
-            }
-        }
-
-        return (result);
-    }
-
     private Client getClient(String user, String password, String country, String zip) {
 
         Client result = null;
@@ -523,6 +395,8 @@ public class SchedulesDirect {
                 String[] lineupNames = handleLineup(result, c, ul.getLineups());
                 if ((lineupNames != null) && (lineupNames.length > 0)) {
 
+                    long phase = System.currentTimeMillis();
+
                     ArrayList<net.sf.xtvdclient.xtvd.datatypes.Schedule> schedlist =
                         new ArrayList<net.sf.xtvdclient.xtvd.datatypes.Schedule>();
                     ArrayList<String> md5list = new ArrayList<String>();
@@ -593,61 +467,65 @@ public class SchedulesDirect {
                     }
 
                     result.setSchedules(schedlist);
+                    long schedulesTime = System.currentTimeMillis() - phase;
 
-                    // First unmark all Programs in our map.
-                    unmark();
-
-                    // Now we have to get the programs
-                    ArrayList<String> allPidlist = new ArrayList<String>();
-                    ArrayList<String> pidlist = new ArrayList<String>();
+                    // Find the Programs that are new or have changed.  A
+                    // program usually airs many times so only ask once.
+                    phase = System.currentTimeMillis();
+                    HashSet<String> allPidset = new HashSet<String>();
+                    LinkedHashSet<String> pidset = new LinkedHashSet<String>();
                     for (int i = 0; i < schedlist.size(); i++) {
 
                         String pid = schedlist.get(i).getProgram();
                         String md5 = md5list.get(i);
-                        allPidlist.add(pid);
+                        allPidset.add(pid);
 
                         if (!haveInCache(pid, md5)) {
 
-                            pidlist.add(pid);
+                            pidset.add(pid);
                         }
                     }
+                    long diffTime = System.currentTimeMillis() - phase;
 
-                    // The pidlist has all the Programs we have to fetch.
-                    LogUtil.log(LogUtil.DEBUG, "we have to fetch " + pidlist.size() + " programs.");
-                    if (pidlist.size() > 0) {
-
-                        String[] parray = pidlist.toArray(new String[pidlist.size()]);
-                        ArrayList<String[]> alist = computeList(parray, 1000);
-                        if ((alist != null) && (alist.size() > 0)) {
-
-                            for (int i = 0; i < alist.size(); i++) {
+                    // The pidset has all the Programs we have to fetch.
+                    phase = System.currentTimeMillis();
+                    LogUtil.log(LogUtil.DEBUG, "we have to fetch " + pidset.size() + " programs.");
+                    if (pidset.size() > 0) {
 
-                                String[] sub = alist.get(i);
+                        String[] parray = pidset.toArray(new String[pidset.size()]);
+                        ProgramFetcher pf = new ProgramFetcher(c);
+                        int fetched = pf.fetch(parray, new ProgramHandler() {
 
-                                Program[] progs = c.getPrograms(sub);
-                                if ((progs != null) && (progs.length > 0)) {
-
-                                    for (int j = 0; j < progs.length; j++) {
-
-                                        putInCache(progs[j]);
-                                    }
-                                }
+                            public void handle(Program p) {
+                                putInCache(p);
                             }
-                        }
+                        });
+                        LogUtil.log(LogUtil.DEBUG, "fetched " + fetched + " programs with "
+                            + pf.getConcurrency() + " requests in flight.");
                     }
 
-                    // Next mark all Programs in our map.
-                    String[] parray = allPidlist.toArray(new String[allPidlist.size()]);
-                    mark(parray);
-
                     // Now purge old programs.
-                    purge();
+                    int purged = getProgramCache().retain(allPidset);
+                    long fetchTime = System.currentTimeMillis() - phase;
 
                     // We have to convert our cache programs to xtvd programs.
+                    phase = System.currentTimeMillis();
                     result.setPrograms(handlePrograms());
+                    long convertTime = System.currentTimeMillis() - phase;
 
                     // Finally lets write the cache.
+                    phase = System.currentTimeMillis();
                     writeCache();
+                    long persistTime = System.currentTimeMillis() - phase;
+
+                    LogUtil.log(LogUtil.INFO, "guide refresh: schedules fetch "
+                        + schedulesTime + " ms, md5 diff " + diffTime + " ms ("
+                        + pidset.size() + " of " + allPidset.size()
+                        + " changed), program fetch " + fetchTime + " ms ("
+                        + purged + " purged), conversion " + convertTime
+                        + " ms, persist " + persistTime + " ms ("
+                        + getProgramCache().getLastWriteCount() + " written, "
+                        + getProgramCache().getLastWriteBytes() + " bytes)");
                 }
             }
         }
@@ -872,13 +750,11 @@ public class SchedulesDirect {
         HashMap<String, net.sf.xtvdclient.xtvd.datatypes.Program> result =
             new HashMap<String, net.sf.xtvdclient.xtvd.datatypes.Program>();
 
-        Set<Map.Entry<String, Program>> set = programMap.entrySet();
-        Iterator<Map.Entry<String, Program>> iter = set.iterator();
+        Iterator<Program> iter = getProgramCache().getPrograms().iterator();
         while (iter.hasNext()) {
 
-            Map.Entry<String, Program> me = iter.next();
-            String pid = me.getKey();
-            Program p = me.getValue();
+            Program p = iter.next();
+            String pid = p.getProgramID();
 
             net.sf.xtvdclient.xtvd.datatypes.XtvdDate xdate = null;
             String orig = p.getOriginalDateTime();
@@ -22,8 +22,8 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -46,7 +46,6 @@ import com.db4o.ObjectContainer;
 import com.db4o.ObjectSet;
 import com.db4o.config.Configuration;
 import com.db4o.osgi.Db4oService;
-import com.db4o.query.Predicate;
 import net.sf.xtvdclient.xtvd.datatypes.Duration;
 import net.sf.xtvdclient.xtvd.datatypes.Lineup;
 import net.sf.xtvdclient.xtvd.datatypes.Program;
@@ -74,6 +73,7 @@ public class SchedulesDirectProgramData extends BaseProgramData implements DbWor
     private Db4oService db4oService;
     private boolean overrideTimeToUpdate;
     private boolean updatingNow;
+    private volatile GuideIndex guideIndex;
 
     /**
      * Simple empty constructor.
@@ -143,14 +143,10 @@ public class SchedulesDirectProgramData extends BaseProgramData implements DbWor
 
         Listing[] result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if (oc != null) {
-
-            ObjectSet<Listing> os = oc.queryByExample(Listing.class);
-            if (os != null) {
+        GuideIndex gi = getGuideIndex();
+        if (gi != null) {
 
-                result = os.toArray(new Listing[os.size()]);
-            }
+            result = gi.getListings();
         }
 
         return (result);
@@ -164,23 +160,10 @@ public class SchedulesDirectProgramData extends BaseProgramData implements DbWor
         Listing result = null;
 
         LogUtil.log(LogUtil.DEBUG, "getListingByName");
-        ObjectContainer oc = getObjectContainer();
-        if ((oc != null) && (name != null)) {
-
-            final String lname = name;
-
-            // Should be just one Listing.
-            List<Listing> listings = oc.query(new Predicate<Listing>() {
+        GuideIndex gi = getGuideIndex();
+        if ((gi != null) && (name != null)) {
 
-                public boolean match(Listing l) {
-                    return (lname.equals(l.getName()));
-                }
-            });
-
-            if ((listings != null) && (listings.size() > 0)) {
-
-                result = listings.get(0);
-            }
+            result = gi.getListingByName(name);
         }
 
         return (result);
@@ -193,14 +176,10 @@ public class SchedulesDirectProgramData extends BaseProgramData implements DbWor
 
         Channel[] result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if (oc != null) {
-
-            ObjectSet<Channel> os = oc.queryByExample(Channel.class);
-            if (os != null) {
+        GuideIndex gi = getGuideIndex();
+        if (gi != null) {
 
-                result = os.toArray(new Channel[os.size()]);
-            }
+            result = gi.getChannels();
         }
 
         return (result);
@@ -213,14 +192,10 @@ public class SchedulesDirectProgramData extends BaseProgramData implements DbWor
 
         ChannelLogo[] result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if (oc != null) {
-
-            ObjectSet<ChannelLogo> os = oc.queryByExample(ChannelLogo.class);
-            if (os != null) {
+        GuideIndex gi = getGuideIndex();
+        if (gi != null) {
 
-                result = os.toArray(new ChannelLogo[os.size()]);
-            }
+            result = gi.getChannelLogos();
         }
 
         return (result);
@@ -233,14 +208,10 @@ public class SchedulesDirectProgramData extends BaseProgramData implements DbWor
 
         Show[] result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if (oc != null) {
-
-            ObjectSet<Show> os = oc.queryByExample(Show.class);
-            if (os != null) {
+        GuideIndex gi = getGuideIndex();
+        if (gi != null) {
 
-                result = os.toArray(new Show[os.size()]);
-            }
+            result = gi.getShows();
         }
 
         return (result);
@@ -253,34 +224,12 @@ public class SchedulesDirectProgramData extends BaseProgramData implements DbWor
 
         Channel[] result = null;
 
-LogUtil.log(LogUtil.DEBUG, "0");
-        ObjectContainer oc = getObjectContainer();
-LogUtil.log(LogUtil.DEBUG, "1");
-        if ((oc != null) && (l != null)) {
-LogUtil.log(LogUtil.DEBUG, "2");
-
-            final String id = l.getId();
-LogUtil.log(LogUtil.DEBUG, "3");
-            if (id != null) {
-LogUtil.log(LogUtil.DEBUG, "4");
-
-                List<Channel> channels = oc.query(new Predicate<Channel>() {
-                    public boolean match(Channel c) {
-                        return (id.equals(c.getListingId()));
-                    }
-                });
-LogUtil.log(LogUtil.DEBUG, "5");
-
-                if ((channels != null) && (channels.size() > 0)) {
+        GuideIndex gi = getGuideIndex();
+        if ((gi != null) && (l != null)) {
 
-LogUtil.log(LogUtil.DEBUG, "6");
-                    result = channels.toArray(new Channel[channels.size()]);
-LogUtil.log(LogUtil.DEBUG, "7");
-                }
-            }
+            result = gi.getChannelsByListing(l.getId());
         }
 
-LogUtil.log(LogUtil.DEBUG, "8");
         return (result);
     }
 
@@ -291,61 +240,12 @@ LogUtil.log(LogUtil.DEBUG, "8");
 
         Channel result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if (oc != null) {
-
-            final int cid = id;
-            final String clid = lid;
-
-            // Should be just one Channel.
-            List<Channel> channels = oc.query(new Predicate<Channel>() {
-
-                public boolean match(Channel c) {
-
-                    // Here we are changing the listingId from an
-                    // exact match to a substring of.  The json data
-                    // has not made a nice field that matches the
-                    // listingId exactly.  So we are just going to
-                    // check for indexOf to be not -1.
-                    return ((cid == c.getId())
-                        && (clid.indexOf(c.getListingId()) != -1));
-                    /*
-                    return ((cid == c.getId())
-                        && (clid.equals(c.getListingId())));
-                    */
-                }
-            });
-
-            if ((channels != null) && (channels.size() > 0)) {
+        GuideIndex gi = getGuideIndex();
+        if ((gi != null) && (lid != null)) {
 
-                result = channels.get(0);
-            }
-        }
-
-        return (result);
-    }
-
-    private Channel[] getAllChannelsById(int id) {
-
-        Channel[] result = null;
-
-        ObjectContainer oc = getObjectContainer();
-        if (oc != null) {
-
-            final int cid = id;
-
-            List<Channel> channels = oc.query(new Predicate<Channel>() {
-
-                public boolean match(Channel c) {
-
-                    return (cid == c.getId());
-                }
-            });
-
-            if ((channels != null) && (channels.size() > 0)) {
-
-                result = channels.toArray(new Channel[channels.size()]);
-            }
+            // The listingId match is a substring match as the json
+            // data does not have a field that matches exactly.
+            result = gi.getChannelById(id, lid);
         }
 
         return (result);
@@ -358,23 +258,10 @@ LogUtil.log(LogUtil.DEBUG, "8");
 
         Show result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if ((oc != null) && (id != null)) {
-
-            final String sid = id;
-
-            // Should be just one Show.
-            List<Show> shows = oc.query(new Predicate<Show>() {
+        GuideIndex gi = getGuideIndex();
+        if ((gi != null) && (id != null)) {
 
-                public boolean match(Show s) {
-                    return (sid.equals(s.getId()));
-                }
-            });
-
-            if ((shows != null) && (shows.size() > 0)) {
-
-                result = shows.get(0);
-            }
+            result = gi.getShowById(id);
         }
 
         return (result);
@@ -387,25 +274,27 @@ LogUtil.log(LogUtil.DEBUG, "8");
 
         Airing[] result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if ((oc != null) && (c != null)) {
+        GuideIndex gi = getGuideIndex();
+        if ((gi != null) && (c != null)) {
 
-            final int id = c.getId();
-            final String lid = c.getListingId();
+            result = gi.getAiringsByChannel(c.getId(), c.getListingId());
+        }
 
-            List<Airing> airings = oc.query(new Predicate<Airing>() {
+        return (result);
+    }
 
-                public boolean match(Airing a) {
+    /**
+     * {@inheritDoc}
+     */
+    public Airing[] getAiringsByChannel(Channel c, Date start, Date end) {
 
-                    return ((id == a.getChannelId())
-                        && (lid.equals(a.getListingId())));
-                }
-            });
+        Airing[] result = null;
 
-            if ((airings != null) && (airings.size() > 0)) {
+        GuideIndex gi = getGuideIndex();
+        if ((gi != null) && (c != null)) {
 
-                result = airings.toArray(new Airing[airings.size()]);
-            }
+            result = gi.getAiringsByChannel(c.getId(), c.getListingId(),
+                start, end);
         }
 
         return (result);
@@ -418,22 +307,10 @@ LogUtil.log(LogUtil.DEBUG, "8");
 
         Airing[] result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if ((oc != null) && (s != null)) {
+        GuideIndex gi = getGuideIndex();
+        if ((gi != null) && (s != null)) {
 
-            final String id = s.getId();
-
-            List<Airing> airings = oc.query(new Predicate<Airing>() {
-
-                public boolean match(Airing a) {
-                    return (id.equals(a.getShowId()));
-                }
-            });
-
-            if ((airings != null) && (airings.size() > 0)) {
-
-                result = airings.toArray(new Airing[airings.size()]);
-            }
+            result = gi.getAiringsByShow(s.getId());
         }
 
         return (result);
@@ -516,22 +393,31 @@ LogUtil.log(LogUtil.DEBUG, "8");
 
         Show result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if ((oc != null) && (a != null)) {
+        GuideIndex gi = getGuideIndex();
+        if ((gi != null) && (a != null)) {
 
-            final String id = a.getShowId();
+            result = gi.getShowById(a.getShowId());
+        }
 
-            List<Show> shows = oc.query(new Predicate<Show>() {
+        return (result);
+    }
 
-                public boolean match(Show show) {
-                    return (id.equals(show.getId()));
-                }
-            });
+    /**
+     * All the Airing instances that start in the given time window.  The
+     * start is inclusive and the end is exclusive.
+     *
+     * @param start The beginning of the window.
+     * @param end The end of the window.
+     * @return An array of Airing instances sorted by air time.
+     */
+    public Airing[] getAiringsByTime(Date start, Date end) {
 
-            if ((shows != null) && (shows.size() > 0)) {
+        Airing[] result = null;
 
-                result = shows.get(0);
-            }
+        GuideIndex gi = getGuideIndex();
+        if (gi != null) {
+
+            result = gi.getAiringsByTime(start, end);
         }
 
         return (result);
@@ -541,54 +427,59 @@ LogUtil.log(LogUtil.DEBUG, "8");
 
         Show[] result = null;
 
-        ObjectContainer oc = getObjectContainer();
-        if ((oc != null) && (pattern != null)) {
-
-            final String pat = pattern.toLowerCase();
-            final int type = searchType;
+        GuideIndex gi = getGuideIndex();
+        Show[] all = null;
+        if (gi != null) {
+            all = gi.getShows();
+        }
+        if ((all != null) && (pattern != null)) {
 
-            List<Show> shows = oc.query(new Predicate<Show>() {
+            String pat = pattern.toLowerCase();
+            int type = searchType;
 
-                public boolean match(Show s) {
+            ArrayList<Show> shows = new ArrayList<Show>();
+            for (int i = 0; i < all.length; i++) {
 
-                    boolean result = false;
+                Show s = all[i];
+                boolean match = false;
 
-                    String search = null;
-                    switch (type) {
+                String search = null;
+                switch (type) {
 
-                    default:
-                    case NMSConstants.SEARCH_TITLE:
-                    case NMSConstants.SEARCH_TITLE_STARTS_WITH:
-                        search = s.getTitle();
-                        break;
+                default:
+                case NMSConstants.SEARCH_TITLE:
+                case NMSConstants.SEARCH_TITLE_STARTS_WITH:
+                    search = s.getTitle();
+                    break;
 
-                    case NMSConstants.SEARCH_DESCRIPTION:
-                        search = s.getDescription();
-                        break;
+                case NMSConstants.SEARCH_DESCRIPTION:
+                    search = s.getDescription();
+                    break;
 
-                    case NMSConstants.SEARCH_TITLE_DESCRIPTION:
-                        search = s.getTitle() + " " + s.getDescription();
-                        break;
-                    }
-                    if (search != null) {
+                case NMSConstants.SEARCH_TITLE_DESCRIPTION:
+                    search = s.getTitle() + " " + s.getDescription();
+                    break;
+                }
+                if (search != null) {
 
-                        search = search.trim();
-                        if (search.length() > 0) {
+                    search = search.trim();
+                    if (search.length() > 0) {
 
-                            search = search.toLowerCase();
-                            if (type == NMSConstants.SEARCH_TITLE_STARTS_WITH) {
-                                result = search.startsWith(pat);
-                            } else {
-                                result = search.indexOf(pat) != -1;
-                            }
+                        search = search.toLowerCase();
+                        if (type == NMSConstants.SEARCH_TITLE_STARTS_WITH) {
+                            match = search.startsWith(pat);
+                        } else {
+                            match = search.indexOf(pat) != -1;
                         }
                     }
+                }
 
-                    return (result);
+                if (match) {
+                    shows.add(s);
                 }
-            });
+            }
 
-            if ((shows != null) && (shows.size() > 0)) {
+            if (shows.size() > 0) {
 
                 result = shows.toArray(new Show[shows.size()]);
             }
@@ -611,170 +502,327 @@ LogUtil.log(LogUtil.DEBUG, "8");
         ObjectContainer oc = getObjectContainer();
         if ((oc != null) && (xtvd != null)) {
 
+            long start = System.currentTimeMillis();
+
             updateStatus();
 
-            ArrayList<Channel> clist = new ArrayList<Channel>();
-            Map map = xtvd.getStations();
-            LogUtil.log(LogUtil.DEBUG, "process map null? <" + (map == null) + ">");
-            if (map != null) {
-
-                Collection coll = map.values();
-                if (coll != null) {
-
-                    LogUtil.log(LogUtil.DEBUG, "SD station count <" + coll.size() + ">");
-                    purge(oc, Channel.class);
-                    Iterator iter = coll.iterator();
-                    while (iter.hasNext()) {
-
-                        Station station = (Station) iter.next();
-                        Channel tmp = new Channel();
-                        tmp.setId(station.getId());
-                        tmp.setName(station.getName());
-                        tmp.setFrequency(station.getFccChannelNumber());
-                        tmp.setAffiliate(station.getAffiliate());
-                        tmp.setCallSign(station.getCallSign());
-                        clist.add(tmp);
-                    }
-                    LogUtil.log(LogUtil.DEBUG, "Channel count <" + clist.size() + ">");
+            boolean committed = false;
+            try {
+
+                ingest(oc, xtvd, logos);
+
+                // All the changes go to the DB as one transaction and then
+                // the new guide is published to readers as a whole.
+                oc.commit();
+                committed = true;
+
+            } finally {
+
+                if (!committed) {
+
+                    // Readers keep the guide they had and the DB goes back
+                    // to match it.
+                    LogUtil.log(LogUtil.WARNING,
+                        "Schedules Direct data process failed, rolled back");
+                    oc.rollback();
+                }
+            }
+            rebuildGuideIndex();
+            LogUtil.log(LogUtil.INFO, "Schedules Direct data process complete in "
+                + (System.currentTimeMillis() - start) + " ms");
+
+            // Let others know...
+            notify(true);
+        }
+    }
+
+    private void ingest(ObjectContainer oc, Xtvd xtvd, ChannelLogo[] logos) {
+
+        ArrayList<Channel> clist = new ArrayList<Channel>();
+        Map map = xtvd.getStations();
+        LogUtil.log(LogUtil.DEBUG, "process map null? <" + (map == null) + ">");
+        if (map != null) {
+
+            Collection coll = map.values();
+            if (coll != null) {
+
+                LogUtil.log(LogUtil.DEBUG, "SD station count <" + coll.size() + ">");
+                purge(oc, Channel.class);
+                Iterator iter = coll.iterator();
+                while (iter.hasNext()) {
+
+                    Station station = (Station) iter.next();
+                    Channel tmp = new Channel();
+                    tmp.setId(station.getId());
+                    tmp.setName(station.getName());
+                    tmp.setFrequency(station.getFccChannelNumber());
+                    tmp.setAffiliate(station.getAffiliate());
+                    tmp.setCallSign(station.getCallSign());
+                    clist.add(tmp);
                 }
+                LogUtil.log(LogUtil.DEBUG, "Channel count <" + clist.size() + ">");
             }
+        }
 
-            ArrayList<Channel> multiple = new ArrayList<Channel>();
-            Map<String, Lineup> lmap = xtvd.getLineups();
-            if (lmap != null) {
+        ArrayList<Channel> multiple = new ArrayList<Channel>();
+        Map<String, Lineup> lmap = xtvd.getLineups();
+        if (lmap != null) {
 
-                Collection<Lineup> coll = lmap.values();
-                if (coll != null) {
+            Collection<Lineup> coll = lmap.values();
+            if (coll != null) {
 
-                    purge(oc, Listing.class);
+                purge(oc, Listing.class);
 
-                    // First go through the lineups and set the proper
-                    // reference number.  A problem here could be that
-                    // the user doesn't have an OTA lineup which would
-                    // probably break things.  I guess we will have to
-                    // use the callsign as a backup.
-                    Iterator<Lineup> iter = coll.iterator();
-                    int count = 0;
-                    while (iter.hasNext()) {
+                // First go through the lineups and set the proper
+                // reference number.  A problem here could be that
+                // the user doesn't have an OTA lineup which would
+                // probably break things.  I guess we will have to
+                // use the callsign as a backup.
+                Iterator<Lineup> iter = coll.iterator();
+                int count = 0;
+                while (iter.hasNext()) {
 
-                        Lineup lineup = iter.next();
-                        count += processReferenceChannels(lineup, clist);
-                    }
-                    LogUtil.log(LogUtil.DEBUG, "Found <" + count + "> channels to reference");
-                    LogUtil.log(LogUtil.DEBUG, "Channel count <" + clist.size() + ">");
-
-                    // Now we go through again and if we have
-                    // set the reference number we should be
-                    // good to go.
-                    iter = coll.iterator();
-                    while (iter.hasNext()) {
-
-                        Lineup lineup = iter.next();
-                        Listing listing =
-                            processLineup(lineup, clist, multiple);
-                        oc.store(listing);
-                    }
-                    oc.commit();
+                    Lineup lineup = iter.next();
+                    count += processReferenceChannels(lineup, clist);
+                }
+                LogUtil.log(LogUtil.DEBUG, "Found <" + count + "> channels to reference");
+                LogUtil.log(LogUtil.DEBUG, "Channel count <" + clist.size() + ">");
+
+                // Now we go through again and if we have
+                // set the reference number we should be
+                // good to go.
+                iter = coll.iterator();
+                while (iter.hasNext()) {
+
+                    Lineup lineup = iter.next();
+                    Listing listing =
+                        processLineup(lineup, clist, multiple);
+                    oc.store(listing);
                 }
             }
+        }
+
+        // We have built all the fields to the Channels we know about.
+        // Now lets write then to the DB.  There are only a few hundred
+        // so they are just replaced.
+        LogUtil.log(LogUtil.DEBUG, "Multiple Channel count <" + multiple.size() + ">");
+        for (int i = 0; i < multiple.size(); i++) {
+
+            Channel tmp = multiple.get(i);
+            oc.store(tmp);
+        }
 
-            // We have built all the fields to the Channels we know about.
-            // Now lets write then to the DB.
-            LogUtil.log(LogUtil.DEBUG, "Multiple Channel count <" + multiple.size() + ">");
-            for (int i = 0; i < multiple.size(); i++) {
+        // The schedules below need the new channels to find their
+        // Airing channels.  We build the station to channels map once
+        // here and not for each schedule.
+        GuideIndex channelIndex = new GuideIndex(
+            multiple.toArray(new Channel[multiple.size()]), null, null);
 
-                Channel tmp = multiple.get(i);
-                oc.store(tmp);
+        // Just put in our given ChannelLogo instances.
+        if (logos != null) {
+
+            purge(oc, ChannelLogo.class);
+            for (int i = 0; i < logos.length; i++) {
+
+                oc.store(logos[i]);
             }
-            oc.commit();
+        }
 
-            // Just put in our given ChannelLogo instances.
-            if (logos != null) {
+        // Process the Programs and upsert only the Show instances that
+        // are new or have changed.
+        Map<String, Program> pmap = xtvd.getPrograms();
+        LogUtil.log(LogUtil.DEBUG, "Program map null? " + (pmap == null));
+        if (pmap != null) {
 
-                purge(oc, ChannelLogo.class);
-                for (int i = 0; i < logos.length; i++) {
+            LogUtil.log(LogUtil.DEBUG, "Program map count <" + pmap.size() + ">");
+            ingestShows(oc, pmap.values());
+        }
 
-                    oc.store(logos[i]);
-                }
+        // Next we process the schedules and upsert the Airings.
+        Collection<Schedule> scheds = xtvd.getSchedules();
+        if ((scheds != null) && (scheds.size() > 0)) {
+
+            LogUtil.log(LogUtil.DEBUG, "Schedule count <" + scheds.size() + ">");
+            ingestAirings(oc, scheds, channelIndex);
+        }
+    }
+
+    private void ingestShows(ObjectContainer oc, Collection<Program> coll) {
+
+        HashMap<String, Show> existing = new HashMap<String, Show>();
+        ObjectSet<Show> os = oc.queryByExample(Show.class);
+        while (os.hasNext()) {
+
+            Show show = os.next();
+            Show dup = existing.put(show.getId(), show);
+            if (dup != null) {
+                oc.delete(dup);
             }
+        }
 
-            // Process the Programs and put new Show instances into the
-            // database.
-            Map<String, Program> pmap = xtvd.getPrograms();
-            LogUtil.log(LogUtil.DEBUG, "Program map null? " + (pmap == null));
-            if (pmap != null) {
-
-                LogUtil.log(LogUtil.DEBUG, "Program map count <" + pmap.size() + ">");
-                Collection<Program> coll = pmap.values();
-                if (coll != null) {
-
-                    LogUtil.log(LogUtil.DEBUG, "Program count <" + coll.size() + ">");
-                    purge(oc, Show.class);
-                    Iterator<Program> iter = coll.iterator();
-                    while (iter.hasNext()) {
-
-                        Program p = iter.next();
-                        Show show = new Show();
-                        show.setId(p.getId());
-                        show.setTitle(p.getTitle());
-                        show.setSubtitle(p.getSubtitle());
-                        show.setDescription(p.getDescription());
-                        show.setType(p.getShowType());
-                        show.setEpisodeNumber(p.getSyndicatedEpisodeNumber());
-                        XtvdDate xdate = p.getOriginalAirDate();
-                        if (xdate != null) {
-                            show.setOriginalAirDate(xdate.getDate());
-                        }
-                        show.setSeriesId(p.getSeries());
-                        oc.store(show);
-                    }
-                    oc.commit();
+        int added = 0;
+        int changed = 0;
+        Iterator<Program> iter = coll.iterator();
+        while (iter.hasNext()) {
+
+            Program p = iter.next();
+            Show show = new Show();
+            show.setId(p.getId());
+            show.setTitle(p.getTitle());
+            show.setSubtitle(p.getSubtitle());
+            show.setDescription(p.getDescription());
+            show.setType(p.getShowType());
+            show.setEpisodeNumber(p.getSyndicatedEpisodeNumber());
+            XtvdDate xdate = p.getOriginalAirDate();
+            if (xdate != null) {
+                show.setOriginalAirDate(xdate.getDate());
+            }
+            show.setSeriesId(p.getSeries());
+
+            Show old = existing.remove(show.getId());
+            if (old == null) {
+
+                oc.store(show);
+                added++;
+
+            } else if (!isSameShow(old, show)) {
+
+                // The published guide still has the old instance, so it
+                // is replaced rather than changed.
+                oc.delete(old);
+                oc.store(show);
+                changed++;
+            }
+        }
+
+        // Whatever is left is no longer in the guide.
+        Iterator<Show> siter = existing.values().iterator();
+        while (siter.hasNext()) {
+
+            oc.delete(siter.next());
+        }
+
+        LogUtil.log(LogUtil.INFO, "Shows: " + added + " added, " + changed
+            + " changed, " + existing.size() + " removed, "
+            + (coll.size() - added - changed) + " unchanged");
+    }
+
+    private void ingestAirings(ObjectContainer oc, Collection<Schedule> scheds,
+        GuideIndex channelIndex) {
+
+        // Airings that are over are deleted by time, the rest are keyed
+        // so we can match them with the new schedules.
+        long now = System.currentTimeMillis();
+        int expired = 0;
+        HashMap<String, Airing> existing = new HashMap<String, Airing>();
+        ObjectSet<Airing> os = oc.queryByExample(Airing.class);
+        while (os.hasNext()) {
+
+            Airing a = os.next();
+            Date d = a.getAirDateUTC();
+            if ((d == null) || ((d.getTime() + a.getDuration() * 1000L) < now)) {
+
+                oc.delete(a);
+                expired++;
+
+            } else {
+
+                Airing dup = existing.put(toAiringKey(a), a);
+                if (dup != null) {
+                    oc.delete(dup);
                 }
             }
+        }
 
-            // Next we process the schedules and put Airings into the db.
-            Collection<Schedule> scheds = xtvd.getSchedules();
-            if ((scheds != null) && (scheds.size() > 0)) {
+        int added = 0;
+        int changed = 0;
+        int unchanged = 0;
+        Iterator<Schedule> iter = scheds.iterator();
+        while (iter.hasNext()) {
 
-                LogUtil.log(LogUtil.DEBUG, "Schedule count <" + scheds.size() + ">");
-                purge(oc, Airing.class);
-                Iterator<Schedule> iter = scheds.iterator();
-                while (iter.hasNext()) {
+            Schedule s = iter.next();
 
-                    Schedule s = iter.next();
+            Channel[] array = channelIndex.getChannelsById(s.getStation());
+            Duration dur = s.getDuration();
+            if ((array != null) && (dur != null)) {
 
-                    Channel[] array = getAllChannelsById(s.getStation());
-                    if (array != null) {
+                int hours = Util.str2int(dur.getHours(), 0) * 3600;
+                int mins = Util.str2int(dur.getMinutes(), 0) * 60;
+                for (int i = 0; i < array.length; i++) {
 
-                        for (int i = 0; i < array.length; i++) {
+                    Airing airing = new Airing();
+                    airing.setShowId(s.getProgram());
+                    airing.setChannelId(array[i].getId());
+                    airing.setListingId(array[i].getListingId());
+                    airing.setAirDateUTC(s.getTime().getDate());
+                    airing.setDuration((long) (hours + mins));
 
-                            Airing airing = new Airing();
-                            airing.setShowId(s.getProgram());
-                            airing.setChannelId(array[i].getId());
-                            airing.setListingId(array[i].getListingId());
-                            airing.setAirDateUTC(s.getTime().getDate());
-                            Duration dur = s.getDuration();
-                            if (dur != null) {
+                    Airing old = existing.remove(toAiringKey(airing));
+                    if (old == null) {
 
-                                int hours =
-                                    Util.str2int(dur.getHours(), 0) * 3600;
-                                int mins =
-                                    Util.str2int(dur.getMinutes(), 0) * 60;
-                                airing.setDuration((long) (hours + mins));
-                                oc.store(airing);
-                            }
-                        }
+                        oc.store(airing);
+                        added++;
+
+                    } else if (!airing.equals(old)) {
+
+                        // Replaced and not changed for the same reason as
+                        // a Show.
+                        oc.delete(old);
+                        oc.store(airing);
+                        changed++;
+
+                    } else {
+
+                        unchanged++;
                     }
                 }
-
-                oc.commit();
             }
+        }
 
-            LogUtil.log(LogUtil.INFO, "Schedules Direct data process complete!");
+        // Whatever is left was dropped from the guide.
+        Iterator<Airing> aiter = existing.values().iterator();
+        while (aiter.hasNext()) {
 
-            // Let others know...
-            notify(true);
+            oc.delete(aiter.next());
         }
+
+        LogUtil.log(LogUtil.INFO, "Airings: " + added + " added, " + changed
+            + " changed, " + (existing.size() + expired) + " removed ("
+            + expired + " expired), " + unchanged + " unchanged");
+    }
+
+    private String toAiringKey(Airing a) {
+
+        long time = 0L;
+        if (a.getAirDateUTC() != null) {
+            time = a.getAirDateUTC().getTime();
+        }
+
+        return (a.getChannelId() + "_" + a.getListingId() + "_" + time);
+    }
+
+    private boolean isSameShow(Show s0, Show s1) {
+
+        return (same(s0.getTitle(), s1.getTitle())
+            && same(s0.getSubtitle(), s1.getSubtitle())
+            && same(s0.getDescription(), s1.getDescription())
+            && same(s0.getType(), s1.getType())
+            && same(s0.getEpisodeNumber(), s1.getEpisodeNumber())
+            && same(s0.getOriginalAirDate(), s1.getOriginalAirDate())
+            && same(s0.getSeriesId(), s1.getSeriesId()));
+    }
+
+    private boolean same(Object o0, Object o1) {
+
+        boolean result = false;
+
+        if (o0 == null) {
+            result = (o1 == null);
+        } else {
+            result = o0.equals(o1);
+        }
+
+        return (result);
     }
 
     public void notify(boolean freshData) {
@@ -902,6 +950,70 @@ LogUtil.log(LogUtil.DEBUG, "8");
         return (result);
     }
 
+    /**
+     * The guide index is what we use to do our lookups.  It is built from
+     * the DB the first time we need it and then rebuilt after each
+     * update.
+     *
+     * @return A GuideIndex instance.
+     */
+    public GuideIndex getGuideIndex() {
+
+        GuideIndex result = guideIndex;
+        if (result == null) {
+
+            result = rebuildGuideIndex();
+        }
+
+        return (result);
+    }
+
+    private synchronized GuideIndex rebuildGuideIndex() {
+
+        GuideIndex result = null;
+
+        ObjectContainer oc = getObjectContainer();
+        if (oc != null) {
+
+            long start = System.currentTimeMillis();
+            Listing[] listings = null;
+            ChannelLogo[] logos = null;
+            Channel[] channels = null;
+            Show[] shows = null;
+            Airing[] airings = null;
+
+            ObjectSet<Listing> los = oc.queryByExample(Listing.class);
+            if (los != null) {
+                listings = los.toArray(new Listing[los.size()]);
+            }
+            ObjectSet<ChannelLogo> clos = oc.queryByExample(ChannelLogo.class);
+            if (clos != null) {
+                logos = clos.toArray(new ChannelLogo[clos.size()]);
+            }
+
+            ObjectSet<Channel> cos = oc.queryByExample(Channel.class);
+            if (cos != null) {
+                channels = cos.toArray(new Channel[cos.size()]);
+            }
+            ObjectSet<Show> sos = oc.queryByExample(Show.class);
+            if (sos != null) {
+                shows = sos.toArray(new Show[sos.size()]);
+            }
+            ObjectSet<Airing> aos = oc.queryByExample(Airing.class);
+            if (aos != null) {
+                airings = aos.toArray(new Airing[aos.size()]);
+            }
+
+            result = new GuideIndex(listings, logos, channels, shows, airings);
+            guideIndex = result;
+            LogUtil.log(LogUtil.INFO, "Guide index built with "
+                + result.getAiringCount() + " airings in "
+                + (System.currentTimeMillis() - start) + " ms");
+        }
+
+        return (result);
+    }
+
     private synchronized ObjectContainer getObjectContainer() {
 
         if (objectContainer == null) {
@@ -931,6 +1043,7 @@ LogUtil.log(LogUtil.DEBUG, "8");
 
         if (objectContainer != null) {
 
+            guideIndex = null;
             boolean result = objectContainer.close();
             LogUtil.log(LogUtil.DEBUG, "SchedulesDirectProgramData: closed " + result);
             objectContainer = null;
@@ -16,10 +16,16 @@
 */
 package org.jflicks.tv.programdata.sd.json;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
@@ -28,12 +34,18 @@ import org.restlet.engine.header.Header;
 import org.restlet.engine.header.HeaderConstants;
 import org.restlet.util.Series;
 import org.restlet.data.ClientInfo;
+import org.restlet.data.Encoding;
 import org.restlet.data.Form;
+import org.restlet.data.Preference;
 import org.restlet.resource.ClientResource;
 import org.restlet.util.Series;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.reflect.TypeToken;
 
+import org.jflicks.util.LogUtil;
 import org.jflicks.util.Util;
 
 /**
@@ -44,6 +56,12 @@ import org.jflicks.util.Util;
  */
 public class Client {
 
+    /**
+     * Gson instances are thread safe so we share one instead of making one
+     * for every request.
+     */
+    private static final Gson GSON = new Gson();
+
     private String baseUri;
     private String apiVersion;
     private String token;
@@ -100,6 +118,12 @@ public class Client {
         headendObjects = array;
     }
 
+    private boolean isDumpJson() {
+
+        File sdjson = new File("sdjson.debug");
+        return ((sdjson.exists()) && (sdjson.isFile()));
+    }
+
     private void dumpJson(String s, String id) {
 
         if (s != null) {
@@ -185,7 +209,10 @@ public class Client {
                     headers = prev;
                 }
             }
-            headers.set("Accept-Encoding", "deflate"); 
+            headers.removeAll("Accept-Encoding");
+            List<Preference<Encoding>> list = cr.getClientInfo().getAcceptedEncodings();
+            list.add(new Preference<Encoding>(Encoding.GZIP));
+            list.add(new Preference<Encoding>(Encoding.DEFLATE));
         }
     }
 
@@ -276,7 +303,7 @@ public class Client {
             dumpHeader(cr);
             json = RestUtil.post(cr, json);
 
-            Gson gson = new Gson();
+            Gson gson = GSON;
             TokenResponse tr = gson.fromJson(json, TokenResponse.class);
             if (tr != null) {
 
@@ -301,7 +328,7 @@ public class Client {
         String json = RestUtil.get(cr);
         dumpJson(json, "doStatus");
 
-        Gson gson = new Gson();
+        Gson gson = GSON;
         Status status = gson.fromJson(json, Status.class);
         if (status != null) {
 
@@ -335,7 +362,7 @@ public class Client {
 
             String json = RestUtil.get(cr);
             dumpJson(json, "doHeadend");
-            Gson gson = new Gson();
+            Gson gson = GSON;
             HeadendObject[] heads = gson.fromJson(json, HeadendObject[].class);
             setHeadendObjects(heads);
             result = getHeadendObjects() != null;
@@ -413,7 +440,7 @@ public class Client {
                     String json = RestUtil.put(cr, null);
                     dumpJson(json, "doAddLineup");
 
-                    Gson gson = new Gson();
+                    Gson gson = GSON;
                     LineupResponse lr = gson.fromJson(json, LineupResponse.class);
                     if (lr != null) {
 
@@ -451,7 +478,7 @@ public class Client {
                     String json = RestUtil.delete(cr);
                     dumpJson(json, "doDeleteLineup");
 
-                    Gson gson = new Gson();
+                    Gson gson = GSON;
                     LineupResponse lr = gson.fromJson(json, LineupResponse.class);
                     if (lr != null) {
 
@@ -486,7 +513,7 @@ public class Client {
 
                 String json = RestUtil.get(cr);
                 dumpJson(json, "getUserLineup");
-                Gson gson = new Gson();
+                Gson gson = GSON;
                 result = gson.fromJson(json, UserLineup.class);
 
             } catch (Exception ex) {
@@ -525,7 +552,7 @@ public class Client {
                 json = json.replaceAll("\"URL\"", "\"url\"");
                 dumpJson(json, "getMapping2");
 
-                Gson gson = new Gson();
+                Gson gson = GSON;
                 result = gson.fromJson(json, Mapping.class);
             }
         }
@@ -550,7 +577,7 @@ public class Client {
                     putUserAgentInHeader(cr);
                     dumpHeader(cr);
 
-                    Gson gson = new Gson();
+                    Gson gson = GSON;
                     String rjson = gson.toJson(array);
                     dumpJson(rjson, "getGuide");
                     String json = RestUtil.post(cr, rjson);
@@ -584,7 +611,21 @@ public class Client {
 
         Program[] result = null;
 
-        if (array != null) {
+        if ((array != null) && (!isDumpJson())) {
+
+            final ArrayList<Program> list = new ArrayList<Program>();
+            int count = getPrograms(array, new ProgramHandler() {
+
+                public void handle(Program p) {
+                    list.add(p);
+                }
+            });
+
+            if (count >= 0) {
+                result = list.toArray(new Program[list.size()]);
+            }
+
+        } else if (array != null) {
 
             String tok = getToken();
             if (tok != null) {
@@ -598,7 +639,7 @@ public class Client {
                     putAcceptInHeader(cr);
                     dumpHeader(cr);
 
-                    Gson gson = new Gson();
+                    Gson gson = GSON;
                     String rjson = gson.toJson(array);
                     dumpJson(rjson, "getPrograms");
                     String json = RestUtil.post(cr, rjson);
@@ -629,6 +670,86 @@ public class Client {
         return (result);
     }
 
+    /**
+     * Fetch the given programs and hand each one to the handler as soon as
+     * it has been parsed.  The response is read as a stream so the whole
+     * body is never held in memory, and it is asked for gzip encoded.
+     * It is safe to call this from more than one thread at a time.
+     *
+     * @param array The program IDs to fetch.
+     * @param h The ProgramHandler that gets each Program.
+     * @return The number of programs handled or -1 on error.
+     */
+    public int getPrograms(String[] array, ProgramHandler h) {
+
+        int result = -1;
+
+        String tok = getToken();
+        if ((array != null) && (h != null) && (tok != null)) {
+
+            ClientResource cr = null;
+            JsonReader reader = null;
+
+            try {
+
+                String uri = getBaseUri() + "/" + getApiVersion() + "/programs";
+                cr = new ClientResource(uri);
+                putTokenInHeader(cr);
+                putUserAgentInHeader(cr);
+                putAcceptInHeader(cr);
+
+                InputStream is = RestUtil.postStream(cr, GSON.toJson(array));
+                if (is != null) {
+
+                    reader = new JsonReader(new BufferedReader(new InputStreamReader(is, "UTF-8")));
+                    if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+
+                        result = 0;
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+
+                            Program p = GSON.fromJson(reader, Program.class);
+                            if (p != null) {
+
+                                h.handle(p);
+                                result++;
+                            }
+                        }
+                        reader.endArray();
+
+                    } else {
+
+                        // Not a list of programs so most likely an error.
+                        JsonElement e = GSON.fromJson(reader, JsonElement.class);
+                        LogUtil.log(LogUtil.WARNING, "getPrograms: " + e);
+                    }
+                }
+
+            } catch (Exception ex) {
+
+                LogUtil.log(LogUtil.WARNING, "getPrograms: " + ex.getMessage());
+                result = -1;
+
+            } finally {
+
+                if (reader != null) {
+
+                    try {
+
+                        reader.close();
+
+                    } catch (IOException ex) {
+                    }
+                }
+                if (cr != null) {
+                    cr.release();
+                }
+            }
+        }
+
+        return (result);
+    }
+
     public void dump(String uri) {
 
         try {
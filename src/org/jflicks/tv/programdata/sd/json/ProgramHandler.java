@@ -0,0 +1,35 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.programdata.sd.json;
+
+/**
+ * Programs are handed to an implementation of this interface one at a
+ * time as they are parsed off the wire.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public interface ProgramHandler {
+
+    /**
+     * Called once for each parsed Program.  This may be called from more
+     * than one thread at a time.
+     *
+     * @param p A given Program.
+     */
+    void handle(Program p);
+}
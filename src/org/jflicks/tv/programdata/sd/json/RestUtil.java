@@ -16,8 +16,10 @@
 */
 package org.jflicks.tv.programdata.sd.json;
 
+import java.io.InputStream;
 import java.io.IOException;
 
+import org.restlet.engine.application.DecodeRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ClientResource;
 
@@ -112,7 +114,8 @@ public final class RestUtil {
 
             try {
 
-                Representation rep = cr.post(object);
+                // We may have asked for it gzip encoded.
+                Representation rep = decode(cr.post(object));
                 if (rep != null) {
 
                     result = rep.getText();
@@ -127,5 +130,47 @@ public final class RestUtil {
         return (result);
     }
 
-}
+    private static Representation decode(Representation rep) {
+
+        Representation result = rep;
+
+        if ((rep != null) && (!rep.getEncodings().isEmpty())) {
+            result = new DecodeRepresentation(rep);
+        }
+
+        return (result);
+    }
+
+    /**
+     * Post and return the response body as a stream instead of a String.
+     * If the server encoded the body (gzip or deflate) the stream will
+     * decode it.
+     *
+     * @param cr A given ClientResource.
+     * @param object The entity to post.
+     * @return An InputStream or null on error.
+     */
+    public static InputStream postStream(ClientResource cr, Object object) {
+
+        InputStream result = null;
+
+        if (cr != null) {
+
+            try {
 
+                Representation rep = decode(cr.post(object));
+                if (rep != null) {
+
+                    result = rep.getStream();
+                }
+
+            } catch (IOException ex) {
+
+                result = null;
+            }
+        }
+
+        return (result);
+    }
+
+}
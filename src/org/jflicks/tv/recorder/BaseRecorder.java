@@ -50,6 +50,7 @@ public abstract class BaseRecorder extends BaseConfig implements Recorder, Seria
     private boolean quickTunable;
     private boolean recordingLiveTV;
     private boolean preferred;
+    private int segmentCount;
     private Channel channel;
     private long startedAt;
     private long duration;
@@ -278,6 +279,31 @@ public abstract class BaseRecorder extends BaseConfig implements Recorder, Seria
         return (result);
     }
 
+    /**
+     * The segment length in seconds to use when making HLS for live TV
+     * in process.  When zero, live TV is segmented by ffmpeg like a
+     * normal HLS recording.
+     *
+     * @return A number of seconds.
+     */
+    public int getConfiguredLiveSegmentSeconds() {
+
+        int result = 0;
+
+        Configuration c = getConfiguration();
+        if (c != null) {
+
+            NameValue nv =
+                c.findNameValueByName(NMSConstants.LIVE_SEGMENT_SECONDS);
+            if (nv != null) {
+
+                result = Util.str2int(nv.getValue(), result);
+            }
+        }
+
+        return (result);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -565,6 +591,30 @@ public abstract class BaseRecorder extends BaseConfig implements Recorder, Seria
         firePropertyChange("RecordingLiveTV", old, recordingLiveTV);
     }
 
+    /**
+     * The number of HLS segments finished in the current recording.  Only
+     * recorders that segment in process keep this up to date.
+     *
+     * @return An int value.
+     */
+    public int getSegmentCount() {
+        return (segmentCount);
+    }
+
+    /**
+     * The number of HLS segments finished in the current recording.  A
+     * property change is fired so live TV knows when it can start.
+     *
+     * @param i An int value.
+     */
+    public void setSegmentCount(int i) {
+
+        int old = segmentCount;
+        segmentCount = i;
+        firePropertyChange(SEGMENT_COUNT_PROPERTY, Integer.valueOf(old),
+            Integer.valueOf(segmentCount));
+    }
+
     public boolean isPreferred() {
         return (preferred);
     }
@@ -16,29 +16,66 @@
 */
 package org.jflicks.tv.recorder;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import javax.swing.Timer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
-import org.jflicks.job.JobContainer;
 import org.jflicks.job.JobEvent;
-import org.jflicks.job.JobManager;
 import org.jflicks.util.LogUtil;
-import org.jflicks.util.Util;
 
 /**
- * A job that saves images to an NMS.
+ * A job that copies a device to a file.
+ *
+ * The device is read into a large direct buffer that is a multiple of a
+ * transport stream packet and written with a FileChannel so the data
+ * never has to be copied onto the java heap.  Small reads are coalesced
+ * into bigger writes unless the coalesce size is set to zero.  How often
+ * the data is forced to disk is set with the sync policy.
  *
  * @author Doug Barnum
  * @version 1.0
  */
 public class CopyJob extends RecoverJob {
 
+    /**
+     * Never force data to disk, leave it to the operating system.
+     */
+    public static final int SYNC_NONE = 0;
+
+    /**
+     * Force data to disk once the sync interval has passed.
+     */
+    public static final int SYNC_INTERVAL = 1;
+
+    /**
+     * Force data to disk only when the copy is closed.
+     */
+    public static final int SYNC_CLOSE = 2;
+
+    /**
+     * The default size of each read from the device.
+     */
+    public static final int DEFAULT_READ_SIZE = TS_PACKET_SIZE * 348;
+
+    /**
+     * The default size of the buffer used to coalesce writes.
+     */
+    public static final int DEFAULT_COALESCE_SIZE = TS_PACKET_SIZE * 2048;
+
+    private static final long DEFAULT_SYNC_INTERVAL = 5000L;
+
     private String dest;
     private FileOutputStream fileOutputStream;
+    private FileChannel outputChannel;
+    private ByteBuffer coalesceBuffer;
+    private int coalesceSize;
+    private int syncPolicy;
+    private long syncInterval;
+    private long lastSync;
+    private long bytesWritten;
+    private long writeCount;
 
     /**
      * Constructor with our two required arguments.
@@ -50,6 +87,11 @@ public class CopyJob extends RecoverJob {
 
         setDevice(source);
         setDest(dest);
+        setReadSize(DEFAULT_READ_SIZE);
+        setDirectBuffer(true);
+        setCoalesceSize(DEFAULT_COALESCE_SIZE);
+        setSyncPolicy(SYNC_NONE);
+        setSyncInterval(DEFAULT_SYNC_INTERVAL);
     }
 
     private String getDest() {
@@ -60,34 +102,183 @@ public class CopyJob extends RecoverJob {
         dest = s;
     }
 
-    private FileOutputStream getFileOutputStream() {
+    /**
+     * Reads smaller than this are collected until there is this much
+     * data to write.  It is rounded down to a whole number of transport
+     * stream packets.  A value of zero writes each read as it comes in.
+     *
+     * @return The coalesce size in bytes.
+     */
+    public int getCoalesceSize() {
+        return (coalesceSize);
+    }
+
+    /**
+     * Reads smaller than this are collected until there is this much
+     * data to write.  It is rounded down to a whole number of transport
+     * stream packets.  A value of zero writes each read as it comes in.
+     *
+     * @param i The coalesce size in bytes.
+     */
+    public void setCoalesceSize(int i) {
 
-        if (fileOutputStream == null) {
+        if (i > 0) {
+            coalesceSize = toPacketAligned(i);
+        } else {
+            coalesceSize = 0;
+        }
+    }
+
+    /**
+     * One of SYNC_NONE, SYNC_INTERVAL or SYNC_CLOSE.
+     *
+     * @return The sync policy as an int.
+     */
+    public int getSyncPolicy() {
+        return (syncPolicy);
+    }
+
+    /**
+     * One of SYNC_NONE, SYNC_INTERVAL or SYNC_CLOSE.
+     *
+     * @param i The sync policy as an int.
+     */
+    public void setSyncPolicy(int i) {
+        syncPolicy = i;
+    }
+
+    /**
+     * The time between forcing data to disk when the policy is
+     * SYNC_INTERVAL.
+     *
+     * @return The interval in milliseconds.
+     */
+    public long getSyncInterval() {
+        return (syncInterval);
+    }
+
+    /**
+     * The time between forcing data to disk when the policy is
+     * SYNC_INTERVAL.
+     *
+     * @param l The interval in milliseconds.
+     */
+    public void setSyncInterval(long l) {
+        syncInterval = l;
+    }
+
+    /**
+     * The number of bytes written to the destination so far.
+     *
+     * @return The number of bytes as a long.
+     */
+    public long getBytesWritten() {
+        return (bytesWritten);
+    }
+
+    /**
+     * The number of write calls made to the destination so far.
+     *
+     * @return The write count as a long.
+     */
+    public long getWriteCount() {
+        return (writeCount);
+    }
+
+    private FileChannel getOutputChannel() {
+
+        if (outputChannel == null) {
 
             try {
 
                 fileOutputStream = new FileOutputStream(getDest());
+                outputChannel = fileOutputStream.getChannel();
+                lastSync = System.currentTimeMillis();
 
             } catch (FileNotFoundException ex) {
 
                 fileOutputStream = null;
+                outputChannel = null;
             }
         }
 
-        return (fileOutputStream);
+        return (outputChannel);
+    }
+
+    private ByteBuffer getCoalesceBuffer() {
+
+        if ((coalesceBuffer == null) && (getCoalesceSize() > 0)) {
+
+            coalesceBuffer = ByteBuffer.allocateDirect(getCoalesceSize());
+        }
+
+        return (coalesceBuffer);
+    }
+
+    private void write(FileChannel fc, ByteBuffer bb) throws IOException {
+
+        while (bb.hasRemaining()) {
+
+            bytesWritten += fc.write(bb);
+            writeCount++;
+        }
+
+        if (getSyncPolicy() == SYNC_INTERVAL) {
+
+            long now = System.currentTimeMillis();
+            if ((now - lastSync) >= getSyncInterval()) {
+
+                fc.force(false);
+                lastSync = now;
+            }
+        }
+    }
+
+    private void flush(FileChannel fc) throws IOException {
+
+        ByteBuffer cb = coalesceBuffer;
+        if ((cb != null) && (cb.position() > 0)) {
+
+            cb.flip();
+            write(fc, cb);
+            cb.clear();
+        }
     }
 
     /**
      * {@inheritDoc}
      */
-    public void process(byte[] buffer, int length) {
+    public void process(ByteBuffer buffer) {
 
-        FileOutputStream fos = getFileOutputStream();
-        if (fos != null) {
+        FileChannel fc = getOutputChannel();
+        if (fc != null) {
 
             try {
 
-                fos.write(buffer, 0, length);
+                ByteBuffer cb = getCoalesceBuffer();
+                if (cb == null) {
+
+                    write(fc, buffer);
+
+                } else {
+
+                    if (buffer.remaining() > cb.remaining()) {
+                        flush(fc);
+                    }
+
+                    if (buffer.remaining() > cb.remaining()) {
+
+                        // Bigger than our whole buffer, just write it.
+                        write(fc, buffer);
+
+                    } else {
+
+                        cb.put(buffer);
+                        if (!cb.hasRemaining()) {
+                            flush(fc);
+                        }
+                    }
+                }
 
             } catch (IOException ex) {
 
@@ -96,23 +287,51 @@ public class CopyJob extends RecoverJob {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void process(byte[] buffer, int length) {
+
+        if ((buffer != null) && (length > 0)) {
+
+            process(ByteBuffer.wrap(buffer, 0, length));
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     public void close() {
 
+        if (outputChannel != null) {
+
+            try {
+
+                flush(outputChannel);
+                if (getSyncPolicy() != SYNC_NONE) {
+                    outputChannel.force(false);
+                }
+
+            } catch (IOException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "CopyJob: " + ex.getMessage());
+            }
+        }
+
         if (fileOutputStream != null) {
 
             try {
 
                 fileOutputStream.close();
-                fileOutputStream = null;
 
             } catch (IOException ex) {
 
-                fileOutputStream = null;
+                LogUtil.log(LogUtil.WARNING, "CopyJob: " + ex.getMessage());
             }
         }
+
+        fileOutputStream = null;
+        outputChannel = null;
     }
 
 }
@@ -0,0 +1,134 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A stress harness for the recorder write path.  A transport stream file
+ * is replayed through N CopyJob instances at once and the throughput and
+ * CPU time of each one is reported.
+ *
+ * Usage: CopyJobStress file.ts streams outputdir [legacy] [sync]
+ *
+ * The legacy argument runs with 1K heap reads and no coalescing like the
+ * recorder used to.  The sync argument forces data to disk every second.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class CopyJobStress {
+
+    private CopyJobStress() {
+    }
+
+    /**
+     * Simple main to run the harness.
+     *
+     * @param args The arguments as described above.
+     * @throws Exception on error.
+     */
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 3) {
+
+            System.out.println("Usage: CopyJobStress file.ts streams "
+                + "outputdir [legacy] [sync]");
+            System.exit(1);
+        }
+
+        String source = args[0];
+        int streams = Integer.parseInt(args[1]);
+        File dir = new File(args[2]);
+        boolean legacy = false;
+        boolean sync = false;
+        for (int i = 3; i < args.length; i++) {
+
+            if ("legacy".equals(args[i])) {
+                legacy = true;
+            } else if ("sync".equals(args[i])) {
+                sync = true;
+            }
+        }
+
+        final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        final CopyJob[] jobs = new CopyJob[streams];
+        final long[] cpu = new long[streams];
+        final long[] wall = new long[streams];
+        Thread[] threads = new Thread[streams];
+        for (int i = 0; i < streams; i++) {
+
+            File out = new File(dir, "stress-" + i + ".ts");
+            jobs[i] = new CopyJob(source, out.getPath());
+            jobs[i].setStopAtEnd(true);
+            if (legacy) {
+
+                jobs[i].setReadSize(1024);
+                jobs[i].setDirectBuffer(false);
+                jobs[i].setCoalesceSize(0);
+            }
+            if (sync) {
+
+                jobs[i].setSyncPolicy(CopyJob.SYNC_INTERVAL);
+                jobs[i].setSyncInterval(1000L);
+            }
+
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+
+                public void run() {
+
+                    long start = System.nanoTime();
+                    jobs[index].start();
+                    jobs[index].run();
+                    wall[index] = System.nanoTime() - start;
+                    cpu[index] = mx.getCurrentThreadCpuTime();
+                }
+            }, "stress-" + i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < streams; i++) {
+            threads[i].start();
+        }
+        for (int i = 0; i < streams; i++) {
+            threads[i].join();
+        }
+        long total = System.nanoTime() - start;
+
+        long bytes = 0L;
+        for (int i = 0; i < streams; i++) {
+
+            double secs = wall[i] / 1000000000.0;
+            double mb = jobs[i].getBytesWritten() / (1024.0 * 1024.0);
+            System.out.printf("stream %2d: %8.1f MB %8.1f MB/s %8d writes"
+                + " %8.1f ms cpu (%.1f%%)%n", i, mb, mb / secs,
+                jobs[i].getWriteCount(), cpu[i] / 1000000.0,
+                (100.0 * cpu[i]) / wall[i]);
+            bytes += jobs[i].getBytesWritten();
+            new File(dir, "stress-" + i + ".ts").delete();
+        }
+
+        double secs = total / 1000000000.0;
+        System.out.printf("total: %.1f MB/s over %d streams in %.2f s%n",
+            (bytes / (1024.0 * 1024.0)) / secs, streams, secs);
+        System.exit(0);
+    }
+
+}
@@ -37,6 +37,12 @@ public interface Recorder extends Config {
      */
     String TITLE_PROPERTY = "Recorder-Title";
 
+    /**
+     * Recorders that make HLS in process fire a property change with this
+     * name and the number of finished segments as each one is written.
+     */
+    String SEGMENT_COUNT_PROPERTY = "SegmentCount";
+
     /**
      * The title of this record service.
      *
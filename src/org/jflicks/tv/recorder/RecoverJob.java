@@ -45,13 +45,23 @@ import org.jflicks.util.LogUtil;
 public abstract class RecoverJob extends BaseDeviceJob implements
     ActionListener {
 
+    /**
+     * The size of an MPEG transport stream packet.
+     */
+    public static final int TS_PACKET_SIZE = 188;
+
     private static final int MAX_BLOCK_COUNT = 40;
     private static final int TIMER_MILLIS = 10000;
+    private static final int DEFAULT_READ_SIZE = 1024;
 
     private FileInputStream fileInputStream;
     private FileChannel fileChannel;
     private long currentRead;
     private long lastRead;
+    private int readSize;
+    private boolean directBuffer;
+    private boolean stopAtEnd;
+    private byte[] scratch;
 
     /**
      * Extensions need to do something with the data we have read.
@@ -61,6 +71,32 @@ public abstract class RecoverJob extends BaseDeviceJob implements
      */
     public abstract void process(byte[] buffer, int length);
 
+    /**
+     * Extensions can override this to use the read data without it
+     * being copied to a byte array first.  The buffer is ready to be
+     * read from, it's position is zero and it's limit is the number of
+     * bytes read.  The buffer is reused on the next read so it should
+     * not be kept.  By default the data is handed to process(byte[], int).
+     *
+     * @param buffer A ByteBuffer holding the data read.
+     */
+    public void process(ByteBuffer buffer) {
+
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+
+            process(buffer.array(), length);
+
+        } else {
+
+            if ((scratch == null) || (scratch.length < length)) {
+                scratch = new byte[length];
+            }
+            buffer.get(scratch, 0, length);
+            process(scratch, length);
+        }
+    }
+
     /**
      * Close any resources that we opened so data could have been processed.
      */
@@ -72,6 +108,79 @@ public abstract class RecoverJob extends BaseDeviceJob implements
      * Simple no argument constructor.
      */
     public RecoverJob() {
+
+        setReadSize(DEFAULT_READ_SIZE);
+    }
+
+    /**
+     * The most number of bytes asked for on each read of the device.
+     *
+     * @return The read size in bytes.
+     */
+    public int getReadSize() {
+        return (readSize);
+    }
+
+    /**
+     * The most number of bytes asked for on each read of the device.
+     *
+     * @param i The read size in bytes.
+     */
+    public void setReadSize(int i) {
+        readSize = Math.max(TS_PACKET_SIZE, i);
+    }
+
+    /**
+     * When true the read buffer is a direct buffer so the data does not
+     * have to go through the java heap.  Extensions that override
+     * process(ByteBuffer) should set this.
+     *
+     * @return True if a direct buffer is used.
+     */
+    public boolean isDirectBuffer() {
+        return (directBuffer);
+    }
+
+    /**
+     * When true the read buffer is a direct buffer so the data does not
+     * have to go through the java heap.  Extensions that override
+     * process(ByteBuffer) should set this.
+     *
+     * @param b True if a direct buffer is used.
+     */
+    public void setDirectBuffer(boolean b) {
+        directBuffer = b;
+    }
+
+    /**
+     * A device never really ends, but when reading a plain file we want
+     * to quit when we run out of data.
+     *
+     * @return True if the job ends at the end of the data.
+     */
+    public boolean isStopAtEnd() {
+        return (stopAtEnd);
+    }
+
+    /**
+     * A device never really ends, but when reading a plain file we want
+     * to quit when we run out of data.
+     *
+     * @param b True if the job ends at the end of the data.
+     */
+    public void setStopAtEnd(boolean b) {
+        stopAtEnd = b;
+    }
+
+    /**
+     * Round the given size down to a whole number of transport stream
+     * packets.
+     *
+     * @param size A size in bytes.
+     * @return A multiple of TS_PACKET_SIZE, at least one packet.
+     */
+    public static int toPacketAligned(int size) {
+        return (Math.max(1, size / TS_PACKET_SIZE) * TS_PACKET_SIZE);
     }
 
     private int getBlockCount() {
@@ -200,8 +309,12 @@ public abstract class RecoverJob extends BaseDeviceJob implements
     public void run() {
 
         Timer timer = null;
-        ByteBuffer bb = ByteBuffer.allocate(1024);
-        byte[] buffer = bb.array();
+        ByteBuffer bb = null;
+        if (isDirectBuffer()) {
+            bb = ByteBuffer.allocateDirect(getReadSize());
+        } else {
+            bb = ByteBuffer.allocate(getReadSize());
+        }
 
         try {
 
@@ -217,7 +330,7 @@ public abstract class RecoverJob extends BaseDeviceJob implements
 
                 try {
 
-                    bb.rewind();
+                    bb.clear();
                     currentRead = System.currentTimeMillis();
                     count = fileChannel.read(bb);
 
@@ -261,7 +374,12 @@ public abstract class RecoverJob extends BaseDeviceJob implements
 
                 if (count > 0) {
 
-                    process(buffer, count);
+                    bb.flip();
+                    process(bb);
+
+                } else if ((count < 0) && (isStopAtEnd())) {
+
+                    setTerminate(true);
                 }
             }
 
@@ -0,0 +1,39 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder;
+
+import java.io.File;
+
+/**
+ * Told each time a TsSegmenter finishes a segment and has added it to
+ * the playlist.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public interface SegmentListener {
+
+    /**
+     * A segment is complete and can be fetched by a client.
+     *
+     * @param playlist The m3u8 file that now lists the segment.
+     * @param segment The segment file.
+     * @param count The number of segments in the playlist.
+     * @param seconds The length of the segment in seconds.
+     */
+    void segmentAdded(File playlist, File segment, int count, double seconds);
+}
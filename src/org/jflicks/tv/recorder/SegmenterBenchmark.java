@@ -0,0 +1,212 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jflicks.job.JobContainer;
+import org.jflicks.job.JobManager;
+
+/**
+ * Measure the time from the first packet of a live stream to when the
+ * playlist has enough segments to start playing.  A transport stream is
+ * replayed over UDP at its real rate to a SegmenterJob, just like an HDHR
+ * streams to us, with one and two second live segments and with the ten
+ * second segments HlsJob asks ffmpeg for.
+ *
+ * Usage: SegmenterBenchmark [segments] [gop seconds] [speed] [file.ts]
+ *
+ * Without a file a stream is made up with one key frame per GOP.  The
+ * replay starts part way into a GOP like a tune does.  A speed above one
+ * replays faster, the times shown are scaled back to real time.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class SegmenterBenchmark {
+
+    private static final double FPS = SyntheticStream.FPS;
+    private static final int PACKETS_PER_DATAGRAM = 7;
+
+    private SegmenterBenchmark() {
+    }
+
+    private static byte[][] readStream(File f) throws IOException {
+
+        FileInputStream fis = new FileInputStream(f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[65536];
+        int count = 0;
+        while ((count = fis.read(buf)) != -1) {
+            out.write(buf, 0, count);
+        }
+        fis.close();
+
+        // Cut into pieces of about a frame at 8Mbps so it can be paced.
+        byte[] all = out.toByteArray();
+        int chunk = TsSegmenter.PACKET_SIZE * 177;
+        int n = (all.length + chunk - 1) / chunk;
+        byte[][] result = new byte[n][];
+        for (int i = 0; i < n; i++) {
+
+            result[i] = Arrays.copyOfRange(all, i * chunk,
+                Math.min(all.length, (i + 1) * chunk));
+        }
+
+        return (result);
+    }
+
+    private static long[] run(byte[][] stream, int start, int segments,
+        double target, double speed) throws Exception {
+
+        final long[] result = new long[] {-1L, -1L};
+        File dir = new File(System.getProperty("java.io.tmpdir"),
+            "segbench-" + System.nanoTime());
+        dir.mkdirs();
+
+        DatagramSocket probe = new DatagramSocket(0);
+        int port = probe.getLocalPort();
+        probe.close();
+
+        final CountDownLatch latch = new CountDownLatch(segments);
+        final long[] first = new long[] {0L};
+        SegmenterJob job = new SegmenterJob("udp://@127.0.0.1:" + port,
+            "bench", dir, 3600, target);
+        job.addSegmentListener(new SegmentListener() {
+
+            public void segmentAdded(File playlist, File segment, int count,
+                double seconds) {
+
+                long now = System.nanoTime();
+                if (count == 1) {
+                    result[0] = now - first[0];
+                }
+                if (latch.getCount() == 1) {
+                    result[1] = now - first[0];
+                }
+                latch.countDown();
+            }
+        });
+        JobContainer jc = JobManager.getJobContainer(job);
+        jc.start();
+
+        DatagramSocket ds = new DatagramSocket();
+        InetAddress local = InetAddress.getByName("127.0.0.1");
+        double frameNanos = 1000000000.0 / (FPS * speed);
+        first[0] = System.nanoTime();
+        int chunk = TsSegmenter.PACKET_SIZE * PACKETS_PER_DATAGRAM;
+        for (int i = start; (i < stream.length) && (latch.getCount() > 0);
+            i++) {
+
+            byte[] frame = stream[i];
+            for (int off = 0; off < frame.length; off += chunk) {
+
+                ds.send(new DatagramPacket(frame, off,
+                    Math.min(chunk, frame.length - off), local, port));
+            }
+
+            long due = first[0] + (long) ((i - start + 1) * frameNanos);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+            }
+        }
+        latch.await(5, TimeUnit.SECONDS);
+        ds.close();
+        jc.stop();
+        Thread.sleep(500);
+
+        File[] files = dir.listFiles();
+        if (files != null) {
+
+            for (int i = 0; i < files.length; i++) {
+                files[i].delete();
+            }
+        }
+        dir.delete();
+
+        return (result);
+    }
+
+    private static String ms(long nanos, double speed) {
+
+        String result = "never";
+        if (nanos >= 0L) {
+            result = String.format("%8.0f ms", nanos * speed / 1000000.0);
+        }
+
+        return (result);
+    }
+
+    /**
+     * Simple main to run the benchmark.
+     *
+     * @param args The arguments as described above.
+     * @throws Exception on error.
+     */
+    public static void main(String[] args) throws Exception {
+
+        int segments = 3;
+        double gop = 1.0;
+        double speed = 1.0;
+        if (args.length > 0) {
+            segments = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            gop = Double.parseDouble(args[1]);
+        }
+        if (args.length > 2) {
+            speed = Double.parseDouble(args[2]);
+        }
+
+        byte[][] stream = null;
+        int start = 0;
+        if (args.length > 3) {
+
+            stream = readStream(new File(args[3]));
+
+        } else {
+
+            stream = SyntheticStream.makeStream(segments * 10 + 30, gop);
+
+            // Tune in part way through a GOP.
+            start = (int) (gop * FPS * 0.6);
+        }
+
+        double[] targets = new double[] {1.0, 2.0, 10.0};
+        System.out.printf("time to %d segments, %.1f s GOP%n", segments, gop);
+        for (int i = 0; i < targets.length; i++) {
+
+            long[] times = run(stream, start, segments, targets[i], speed);
+            System.out.printf("%4.0f s segments: first segment %s, playable"
+                + " %s%n", targets[i], ms(times[0], speed),
+                ms(times[1], speed));
+        }
+
+        System.exit(0);
+    }
+
+}
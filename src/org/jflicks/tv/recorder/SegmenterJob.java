@@ -0,0 +1,263 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketTimeoutException;
+
+import org.jflicks.job.AbstractJob;
+import org.jflicks.job.JobEvent;
+import org.jflicks.util.LogUtil;
+
+/**
+ * Make HLS from a transport stream in process using a TsSegmenter.  This
+ * does what HlsJob does with ffmpeg when the video and audio are to be
+ * copied, but with short segments and a callback for each one so live
+ * TV can start as soon as there is something to play.
+ *
+ * The input can be a UDP URL like "udp://@host:port", which is what an
+ * HDHR streams to, or a path to a transport stream file.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class SegmenterJob extends AbstractJob {
+
+    private static final int DATAGRAM_SIZE = 65536;
+    private static final int RECEIVE_BUFFER = 4 * 1024 * 1024;
+
+    private TsSegmenter tsSegmenter;
+    private String input;
+    private long duration;
+    private DatagramSocket datagramSocket;
+
+    /**
+     * Simple constructor.
+     *
+     * @param input An input String.
+     * @param output An output String used as a file prefix.
+     * @param directory A given File.
+     * @param duration A given time in seconds.
+     * @param seconds The segment length to aim for in seconds.
+     */
+    public SegmenterJob(String input, String output, File directory,
+        long duration, double seconds) {
+
+        this.input = input;
+        this.duration = duration;
+        tsSegmenter = new TsSegmenter(directory, output, seconds);
+    }
+
+    /**
+     * The input String as a URL or path.
+     *
+     * @return The input String.
+     */
+    public String getInput() {
+        return (input);
+    }
+
+    /**
+     * The time in seconds to record.
+     *
+     * @return The time in seconds.
+     */
+    public long getDuration() {
+        return (duration);
+    }
+
+    /**
+     * The TsSegmenter doing the work.
+     *
+     * @return A TsSegmenter instance.
+     */
+    public TsSegmenter getTsSegmenter() {
+        return (tsSegmenter);
+    }
+
+    /**
+     * Add a listener to be told about each finished segment.
+     *
+     * @param l A given SegmentListener.
+     */
+    public void addSegmentListener(SegmentListener l) {
+        tsSegmenter.addSegmentListener(l);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param l A given SegmentListener.
+     */
+    public void removeSegmentListener(SegmentListener l) {
+        tsSegmenter.removeSegmentListener(l);
+    }
+
+    private int getUdpPort() {
+
+        int result = -1;
+
+        if ((input != null) && (input.startsWith("udp://"))) {
+
+            String tmp = input.substring(input.lastIndexOf(":") + 1);
+            if (tmp.indexOf("?") != -1) {
+                tmp = tmp.substring(0, tmp.indexOf("?"));
+            }
+
+            try {
+
+                result = Integer.parseInt(tmp);
+
+            } catch (NumberFormatException ex) {
+
+                result = -1;
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void start() {
+
+        setTerminate(false);
+
+        // Bind now so no packets are lost if the stream starts before
+        // run gets going.
+        int port = getUdpPort();
+        if (port > 0) {
+
+            try {
+
+                DatagramSocket ds = new DatagramSocket(port);
+                ds.setReceiveBufferSize(RECEIVE_BUFFER);
+                ds.setSoTimeout(250);
+                datagramSocket = ds;
+
+            } catch (IOException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "SegmenterJob: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void run() {
+
+        long l = getDuration();
+        if (l <= 0) {
+
+            // Same as HlsJob, record something for a minute.
+            l = 60;
+        }
+        long end = System.currentTimeMillis() + l * 1000;
+
+        try {
+
+            if (datagramSocket != null) {
+
+                receive(end);
+
+            } else if (input != null) {
+
+                read(end);
+            }
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.WARNING, "SegmenterJob: " + ex.getMessage());
+
+        } finally {
+
+            if (datagramSocket != null) {
+
+                datagramSocket.close();
+                datagramSocket = null;
+            }
+
+            try {
+
+                tsSegmenter.close();
+
+            } catch (IOException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "SegmenterJob: " + ex.getMessage());
+            }
+        }
+
+        fireJobEvent(JobEvent.COMPLETE);
+    }
+
+    private void receive(long end) throws IOException {
+
+        byte[] buf = new byte[DATAGRAM_SIZE];
+        DatagramPacket dp = new DatagramPacket(buf, buf.length);
+        while ((!isTerminate()) && (System.currentTimeMillis() < end)) {
+
+            try {
+
+                dp.setLength(buf.length);
+                datagramSocket.receive(dp);
+                tsSegmenter.write(buf, dp.getOffset(), dp.getLength());
+
+            } catch (SocketTimeoutException ex) {
+
+                // Just a chance to check if we are done.
+            }
+        }
+    }
+
+    private void read(long end) throws IOException {
+
+        FileInputStream fis = null;
+
+        try {
+
+            fis = new FileInputStream(input);
+            byte[] buf = new byte[TsSegmenter.PACKET_SIZE * 1024];
+            int count = 0;
+            while ((!isTerminate()) && (System.currentTimeMillis() < end)
+                && ((count = fis.read(buf)) != -1)) {
+
+                tsSegmenter.write(buf, 0, count);
+            }
+
+        } finally {
+
+            if (fis != null) {
+                fis.close();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void stop() {
+
+        setTerminate(true);
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Make up a transport stream with one video and one audio program, so the
+ * live and recording code can be measured without a tuner.  The PAT and
+ * PMT come every third frame and the video has a key frame at the start
+ * of each GOP, which is what TsSegmenter looks for.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class SyntheticStream {
+
+    /**
+     * The frames per second of the stream.
+     */
+    public static final double FPS = 29.97;
+
+    private static final int VIDEO_PID = 0x100;
+    private static final int AUDIO_PID = 0x101;
+    private static final int PMT_PID = 0x1000;
+
+    private SyntheticStream() {
+    }
+
+    private static int crc32(byte[] b, int off, int len) {
+
+        int crc = 0xffffffff;
+        for (int i = off; i < off + len; i++) {
+
+            crc ^= (b[i] & 0xff) << 24;
+            for (int j = 0; j < 8; j++) {
+
+                crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04c11db7
+                    : crc << 1;
+            }
+        }
+
+        return (crc);
+    }
+
+    private static byte[] section(int pid, byte[] body) {
+
+        byte[] result = new byte[TsSegmenter.PACKET_SIZE];
+        Arrays.fill(result, (byte) 0xff);
+        result[0] = 0x47;
+        result[1] = (byte) (0x40 | (pid >> 8));
+        result[2] = (byte) pid;
+        result[3] = 0x10;
+        result[4] = 0x00;
+        System.arraycopy(body, 0, result, 5, body.length);
+        int crc = crc32(result, 5, body.length);
+        int p = 5 + body.length;
+        result[p] = (byte) (crc >> 24);
+        result[p + 1] = (byte) (crc >> 16);
+        result[p + 2] = (byte) (crc >> 8);
+        result[p + 3] = (byte) crc;
+
+        return (result);
+    }
+
+    private static byte[] pat() {
+
+        return (section(0, new byte[] {
+            0x00, (byte) 0xb0, 0x0d, 0x00, 0x01, (byte) 0xc1, 0x00, 0x00,
+            0x00, 0x01, (byte) (0xe0 | (PMT_PID >> 8)), (byte) PMT_PID
+        }));
+    }
+
+    private static byte[] pmt() {
+
+        return (section(PMT_PID, new byte[] {
+            0x02, (byte) 0xb0, 0x17, 0x00, 0x01, (byte) 0xc1, 0x00, 0x00,
+            (byte) (0xe0 | (VIDEO_PID >> 8)), (byte) VIDEO_PID, (byte) 0xf0,
+            0x00,
+            0x1b, (byte) (0xe0 | (VIDEO_PID >> 8)), (byte) VIDEO_PID,
+            (byte) 0xf0, 0x00,
+            (byte) 0x81, (byte) (0xe0 | (AUDIO_PID >> 8)), (byte) AUDIO_PID,
+            (byte) 0xf0, 0x00
+        }));
+    }
+
+    private static void pes(ByteArrayOutputStream out, int pid, long pts,
+        boolean key, int size, int[] cc) {
+
+        byte[] header = new byte[] {
+            0x00, 0x00, 0x01, (byte) (pid == VIDEO_PID ? 0xe0 : 0xbd),
+            0x00, 0x00, (byte) 0x80, (byte) 0x80, 0x05,
+            (byte) (0x21 | ((pts >> 29) & 0x0e)), (byte) (pts >> 22),
+            (byte) (0x01 | ((pts >> 14) & 0xfe)), (byte) (pts >> 7),
+            (byte) (0x01 | ((pts << 1) & 0xfe)),
+            0x00, 0x00, 0x00, 0x01, 0x09, (byte) 0xf0,
+            0x00, 0x00, 0x01, (byte) (key ? 0x67 : 0x41)
+        };
+
+        int left = size;
+        boolean first = true;
+        while (left > 0) {
+
+            byte[] p = new byte[TsSegmenter.PACKET_SIZE];
+            Arrays.fill(p, (byte) 0xff);
+            p[0] = 0x47;
+            p[1] = (byte) ((first ? 0x40 : 0x00) | (pid >> 8));
+            p[2] = (byte) pid;
+            int at = 4;
+            if ((first) && (key)) {
+
+                p[3] = (byte) (0x30 | cc[0]);
+                p[4] = 0x01;
+                p[5] = 0x40;
+                at = 6;
+
+            } else {
+
+                p[3] = (byte) (0x10 | cc[0]);
+            }
+            cc[0] = (cc[0] + 1) & 0x0f;
+
+            if (first) {
+
+                System.arraycopy(header, 0, p, at, header.length);
+                at += header.length;
+                first = false;
+            }
+            int n = Math.min(left, TsSegmenter.PACKET_SIZE - at);
+            left -= n;
+            out.write(p, 0, p.length);
+        }
+    }
+
+    /**
+     * Make up a stream of the given length with one key frame per GOP.
+     *
+     * @param seconds The length of the stream in seconds.
+     * @param gop The seconds between key frames.
+     * @return The TS packets for each frame.
+     */
+    public static byte[][] makeStream(double seconds, double gop) {
+
+        int frames = (int) (seconds * FPS);
+        int gopFrames = Math.max(1, (int) Math.round(gop * FPS));
+        byte[][] result = new byte[frames][];
+        byte[] pat = pat();
+        byte[] pmt = pmt();
+        int[] vcc = new int[1];
+        int[] acc = new int[1];
+        for (int i = 0; i < frames; i++) {
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (i % 3 == 0) {
+
+                out.write(pat, 0, pat.length);
+                out.write(pmt, 0, pmt.length);
+            }
+
+            long pts = 90000L + (long) (i * 90000 / FPS);
+            boolean key = (i % gopFrames) == 0;
+            pes(out, VIDEO_PID, pts, key, key ? 80000 : 20000, vcc);
+            pes(out, AUDIO_PID, pts, false, 768, acc);
+            result[i] = out.toByteArray();
+        }
+
+        return (result);
+    }
+    /**
+     * Make up a stream and put all of its frames together.
+     *
+     * @param seconds The length of the stream in seconds.
+     * @param gop The seconds between key frames.
+     * @return The TS packets one after another.
+     */
+    public static byte[] make(double seconds, double gop) {
+
+        byte[][] frames = makeStream(seconds, gop);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames.length; i++) {
+            out.write(frames[i], 0, frames[i].length);
+        }
+
+        return (out.toByteArray());
+    }
+
+}
@@ -0,0 +1,470 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Cut an MPEG-TS stream into HLS segments without running ffmpeg.  The
+ * stream is copied as is, nothing is transcoded.  A new segment is
+ * started at the first video key frame after the target length, and
+ * each segment begins with the most recent PAT and PMT so it can be
+ * decoded on its own.  The m3u8 file is appended to as each segment is
+ * finished so it never lists a segment that is not complete.
+ *
+ * Segments are named prefix.000000.ts, prefix.000001.ts and so on with
+ * the playlist as prefix.m3u8, the same as the ffmpeg segment muxer
+ * used by HlsJob.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class TsSegmenter {
+
+    /**
+     * The size of a transport stream packet.
+     */
+    public static final int PACKET_SIZE = 188;
+
+    private static final int SYNC = 0x47;
+    private static final long PTS_MASK = (1L << 33) - 1;
+    private static final double CLOCK = 90000.0;
+
+    private File directory;
+    private String prefix;
+    private double targetSeconds;
+    private double maximumSeconds;
+    private ArrayList<SegmentListener> segmentListenerList;
+
+    private byte[] carry;
+    private int carryLength;
+    private byte[] patPacket;
+    private byte[] pmtPacket;
+    private int pmtPid;
+    private int videoPid;
+    private int videoType;
+    private int timePid;
+
+    private OutputStream segmentOutputStream;
+    private File segmentFile;
+    private long segmentStart;
+    private long lastPts;
+    private int index;
+    private FileOutputStream playlistOutputStream;
+    private File playlist;
+
+    /**
+     * Create a segmenter writing to the given directory.
+     *
+     * @param directory The directory for the playlist and segments.
+     * @param prefix The file name prefix.
+     * @param targetSeconds The shortest segment wanted in seconds.
+     */
+    public TsSegmenter(File directory, String prefix, double targetSeconds) {
+
+        this.directory = directory;
+        this.prefix = prefix;
+        this.targetSeconds = Math.max(0.1, targetSeconds);
+
+        // If we can't find key frames we still need to cut somewhere.
+        maximumSeconds = Math.max(this.targetSeconds * 4.0, 4.0);
+        segmentListenerList = new ArrayList<SegmentListener>();
+        carry = new byte[PACKET_SIZE];
+        pmtPid = -1;
+        videoPid = -1;
+        timePid = -1;
+        lastPts = -1L;
+        playlist = new File(directory, prefix + ".m3u8");
+    }
+
+    /**
+     * The m3u8 file.
+     *
+     * @return A File instance.
+     */
+    public File getPlaylist() {
+        return (playlist);
+    }
+
+    /**
+     * The number of segments in the playlist.
+     *
+     * @return An int value.
+     */
+    public int getSegmentCount() {
+        return (index);
+    }
+
+    /**
+     * The shortest segment wanted in seconds.
+     *
+     * @return A double value.
+     */
+    public double getTargetSeconds() {
+        return (targetSeconds);
+    }
+
+    /**
+     * Add a listener to be told about each finished segment.
+     *
+     * @param l A given SegmentListener.
+     */
+    public void addSegmentListener(SegmentListener l) {
+        segmentListenerList.add(l);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param l A given SegmentListener.
+     */
+    public void removeSegmentListener(SegmentListener l) {
+        segmentListenerList.remove(l);
+    }
+
+    /**
+     * Feed stream data.  The data does not have to be packet aligned.
+     *
+     * @param b The data.
+     * @param off The offset of the data.
+     * @param len The number of bytes.
+     * @throws IOException on a write error.
+     */
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        while (len > 0) {
+
+            if (carryLength > 0) {
+
+                int n = Math.min(PACKET_SIZE - carryLength, len);
+                System.arraycopy(b, off, carry, carryLength, n);
+                carryLength += n;
+                off += n;
+                len -= n;
+                if (carryLength == PACKET_SIZE) {
+
+                    carryLength = 0;
+                    packet(carry, 0);
+                }
+
+            } else if ((b[off] & 0xff) != SYNC) {
+
+                // Lost sync, skip ahead to the next sync byte.
+                off++;
+                len--;
+
+            } else if (len >= PACKET_SIZE) {
+
+                packet(b, off);
+                off += PACKET_SIZE;
+                len -= PACKET_SIZE;
+
+            } else {
+
+                System.arraycopy(b, off, carry, 0, len);
+                carryLength = len;
+                len = 0;
+            }
+        }
+    }
+
+    /**
+     * Finish the current segment and mark the playlist as complete.
+     *
+     * @throws IOException on a write error.
+     */
+    public void close() throws IOException {
+
+        try {
+
+            if (segmentOutputStream != null) {
+
+                // We don't know how long the last frame is so this one is
+                // a little short.
+                finishSegment(lastPts);
+            }
+
+            if (playlistOutputStream != null) {
+                playlistOutputStream.write(bytes("#EXT-X-ENDLIST\n"));
+            }
+
+        } finally {
+
+            if (playlistOutputStream != null) {
+
+                playlistOutputStream.close();
+                playlistOutputStream = null;
+            }
+        }
+    }
+
+    private void packet(byte[] b, int off) throws IOException {
+
+        int pid = ((b[off + 1] & 0x1f) << 8) | (b[off + 2] & 0xff);
+        boolean pusi = (b[off + 1] & 0x40) != 0;
+        int afc = (b[off + 3] >> 4) & 0x03;
+        int end = off + PACKET_SIZE;
+        int payload = off + 4;
+        boolean rai = false;
+        if ((afc & 0x02) != 0) {
+
+            int alen = b[off + 4] & 0xff;
+            rai = (alen > 0) && ((b[off + 5] & 0x40) != 0);
+            payload += 1 + alen;
+        }
+        boolean hasPayload = ((afc & 0x01) != 0) && (payload < end);
+
+        if ((pusi) && (hasPayload)) {
+
+            if (pid == 0) {
+
+                parsePat(b, payload, end);
+                patPacket = copy(b, off, patPacket);
+
+            } else if (pid == pmtPid) {
+
+                parsePmt(b, payload, end);
+                pmtPacket = copy(b, off, pmtPacket);
+
+            } else if (pid == timePid) {
+
+                long pts = parsePts(b, payload, end);
+                if (pts >= 0L) {
+
+                    boolean key = (pid != videoPid) || (rai)
+                        || (isKeyFrame(b, payload, end));
+                    if (segmentOutputStream == null) {
+
+                        if ((key) && (patPacket != null)
+                            && (pmtPacket != null)) {
+                            startSegment(pts);
+                        }
+
+                    } else {
+
+                        double elapsed = seconds(segmentStart, pts);
+                        if (((key) && (elapsed >= targetSeconds))
+                            || (elapsed >= maximumSeconds)) {
+
+                            finishSegment(pts);
+                            startSegment(pts);
+                        }
+                    }
+                    lastPts = pts;
+                }
+            }
+        }
+
+        if (segmentOutputStream != null) {
+            segmentOutputStream.write(b, off, PACKET_SIZE);
+        }
+    }
+
+    private void startSegment(long pts) throws IOException {
+
+        String name = prefix + "." + String.format("%06d", index) + ".ts";
+        segmentFile = new File(directory, name);
+        segmentOutputStream = new BufferedOutputStream(
+            new FileOutputStream(segmentFile), 64 * 1024);
+        segmentOutputStream.write(patPacket);
+        segmentOutputStream.write(pmtPacket);
+        segmentStart = pts;
+    }
+
+    private void finishSegment(long pts) throws IOException {
+
+        segmentOutputStream.close();
+        segmentOutputStream = null;
+
+        double secs = seconds(segmentStart, pts);
+        StringBuilder sb = new StringBuilder();
+        if (playlistOutputStream == null) {
+
+            playlistOutputStream = new FileOutputStream(playlist);
+            sb.append("#EXTM3U\n");
+            sb.append("#EXT-X-VERSION:3\n");
+            sb.append("#EXT-X-PLAYLIST-TYPE:EVENT\n");
+            sb.append("#EXT-X-TARGETDURATION:");
+            sb.append((int) Math.ceil(maximumSeconds));
+            sb.append("\n#EXT-X-MEDIA-SEQUENCE:0\n");
+        }
+        sb.append(String.format(Locale.US, "#EXTINF:%.3f,\n", secs));
+        sb.append(segmentFile.getName());
+        sb.append("\n");
+
+        // One write so a reader never sees half an entry.
+        playlistOutputStream.write(bytes(sb.toString()));
+        index++;
+
+        for (int i = 0; i < segmentListenerList.size(); i++) {
+
+            segmentListenerList.get(i).segmentAdded(playlist, segmentFile,
+                index, secs);
+        }
+    }
+
+    private void parsePat(byte[] b, int p, int end) {
+
+        p += 1 + (b[p] & 0xff);
+        if ((p + 8 <= end) && (b[p] == 0x00)) {
+
+            int length = ((b[p + 1] & 0x0f) << 8) | (b[p + 2] & 0xff);
+            int last = Math.min(end, p + 3 + length - 4);
+            for (int i = p + 8; i + 4 <= last; i += 4) {
+
+                int program = ((b[i] & 0xff) << 8) | (b[i + 1] & 0xff);
+                if (program != 0) {
+
+                    pmtPid = ((b[i + 2] & 0x1f) << 8) | (b[i + 3] & 0xff);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void parsePmt(byte[] b, int p, int end) {
+
+        p += 1 + (b[p] & 0xff);
+        if ((p + 12 <= end) && (b[p] == 0x02)) {
+
+            int length = ((b[p + 1] & 0x0f) << 8) | (b[p + 2] & 0xff);
+            int info = ((b[p + 10] & 0x0f) << 8) | (b[p + 11] & 0xff);
+            int last = Math.min(end, p + 3 + length - 4);
+            int video = -1;
+            int vtype = -1;
+            int first = -1;
+            for (int i = p + 12 + info; i + 5 <= last;) {
+
+                int type = b[i] & 0xff;
+                int pid = ((b[i + 1] & 0x1f) << 8) | (b[i + 2] & 0xff);
+                if ((video == -1) && (isVideo(type))) {
+
+                    video = pid;
+                    vtype = type;
+                }
+                if (first == -1) {
+                    first = pid;
+                }
+                i += 5 + (((b[i + 3] & 0x0f) << 8) | (b[i + 4] & 0xff));
+            }
+
+            videoPid = video;
+            videoType = vtype;
+            timePid = (video != -1) ? video : first;
+        }
+    }
+
+    private static boolean isVideo(int type) {
+
+        return ((type == 0x01) || (type == 0x02) || (type == 0x10)
+            || (type == 0x1b) || (type == 0x24));
+    }
+
+    private static long parsePts(byte[] b, int p, int end) {
+
+        long result = -1L;
+
+        if ((p + 14 <= end) && (b[p] == 0x00) && (b[p + 1] == 0x00)
+            && (b[p + 2] == 0x01) && ((b[p + 7] & 0x80) != 0)) {
+
+            result = (((long) (b[p + 9] >> 1) & 0x07) << 30)
+                | ((long) (b[p + 10] & 0xff) << 22)
+                | ((long) ((b[p + 11] >> 1) & 0x7f) << 15)
+                | ((long) (b[p + 12] & 0xff) << 7)
+                | ((long) (b[p + 13] >> 1) & 0x7f);
+        }
+
+        return (result);
+    }
+
+    private boolean isKeyFrame(byte[] b, int p, int end) {
+
+        boolean result = false;
+
+        // Look at what fits in the first packet of the PES.  A sequence
+        // header or SPS comes first when there is a key frame.
+        if (p + 9 <= end) {
+
+            int i = p + 9 + (b[p + 8] & 0xff);
+            for (; i + 3 < end; i++) {
+
+                if ((b[i] == 0x00) && (b[i + 1] == 0x00) && (b[i + 2] == 0x01)) {
+
+                    int code = b[i + 3] & 0xff;
+                    if ((videoType == 0x01) || (videoType == 0x02)) {
+
+                        result = code == 0xb3;
+
+                    } else if (videoType == 0x1b) {
+
+                        int nal = code & 0x1f;
+                        result = (nal == 5) || (nal == 7);
+
+                    } else if (videoType == 0x24) {
+
+                        int nal = (code >> 1) & 0x3f;
+                        result = ((nal >= 16) && (nal <= 21)) || (nal == 32);
+                    }
+
+                    if (result) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    private static double seconds(long from, long to) {
+        return (((to - from) & PTS_MASK) / CLOCK);
+    }
+
+    private static byte[] copy(byte[] b, int off, byte[] dest) {
+
+        if (dest == null) {
+            dest = new byte[PACKET_SIZE];
+        }
+        System.arraycopy(b, off, dest, 0, PACKET_SIZE);
+
+        return (dest);
+    }
+
+    private static byte[] bytes(String s) {
+
+        byte[] result = null;
+
+        try {
+
+            result = s.getBytes("US-ASCII");
+
+        } catch (UnsupportedEncodingException ex) {
+
+            result = s.getBytes();
+        }
+
+        return (result);
+    }
+
+}
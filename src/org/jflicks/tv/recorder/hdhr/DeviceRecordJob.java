@@ -0,0 +1,391 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder.hdhr;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.jflicks.job.AbstractJob;
+import org.jflicks.job.JobEvent;
+import org.jflicks.job.JobManager;
+import org.jflicks.tv.recorder.CopyJob;
+import org.jflicks.util.LogUtil;
+
+import com.silicondust.libhdhomerun.HDHomerun_Device;
+import com.silicondust.libhdhomerun.HDHomerun_Sock;
+import com.silicondust.libhdhomerun.HDHomerun_Types.hdhomerun_tuner_status_t;
+import com.silicondust.libhdhomerun.HDHomerun_Video;
+import com.silicondust.libhdhomerun.HDHomerun_Video.hdhomerun_video_stats_t;
+
+/**
+ * Record from an HDHR without running hdhomerun_config.  The channel and
+ * program are set over the control protocol and the stream is received
+ * right here, so the steps that used to each start a process and sleep
+ * until it was done now take as long as the HDHR needs.
+ *
+ * The time from starting to tune until the first packet arrives is
+ * measured for each recording and handed to the HDHRRecorder.  When the
+ * IP address of the HDHR is known we go right to it, otherwise it is
+ * found by its ID with a discover broadcast.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class DeviceRecordJob extends AbstractJob {
+
+    private static final long STREAMINFO_WAIT = 2000L;
+    private static final long STREAMINFO_SLEEP = 100L;
+    private static final long RECV_SLEEP = 20L;
+
+    private HDHRRecorder hdhrRecorder;
+    private String id;
+    private int tuner;
+    private String channel;
+    private String program;
+    private File file;
+    private long duration;
+    private long tuneTime;
+    private String ipAddress;
+    private VideoStats videoStats;
+    private long bytesWritten;
+
+    /**
+     * Constructor with our required arguments.
+     *
+     * @param r The HDHRRecorder to tell our tune time.
+     * @param id The ID of the HDHR.
+     * @param tuner The tuner number.
+     * @param channel The channel to set, from FrequencyJob.toChannel.
+     * @param program The digital channel name to find in the streaminfo.
+     */
+    public DeviceRecordJob(HDHRRecorder r, String id, int tuner,
+        String channel, String program) {
+
+        hdhrRecorder = r;
+        this.id = id;
+        this.tuner = tuner;
+        this.channel = channel;
+        this.program = program;
+        setTuneTime(-1L);
+    }
+
+    /**
+     * The time in seconds to record from a HDHR.
+     *
+     * @return The time in seconds.
+     */
+    public long getDuration() {
+        return (duration);
+    }
+
+    /**
+     * The time in seconds to record from a HDHR.
+     *
+     * @param l The time in seconds.
+     */
+    public void setDuration(long l) {
+        duration = l;
+    }
+
+    /**
+     * The stream from the HDHR needs a File as a destination.
+     *
+     * @return The File instance that details the location of the stream data.
+     */
+    public File getFile() {
+        return (file);
+    }
+
+    /**
+     * The stream from the HDHR needs a File as a destination.
+     *
+     * @param f The File instance that details the location of the stream data.
+     */
+    public void setFile(File f) {
+        file = f;
+    }
+
+    /**
+     * The milliseconds from starting to tune until the first packet, or
+     * -1 if none has arrived.
+     *
+     * @return The tune time in milliseconds.
+     */
+    public long getTuneTime() {
+        return (tuneTime);
+    }
+
+    private void setTuneTime(long l) {
+        tuneTime = l;
+    }
+
+    /**
+     * The IP address of the HDHR, if null it is found by its ID.
+     *
+     * @return An IP address as a String.
+     */
+    public String getIpAddress() {
+        return (ipAddress);
+    }
+
+    /**
+     * The IP address of the HDHR, if null it is found by its ID.
+     *
+     * @param s An IP address as a String.
+     */
+    public void setIpAddress(String s) {
+        ipAddress = s;
+    }
+
+    /**
+     * The packet and error counts of the stream once we are done, or
+     * null if it never started.
+     *
+     * @return A VideoStats instance.
+     */
+    public VideoStats getVideoStats() {
+        return (videoStats);
+    }
+
+    /**
+     * The number of bytes written to our File.
+     *
+     * @return A long value.
+     */
+    public long getBytesWritten() {
+        return (bytesWritten);
+    }
+
+    private int toDeviceIp() {
+
+        int result = 0;
+
+        String s = getIpAddress();
+        if ((s != null) && (s.trim().length() > 0)) {
+            result = HDHomerun_Sock.getaddrinfo_addr(s.trim());
+        }
+
+        return (result);
+    }
+
+    private long getEndTime(long now) {
+
+        // End  a few seconds early like RecordJob...
+        long l = getDuration() - 3;
+        if (l == 0) {
+
+            // This is just to record something...the duration was not set so
+            // lets record for one minute.  This should not happen.
+            l = 60 * 1000;
+
+        } else {
+
+            // Turn seconds into milliseconds.
+            l *= 1000;
+        }
+
+        return (now + l);
+    }
+
+    private String findProgramId(HDHomerun_Device hd) {
+
+        String result = null;
+
+        // The streaminfo is not always complete right after lock so give
+        // it a little time.
+        long timeout = System.currentTimeMillis() + STREAMINFO_WAIT;
+        StringBuilder sb = new StringBuilder();
+        while ((result == null) && (!isTerminate())) {
+
+            sb.setLength(0);
+            if (hd.get_tuner_streaminfo(sb) > 0) {
+                result = StreamInfoJob.findProgramId(sb.toString(), program);
+            }
+
+            if ((result == null)
+                && (System.currentTimeMillis() < timeout)) {
+
+                JobManager.sleep(STREAMINFO_SLEEP);
+
+            } else {
+
+                break;
+            }
+        }
+
+        if (result == null) {
+
+            // What StreamInfoJob has always used when it can't tell.
+            LogUtil.log(LogUtil.WARNING, "DeviceRecordJob: " + program
+                + " not in streaminfo <" + sb + ">");
+            result = "3";
+        }
+
+        return (result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void start() {
+
+        setTerminate(false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void run() {
+
+        long begin = System.currentTimeMillis();
+        HDHomerun_Device hd = null;
+        CopyJob writer = null;
+        boolean locked = false;
+        boolean streaming = false;
+        try {
+
+            hd = new HDHomerun_Device((int) Long.parseLong(id, 16),
+                toDeviceIp(), tuner, null);
+
+            StringBuilder error = new StringBuilder();
+            locked = hd.tuner_lockkey_request(error) > 0;
+            if (!locked) {
+
+                LogUtil.log(LogUtil.WARNING, "DeviceRecordJob: no lock on "
+                    + hd.get_name() + " " + error);
+            }
+
+            if (hd.set_tuner_channel(channel) <= 0) {
+                throw new IllegalStateException("channel " + channel);
+            }
+            long channelAt = System.currentTimeMillis();
+
+            hdhomerun_tuner_status_t status = new hdhomerun_tuner_status_t();
+            hd.wait_for_lock(status);
+            long lockAt = System.currentTimeMillis();
+
+            String programId = findProgramId(hd);
+            if (hd.set_tuner_program(programId) <= 0) {
+                throw new IllegalStateException("program " + programId);
+            }
+            long programAt = System.currentTimeMillis();
+
+            streaming = hd.stream_start() > 0;
+            if (!streaming) {
+                throw new IllegalStateException("stream start");
+            }
+            fireJobEvent(JobEvent.UPDATE, "DeviceRecordJob: " + hd.get_name()
+                + " channel " + channel + " program " + programId + " lock "
+                + status.lock_str);
+
+            // The writer that CopyJob uses, TS aligned and coalesced.
+            writer = new CopyJob(null, getFile().getPath());
+            long end = getEndTime(System.currentTimeMillis());
+            while (!isTerminate()) {
+
+                ByteBuffer bb = hd.stream_recv_buffer(
+                    HDHomerun_Video.VIDEO_DATA_BUFFER_SIZE_1S);
+                long now = System.currentTimeMillis();
+                if (bb != null) {
+
+                    if (getTuneTime() < 0L) {
+
+                        setTuneTime(now - begin);
+                        LogUtil.log(LogUtil.INFO, "tune to first packet for "
+                            + getFile().getName() + ": " + getTuneTime()
+                            + " ms (channel " + (channelAt - begin)
+                            + " ms, lock " + (lockAt - channelAt)
+                            + " ms, program " + (programAt - lockAt) + " ms)");
+                        if (hdhrRecorder != null) {
+                            hdhrRecorder.addTuneTime(getTuneTime());
+                        }
+                    }
+                    writer.process(bb);
+
+                } else {
+
+                    JobManager.sleep(RECV_SLEEP);
+                }
+
+                if (now >= end) {
+                    setTerminate(true);
+                }
+            }
+
+            hdhomerun_video_stats_t stats = new hdhomerun_video_stats_t();
+            hd.get_video_stats(stats);
+            VideoStats vs = new VideoStats();
+            vs.setPacketCount(stats.packet_count);
+            vs.setNetworkErrorCount(stats.network_error_count);
+            vs.setTransportErrorCount(stats.transport_error_count);
+            vs.setSequenceErrorCount(stats.sequence_error_count);
+            vs.setOverflowErrorCount(stats.overflow_error_count);
+            videoStats = vs;
+            fireJobEvent(JobEvent.UPDATE, "DeviceRecordJob: " + vs);
+
+        } catch (Exception ex) {
+
+            LogUtil.log(LogUtil.WARNING, "DeviceRecordJob: " + id + "-"
+                + tuner + " " + ex.getMessage());
+
+        } finally {
+
+            if (writer != null) {
+
+                writer.close();
+                bytesWritten = writer.getBytesWritten();
+            }
+
+            if (hd != null) {
+
+                try {
+
+                    if (streaming) {
+                        hd.stream_stop();
+                    }
+                    hd.set_tuner_channel("none");
+                    if (locked) {
+                        hd.tuner_lockkey_release();
+                    }
+
+                } catch (Exception ex) {
+
+                    LogUtil.log(LogUtil.DEBUG, "DeviceRecordJob: "
+                        + ex.getMessage());
+                }
+                hd.destroy();
+            }
+        }
+
+        if (getTuneTime() < 0L) {
+
+            LogUtil.log(LogUtil.WARNING, "DeviceRecordJob: no data from "
+                + id + "-" + tuner + " for " + getFile());
+        }
+
+        fireJobEvent(JobEvent.COMPLETE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void stop() {
+
+        setTerminate(true);
+    }
+
+}
@@ -95,15 +95,29 @@ public class FrequencyJob extends BaseHDHRJob {
         model = s;
     }
 
-    private String getPrefix() {
+    private String frequencyToString() {
+        return (toChannel(getModel(), getType(), getFrequency()));
+    }
 
-        // By default we have no prefix which works for the old HDHR.
-        // This method should be more complete, something to work on in
-        // the future.
-        String result = "";
+    /**
+     * The value given to an HDHR for its channel.  This is "none" when
+     * the frequency is not positive.
+     *
+     * @param model The model of the HDHR, can be null.
+     * @param type The frequency type.
+     * @param frequency The frequency.
+     * @return The channel as a String.
+     */
+    static String toChannel(String model, String type, int frequency) {
 
-        String m = getModel();
-        if (m != null) {
+        String result = "none";
+
+        if (frequency > 0) {
+
+            // By default we have no prefix which works for the old HDHR.
+            // This method should be more complete, something to work on in
+            // the future.
+            String prefix = "";
 
             // Ok we have a model.  Right now just handling the HDTC.
             // We will assume anything else is the older model since
@@ -111,23 +125,12 @@ public class FrequencyJob extends BaseHDHRJob {
             // this drops support for the other HDHR devices like prime.
             // But thats not really a cord cutter device since that is
             // our current focus.
-            if (m.startsWith("HDTC")) {
+            if ((model != null) && (model.startsWith("HDTC"))) {
 
-                result = getType() + ":";
+                prefix = type + ":";
             }
-        }
-
-        return (result);
-    }
-
-    private String frequencyToString() {
-
-        String result = "none";
-
-        int f = getFrequency();
-        if (f > 0) {
 
-            result = getPrefix() + f;
+            result = prefix + frequency;
         }
 
         return (result);
@@ -52,6 +52,10 @@ public class HDHRRecorder extends BaseRecorder {
     private ScanFile scanFile;
     private String ipAddress;
     private String model;
+    private int tuneCount;
+    private long totalTuneTime;
+    private long maximumTuneTime;
+    private long lastTuneTime;
 
     /**
      * Simple default constructor.
@@ -93,6 +97,60 @@ public class HDHRRecorder extends BaseRecorder {
         model = s;
     }
 
+    /**
+     * The number of recordings whose tune to first packet time is known.
+     *
+     * @return The count as an int.
+     */
+    public synchronized int getTuneCount() {
+        return (tuneCount);
+    }
+
+    /**
+     * The average milliseconds from starting to tune until the first
+     * packet arrived.
+     *
+     * @return The average in milliseconds.
+     */
+    public synchronized long getAverageTuneTime() {
+
+        long result = 0L;
+
+        if (tuneCount > 0) {
+            result = totalTuneTime / tuneCount;
+        }
+
+        return (result);
+    }
+
+    /**
+     * The longest time from starting to tune until the first packet
+     * arrived.
+     *
+     * @return The maximum in milliseconds.
+     */
+    public synchronized long getMaximumTuneTime() {
+        return (maximumTuneTime);
+    }
+
+    /**
+     * The time from starting to tune until the first packet arrived for
+     * the most recent recording.
+     *
+     * @return The last tune time in milliseconds.
+     */
+    public synchronized long getLastTuneTime() {
+        return (lastTuneTime);
+    }
+
+    synchronized void addTuneTime(long l) {
+
+        tuneCount++;
+        totalTuneTime += l;
+        maximumTuneTime = Math.max(maximumTuneTime, l);
+        lastTuneTime = l;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -114,14 +172,16 @@ public class HDHRRecorder extends BaseRecorder {
 
                     HDHRRecorderTranscodeHlsJob job =
                         new HDHRRecorderTranscodeHlsJob(this);
-                    JobContainer jc = JobManager.getJobContainer(job);
+                    JobContainer jc = JobManager.getJobContainer(job,
+                        JobManager.RECORDING_POOL);
                     setJobContainer(jc);
                     jc.start();
 
                 } else {
 
                     HDHRRecorderHlsJob job = new HDHRRecorderHlsJob(this);
-                    JobContainer jc = JobManager.getJobContainer(job);
+                    JobContainer jc = JobManager.getJobContainer(job,
+                        JobManager.RECORDING_POOL);
                     setJobContainer(jc);
                     jc.start();
                 }
@@ -132,14 +192,16 @@ public class HDHRRecorder extends BaseRecorder {
 
                     HDHRRecorderTranscodeJob job =
                         new HDHRRecorderTranscodeJob(this);
-                    JobContainer jc = JobManager.getJobContainer(job);
+                    JobContainer jc = JobManager.getJobContainer(job,
+                        JobManager.RECORDING_POOL);
                     setJobContainer(jc);
                     jc.start();
 
                 } else {
 
                     HDHRRecorderJob job = new HDHRRecorderJob(this);
-                    JobContainer jc = JobManager.getJobContainer(job);
+                    JobContainer jc = JobManager.getJobContainer(job,
+                        JobManager.RECORDING_POOL);
                     setJobContainer(jc);
                     jc.start();
                 }
@@ -176,7 +238,8 @@ public class HDHRRecorder extends BaseRecorder {
             setRecordingLiveTV(true);
 
             HDHRStreamJob job = new HDHRStreamJob(this);
-            JobContainer jc = JobManager.getJobContainer(job);
+            JobContainer jc = JobManager.getJobContainer(job,
+                JobManager.RECORDING_POOL);
             setJobContainer(jc);
             jc.start();
         }
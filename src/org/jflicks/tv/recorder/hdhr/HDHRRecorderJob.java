@@ -30,7 +30,9 @@ import org.jflicks.util.Util;
 /**
  * This job supports the HDHR recorder.  There are several steps to recording
  * from an HDHR.  This class will complete the steps by executing 4 command
- * line jobs.
+ * line jobs, or by default with a DeviceRecordJob that does them all without
+ * running hdhomerun_config.  Setting org.jflicks.hdhr.native to false goes
+ * back to the command line jobs.
  *
  * First is to tune the HDHR to the proper frequency.  Second set the
  * "program".  Third record to a local File.  And lastly when the time has
@@ -44,12 +46,15 @@ import org.jflicks.util.Util;
  */
 public class HDHRRecorderJob extends AbstractJob implements JobListener {
 
+    private static final String NATIVE_PROPERTY = "org.jflicks.hdhr.native";
+
     private HDHRRecorder hdhrRecorder;
     private FrequencyJob frequencyJob;
     private StreamInfoJob streamInfoJob;
     private ProgramJob programJob;
     private RecordJob recordJob;
     private FrequencyJob noneFrequencyJob;
+    private DeviceRecordJob deviceRecordJob;
     private JobContainer jobContainer;
 
     /**
@@ -102,6 +107,18 @@ public class HDHRRecorderJob extends AbstractJob implements JobListener {
         noneFrequencyJob = j;
     }
 
+    private DeviceRecordJob getDeviceRecordJob() {
+        return (deviceRecordJob);
+    }
+
+    private void setDeviceRecordJob(DeviceRecordJob j) {
+        deviceRecordJob = j;
+    }
+
+    private boolean isNative() {
+        return (!"false".equals(System.getProperty(NATIVE_PROPERTY)));
+    }
+
     private JobContainer getJobContainer() {
         return (jobContainer);
     }
@@ -241,6 +258,33 @@ public class HDHRRecorderJob extends AbstractJob implements JobListener {
 
         setTerminate(false);
 
+        if (isNative()) {
+            startDevice();
+        } else {
+            startCommands();
+        }
+    }
+
+    private void startDevice() {
+
+        DeviceRecordJob drj = new DeviceRecordJob(getHDHRRecorder(), getId(),
+            getTuner(), FrequencyJob.toChannel(getModel(), getFrequencyType(),
+            getFrequency()), getProgram());
+        setDeviceRecordJob(drj);
+        drj.addJobListener(this);
+        drj.setFile(getFile());
+        drj.setDuration(getDuration());
+        if (getHDHRRecorder() != null) {
+            drj.setIpAddress(getHDHRRecorder().getIpAddress());
+        }
+
+        JobContainer jc = JobManager.getJobContainer(drj);
+        setJobContainer(jc);
+        jc.start();
+    }
+
+    private void startCommands() {
+
         FrequencyJob fj = new FrequencyJob();
         setFrequencyJob(fj);
         fj.addJobListener(this);
@@ -350,7 +394,8 @@ public class HDHRRecorderJob extends AbstractJob implements JobListener {
                 setJobContainer(jc);
                 jc.start();
 
-            } else if (event.getSource() == getNoneFrequencyJob()) {
+            } else if ((event.getSource() == getNoneFrequencyJob())
+                || (event.getSource() == getDeviceRecordJob())) {
 
                 LogUtil.log(LogUtil.INFO, "recording done at "
                     + new Date(System.currentTimeMillis()));
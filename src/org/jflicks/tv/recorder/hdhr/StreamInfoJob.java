@@ -131,27 +131,9 @@ public class StreamInfoJob extends BaseHDHRJob {
                 fireJobEvent(JobEvent.UPDATE, "ProgramJob: exit: "
                     + job.getExitValue());
 
-                String text = job.getOutputText();
-                if (text != null) {
-
-                    String[] lines = text.split("\n");
-                    if (lines != null) {
-
-                        for (int i = 0; i < lines.length; i++) {
-
-                            //if (lines[i].indexOf(getProgram()) != -1) {
-                            
-                            if (isProgramLine(lines[i])) {
-
-                                int cindex = lines[i].indexOf(":");
-                                if (cindex != -1) {
-
-                                    setProgramId(lines[i].substring(0, cindex));
-                                    break;
-                                }
-                            }
-                        }
-                    }
+                String id = findProgramId(job.getOutputText(), getProgram());
+                if (id != null) {
+                    setProgramId(id);
                 }
 
                 stop();
@@ -159,24 +141,32 @@ public class StreamInfoJob extends BaseHDHRJob {
         }
     }
 
-    private boolean isProgramLine(String line) {
+    /**
+     * Find the program id of a digital channel in the streaminfo from an
+     * HDHR.  Each line is an id, a colon and the channel name with maybe
+     * some more after it.
+     *
+     * @param text The streaminfo text.
+     * @param program The digital channel name, for example "2.1".
+     * @return The id or null if not found.
+     */
+    static String findProgramId(String text, String program) {
 
-        boolean result = false;
+        String result = null;
 
-        if (line != null) {
+        if ((text != null) && (program != null)) {
 
-            int index = line.indexOf(":");
-            if (index != -1) {
+            String[] lines = text.split("\n");
+            for (int i = 0; i < lines.length; i++) {
 
-                // Get the "rest" of the line.
-                fireJobEvent(JobEvent.UPDATE, "line: <" + line + ">");
-                line = line.substring(index + 1);
-                fireJobEvent(JobEvent.UPDATE, "line now: <" + line + ">");
-                line = line.trim();
-                fireJobEvent(JobEvent.UPDATE, "line trim: <" + line + ">");
-                result = line.startsWith(getProgram());
-                fireJobEvent(JobEvent.UPDATE, "startsWith: <" + getProgram()
-                    + "> " + result);
+                int cindex = lines[i].indexOf(":");
+                if ((cindex != -1)
+                    && (lines[i].substring(cindex + 1).trim().startsWith(
+                    program))) {
+
+                    result = lines[i].substring(0, cindex).trim();
+                    break;
+                }
             }
         }
 
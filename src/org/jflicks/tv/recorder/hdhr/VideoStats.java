@@ -0,0 +1,143 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder.hdhr;
+
+/**
+ * The packet and error counts of a stream received from an HDHR.  Each
+ * bundle has its own private copy of libhdhomerun, so these are handed
+ * out instead of its hdhomerun_video_stats_t.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class VideoStats {
+
+    private long packetCount;
+    private long networkErrorCount;
+    private long transportErrorCount;
+    private long sequenceErrorCount;
+    private long overflowErrorCount;
+
+    /**
+     * Simple empty constructor.
+     */
+    public VideoStats() {
+    }
+
+    /**
+     * The number of packets received.
+     *
+     * @return A long value.
+     */
+    public long getPacketCount() {
+        return (packetCount);
+    }
+
+    /**
+     * The number of packets received.
+     *
+     * @param l A long value.
+     */
+    public void setPacketCount(long l) {
+        packetCount = l;
+    }
+
+    /**
+     * The number of packets lost on the network.
+     *
+     * @return A long value.
+     */
+    public long getNetworkErrorCount() {
+        return (networkErrorCount);
+    }
+
+    /**
+     * The number of packets lost on the network.
+     *
+     * @param l A long value.
+     */
+    public void setNetworkErrorCount(long l) {
+        networkErrorCount = l;
+    }
+
+    /**
+     * The number of packets the HDHR marked with a transport error.
+     *
+     * @return A long value.
+     */
+    public long getTransportErrorCount() {
+        return (transportErrorCount);
+    }
+
+    /**
+     * The number of packets the HDHR marked with a transport error.
+     *
+     * @param l A long value.
+     */
+    public void setTransportErrorCount(long l) {
+        transportErrorCount = l;
+    }
+
+    /**
+     * The number of continuity counter errors.
+     *
+     * @return A long value.
+     */
+    public long getSequenceErrorCount() {
+        return (sequenceErrorCount);
+    }
+
+    /**
+     * The number of continuity counter errors.
+     *
+     * @param l A long value.
+     */
+    public void setSequenceErrorCount(long l) {
+        sequenceErrorCount = l;
+    }
+
+    /**
+     * The number of packets dropped because we did not read them in time.
+     *
+     * @return A long value.
+     */
+    public long getOverflowErrorCount() {
+        return (overflowErrorCount);
+    }
+
+    /**
+     * The number of packets dropped because we did not read them in time.
+     *
+     * @param l A long value.
+     */
+    public void setOverflowErrorCount(long l) {
+        overflowErrorCount = l;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+
+        return ("packets " + getPacketCount() + " network errors "
+            + getNetworkErrorCount() + " transport errors "
+            + getTransportErrorCount() + " sequence errors "
+            + getSequenceErrorCount() + " overflows "
+            + getOverflowErrorCount());
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder.hdhrsim;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jflicks.util.BaseActivator;
+import org.jflicks.util.LogUtil;
+import org.jflicks.util.Util;
+
+import org.osgi.framework.BundleContext;
+
+/**
+ * Simple activator for the HDHR simulator.  It is set up with the
+ * org.jflicks.hdhrsim system properties: id, tuners, bitrate, loss,
+ * reorder, jitter, lock, file and address.  The address defaults to
+ * 0.0.0.0 so the HDHR recorder can find it with a broadcast.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class Activator extends BaseActivator {
+
+    private static final String PREFIX = "org.jflicks.hdhrsim.";
+
+    private HDHRSimulator simulator;
+
+    private static String property(String name) {
+        return (System.getProperty(PREFIX + name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void start(BundleContext bc) {
+
+        setBundleContext(bc);
+
+        HDHRSimulator sim = new HDHRSimulator();
+        String id = property("id");
+        if (id != null) {
+            sim.setId(id);
+        }
+        sim.setTunerCount(Util.str2int(property("tuners"),
+            sim.getTunerCount()));
+        sim.setBitrate(Util.str2long(property("bitrate"), sim.getBitrate()));
+        sim.setLoss(Util.str2double(property("loss"), sim.getLoss()));
+        sim.setReorder(Util.str2double(property("reorder"),
+            sim.getReorder()));
+        sim.setJitter(Util.str2int(property("jitter"), sim.getJitter()));
+        sim.setLockDelay(Util.str2long(property("lock"),
+            sim.getLockDelay()));
+        String file = property("file");
+        if (file != null) {
+            sim.setFile(new File(file));
+        }
+        String address = property("address");
+        sim.setAddress((address != null) ? address : "0.0.0.0");
+
+        try {
+
+            sim.start();
+            simulator = sim;
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.WARNING, "HDHRSimulator: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void stop(BundleContext context) {
+
+        if (simulator != null) {
+
+            simulator.stop();
+            simulator = null;
+        }
+    }
+
+}
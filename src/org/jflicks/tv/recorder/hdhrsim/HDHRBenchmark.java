@@ -0,0 +1,409 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder.hdhrsim;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+
+import org.jflicks.tv.recorder.TsSegmenter;
+import org.jflicks.tv.recorder.hdhr.DeviceRecordJob;
+import org.jflicks.tv.recorder.hdhr.VideoStats;
+import org.jflicks.util.Util;
+
+import com.silicondust.libhdhomerun.HDHomerun_Device;
+import com.silicondust.libhdhomerun.HDHomerun_Sock;
+import com.silicondust.libhdhomerun.HDHomerun_Types.hdhomerun_tuner_status_t;
+import com.silicondust.libhdhomerun.HDHomerun_Video;
+import com.silicondust.libhdhomerun.HDHomerun_Video.hdhomerun_video_stats_t;
+
+/**
+ * Run recordings and live TV sessions at the same time against an
+ * HDHRSimulator on this machine, each on its own tuner, and report how
+ * each stream did.  The recordings are done by DeviceRecordJob just like
+ * the HDHR recorder does them.  A live session receives the stream the
+ * same way and hands it to a TsSegmenter like live TV does.
+ *
+ * Usage: HDHRBenchmark [recordings] [live] [seconds] [megabits] [loss]
+ *     [reorder] [jitter ms] [directory]
+ *
+ * The loss and reorder are the chance from zero to one for each datagram.
+ * For each stream we print the datagrams the simulator sent, how many
+ * it lost or reordered on purpose, how many came in and how many were
+ * missed, the network, sequence and overflow errors seen by the
+ * receiver, and the MB written with the CPU of the thread writing.  What
+ * arrives before stream_start flushes and after the receiver stops counts
+ * as missed, so a few hundred is normal.  Gaps in the middle of a stream
+ * are network errors.  Last is the CPU of the whole process less what
+ * the simulator used.
+ *
+ * The simulator listens on port 65001 of 127.0.0.1 so a real HDHR on
+ * the network does not get in the way.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class HDHRBenchmark {
+
+    private static final String LOCALHOST = "127.0.0.1";
+    private static final String CHANNEL = "auto:19";
+    private static final String PROGRAM = "1.1";
+
+    private HDHRBenchmark() {
+    }
+
+    private static long processCpuMillis() {
+
+        long result = -1L;
+
+        // Fields 14 and 15 of /proc/self/stat are our user and system
+        // CPU in clock ticks that are 1/100 of a second on just about
+        // every linux.
+        try {
+
+            byte[] b = new byte[4096];
+            FileInputStream fis = new FileInputStream("/proc/self/stat");
+            int count = fis.read(b);
+            fis.close();
+            String s = new String(b, 0, Math.max(0, count), "US-ASCII");
+            String[] fields = s.substring(s.lastIndexOf(')') + 2).split(" ");
+            result = (Long.parseLong(fields[11]) + Long.parseLong(fields[12]))
+                * 10L;
+
+        } catch (Exception ex) {
+
+            result = -1L;
+        }
+
+        return (result);
+    }
+
+    /**
+     * What one recording or live session did.
+     */
+    private abstract static class Stream implements Runnable {
+
+        private String label;
+        private SimulatedTuner tuner;
+        private long cpu;
+        private long wall;
+
+        Stream(String label, SimulatedTuner tuner) {
+
+            this.label = label;
+            this.tuner = tuner;
+        }
+
+        String getLabel() {
+            return (label);
+        }
+
+        SimulatedTuner getTuner() {
+            return (tuner);
+        }
+
+        abstract void stream() throws Exception;
+
+        abstract VideoStats getVideoStats();
+
+        abstract long getBytesWritten();
+
+        abstract long getTuneTime();
+
+        public void run() {
+
+            ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+            long start = System.nanoTime();
+            long before = mx.getCurrentThreadCpuTime();
+            try {
+
+                stream();
+
+            } catch (Exception ex) {
+
+                System.out.println(label + ": " + ex.getMessage());
+            }
+            cpu = mx.getCurrentThreadCpuTime() - before;
+            wall = System.nanoTime() - start;
+        }
+
+        void print() {
+
+            VideoStats stats = getVideoStats();
+            long sent = tuner.getSentCount();
+            long received = (stats != null) ? stats.getPacketCount() : 0L;
+            double secs = wall / 1000000000.0;
+            double mb = getBytesWritten() / (1024.0 * 1024.0);
+            System.out.printf("%-6s tuner %d: sent %7d lost %5d reordered %5d"
+                + " received %7d missed %5d | errors net %5d seq %5d"
+                + " overflow %5d | %7.1f MB %5.2f MB/s cpu %7.1f ms"
+                + " (%.1f%%) tune %d ms%n", label, tuner.getNumber(), sent,
+                tuner.getDroppedCount(), tuner.getReorderedCount(), received,
+                sent - received,
+                (stats != null) ? stats.getNetworkErrorCount() : -1L,
+                (stats != null) ? stats.getSequenceErrorCount() : -1L,
+                (stats != null) ? stats.getOverflowErrorCount() : -1L,
+                mb, mb / secs, cpu / 1000000.0, (100.0 * cpu) / wall,
+                getTuneTime());
+        }
+    }
+
+    private static class Recording extends Stream {
+
+        private DeviceRecordJob deviceRecordJob;
+
+        Recording(String label, SimulatedTuner tuner, String id,
+            long seconds, File file) {
+
+            super(label, tuner);
+
+            // It ends three seconds early like all the recorders.
+            deviceRecordJob = new DeviceRecordJob(null, id, tuner.getNumber(),
+                CHANNEL, PROGRAM);
+            deviceRecordJob.setIpAddress(LOCALHOST);
+            deviceRecordJob.setFile(file);
+            deviceRecordJob.setDuration(seconds + 3);
+        }
+
+        void stream() {
+
+            deviceRecordJob.start();
+            deviceRecordJob.run();
+        }
+
+        VideoStats getVideoStats() {
+            return (deviceRecordJob.getVideoStats());
+        }
+
+        long getBytesWritten() {
+            return (deviceRecordJob.getBytesWritten());
+        }
+
+        long getTuneTime() {
+            return (deviceRecordJob.getTuneTime());
+        }
+    }
+
+    private static class Live extends Stream {
+
+        private String id;
+        private long seconds;
+        private File directory;
+        private VideoStats videoStats;
+        private long bytesWritten;
+        private long tuneTime;
+
+        Live(String label, SimulatedTuner tuner, String id, long seconds,
+            File directory) {
+
+            super(label, tuner);
+            this.id = id;
+            this.seconds = seconds;
+            this.directory = directory;
+            tuneTime = -1L;
+        }
+
+        void stream() throws Exception {
+
+            long begin = System.currentTimeMillis();
+            directory.mkdirs();
+            TsSegmenter segmenter = new TsSegmenter(directory, "live", 2.0);
+            HDHomerun_Device hd = new HDHomerun_Device(
+                (int) Long.parseLong(id, 16),
+                HDHomerun_Sock.getaddrinfo_addr(LOCALHOST),
+                getTuner().getNumber(), null);
+            try {
+
+                hd.tuner_lockkey_request(new StringBuilder());
+                hd.set_tuner_channel(CHANNEL);
+                hd.wait_for_lock(new hdhomerun_tuner_status_t());
+                hd.set_tuner_program("1");
+                hd.stream_start();
+
+                long end = begin + seconds * 1000L;
+                while (System.currentTimeMillis() < end) {
+
+                    ByteBuffer bb = hd.stream_recv_buffer(
+                        HDHomerun_Video.VIDEO_DATA_BUFFER_SIZE_1S);
+                    if (bb != null) {
+
+                        if (tuneTime < 0L) {
+                            tuneTime = System.currentTimeMillis() - begin;
+                        }
+                        int length = bb.remaining();
+                        segmenter.write(bb.array(),
+                            bb.arrayOffset() + bb.position(), length);
+                        bytesWritten += length;
+
+                    } else {
+
+                        Thread.sleep(20L);
+                    }
+                }
+
+                hdhomerun_video_stats_t stats = new hdhomerun_video_stats_t();
+                hd.get_video_stats(stats);
+                videoStats = new VideoStats();
+                videoStats.setPacketCount(stats.packet_count);
+                videoStats.setNetworkErrorCount(stats.network_error_count);
+                videoStats.setTransportErrorCount(
+                    stats.transport_error_count);
+                videoStats.setSequenceErrorCount(stats.sequence_error_count);
+                videoStats.setOverflowErrorCount(stats.overflow_error_count);
+
+            } finally {
+
+                segmenter.close();
+                hd.stream_stop();
+                hd.set_tuner_channel("none");
+                hd.tuner_lockkey_release();
+                hd.destroy();
+            }
+        }
+
+        VideoStats getVideoStats() {
+            return (videoStats);
+        }
+
+        long getBytesWritten() {
+            return (bytesWritten);
+        }
+
+        long getTuneTime() {
+            return (tuneTime);
+        }
+    }
+
+    /**
+     * Simple main to run the benchmark.
+     *
+     * @param args The arguments as described above.
+     * @throws Exception on error.
+     */
+    public static void main(String[] args) throws Exception {
+
+        int recordings = 2;
+        int live = 1;
+        long seconds = 20L;
+        double megabits = 19.39;
+        double loss = 0.0;
+        double reorder = 0.0;
+        int jitter = 0;
+        File dir = new File(System.getProperty("java.io.tmpdir"), "hdhrsim");
+        if (args.length > 0) {
+            recordings = Util.str2int(args[0], recordings);
+        }
+        if (args.length > 1) {
+            live = Util.str2int(args[1], live);
+        }
+        if (args.length > 2) {
+            seconds = Util.str2long(args[2], seconds);
+        }
+        if (args.length > 3) {
+            megabits = Util.str2double(args[3], megabits);
+        }
+        if (args.length > 4) {
+            loss = Util.str2double(args[4], loss);
+        }
+        if (args.length > 5) {
+            reorder = Util.str2double(args[5], reorder);
+        }
+        if (args.length > 6) {
+            jitter = Util.str2int(args[6], jitter);
+        }
+        if (args.length > 7) {
+            dir = new File(args[7]);
+        }
+        dir.mkdirs();
+
+        HDHRSimulator sim = new HDHRSimulator();
+        sim.setAddress(LOCALHOST);
+        sim.setTunerCount(recordings + live);
+        sim.setBitrate((long) (megabits * 1000000.0));
+        sim.setLoss(loss);
+        sim.setReorder(reorder);
+        sim.setJitter(jitter);
+        sim.start();
+        SimulatedTuner[] tuners = sim.getTuners();
+
+        System.out.printf("%d recordings, %d live, %d s at %.2f Mb/s, loss"
+            + " %.3f reorder %.3f jitter %d ms, %d processors%n", recordings,
+            live, seconds, megabits, loss, reorder, jitter,
+            Runtime.getRuntime().availableProcessors());
+
+        Stream[] streams = new Stream[tuners.length];
+        for (int i = 0; i < streams.length; i++) {
+
+            if (i < recordings) {
+
+                streams[i] = new Recording("record", tuners[i], sim.getId(),
+                    seconds, new File(dir, "record-" + i + ".ts"));
+
+            } else {
+
+                streams[i] = new Live("live", tuners[i], sim.getId(),
+                    seconds, new File(dir, "live-" + i));
+            }
+        }
+
+        long cpu = processCpuMillis();
+        long start = System.nanoTime();
+        Thread[] threads = new Thread[streams.length];
+        for (int i = 0; i < streams.length; i++) {
+
+            threads[i] = new Thread(streams[i], "benchmark-" + i);
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        double secs = (System.nanoTime() - start) / 1000000000.0;
+        long used = processCpuMillis() - cpu;
+
+        long simCpu = 0L;
+        long bytes = 0L;
+        for (int i = 0; i < streams.length; i++) {
+
+            streams[i].print();
+            simCpu += tuners[i].getCpuTime();
+            bytes += streams[i].getBytesWritten();
+        }
+        sim.stop();
+
+        long other = used - simCpu / 1000000L;
+        System.out.printf("total: %.1f MB/s written in %.2f s, simulator cpu"
+            + " %.1f ms, everything else %s%n", bytes / (1024.0 * 1024.0)
+            / secs, secs, simCpu / 1000000.0, (cpu >= 0L)
+            ? String.format("%d ms (%.1f%% of one cpu)", other,
+            other / (secs * 10.0)) : "n/a");
+
+        for (int i = 0; i < streams.length; i++) {
+
+            File ldir = new File(dir, "live-" + i);
+            File[] array = ldir.listFiles();
+            for (int j = 0; (array != null) && (j < array.length); j++) {
+                array[j].delete();
+            }
+            ldir.delete();
+            new File(dir, "record-" + i + ".ts").delete();
+        }
+        System.exit(0);
+    }
+
+}
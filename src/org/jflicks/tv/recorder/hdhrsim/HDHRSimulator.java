@@ -0,0 +1,695 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder.hdhrsim;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jflicks.tv.recorder.SyntheticStream;
+import org.jflicks.util.LogUtil;
+
+import com.silicondust.libhdhomerun.HDHomerun_Pkt;
+
+/**
+ * A make believe HDHR so the recorders and live TV can be run and
+ * measured without one.  It answers discovery and the get/set control
+ * protocol on port 65001 just like the real thing, and each of its
+ * tuners streams a transport stream over RTP or UDP once tuned.
+ *
+ * Only what we use is here: the channel, channelmap, program, filter,
+ * target, status, streaminfo, lockkey and debug variables of each tuner
+ * and the model and version of the device.  A tuner locks on any
+ * channel after the lock delay and always has the same three programs.
+ * The stream is the given file or one made up by SyntheticStream, sent
+ * at the given bitrate no matter the program, with lost, out of order
+ * and late datagrams made up as often as asked.
+ *
+ * To be found by a broadcast the address has to be 0.0.0.0, on any
+ * other address only a discover sent to that address gets an answer.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class HDHRSimulator {
+
+    /**
+     * The ID we use if one is not set.
+     */
+    public static final String DEFAULT_ID = "1010C0DE";
+
+    /**
+     * The answer to a variable we do not have.
+     */
+    public static final String UNKNOWN = "ERROR: unknown getset variable";
+
+    private static final String TUNER = "/tuner";
+    private static final String VERSION = "20150826";
+
+    private String id;
+    private int tunerCount;
+    private String model;
+    private long bitrate;
+    private double loss;
+    private double reorder;
+    private int jitter;
+    private long lockDelay;
+    private File file;
+    private String address;
+    private byte[] stream;
+    private SimulatedTuner[] tuners;
+    private DatagramSocket discoverSocket;
+    private ServerSocket controlSocket;
+    private AtomicInteger connectionCount;
+    private volatile boolean running;
+
+    /**
+     * Simple empty constructor.
+     */
+    public HDHRSimulator() {
+
+        setId(DEFAULT_ID);
+        setTunerCount(2);
+        setModel("hdhomerun3_atsc");
+        setBitrate(19392658L);
+        setLockDelay(300L);
+        setAddress("127.0.0.1");
+        connectionCount = new AtomicInteger();
+    }
+
+    /**
+     * The device ID in hex as a recorder would have it.
+     *
+     * @return A String instance.
+     */
+    public String getId() {
+        return (id);
+    }
+
+    /**
+     * The device ID in hex as a recorder would have it.
+     *
+     * @param s A String instance.
+     */
+    public void setId(String s) {
+        id = s;
+    }
+
+    /**
+     * The number of tuners.
+     *
+     * @return An int value.
+     */
+    public int getTunerCount() {
+        return (tunerCount);
+    }
+
+    /**
+     * The number of tuners.
+     *
+     * @param i An int value.
+     */
+    public void setTunerCount(int i) {
+        tunerCount = i;
+    }
+
+    /**
+     * The model we say we are, the recorders look at this for the
+     * channel type.
+     *
+     * @return A String instance.
+     */
+    public String getModel() {
+        return (model);
+    }
+
+    /**
+     * The model we say we are, the recorders look at this for the
+     * channel type.
+     *
+     * @param s A String instance.
+     */
+    public void setModel(String s) {
+        model = s;
+    }
+
+    /**
+     * The bits per second each tuner sends.
+     *
+     * @return A long value.
+     */
+    public long getBitrate() {
+        return (bitrate);
+    }
+
+    /**
+     * The bits per second each tuner sends.
+     *
+     * @param l A long value.
+     */
+    public void setBitrate(long l) {
+        bitrate = l;
+    }
+
+    /**
+     * The chance from zero to one that a datagram is lost.
+     *
+     * @return A double value.
+     */
+    public double getLoss() {
+        return (loss);
+    }
+
+    /**
+     * The chance from zero to one that a datagram is lost.
+     *
+     * @param d A double value.
+     */
+    public void setLoss(double d) {
+        loss = d;
+    }
+
+    /**
+     * The chance from zero to one that a datagram comes after the next.
+     *
+     * @return A double value.
+     */
+    public double getReorder() {
+        return (reorder);
+    }
+
+    /**
+     * The chance from zero to one that a datagram comes after the next.
+     *
+     * @param d A double value.
+     */
+    public void setReorder(double d) {
+        reorder = d;
+    }
+
+    /**
+     * The most milliseconds a datagram is held up.
+     *
+     * @return An int value.
+     */
+    public int getJitter() {
+        return (jitter);
+    }
+
+    /**
+     * The most milliseconds a datagram is held up.
+     *
+     * @param i An int value.
+     */
+    public void setJitter(int i) {
+        jitter = i;
+    }
+
+    /**
+     * The milliseconds from setting a channel until the tuner locks.
+     *
+     * @return A long value.
+     */
+    public long getLockDelay() {
+        return (lockDelay);
+    }
+
+    /**
+     * The milliseconds from setting a channel until the tuner locks.
+     *
+     * @param l A long value.
+     */
+    public void setLockDelay(long l) {
+        lockDelay = l;
+    }
+
+    /**
+     * A transport stream file to send, if null one is made up.
+     *
+     * @return A File instance.
+     */
+    public File getFile() {
+        return (file);
+    }
+
+    /**
+     * A transport stream file to send, if null one is made up.
+     *
+     * @param f A File instance.
+     */
+    public void setFile(File f) {
+        file = f;
+    }
+
+    /**
+     * The address we listen on.
+     *
+     * @return A String instance.
+     */
+    public String getAddress() {
+        return (address);
+    }
+
+    /**
+     * The address we listen on.
+     *
+     * @param s A String instance.
+     */
+    public void setAddress(String s) {
+        address = s;
+    }
+
+    /**
+     * The stream each tuner sends, whole TS packets.
+     *
+     * @return A byte array.
+     */
+    public byte[] getStream() {
+        return (stream);
+    }
+
+    /**
+     * The tuners, so their counts can be looked at.
+     *
+     * @return An array of SimulatedTuner instances.
+     */
+    public SimulatedTuner[] getTuners() {
+
+        SimulatedTuner[] result = null;
+
+        if (tuners != null) {
+            result = Arrays.copyOf(tuners, tuners.length);
+        }
+
+        return (result);
+    }
+
+    private byte[] loadStream() throws IOException {
+
+        byte[] result = null;
+
+        File f = getFile();
+        if ((f != null) && (f.isFile())) {
+
+            // Start at the first sync byte and drop any partial packet.
+            byte[] all = Files.readAllBytes(f.toPath());
+            int start = 0;
+            while ((start < all.length) && (all[start] != 0x47)) {
+                start++;
+            }
+            int length = (all.length - start) / SimulatedTuner.PACKET_SIZE
+                * SimulatedTuner.PACKET_SIZE;
+            if (length > 0) {
+                result = Arrays.copyOfRange(all, start, start + length);
+            }
+        }
+
+        if (result == null) {
+            result = SyntheticStream.make(30.0, 1.0);
+        }
+
+        return (result);
+    }
+
+    /**
+     * Start answering on the network.
+     *
+     * @throws IOException if we can't listen on port 65001.
+     */
+    public void start() throws IOException {
+
+        stream = loadStream();
+        tuners = new SimulatedTuner[getTunerCount()];
+        for (int i = 0; i < tuners.length; i++) {
+            tuners[i] = new SimulatedTuner(this, i);
+        }
+
+        InetSocketAddress isa = new InetSocketAddress(
+            InetAddress.getByName(getAddress()),
+            HDHomerun_Pkt.HDHOMERUN_DISCOVER_UDP_PORT);
+        discoverSocket = new DatagramSocket(null);
+        discoverSocket.setReuseAddress(true);
+        discoverSocket.bind(isa);
+        controlSocket = new ServerSocket();
+        controlSocket.setReuseAddress(true);
+        controlSocket.bind(new InetSocketAddress(isa.getAddress(),
+            HDHomerun_Pkt.HDHOMERUN_CONTROL_TCP_PORT));
+
+        running = true;
+        Thread dt = new Thread(new Runnable() {
+
+            public void run() {
+                discover();
+            }
+        }, "jflicks-hdhrsim-discover");
+        dt.setDaemon(true);
+        dt.start();
+
+        Thread ct = new Thread(new Runnable() {
+
+            public void run() {
+                accept();
+            }
+        }, "jflicks-hdhrsim-control");
+        ct.setDaemon(true);
+        ct.start();
+
+        LogUtil.log(LogUtil.INFO, "HDHRSimulator: " + getId() + " with "
+            + tuners.length + " tuners on " + getAddress() + " at "
+            + getBitrate() + " bps");
+    }
+
+    /**
+     * Stop answering and stop all the tuners.
+     */
+    public void stop() {
+
+        running = false;
+        if (discoverSocket != null) {
+            discoverSocket.close();
+        }
+
+        try {
+
+            if (controlSocket != null) {
+                controlSocket.close();
+            }
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.DEBUG, "HDHRSimulator: " + ex.getMessage());
+        }
+
+        if (tuners != null) {
+
+            for (int i = 0; i < tuners.length; i++) {
+                tuners[i].close();
+            }
+        }
+    }
+
+    private int deviceId() {
+        return ((int) Long.parseLong(getId(), 16));
+    }
+
+    private void discover() {
+
+        HDHomerun_Pkt rx = new HDHomerun_Pkt();
+        HDHomerun_Pkt tx = new HDHomerun_Pkt();
+        byte[] buf = new byte[HDHomerun_Pkt.HDHOMERUN_MAX_PACKET_SIZE];
+        DatagramPacket dp = new DatagramPacket(buf, buf.length);
+        while (running) {
+
+            try {
+
+                dp.setData(buf);
+                discoverSocket.receive(dp);
+                rx.reset();
+                System.arraycopy(buf, 0, rx.buffer, rx.startIndex,
+                    dp.getLength());
+                rx.endIndex = rx.startIndex + dp.getLength();
+
+                short[] type = new short[1];
+                if ((rx.open_frame(type) > 0)
+                    && (type[0] == HDHomerun_Pkt.HDHOMERUN_TYPE_DISCOVER_REQ)
+                    && (isWanted(rx))) {
+
+                    tx.reset();
+                    tx.write_u8(HDHomerun_Pkt.HDHOMERUN_TAG_DEVICE_TYPE);
+                    tx.write_var_length((short) 4);
+                    tx.write_u32(HDHomerun_Pkt.HDHOMERUN_DEVICE_TYPE_TUNER);
+                    tx.write_u8(HDHomerun_Pkt.HDHOMERUN_TAG_DEVICE_ID);
+                    tx.write_var_length((short) 4);
+                    tx.write_u32(deviceId());
+                    tx.write_u8(HDHomerun_Pkt.HDHOMERUN_TAG_TUNER_COUNT);
+                    tx.write_var_length((short) 1);
+                    tx.write_u8((byte) getTunerCount());
+                    tx.seal_frame(HDHomerun_Pkt.HDHOMERUN_TYPE_DISCOVER_RPY);
+                    discoverSocket.send(new DatagramPacket(tx.buffer,
+                        tx.startIndex, tx.endIndex - tx.startIndex,
+                        dp.getSocketAddress()));
+                }
+
+            } catch (IOException ex) {
+
+                if (running) {
+                    LogUtil.log(LogUtil.WARNING, "HDHRSimulator: discover "
+                        + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean isWanted(HDHomerun_Pkt rx) {
+
+        boolean result = true;
+
+        byte[] tag = new byte[1];
+        int[] length = new int[1];
+        int next = 0;
+        while ((next = rx.read_tlv(tag, length)) != 0) {
+
+            if (length[0] == 4) {
+
+                int value = rx.read_u32();
+                if ((tag[0] == HDHomerun_Pkt.HDHOMERUN_TAG_DEVICE_TYPE)
+                    && (value != HDHomerun_Pkt.HDHOMERUN_DEVICE_TYPE_WILDCARD)
+                    && (value != HDHomerun_Pkt.HDHOMERUN_DEVICE_TYPE_TUNER)) {
+
+                    result = false;
+
+                } else if ((tag[0] == HDHomerun_Pkt.HDHOMERUN_TAG_DEVICE_ID)
+                    && (value != HDHomerun_Pkt.HDHOMERUN_DEVICE_ID_WILDCARD)
+                    && (value != deviceId())) {
+
+                    result = false;
+                }
+            }
+            rx.posIndex = next;
+        }
+
+        return (result);
+    }
+
+    private void accept() {
+
+        while (running) {
+
+            try {
+
+                final Socket s = controlSocket.accept();
+                s.setTcpNoDelay(true);
+                Thread t = new Thread(new Runnable() {
+
+                    public void run() {
+                        control(s);
+                    }
+                }, "jflicks-hdhrsim-" + connectionCount.incrementAndGet());
+                t.setDaemon(true);
+                t.start();
+
+            } catch (IOException ex) {
+
+                if (running) {
+                    LogUtil.log(LogUtil.WARNING, "HDHRSimulator: accept "
+                        + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void control(Socket s) {
+
+        String peer = s.getInetAddress().getHostAddress();
+        HDHomerun_Pkt rx = new HDHomerun_Pkt();
+        HDHomerun_Pkt tx = new HDHomerun_Pkt();
+        try {
+
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+            while (running) {
+
+                // A frame is type, length, payload and a CRC.
+                rx.reset();
+                in.readFully(rx.buffer, rx.startIndex, 4);
+                int length = ((rx.buffer[rx.startIndex + 2] & 0xff) << 8)
+                    | (rx.buffer[rx.startIndex + 3] & 0xff);
+                if (length > HDHomerun_Pkt.HDHOMERUN_MAX_PAYLOAD_SIZE) {
+                    throw new IOException("frame too long " + length);
+                }
+                in.readFully(rx.buffer, rx.startIndex + 4, length + 4);
+                rx.endIndex = rx.startIndex + length + 8;
+
+                short[] type = new short[1];
+                if ((rx.open_frame(type) <= 0)
+                    || (type[0] != HDHomerun_Pkt.HDHOMERUN_TYPE_GETSET_REQ)) {
+
+                    throw new IOException("bad frame");
+                }
+
+                getset(rx, tx, peer);
+                out.write(tx.buffer, tx.startIndex,
+                    tx.endIndex - tx.startIndex);
+                out.flush();
+            }
+
+        } catch (EOFException ex) {
+
+            LogUtil.log(LogUtil.DEBUG, "HDHRSimulator: " + peer + " closed");
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.DEBUG, "HDHRSimulator: " + peer + " "
+                + ex.getMessage());
+
+        } finally {
+
+            try {
+
+                s.close();
+
+            } catch (IOException ex) {
+
+                LogUtil.log(LogUtil.DEBUG, "HDHRSimulator: "
+                    + ex.getMessage());
+            }
+        }
+    }
+
+    private static String toString(HDHomerun_Pkt pkt, int length)
+        throws UnsupportedEncodingException {
+
+        // The strings are sent with their NUL.
+        int n = length;
+        while ((n > 0) && (pkt.buffer[pkt.posIndex + n - 1] == 0)) {
+            n--;
+        }
+
+        return (new String(pkt.buffer, pkt.posIndex, n, "UTF-8"));
+    }
+
+    private static void write(HDHomerun_Pkt pkt, byte tag, String s)
+        throws UnsupportedEncodingException {
+
+        byte[] bytes = s.getBytes("UTF-8");
+        byte[] b = Arrays.copyOf(bytes, bytes.length + 1);
+        pkt.write_u8(tag);
+        pkt.write_var_length((short) b.length);
+        pkt.write_mem(b, (short) b.length);
+    }
+
+    private void getset(HDHomerun_Pkt rx, HDHomerun_Pkt tx, String peer)
+        throws IOException {
+
+        String name = null;
+        String value = null;
+        int key = 0;
+
+        byte[] tag = new byte[1];
+        int[] length = new int[1];
+        int next = 0;
+        while ((next = rx.read_tlv(tag, length)) != 0) {
+
+            if (tag[0] == HDHomerun_Pkt.HDHOMERUN_TAG_GETSET_NAME) {
+                name = toString(rx, length[0]);
+            } else if (tag[0] == HDHomerun_Pkt.HDHOMERUN_TAG_GETSET_VALUE) {
+                value = toString(rx, length[0]);
+            } else if ((tag[0] == HDHomerun_Pkt.HDHOMERUN_TAG_GETSET_LOCKKEY)
+                && (length[0] == 4)) {
+                key = rx.read_u32();
+            }
+            rx.posIndex = next;
+        }
+
+        String result = UNKNOWN;
+        if (name == null) {
+
+            name = "";
+
+        } else if (name.startsWith(TUNER)) {
+
+            // Like /tuner0/channel.
+            int slash = name.indexOf('/', TUNER.length());
+            int number = -1;
+            if (slash != -1) {
+
+                try {
+
+                    number = Integer.parseInt(name.substring(TUNER.length(),
+                        slash));
+
+                } catch (NumberFormatException ex) {
+
+                    number = -1;
+                }
+            }
+
+            if ((number >= 0) && (number < tuners.length)) {
+
+                String var = name.substring(slash + 1);
+                if (value == null) {
+                    result = tuners[number].get(var);
+                } else {
+                    result = tuners[number].set(var, value, key, peer);
+                }
+            }
+
+        } else if (value == null) {
+
+            if ("/sys/model".equals(name)) {
+                result = getModel();
+            } else if ("/sys/hwmodel".equals(name)) {
+                result = "HDHR-SIM";
+            } else if ("/sys/version".equals(name)) {
+                result = VERSION;
+            } else if ("help".equals(name)) {
+
+                result = "Supported configuration options:\n"
+                    + "/sys/model\n/sys/hwmodel\n/sys/version\n"
+                    + "/tuner<n>/channel <modulation>:<freq|ch>\n"
+                    + "/tuner<n>/channelmap <channelmap>\n"
+                    + "/tuner<n>/filter 0x<nnnn>-0x<nnnn> [...]\n"
+                    + "/tuner<n>/program <program number>\n"
+                    + "/tuner<n>/target <ip>:<port>\n"
+                    + "/tuner<n>/lockkey\n/tuner<n>/status\n"
+                    + "/tuner<n>/streaminfo\n/tuner<n>/debug\n";
+            }
+        }
+
+        tx.reset();
+        write(tx, HDHomerun_Pkt.HDHOMERUN_TAG_GETSET_NAME, name);
+        if (result.startsWith("ERROR")) {
+            write(tx, HDHomerun_Pkt.HDHOMERUN_TAG_ERROR_MESSAGE, result);
+        } else {
+            write(tx, HDHomerun_Pkt.HDHOMERUN_TAG_GETSET_VALUE, result);
+        }
+        tx.seal_frame(HDHomerun_Pkt.HDHOMERUN_TYPE_GETSET_RPY);
+    }
+
+}
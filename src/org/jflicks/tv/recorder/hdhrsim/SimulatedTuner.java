@@ -0,0 +1,584 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.recorder.hdhrsim;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jflicks.util.LogUtil;
+
+/**
+ * One tuner of an HDHRSimulator.  It keeps the channel, program, target
+ * and lock key like the real tuner does, and once a channel has locked
+ * and a target is set it sends the simulator stream there, seven TS
+ * packets to a datagram, paced at the simulator bitrate.
+ *
+ * The stream is looped starting at a random packet so two tuners do not
+ * send the same thing at the same time, and the continuity counters are
+ * written fresh so the loop does not look like an error.  Lost, out of
+ * order and late datagrams are made up as often as the simulator says.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class SimulatedTuner implements Runnable {
+
+    /**
+     * The size of a TS packet.
+     */
+    public static final int PACKET_SIZE = 188;
+
+    /**
+     * The number of TS packets in a datagram.
+     */
+    public static final int PACKETS_PER_DATAGRAM = 7;
+
+    private static final int DATAGRAM_SIZE =
+        PACKET_SIZE * PACKETS_PER_DATAGRAM;
+    private static final int RTP_HEADER_SIZE = 12;
+    private static final int RTP_PAYLOAD_MP2T = 33;
+    private static final long LATE_LIMIT = 100000000L;
+    private static final long WAIT_NANOS = 10000000L;
+
+    private HDHRSimulator simulator;
+    private int number;
+    private Random random;
+    private String channel;
+    private String channelMap;
+    private String program;
+    private String filter;
+    private String target;
+    private int lockkey;
+    private String lockOwner;
+    private long tunedAt;
+    private volatile Thread thread;
+    private int[] continuity;
+    private volatile long sentCount;
+    private volatile long droppedCount;
+    private volatile long reorderedCount;
+    private volatile long byteCount;
+    private volatile long cpuTime;
+
+    /**
+     * Constructor with our required arguments.
+     *
+     * @param s The HDHRSimulator that has our settings and stream.
+     * @param number The number of this tuner.
+     */
+    public SimulatedTuner(HDHRSimulator s, int number) {
+
+        simulator = s;
+        this.number = number;
+        random = new Random(s.getId().hashCode() + number);
+        channel = "none";
+        channelMap = "us-bcast";
+        program = "0";
+        filter = "0x0000-0x1fff";
+        target = "none";
+        continuity = new int[0x2000];
+    }
+
+    /**
+     * The number of this tuner.
+     *
+     * @return An int value.
+     */
+    public int getNumber() {
+        return (number);
+    }
+
+    /**
+     * The datagrams handed to the network so far.
+     *
+     * @return A long value.
+     */
+    public long getSentCount() {
+        return (sentCount);
+    }
+
+    /**
+     * The datagrams we made up as lost so far.
+     *
+     * @return A long value.
+     */
+    public long getDroppedCount() {
+        return (droppedCount);
+    }
+
+    /**
+     * The datagrams we sent out of order so far.
+     *
+     * @return A long value.
+     */
+    public long getReorderedCount() {
+        return (reorderedCount);
+    }
+
+    /**
+     * The TS bytes handed to the network so far.
+     *
+     * @return A long value.
+     */
+    public long getByteCount() {
+        return (byteCount);
+    }
+
+    /**
+     * The CPU nanoseconds used sending so far.
+     *
+     * @return A long value.
+     */
+    public long getCpuTime() {
+
+        long result = cpuTime;
+
+        Thread t = thread;
+        if (t != null) {
+
+            long l = ManagementFactory.getThreadMXBean().getThreadCpuTime(
+                t.getId());
+            if (l > 0L) {
+                result += l;
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * Clear the counts, the benchmark does this between runs.
+     */
+    public void reset() {
+
+        sentCount = 0L;
+        droppedCount = 0L;
+        reorderedCount = 0L;
+        byteCount = 0L;
+        cpuTime = 0L;
+    }
+
+    private boolean isLocked() {
+
+        return ((!"none".equals(channel))
+            && (System.currentTimeMillis() - tunedAt
+            >= simulator.getLockDelay()));
+    }
+
+    private String status() {
+
+        String result = null;
+
+        if ("none".equals(channel)) {
+
+            result = "ch=none lock=none ss=0 snq=0 seq=0 bps=0 pps=0";
+
+        } else if (isLocked()) {
+
+            long bps = simulator.getBitrate();
+            long pps = (thread != null) ? bps / (8L * PACKET_SIZE) : 0L;
+            result = "ch=" + channel + " lock=8vsb ss=100 snq=100 seq=100"
+                + " bps=" + bps + " pps=" + pps;
+
+        } else {
+
+            result = "ch=" + channel + " lock=none ss=80 snq=0 seq=0 bps=0"
+                + " pps=0";
+        }
+
+        return (result);
+    }
+
+    private String streamInfo() {
+
+        String result = "none\n";
+
+        if (isLocked()) {
+
+            result = "1: 1.1 SIM1\n2: 1.2 SIM2\n3: 1.3 SIM3\n"
+                + "tsid=0x0001\n";
+        }
+
+        return (result);
+    }
+
+    /**
+     * Get one of our variables.
+     *
+     * @param name The part of the name after /tunerN/.
+     * @return The value or a String starting with ERROR.
+     */
+    public synchronized String get(String name) {
+
+        String result = HDHRSimulator.UNKNOWN;
+
+        if ("channel".equals(name)) {
+            result = channel;
+        } else if ("channelmap".equals(name)) {
+            result = channelMap;
+        } else if ("program".equals(name)) {
+            result = program;
+        } else if ("filter".equals(name)) {
+            result = filter;
+        } else if ("target".equals(name)) {
+            result = target;
+        } else if ("status".equals(name)) {
+            result = status();
+        } else if ("streaminfo".equals(name)) {
+            result = streamInfo();
+        } else if ("lockkey".equals(name)) {
+            result = (lockkey != 0) ? lockOwner : "none";
+        } else if ("debug".equals(name)) {
+
+            result = "tun: " + status() + "\nnet: sent=" + sentCount
+                + " lost=" + droppedCount + " reordered=" + reorderedCount
+                + "\n";
+        }
+
+        return (result);
+    }
+
+    /**
+     * Set one of our variables.
+     *
+     * @param name The part of the name after /tunerN/.
+     * @param value The new value.
+     * @param key The lock key sent with the request, zero if none.
+     * @param peer The address of who asked.
+     * @return The value or a String starting with ERROR.
+     */
+    public synchronized String set(String name, String value, int key,
+        String peer) {
+
+        String result = value;
+
+        if ("lockkey".equals(name)) {
+
+            if ("force".equals(value)) {
+
+                lockkey = 0;
+
+            } else if ((lockkey != 0) && (key != lockkey)) {
+
+                result = "ERROR: resource locked by /" + lockOwner;
+
+            } else if ("none".equals(value)) {
+
+                lockkey = 0;
+
+            } else {
+
+                try {
+
+                    lockkey = (int) Long.parseLong(value);
+                    lockOwner = peer;
+
+                } catch (NumberFormatException ex) {
+
+                    result = "ERROR: invalid lockkey";
+                }
+            }
+
+        } else if ((lockkey != 0) && (key != lockkey)) {
+
+            result = "ERROR: resource locked by /" + lockOwner;
+
+        } else if ("channel".equals(name)) {
+
+            channel = value;
+            tunedAt = System.currentTimeMillis();
+
+        } else if ("channelmap".equals(name)) {
+
+            channelMap = value;
+
+        } else if ("program".equals(name)) {
+
+            program = value;
+
+        } else if ("filter".equals(name)) {
+
+            filter = value;
+
+        } else if ("target".equals(name)) {
+
+            if (("none".equals(value)) || (parseTarget(value) != null)) {
+
+                target = value;
+                updateSender();
+
+            } else {
+
+                result = "ERROR: invalid target";
+            }
+
+        } else {
+
+            result = HDHRSimulator.UNKNOWN;
+        }
+
+        return (result);
+    }
+
+    private static String[] parseTarget(String s) {
+
+        String[] result = null;
+
+        // Like rtp://192.168.1.2:5000 or udp://...
+        int index = s.indexOf("://");
+        int colon = s.lastIndexOf(':');
+        if ((index != -1) && (colon > index)) {
+
+            String proto = s.substring(0, index);
+            if (("rtp".equals(proto)) || ("udp".equals(proto))) {
+
+                result = new String[] {
+                    proto, s.substring(index + 3, colon),
+                    s.substring(colon + 1)
+                };
+            }
+        }
+
+        return (result);
+    }
+
+    private void updateSender() {
+
+        // The old sender sees it is no longer the one and quits.
+        Thread old = thread;
+        thread = null;
+        if (old != null) {
+            old.interrupt();
+        }
+
+        if (!"none".equals(target)) {
+
+            thread = new Thread(this, "jflicks-hdhrsim-tuner" + number);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop sending and let go of everything.
+     */
+    public synchronized void close() {
+
+        target = "none";
+        channel = "none";
+        lockkey = 0;
+        updateSender();
+    }
+
+    private synchronized boolean isSending(Thread t, boolean[] rtp,
+        InetAddress[] address, int[] port) {
+
+        boolean result = false;
+
+        String[] array = parseTarget(target);
+        if ((thread == t) && (array != null)) {
+
+            try {
+
+                rtp[0] = "rtp".equals(array[0]);
+                address[0] = InetAddress.getByName(array[1]);
+                port[0] = Integer.parseInt(array[2]);
+                result = true;
+
+            } catch (IOException ex) {
+
+                result = false;
+
+            } catch (NumberFormatException ex) {
+
+                result = false;
+            }
+        }
+
+        return (result);
+    }
+
+    private synchronized boolean isLockedNow() {
+        return (isLocked());
+    }
+
+    private int fill(byte[] stream, int position, byte[] buf, int offset) {
+
+        int result = position;
+
+        for (int i = 0; i < PACKETS_PER_DATAGRAM; i++) {
+
+            int at = offset + i * PACKET_SIZE;
+            System.arraycopy(stream, result, buf, at, PACKET_SIZE);
+            int pid = ((buf[at + 1] & 0x1f) << 8) | (buf[at + 2] & 0xff);
+
+            // Only packets with a payload count.
+            if (((buf[at + 3] & 0x10) != 0) && (pid != 0x1fff)) {
+
+                int cc = (continuity[pid] + 1) & 0x0f;
+                continuity[pid] = cc;
+                buf[at + 3] = (byte) ((buf[at + 3] & 0xf0) | cc);
+            }
+
+            result += PACKET_SIZE;
+            if (result >= stream.length) {
+                result = 0;
+            }
+        }
+
+        return (result);
+    }
+
+    private void send(DatagramSocket ds, DatagramPacket dp, byte[] held,
+        int heldLength) throws IOException {
+
+        ds.send(dp);
+        sentCount++;
+        byteCount += DATAGRAM_SIZE;
+        if (held != null) {
+
+            dp.setData(held, 0, heldLength);
+            ds.send(dp);
+            sentCount++;
+            byteCount += DATAGRAM_SIZE;
+        }
+    }
+
+    /**
+     * Send the stream to our target until it changes.
+     */
+    public void run() {
+
+        Thread me = Thread.currentThread();
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        byte[] stream = simulator.getStream();
+        int position = random.nextInt(stream.length / PACKET_SIZE)
+            * PACKET_SIZE;
+        Arrays.fill(continuity, 0);
+
+        int ssrc = random.nextInt();
+        int sequence = random.nextInt(0x10000);
+        long begin = System.nanoTime();
+        long next = begin;
+        byte[] buf = new byte[RTP_HEADER_SIZE + DATAGRAM_SIZE];
+        byte[] held = null;
+        int heldLength = 0;
+
+        boolean[] rtp = new boolean[1];
+        InetAddress[] address = new InetAddress[1];
+        int[] port = new int[1];
+        DatagramSocket ds = null;
+        try {
+
+            ds = new DatagramSocket();
+            ds.setSendBufferSize(1024 * 1024);
+            while ((!me.isInterrupted())
+                && (isSending(me, rtp, address, port))) {
+
+                if (!isLockedNow()) {
+
+                    LockSupport.parkNanos(WAIT_NANOS);
+                    next = System.nanoTime();
+
+                } else {
+
+                    // Pace the datagrams to the bitrate.  Jitter holds up
+                    // this one a little, the next one goes on time.
+                    long interval = (DATAGRAM_SIZE * 8L * 1000000000L)
+                        / Math.max(1L, simulator.getBitrate());
+                    next += interval;
+                    long due = next;
+                    if (simulator.getJitter() > 0) {
+                        due += random.nextInt(simulator.getJitter() + 1)
+                            * 1000000L;
+                    }
+                    long now = System.nanoTime();
+                    if (due > now) {
+
+                        LockSupport.parkNanos(due - now);
+
+                    } else if (now - next > LATE_LIMIT) {
+
+                        // We can't keep up, don't burst to catch up.
+                        next = now;
+                    }
+
+                    int offset = 0;
+                    if (rtp[0]) {
+
+                        long ts = ((System.nanoTime() - begin) * 9L) / 100000L;
+                        buf[0] = (byte) 0x80;
+                        buf[1] = (byte) RTP_PAYLOAD_MP2T;
+                        buf[2] = (byte) (sequence >> 8);
+                        buf[3] = (byte) sequence;
+                        buf[4] = (byte) (ts >> 24);
+                        buf[5] = (byte) (ts >> 16);
+                        buf[6] = (byte) (ts >> 8);
+                        buf[7] = (byte) ts;
+                        buf[8] = (byte) (ssrc >> 24);
+                        buf[9] = (byte) (ssrc >> 16);
+                        buf[10] = (byte) (ssrc >> 8);
+                        buf[11] = (byte) ssrc;
+                        offset = RTP_HEADER_SIZE;
+                    }
+                    sequence = (sequence + 1) & 0xffff;
+                    position = fill(stream, position, buf, offset);
+                    int length = offset + DATAGRAM_SIZE;
+
+                    if (random.nextDouble() < simulator.getLoss()) {
+
+                        droppedCount++;
+
+                    } else if ((held == null)
+                        && (random.nextDouble() < simulator.getReorder())) {
+
+                        // Send this one after the next one.
+                        held = Arrays.copyOf(buf, length);
+                        heldLength = length;
+                        reorderedCount++;
+
+                    } else {
+
+                        DatagramPacket dp = new DatagramPacket(buf, length,
+                            address[0], port[0]);
+                        send(ds, dp, held, heldLength);
+                        held = null;
+                    }
+                }
+            }
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.WARNING, "SimulatedTuner: " + number + " "
+                + ex.getMessage());
+
+        } finally {
+
+            if (ds != null) {
+                ds.close();
+            }
+            cpuTime += mx.getCurrentThreadCpuTime();
+        }
+    }
+
+}
@@ -114,14 +114,16 @@ public class HDHRRecorder extends BaseRecorder {
 
                     HDHRRecorderTranscodeHlsJob job =
                         new HDHRRecorderTranscodeHlsJob(this);
-                    JobContainer jc = JobManager.getJobContainer(job);
+                    JobContainer jc = JobManager.getJobContainer(job,
+                        JobManager.RECORDING_POOL);
                     setJobContainer(jc);
                     jc.start();
 
                 } else {
 
                     HDHRRecorderHlsJob job = new HDHRRecorderHlsJob(this);
-                    JobContainer jc = JobManager.getJobContainer(job);
+                    JobContainer jc = JobManager.getJobContainer(job,
+                        JobManager.RECORDING_POOL);
                     setJobContainer(jc);
                     jc.start();
                 }
@@ -132,14 +134,16 @@ public class HDHRRecorder extends BaseRecorder {
 
                     HDHRRecorderTranscodeJob job =
                         new HDHRRecorderTranscodeJob(this);
-                    JobContainer jc = JobManager.getJobContainer(job);
+                    JobContainer jc = JobManager.getJobContainer(job,
+                        JobManager.RECORDING_POOL);
                     setJobContainer(jc);
                     jc.start();
 
                 } else {
 
                     HDHRRecorderJob job = new HDHRRecorderJob(this);
-                    JobContainer jc = JobManager.getJobContainer(job);
+                    JobContainer jc = JobManager.getJobContainer(job,
+                        JobManager.RECORDING_POOL);
                     setJobContainer(jc);
                     jc.start();
                 }
@@ -176,7 +180,8 @@ public class HDHRRecorder extends BaseRecorder {
             setRecordingLiveTV(true);
 
             HDHRStreamJob job = new HDHRStreamJob(this);
-            JobContainer jc = JobManager.getJobContainer(job);
+            JobContainer jc = JobManager.getJobContainer(job,
+                JobManager.RECORDING_POOL);
             setJobContainer(jc);
             jc.start();
         }
@@ -25,6 +25,8 @@ import org.jflicks.job.JobEvent;
 import org.jflicks.job.JobListener;
 import org.jflicks.job.JobManager;
 import org.jflicks.tv.recorder.HlsJob;
+import org.jflicks.tv.recorder.SegmentListener;
+import org.jflicks.tv.recorder.SegmenterJob;
 import org.jflicks.util.Hostname;
 import org.jflicks.util.LogUtil;
 import org.jflicks.util.Util;
@@ -44,11 +46,12 @@ import org.jflicks.util.Util;
  * @author Doug Barnum
  * @version 1.0
  */
-public class HDHRRecorderHlsJob extends AbstractJob implements JobListener {
+public class HDHRRecorderHlsJob extends AbstractJob implements JobListener,
+    SegmentListener {
 
     private HDHRRecorder hdhrRecorder;
     private StreamJob streamJob;
-    private HlsJob hlsJob;
+    private AbstractJob hlsJob;
     private JobContainer jobContainer;
     private JobContainer hlsJobContainer;
 
@@ -70,11 +73,11 @@ public class HDHRRecorderHlsJob extends AbstractJob implements JobListener {
         streamJob = j;
     }
 
-    private HlsJob getHlsJob() {
+    private AbstractJob getHlsJob() {
         return (hlsJob);
     }
 
-    private void setHlsJob(HlsJob j) {
+    private void setHlsJob(AbstractJob j) {
         hlsJob = j;
     }
 
@@ -293,6 +296,20 @@ public class HDHRRecorderHlsJob extends AbstractJob implements JobListener {
         return (result);
     }
 
+    private int getLiveSegmentSeconds() {
+
+        int result = 0;
+
+        HDHRRecorder r = getHDHRRecorder();
+        if ((r != null) && (r.isRecordingLiveTV())
+            && ("copy".equals(getVideoTranscodeOptions()))) {
+
+            result = r.getConfiguredLiveSegmentSeconds();
+        }
+
+        return (result);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -315,12 +332,28 @@ public class HDHRRecorderHlsJob extends AbstractJob implements JobListener {
             String url = "udp://@" + getHost() + ":" + getPort();
             String prefix = f.getName();
             prefix = prefix.substring(0, prefix.lastIndexOf("."));
-            HlsJob hjob = new HlsJob(url, prefix, parent, getDuration());
-            hjob.setVideoCodec(getVideoTranscodeOptions());
-            //hjob.setVideoCodec("libx264 -preset superfast -tune zerolatency  -threads 2 -s 1280x720 -flags -global_header");
-            hjob.setAudioCodec(getAudioTranscodeOptions());
-            hjob.addJobListener(this);
-            setHlsJob(hjob);
+            int seconds = getLiveSegmentSeconds();
+            if (seconds > 0) {
+
+                // Live TV is copied as is so we can segment it ourselves
+                // with short segments and know right away when each one
+                // is ready.
+                SegmenterJob sjob = new SegmenterJob(url, prefix, parent,
+                    getDuration(), seconds);
+                sjob.addSegmentListener(this);
+                sjob.addJobListener(this);
+                getHDHRRecorder().setSegmentCount(0);
+                setHlsJob(sjob);
+
+            } else {
+
+                HlsJob hjob = new HlsJob(url, prefix, parent, getDuration());
+                hjob.setVideoCodec(getVideoTranscodeOptions());
+                //hjob.setVideoCodec("libx264 -preset superfast -tune zerolatency  -threads 2 -s 1280x720 -flags -global_header");
+                hjob.setAudioCodec(getAudioTranscodeOptions());
+                hjob.addJobListener(this);
+                setHlsJob(hjob);
+            }
 
             JobContainer jc = JobManager.getJobContainer(getHlsJob());
             setHlsJobContainer(jc);
@@ -383,6 +416,19 @@ public class HDHRRecorderHlsJob extends AbstractJob implements JobListener {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void segmentAdded(File playlist, File segment, int count,
+        double seconds) {
+
+        HDHRRecorder r = getHDHRRecorder();
+        if (r != null) {
+
+            r.setSegmentCount(count);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -25,6 +25,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 
 import org.jflicks.configure.BaseConfig;
 import org.jflicks.configure.Configuration;
@@ -53,7 +55,7 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
     private String title;
     private ArrayList<PendingRecord> pendingRecordList;
     private ArrayList<PendingRecord> workPendingRecordList;
-    private int robinIndex;
+    private RecordingPlacement recordingPlacement;
 
     /**
      * Simple empty constructor.
@@ -62,6 +64,7 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
 
         setPendingRecordList(new ArrayList<PendingRecord>());
         setWorkPendingRecordList(new ArrayList<PendingRecord>());
+        recordingPlacement = new RecordingPlacement();
     }
 
     /**
@@ -430,22 +433,7 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
                     PendingRecord pr = readylist.get(i);
                     if (pr != null) {
 
-                        addRecordedShow(new RecordedShow(pr.getShowId()));
-                        Recording rec = pr.getRecording();
-                        if (rec != null) {
-
-                            rec.setCurrentlyRecording(true);
-                            addRecording(rec);
-                        }
-
-                        /*
-                         * Note we will remove this rule when indexer is called.
-                        RecordingRule rr = pr.getRecordingRule();
-                        if ((rr != null) && (rr.isOnceType())) {
-
-                            removeRecordingRule(rr);
-                        }
-                        */
+                        markRecording(pr);
                     }
 
                 }
@@ -457,44 +445,149 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
         return (result);
     }
 
+    private void markRecording(PendingRecord pr) {
+
+        addRecordedShow(new RecordedShow(pr.getShowId()));
+        Recording rec = pr.getRecording();
+        if (rec != null) {
+
+            rec.setCurrentlyRecording(true);
+            addRecording(rec);
+        }
+
+        /*
+         * Note we will remove this rule when indexer is called.
+        RecordingRule rr = pr.getRecordingRule();
+        if ((rr != null) && (rr.isOnceType())) {
+
+            removeRecordingRule(rr);
+        }
+        */
+    }
+
     /**
-     * {@inheritDoc}
+     * The READY PendingRecord instances that start before the given time.
+     * Unlike getReadyPendingRecords() nothing is dequeued, so this can be
+     * used to plan ahead.  Any PendingRecord that should have already
+     * finished is dropped.
+     *
+     * @param time A given time in milliseconds.
+     * @return An array of PendingRecord instances.
      */
-    public File createFile(PendingRecord pr) {
+    public PendingRecord[] getReadyPendingRecords(long time) {
 
-        File result = null;
+        PendingRecord[] result = null;
 
-        String[] array = getConfiguredRecordingDirectories();
-        if ((array != null) && (array.length > 0)) {
+        ArrayList<PendingRecord> list = getPendingRecordList();
+        if (list != null) {
 
-            File dir = null;
-            int checks = 0;
+            ArrayList<PendingRecord> readylist = new ArrayList<PendingRecord>();
+            long now = System.currentTimeMillis();
+            synchronized (list) {
 
-            // Make sure the directory has at least 6-gig available...
-            while (checks < array.length) {
+                for (int i = list.size() - 1; i >= 0; i--) {
 
-                // We keep a robinIndex to rotate around directories.
-                if (robinIndex >= array.length) {
+                    PendingRecord pr = list.get(i);
+                    if (pr.getStart() + (pr.getDuration() * 1000) < now) {
 
-                    robinIndex = 0;
+                        list.remove(i);
+
+                    } else if ((pr.getStart() < time) && (pr.isReadyStatus())) {
+
+                        readylist.add(0, pr);
+                    }
                 }
+            }
 
-                // Use the current directory and then incr.
-                dir = new File(array[robinIndex++]);
-                if (dir.getUsableSpace() > 16442450944L) {
+            if (readylist.size() > 0) {
 
-                    // We are done.
-                    checks = array.length;
+                result = readylist.toArray(new PendingRecord[readylist.size()]);
+            }
+        }
 
-                } else {
+        return (result);
+    }
+
+    /**
+     * Dequeue one PendingRecord because it is being recorded now.  The
+     * same work is done as getReadyPendingRecords() does for each one it
+     * returns.  The PendingRecord may have been replaced by an equal one
+     * if we were rescheduled, so we match on the start time, channel and
+     * show.
+     *
+     * @param pr A given PendingRecord.
+     * @return True if it was still pending.
+     */
+    public boolean dequeuePendingRecord(PendingRecord pr) {
 
-                    LogUtil.log(LogUtil.INFO, "Skipping " + dir
-                        + " as there is not enough room.");
-                    checks++;
-                    dir = null;
+        boolean result = false;
+
+        ArrayList<PendingRecord> list = getPendingRecordList();
+        if ((list != null) && (pr != null)) {
+
+            synchronized (list) {
+
+                for (int i = 0; i < list.size(); i++) {
+
+                    PendingRecord tmp = list.get(i);
+                    if ((tmp == pr) || ((tmp.getStart() == pr.getStart())
+                        && (tmp.getChannel() != null)
+                        && (tmp.getChannel().equals(pr.getChannel()))
+                        && (tmp.getShowId() != null)
+                        && (tmp.getShowId().equals(pr.getShowId())))) {
+
+                        list.remove(i);
+                        result = true;
+                        break;
+                    }
                 }
             }
 
+            if (result) {
+                markRecording(pr);
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * Called each time the PendingRecord list has been rebuilt.  Extensions
+     * that launch recordings can override this to update their plans.
+     */
+    protected void pendingRecordsUpdated() {
+    }
+
+    /**
+     * Measure how fast the recording directories are filling up.  Called
+     * on a timer so a recording is placed using a current rate.
+     */
+    public void sampleRecordingDirectories() {
+
+        recordingPlacement.sample(getConfiguredRecordingDirectories());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public DiskLoad[] getDiskLoads() {
+
+        return (recordingPlacement.getDiskLoads(
+            getConfiguredRecordingDirectories()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public File createFile(PendingRecord pr) {
+
+        File result = null;
+
+        String[] array = getConfiguredRecordingDirectories();
+        if ((array != null) && (array.length > 0)) {
+
+            // The least busy disk with room.
+            File dir = recordingPlacement.place(array, pr);
             if (dir != null) {
 
                 StringBuffer sb = new StringBuffer();
@@ -799,51 +892,33 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
 
             // Next we need to update the "laterAvailable" and
             // "earlierAvailable" flags to help us sort it out later.
-            checkDuplicates(workList);
+            long allocStart = System.currentTimeMillis();
+            HashMap<String, ArrayList<PendingRecord>> showMap =
+                checkDuplicates(workList);
 
             // Next we need to assign a Recorder.  Here the "status" could
             // turn to be a "conflict" or "later".
+            RecorderAllocator allocator = new RecorderAllocator(ris);
             for (int i = 0; i < workList.size(); i++) {
 
                 PendingRecord pr = workList.get(i);
                 if ((!pr.isEarlierStatus()) && (!pr.isPreviousRecordStatus())) {
 
-                    Channel channel = pr.getChannel();
-                    long start = pr.getStart();
-                    long end = start + (pr.getDuration() * 1000);
-                    TimeRange tr = new TimeRange(start, end);
-                    for (int j = 0; j < ris.length; j++) {
+                    if (allocator.assign(pr)) {
 
-                        if (ris[j].supports(channel)) {
+                        pr.setStatus(PendingRecord.READY);
 
-                            if (!ris[j].isBusyAt(tr)) {
+                        // Now lets flag any duplicates there
+                        // might be since we have this recording
+                        // covered here.
+                        if (pr.isLaterAvailable()) {
 
-                                ris[j].addTimeRange(tr);
-                                pr.setRecorder(ris[j].getRecorder());
-                                File f = createFile(pr);
-                                pr.setFile(f);
-                                Recording rec = pr.getRecording();
-                                rec.setPath(f.getPath());
-                                pr.setStatus(PendingRecord.READY);
-
-                                // Now lets flag any duplicates there
-                                // might be since we have this recording
-                                // covered here.
-                                if (pr.isLaterAvailable()) {
-
-                                    flagDuplicates(workList, pr);
-                                }
-                                break;
-
-                            } else {
-
-                                LogUtil.log(LogUtil.DEBUG, "recorder busy: " + ris[j]);
-                            }
+                            flagDuplicates(showMap, pr);
+                        }
 
-                        } else {
+                    } else {
 
-                            LogUtil.log(LogUtil.DEBUG, "supports channel failed...");
-                        }
+                        LogUtil.log(LogUtil.DEBUG, "no recorder free for: " + pr.getName());
                     }
                 }
 
@@ -860,6 +935,37 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
                 }
             }
 
+            // A recording can be moved to another recorder after it was
+            // assigned, so we wait until now to make the files.  What is
+            // no longer going to record should not count against a disk.
+            ArrayList<PendingRecord> readyList = new ArrayList<PendingRecord>();
+            for (int i = 0; i < workList.size(); i++) {
+
+                if (workList.get(i).isReadyStatus()) {
+                    readyList.add(workList.get(i));
+                }
+            }
+            recordingPlacement.retain(readyList);
+            for (int i = 0; i < workList.size(); i++) {
+
+                PendingRecord pr = workList.get(i);
+                if (pr.isReadyStatus()) {
+
+                    File f = createFile(pr);
+                    pr.setFile(f);
+                    if (f != null) {
+
+                        Recording rec = pr.getRecording();
+                        rec.setPath(f.getPath());
+                    }
+                }
+            }
+            LogUtil.log(LogUtil.INFO, "Assigned " + allocator.getAssignedCount()
+                + " of " + workList.size() + " recordings ("
+                + allocator.getResolvedCount() + " conflicts resolved by moving "
+                + allocator.getMovedCount() + ", " + allocator.getFailedCount()
+                + " unassigned) in " + (System.currentTimeMillis() - allocStart) + " ms");
+
             for (int i = 0; i < workList.size(); i++) {
 
                 PendingRecord pr = workList.get(i);
@@ -884,6 +990,7 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
                 dump();
 
                 n.sendMessage(NMSConstants.MESSAGE_SCHEDULE_UPDATE);
+                pendingRecordsUpdated();
             }
         }
     }
@@ -963,20 +1070,21 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
         return (result);
     }
 
-    private void flagDuplicates(ArrayList<PendingRecord> list,
+    static void flagDuplicates(HashMap<String, ArrayList<PendingRecord>> map,
         PendingRecord pr) {
 
-        if ((list != null) && (pr != null)) {
+        if ((map != null) && (pr != null)) {
 
             String showId = pr.getShowId();
             if ((showId != null) && (!pr.isOnceType())) {
 
-                for (int i = 0; i < list.size(); i++) {
+                ArrayList<PendingRecord> list = map.get(showId);
+                if (list != null) {
 
-                    PendingRecord tmp = list.get(i);
-                    if ((tmp != pr) && (!tmp.isOnceType())) {
+                    for (int i = 0; i < list.size(); i++) {
 
-                        if (showId.equals(tmp.getShowId())) {
+                        PendingRecord tmp = list.get(i);
+                        if ((tmp != pr) && (!tmp.isOnceType())) {
 
                             tmp.setStatus(PendingRecord.EARLIER);
                         }
@@ -986,71 +1094,95 @@ public abstract class BaseScheduler extends BaseConfig implements Scheduler {
         }
     }
 
-    private void checkDuplicates(ArrayList<PendingRecord> list) {
+    /**
+     * Set the "laterAvailable" and "earlierAvailable" flags of every
+     * PendingRecord that has another airing of the same show in the list.
+     * The list is grouped by show ID first so this is linear instead of
+     * comparing every pair.  The flags come out the same as the pairwise
+     * scan we used to do, where each PendingRecord was compared against
+     * the SERIES airings of the same show after it in the list.
+     *
+     * @param list The list of PendingRecord instances.
+     * @return All the PendingRecord instances grouped by show ID.
+     */
+    static HashMap<String, ArrayList<PendingRecord>> checkDuplicates(
+        ArrayList<PendingRecord> list) {
 
-        // We cannot assume the list is sorted in anyway so we have to
-        // collect all duplicated by searching through the list.
-        if ((list != null) && (list.size() > 1)) {
+        HashMap<String, ArrayList<PendingRecord>> result =
+            new HashMap<String, ArrayList<PendingRecord>>();
 
-            ArrayList<PendingRecord> duplist = new ArrayList<PendingRecord>();
+        if (list != null) {
 
             for (int i = 0; i < list.size(); i++) {
 
-                PendingRecord pr0 = list.get(i);
-                String showId = pr0.getShowId();
-                if ((pr0.isUndeterminedStatus()) && (showId != null)) {
-
-                    duplist.clear();
-                    //for (int j = 0; j < list.size(); j++) {
-                    for (int j = i + 1; j < list.size(); j++) {
+                PendingRecord pr = list.get(i);
+                String showId = pr.getShowId();
+                if (showId != null) {
 
-                        if (i != j) {
+                    ArrayList<PendingRecord> group = result.get(showId);
+                    if (group == null) {
 
-                            PendingRecord pr1 = list.get(j);
-                            if (!pr1.isOnceType()) {
+                        group = new ArrayList<PendingRecord>();
+                        result.put(showId, group);
+                    }
+                    group.add(pr);
+                }
+            }
 
-                                if (pr1.isUndeterminedStatus()) {
+            Iterator<ArrayList<PendingRecord>> iter = result.values().iterator();
+            while (iter.hasNext()) {
 
-                                    if (showId.equals(pr1.getShowId())) {
+                ArrayList<PendingRecord> group = iter.next();
+                if (group.size() > 1) {
 
-                                        if (!duplist.contains(pr0)) {
-                                            duplist.add(pr0);
-                                        }
-                                        if (!duplist.contains(pr1)) {
-                                            duplist.add(pr1);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-
-                    if (duplist.size() > 0) {
+                    checkDuplicatesInGroup(group);
+                }
+            }
+        }
 
-                        Collections.sort(duplist);
-                        for (int k = 0; k < duplist.size(); k++) {
+        return (result);
+    }
 
-                            if (k == 0) {
+    private static void checkDuplicatesInGroup(ArrayList<PendingRecord> group) {
 
-                                // First item in the list.
-                                duplist.get(k).setLaterAvailable(true);
-                                duplist.get(k).setEarlierAvailable(false);
+        ArrayList<PendingRecord> list = new ArrayList<PendingRecord>();
+        for (int i = 0; i < group.size(); i++) {
 
-                            } else if ((k + 1) < duplist.size()) {
+            if (group.get(i).isUndeterminedStatus()) {
+                list.add(group.get(i));
+            }
+        }
 
-                                // A middle item.
-                                duplist.get(k).setLaterAvailable(true);
-                                duplist.get(k).setEarlierAvailable(true);
+        // Walk backwards keeping the earliest and latest start of the
+        // SERIES airings after the current one.  Those are what the
+        // current one would have been sorted with.
+        long minStart = Long.MAX_VALUE;
+        long maxStart = Long.MIN_VALUE;
+        boolean found = false;
+        for (int i = list.size() - 1; i >= 0; i--) {
+
+            PendingRecord pr = list.get(i);
+            long start = pr.getStart();
+            if (found) {
+
+                // On a tie we stay in front of the later ones.
+                pr.setLaterAvailable(maxStart >= start);
+                pr.setEarlierAvailable(minStart < start);
+
+            } else if ((i > 0) && (!pr.isOnceType())) {
+
+                // Nothing after us so we were only paired with the one
+                // in front of us.  On a tie that one stays in front.
+                boolean first = start < list.get(i - 1).getStart();
+                pr.setLaterAvailable(first);
+                pr.setEarlierAvailable(!first);
+            }
 
-                            } else {
+            if (!pr.isOnceType()) {
 
-                                // This is the last item in the list.
-                                duplist.get(k).setLaterAvailable(false);
-                                duplist.get(k).setEarlierAvailable(true);
-                            }
-                        }
-                    }
-                }
+                found = true;
+                minStart = Math.min(minStart, start);
+                maxStart = Math.max(maxStart, start);
             }
         }
     }
@@ -0,0 +1,186 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.scheduler;
+
+import java.io.Serializable;
+
+/**
+ * How busy a recording directory is right now.  Directories on the same
+ * disk share the numbers of that disk.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class DiskLoad implements Serializable {
+
+    private String directory;
+    private String store;
+    private int writerCount;
+    private int scheduledCount;
+    private long bytesPerSecond;
+    private long usableSpace;
+    private double load;
+
+    /**
+     * Simple empty constructor.
+     */
+    public DiskLoad() {
+    }
+
+    /**
+     * The configured recording directory.
+     *
+     * @return A String instance.
+     */
+    public String getDirectory() {
+        return (directory);
+    }
+
+    /**
+     * The configured recording directory.
+     *
+     * @param s A String instance.
+     */
+    public void setDirectory(String s) {
+        directory = s;
+    }
+
+    /**
+     * The disk the directory is on.
+     *
+     * @return A String instance.
+     */
+    public String getStore() {
+        return (store);
+    }
+
+    /**
+     * The disk the directory is on.
+     *
+     * @param s A String instance.
+     */
+    public void setStore(String s) {
+        store = s;
+    }
+
+    /**
+     * The number of recordings writing to the disk now.
+     *
+     * @return An int value.
+     */
+    public int getWriterCount() {
+        return (writerCount);
+    }
+
+    /**
+     * The number of recordings writing to the disk now.
+     *
+     * @param i An int value.
+     */
+    public void setWriterCount(int i) {
+        writerCount = i;
+    }
+
+    /**
+     * The number of recordings that will write to the disk later.
+     *
+     * @return An int value.
+     */
+    public int getScheduledCount() {
+        return (scheduledCount);
+    }
+
+    /**
+     * The number of recordings that will write to the disk later.
+     *
+     * @param i An int value.
+     */
+    public void setScheduledCount(int i) {
+        scheduledCount = i;
+    }
+
+    /**
+     * The measured bytes per second being written to the disk by
+     * everything, not just recordings.
+     *
+     * @return A long value.
+     */
+    public long getBytesPerSecond() {
+        return (bytesPerSecond);
+    }
+
+    /**
+     * The measured bytes per second being written to the disk by
+     * everything, not just recordings.
+     *
+     * @param l A long value.
+     */
+    public void setBytesPerSecond(long l) {
+        bytesPerSecond = l;
+    }
+
+    /**
+     * The bytes free on the disk.
+     *
+     * @return A long value.
+     */
+    public long getUsableSpace() {
+        return (usableSpace);
+    }
+
+    /**
+     * The bytes free on the disk.
+     *
+     * @param l A long value.
+     */
+    public void setUsableSpace(long l) {
+        usableSpace = l;
+    }
+
+    /**
+     * The load of the disk in recordings, the writers plus what else is
+     * being written counted as recordings.
+     *
+     * @return A double value.
+     */
+    public double getLoad() {
+        return (load);
+    }
+
+    /**
+     * The load of the disk in recordings, the writers plus what else is
+     * being written counted as recordings.
+     *
+     * @param d A double value.
+     */
+    public void setLoad(double d) {
+        load = d;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+
+        return (getDirectory() + " [" + getStore() + "] load "
+            + String.format("%.1f", getLoad()) + ", " + getWriterCount()
+            + " writing, " + getScheduledCount() + " later, "
+            + (getBytesPerSecond() / 1024L) + " KB/s, "
+            + (getUsableSpace() / (1024L * 1024L * 1024L)) + " GB free");
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.scheduler;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import org.jflicks.tv.Channel;
+
+/**
+ * Assigns PendingRecord instances to recorders.  PendingRecords should be
+ * given in priority order.  A PendingRecord first goes on the first free
+ * recorder that can tune its channel.  If there is none, we look for a
+ * recorder where everything in the way can be moved to some other free
+ * recorder.  The recordings that get moved were assigned earlier so they
+ * keep their time, they just end up on a different tuner.  Only when
+ * that fails is the PendingRecord left unassigned.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class RecorderAllocator {
+
+    private RecorderInformation[] recorderInformations;
+    private IdentityHashMap<TimeRange, PendingRecord> ownerMap;
+    private IdentityHashMap<PendingRecord, RecorderInformation> assignMap;
+    private int assignedCount;
+    private int movedCount;
+    private int resolvedCount;
+    private int failedCount;
+
+    /**
+     * Create an allocator over the given recorders.  Any time already
+     * reserved in them stays reserved and is never moved.
+     *
+     * @param array The RecorderInformation instances to fill.
+     */
+    public RecorderAllocator(RecorderInformation[] array) {
+
+        recorderInformations = array;
+        if (recorderInformations == null) {
+            recorderInformations = new RecorderInformation[0];
+        }
+        ownerMap = new IdentityHashMap<TimeRange, PendingRecord>();
+        assignMap = new IdentityHashMap<PendingRecord, RecorderInformation>();
+    }
+
+    /**
+     * The number of PendingRecords that got a recorder.
+     *
+     * @return An int value.
+     */
+    public int getAssignedCount() {
+        return (assignedCount);
+    }
+
+    /**
+     * The number of times a recording was moved to another recorder.
+     *
+     * @return An int value.
+     */
+    public int getMovedCount() {
+        return (movedCount);
+    }
+
+    /**
+     * The number of PendingRecords that got a recorder only because other
+     * recordings were moved out of the way.
+     *
+     * @return An int value.
+     */
+    public int getResolvedCount() {
+        return (resolvedCount);
+    }
+
+    /**
+     * The number of PendingRecords that could not get a recorder.
+     *
+     * @return An int value.
+     */
+    public int getFailedCount() {
+        return (failedCount);
+    }
+
+    /**
+     * The recorder a PendingRecord ended up with.  This can change as
+     * later PendingRecords are assigned.
+     *
+     * @param pr A given PendingRecord.
+     * @return The RecorderInformation or null if not assigned.
+     */
+    public RecorderInformation getRecorderInformation(PendingRecord pr) {
+        return (assignMap.get(pr));
+    }
+
+    /**
+     * Try to find a recorder for the given PendingRecord.  On success the
+     * recorder is set in the PendingRecord.  Any recording moved to make
+     * room has its recorder updated too.
+     *
+     * @param pr A given PendingRecord.
+     * @return True if a recorder was assigned.
+     */
+    public boolean assign(PendingRecord pr) {
+
+        boolean result = false;
+
+        if (pr != null) {
+
+            long start = pr.getStart();
+            long end = start + (pr.getDuration() * 1000);
+            TimeRange tr = new TimeRange(start, end);
+            Channel channel = pr.getChannel();
+
+            for (int i = 0; i < recorderInformations.length; i++) {
+
+                RecorderInformation ri = recorderInformations[i];
+                if ((ri.supports(channel)) && (!ri.isBusyAt(tr))) {
+
+                    reserve(ri, pr, tr);
+                    result = true;
+                    break;
+                }
+            }
+
+            if (!result) {
+
+                for (int i = 0; i < recorderInformations.length; i++) {
+
+                    RecorderInformation ri = recorderInformations[i];
+                    if ((ri.supports(channel)) && (makeRoom(ri, tr))) {
+
+                        reserve(ri, pr, tr);
+                        resolvedCount++;
+                        result = true;
+                        break;
+                    }
+                }
+            }
+
+            if (result) {
+                assignedCount++;
+            } else {
+                failedCount++;
+            }
+        }
+
+        return (result);
+    }
+
+    private void reserve(RecorderInformation ri, PendingRecord pr,
+        TimeRange tr) {
+
+        ri.addTimeRange(tr);
+        ownerMap.put(tr, pr);
+        assignMap.put(pr, ri);
+        pr.setRecorder(ri.getRecorder());
+    }
+
+    private boolean makeRoom(RecorderInformation ri, TimeRange tr) {
+
+        boolean result = true;
+
+        TimeRange[] blockers = ri.getOverlapping(tr);
+        for (int i = 0; i < blockers.length; i++) {
+
+            // A recording in progress can't be moved.
+            if (ownerMap.get(blockers[i]) == null) {
+
+                result = false;
+                break;
+            }
+        }
+
+        if (result) {
+
+            for (int i = 0; i < blockers.length; i++) {
+                ri.removeTimeRange(blockers[i]);
+            }
+
+            ArrayList<RecorderInformation> moves =
+                new ArrayList<RecorderInformation>();
+            for (int i = 0; i < blockers.length; i++) {
+
+                PendingRecord other = ownerMap.get(blockers[i]);
+                RecorderInformation target = null;
+                for (int j = 0; j < recorderInformations.length; j++) {
+
+                    RecorderInformation tmp = recorderInformations[j];
+                    if ((tmp != ri) && (tmp.supports(other.getChannel()))
+                        && (!tmp.isBusyAt(blockers[i]))) {
+
+                        target = tmp;
+                        break;
+                    }
+                }
+
+                if (target != null) {
+
+                    target.addTimeRange(blockers[i]);
+                    moves.add(target);
+
+                } else {
+
+                    result = false;
+                    break;
+                }
+            }
+
+            if (result) {
+
+                for (int i = 0; i < blockers.length; i++) {
+
+                    PendingRecord other = ownerMap.get(blockers[i]);
+                    RecorderInformation target = moves.get(i);
+                    assignMap.put(other, target);
+                    other.setRecorder(target.getRecorder());
+                    movedCount++;
+                }
+
+            } else {
+
+                // Put everything back the way it was.
+                for (int i = 0; i < moves.size(); i++) {
+                    moves.get(i).removeTimeRange(blockers[i]);
+                }
+                for (int i = 0; i < blockers.length; i++) {
+                    ri.addTimeRange(blockers[i]);
+                }
+            }
+        }
+
+        return (result);
+    }
+
+}
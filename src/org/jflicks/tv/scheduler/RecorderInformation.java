@@ -18,7 +18,7 @@ package org.jflicks.tv.scheduler;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashSet;
 
 import org.jflicks.tv.Channel;
 import org.jflicks.tv.recorder.Recorder;
@@ -35,7 +35,9 @@ public class RecorderInformation {
 
     private Recorder recorder;
     private Channel[] channels;
+    private HashSet<Channel> channelSet;
     private ArrayList<TimeRange> timeRangeList;
+    private long[] maxEnds;
 
     /**
      * Simple constructor.
@@ -43,6 +45,8 @@ public class RecorderInformation {
     public RecorderInformation() {
 
         setTimeRangeList(new ArrayList<TimeRange>());
+        channelSet = new HashSet<Channel>();
+        maxEnds = new long[0];
     }
 
     private ArrayList<TimeRange> getTimeRangeList() {
@@ -65,11 +69,55 @@ public class RecorderInformation {
         ArrayList<TimeRange> list = getTimeRangeList();
         if ((tr != null) && (list != null)) {
 
-            list.add(tr);
-            Collections.sort(list);
+            int index = upperBound(tr.getStartTime());
+            list.add(index, tr);
+            updateMaxEnds(index);
         }
     }
 
+    /**
+     * Remove the given time range.  It has to be the same instance that
+     * was added.
+     *
+     * @param tr A given TimeRange to remove.
+     * @return True if it was removed.
+     */
+    public boolean removeTimeRange(TimeRange tr) {
+
+        boolean result = false;
+
+        ArrayList<TimeRange> list = getTimeRangeList();
+        if ((tr != null) && (list != null)) {
+
+            for (int i = upperBound(tr.getStartTime()) - 1; i >= 0; i--) {
+
+                TimeRange tmp = list.get(i);
+                if (tmp == tr) {
+
+                    list.remove(i);
+                    updateMaxEnds(i);
+                    result = true;
+                    break;
+
+                } else if (tmp.getStartTime() != tr.getStartTime()) {
+
+                    break;
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * The number of TimeRange instances reserved.
+     *
+     * @return An int value.
+     */
+    public int getTimeRangeCount() {
+        return (timeRangeList.size());
+    }
+
     /**
      * Convenience method to clear our list of TimeRanges.
      */
@@ -79,9 +127,9 @@ public class RecorderInformation {
         if (list != null) {
 
             list.clear();
+            maxEnds = new long[0];
         }
     }
-
     /**
      * A Recorder that is the subject of our information.
      *
@@ -124,8 +172,18 @@ public class RecorderInformation {
      */
     public void setChannels(Channel[] array) {
 
+        channelSet.clear();
         if (array != null) {
+
             channels = Arrays.copyOf(array, array.length);
+            for (int i = 0; i < array.length; i++) {
+
+                // Channel equality is by number so we need one.
+                if ((array[i] != null) && (array[i].getNumber() != null)) {
+                    channelSet.add(array[i]);
+                }
+            }
+
         } else {
             channels = null;
         }
@@ -141,17 +199,9 @@ public class RecorderInformation {
 
         boolean result = false;
 
-        Channel[] array = getChannels();
-        if ((c != null) && (array != null)) {
+        if ((c != null) && (c.getNumber() != null)) {
 
-            for (int i = 0; i < array.length; i++) {
-
-                if (array[i].equals(c)) {
-
-                    result = true;
-                    break;
-                }
-            }
+            result = channelSet.contains(c);
         }
 
         return (result);
@@ -159,7 +209,9 @@ public class RecorderInformation {
 
     /**
      * Determine if the block of time passed here interferes with a time
-     * that already has been reserved for the Recorder.
+     * that already has been reserved for the Recorder.  The reserved
+     * times are sorted by start and we keep the latest end time seen so
+     * far at each position, so one binary search answers the question.
      *
      * @param tr A given TimeRange instance to check.
      * @return True if there would be a time conflict with the given TimeRange.
@@ -168,22 +220,84 @@ public class RecorderInformation {
 
         boolean result = false;
 
+        if (tr != null) {
+
+            int index = upperBound(tr.getEndTime()) - 1;
+            result = (index >= 0) && (maxEnds[index] >= tr.getStartTime());
+        }
+
+        return (result);
+    }
+
+    /**
+     * Find all the reserved times that interfere with the given time.
+     *
+     * @param tr A given TimeRange instance to check.
+     * @return An array of TimeRange instances, never null.
+     */
+    public TimeRange[] getOverlapping(TimeRange tr) {
+
+        ArrayList<TimeRange> result = new ArrayList<TimeRange>();
+
         ArrayList<TimeRange> list = getTimeRangeList();
         if ((tr != null) && (list != null)) {
 
-            for (int i = 0; i < list.size(); i++) {
+            long start = tr.getStartTime();
+            int index = upperBound(tr.getEndTime()) - 1;
+            for (int i = index; (i >= 0) && (maxEnds[i] >= start); i--) {
 
                 TimeRange tmp = list.get(i);
-                if (tmp.overlaps(tr)) {
-
-                    result = true;
-                    break;
+                if (tmp.getEndTime() >= start) {
+                    result.add(tmp);
                 }
             }
         }
 
-        return (result);
+        return (result.toArray(new TimeRange[result.size()]));
     }
 
-}
+    private int upperBound(long time) {
+
+        ArrayList<TimeRange> list = getTimeRangeList();
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+            if (list.get(mid).getStartTime() <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return (low);
+    }
+
+    private void updateMaxEnds(int from) {
+
+        ArrayList<TimeRange> list = getTimeRangeList();
+        if (maxEnds.length != list.size()) {
+            maxEnds = Arrays.copyOf(maxEnds, list.size());
+        }
+
+        for (int i = from; i < maxEnds.length; i++) {
 
+            long end = list.get(i).getEndTime();
+            if ((i > 0) && (maxEnds[i - 1] > end)) {
+                end = maxEnds[i - 1];
+            }
+            maxEnds[i] = end;
+        }
+    }
+
+    /**
+     * Override so the usage can be logged easily.
+     *
+     * @return A String representation of this object.
+     */
+    public String toString() {
+        return (recorder + " reserved " + getTimeRangeCount());
+    }
+
+}
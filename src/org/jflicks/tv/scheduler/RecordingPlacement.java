@@ -0,0 +1,392 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jflicks.tv.Channel;
+import org.jflicks.util.LogUtil;
+
+/**
+ * Decide which recording directory a new recording goes in.  We used to
+ * just go around the directories in turn, so three recordings at once
+ * could all end up on the same disk while another one sat idle.
+ *
+ * Now we remember where each recording was put and for when, and we
+ * measure how fast each disk is filling up on a timer so the rate is
+ * current when a recording is placed.  A recording goes on the
+ * disk with the fewest recordings at the same time, with anything else
+ * being written there now (HLS, comskip, copies) counted as so many
+ * recordings.  Directories on the same disk share one count.  When the
+ * disks are equal we still go around in turn.
+ *
+ * A disk needs 16 gig free after the recordings already headed there
+ * have taken their share.  If none do we fall back to just 16 gig free.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class RecordingPlacement {
+
+    /**
+     * The space a disk must have left to take a recording.
+     */
+    public static final long MINIMUM_SPACE = 16442450944L;
+
+    /**
+     * The bytes per second of a recording, about what an HDHR sends for
+     * an HD channel.
+     */
+    public static final long STREAM_RATE = 2500000L;
+
+    private static final long SAMPLE_INTERVAL = 5000L;
+    private static final long SAMPLE_LIMIT = 600000L;
+    private static final long SOON = 900000L;
+
+    private HashMap<String, Placement> placementMap;
+    private HashMap<String, StoreState> storeMap;
+    private int robinIndex;
+
+    /**
+     * Simple empty constructor.
+     */
+    public RecordingPlacement() {
+
+        placementMap = new HashMap<String, Placement>();
+        storeMap = new HashMap<String, StoreState>();
+    }
+
+    /**
+     * Where a recording was put and when it writes.
+     */
+    static class Placement {
+
+        String store;
+        long start;
+        long end;
+
+        Placement(String store, long start, long end) {
+
+            this.store = store;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean isOverlap(long s, long e) {
+            return ((start < e) && (s < end));
+        }
+    }
+
+    /**
+     * What we have measured for one disk.
+     */
+    static class StoreState {
+
+        long lastSpace;
+        long lastTime;
+        long bytesPerSecond;
+    }
+
+    private static String toKey(PendingRecord pr) {
+
+        Channel c = pr.getChannel();
+        return (((c != null) ? c.getNumber() : "") + "_" + pr.getStart() + "_"
+            + pr.getShowId());
+    }
+
+    private static String toStore(File dir) {
+
+        String result = dir.getPath();
+
+        try {
+
+            result = Files.getFileStore(dir.toPath()).toString();
+
+        } catch (IOException ex) {
+
+            result = dir.getPath();
+        }
+
+        return (result);
+    }
+
+    private void expire(long now) {
+
+        Iterator<Placement> iter = placementMap.values().iterator();
+        while (iter.hasNext()) {
+
+            if (iter.next().end <= now) {
+                iter.remove();
+            }
+        }
+    }
+
+    private StoreState sample(String store, long usable, long now) {
+
+        StoreState result = storeMap.get(store);
+        if (result == null) {
+
+            result = new StoreState();
+            result.lastSpace = usable;
+            result.lastTime = now;
+            storeMap.put(store, result);
+
+        } else if (now - result.lastTime >= SAMPLE_INTERVAL) {
+
+            // Space going down is data being written, going up is
+            // something being deleted which we just call no writing.
+            // After a long gap the average says little about now, so we
+            // keep the last rate we had and start over from here.
+            long elapsed = now - result.lastTime;
+            if (elapsed <= SAMPLE_LIMIT) {
+
+                result.bytesPerSecond = Math.max(0L,
+                    ((result.lastSpace - usable) * 1000L) / elapsed);
+            }
+            result.lastSpace = usable;
+            result.lastTime = now;
+        }
+
+        return (result);
+    }
+
+    private int count(String store, long start, long end, String skip) {
+
+        int result = 0;
+
+        Iterator<String> iter = placementMap.keySet().iterator();
+        while (iter.hasNext()) {
+
+            String key = iter.next();
+            Placement p = placementMap.get(key);
+            if ((!key.equals(skip)) && (p.store.equals(store))
+                && (p.isOverlap(start, end))) {
+
+                result++;
+            }
+        }
+
+        return (result);
+    }
+
+    private long reserved(String store, long now, String skip) {
+
+        long result = 0L;
+
+        Iterator<String> iter = placementMap.keySet().iterator();
+        while (iter.hasNext()) {
+
+            String key = iter.next();
+            Placement p = placementMap.get(key);
+            if ((!key.equals(skip)) && (p.store.equals(store))) {
+
+                long left = p.end - Math.max(now, p.start);
+                result += (STREAM_RATE * Math.max(0L, left)) / 1000L;
+            }
+        }
+
+        return (result);
+    }
+
+    private double load(String store, StoreState state, long now,
+        long start, long end, String skip) {
+
+        // What is being written that isn't a recording we know about
+        // counts as recordings too, but only if we start soon as it says
+        // nothing about later.
+        double result = count(store, start, end, skip);
+        if (start - now < SOON) {
+
+            long other = state.bytesPerSecond
+                - count(store, now, now + 1L, skip) * STREAM_RATE;
+            result += Math.max(0L, other) / (double) STREAM_RATE;
+        }
+
+        return (result);
+    }
+
+    /**
+     * Measure how fast each of the given directories is filling up.  This
+     * should be called regularly, more often than every ten minutes, so
+     * the rates are current when place is called.
+     *
+     * @param array The configured recording directories.
+     */
+    public synchronized void sample(String[] array) {
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; (array != null) && (i < array.length); i++) {
+
+            File dir = new File(array[i]);
+            sample(toStore(dir), dir.getUsableSpace(), now);
+        }
+    }
+
+    /**
+     * Pick the directory for a recording and remember that it is there.
+     *
+     * @param array The configured recording directories.
+     * @param pr The PendingRecord to place.
+     * @return The directory or null if none have room.
+     */
+    public synchronized File place(String[] array, PendingRecord pr) {
+
+        File result = null;
+
+        long now = System.currentTimeMillis();
+        expire(now);
+        String key = toKey(pr);
+        long start = Math.max(now, pr.getStart());
+        long end = pr.getStart() + pr.getDuration() * 1000L;
+
+        if ((array != null) && (array.length > 0)) {
+
+            if (robinIndex >= array.length) {
+                robinIndex = 0;
+            }
+
+            // Stay where we were put before unless somewhere is better.
+            Placement before = placementMap.get(key);
+            int best = -1;
+            int roomy = -1;
+            double bestLoad = 0.0;
+            String bestStore = null;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < array.length; i++) {
+
+                // Go around starting where we left off so equal disks
+                // take turns.
+                int index = (robinIndex + i) % array.length;
+                File dir = new File(array[index]);
+                String store = toStore(dir);
+                long usable = dir.getUsableSpace();
+                StoreState state = sample(store, usable, now);
+                double l = load(store, state, now, start, end, key);
+                sb.append(" " + dir + "=" + String.format("%.1f", l));
+
+                if (usable > MINIMUM_SPACE) {
+
+                    if (roomy == -1) {
+                        roomy = index;
+                    }
+
+                    boolean same = (before != null)
+                        && (before.store.equals(store))
+                        && (!store.equals(bestStore));
+                    if ((usable - reserved(store, now, key) > MINIMUM_SPACE)
+                        && ((best == -1) || (l < bestLoad)
+                        || ((l == bestLoad) && (same)))) {
+
+                        best = index;
+                        bestLoad = l;
+                        bestStore = store;
+                    }
+
+                } else {
+
+                    LogUtil.log(LogUtil.INFO, "Skipping " + dir
+                        + " as there is not enough room.");
+                }
+            }
+
+            if ((best == -1) && (roomy != -1)) {
+
+                // The recordings headed here may not be as big as we
+                // think, so use the next one with room.
+                best = roomy;
+                bestStore = toStore(new File(array[roomy]));
+            }
+
+            if (best != -1) {
+
+                result = new File(array[best]);
+                robinIndex = best + 1;
+                placementMap.put(key, new Placement(bestStore, start, end));
+                LogUtil.log(LogUtil.DEBUG, "Placed " + key + " in " + result
+                    + " (load" + sb + ")");
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * Forget the recordings that have not started yet and are no longer
+     * in the given list.  Those that have started are still writing.
+     *
+     * @param list The PendingRecord instances still scheduled.
+     */
+    public synchronized void retain(List<PendingRecord> list) {
+
+        HashSet<String> keep = new HashSet<String>();
+        for (int i = 0; i < list.size(); i++) {
+            keep.add(toKey(list.get(i)));
+        }
+
+        long now = System.currentTimeMillis();
+        Iterator<String> iter = placementMap.keySet().iterator();
+        while (iter.hasNext()) {
+
+            String key = iter.next();
+            if ((placementMap.get(key).start > now) && (!keep.contains(key))) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * How busy each of the given directories is now.
+     *
+     * @param array The configured recording directories.
+     * @return An array of DiskLoad instances.
+     */
+    public synchronized DiskLoad[] getDiskLoads(String[] array) {
+
+        ArrayList<DiskLoad> l = new ArrayList<DiskLoad>();
+
+        long now = System.currentTimeMillis();
+        expire(now);
+        for (int i = 0; (array != null) && (i < array.length); i++) {
+
+            File dir = new File(array[i]);
+            String store = toStore(dir);
+            long usable = dir.getUsableSpace();
+            StoreState state = sample(store, usable, now);
+
+            DiskLoad dl = new DiskLoad();
+            dl.setDirectory(array[i]);
+            dl.setStore(store);
+            dl.setUsableSpace(usable);
+            dl.setBytesPerSecond(state.bytesPerSecond);
+            dl.setWriterCount(count(store, now, now + 1L, null));
+            dl.setScheduledCount(count(store, now + 1L, Long.MAX_VALUE, null)
+                - dl.getWriterCount());
+            dl.setLoad(load(store, state, now, now, now + 1L, null));
+            l.add(dl);
+        }
+
+        return (l.toArray(new DiskLoad[l.size()]));
+    }
+
+}
@@ -22,6 +22,7 @@ import org.jflicks.configure.Config;
 import org.jflicks.nms.NMS;
 import org.jflicks.tv.Channel;
 import org.jflicks.tv.Recording;
+import org.jflicks.tv.RecordingDelta;
 import org.jflicks.tv.RecordingRule;
 import org.jflicks.tv.ShowAiring;
 import org.jflicks.tv.Upcoming;
@@ -101,6 +102,23 @@ public interface Scheduler extends Config {
      */
     Recording[] getRecordings();
 
+    /**
+     * The recordings have a version that goes up each time one is added,
+     * updated or removed.
+     *
+     * @return The current version as a long.
+     */
+    long getRecordingsVersion();
+
+    /**
+     * Acquire what has changed in the recordings since a given version.
+     * If the Scheduler can't tell, a full delta is returned.
+     *
+     * @param version A version the caller got from a previous call.
+     * @return A RecordingDelta instance.
+     */
+    RecordingDelta getRecordingsSince(long version);
+
     /**
      * Update the Recording.  Perhaps some post processing execution may have
      * changed some properties of the given Recording.  If so it needs to be
@@ -198,6 +216,14 @@ public interface Scheduler extends Config {
      */
     File createFile(PendingRecord pr);
 
+    /**
+     * How busy each recording directory is, the recordings writing there
+     * now and later and how fast the disk is being written.
+     *
+     * @return An array of DiskLoad instances.
+     */
+    DiskLoad[] getDiskLoads();
+
     /**
      * Acquire an array of Upcoming instances that detail the scheduled
      * recordings.
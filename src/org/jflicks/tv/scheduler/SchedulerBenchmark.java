@@ -0,0 +1,330 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.jflicks.tv.Channel;
+import org.jflicks.tv.RecordingRule;
+
+/**
+ * Build a synthetic set of rules, airings and tuners and time the
+ * assignment of recorders the way it used to be done (pairwise duplicate
+ * check, linear busy check and first fit) against the current way.
+ *
+ * Usage: SchedulerBenchmark [rules] [days] [tuners] [channels]
+ *
+ * Half the tuners can tune every channel and the other half only the
+ * lower half of the channels, like a mix of cable and antenna tuners.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class SchedulerBenchmark {
+
+    private static final long HOUR = 3600000L;
+
+    private SchedulerBenchmark() {
+    }
+
+    private static ArrayList<PendingRecord> generate(long seed, int rcount,
+        int days, Channel[] channels) {
+
+        Random random = new Random(seed);
+        ArrayList<PendingRecord> result = new ArrayList<PendingRecord>();
+        long base = 1500000000000L;
+        for (int i = 0; i < rcount; i++) {
+
+            RecordingRule rr = new RecordingRule();
+            rr.setId("rule" + i);
+            rr.setPriority(i);
+            boolean once = (i % 10) == 9;
+            rr.setType(once ? RecordingRule.ONCE_TYPE
+                : RecordingRule.SERIES_TYPE);
+
+            Channel chan = channels[random.nextInt(channels.length)];
+
+            // Prime time is busy, so most shows go in a four hour block.
+            int hour = 18 + random.nextInt(4);
+            int half = random.nextInt(2);
+            int showsPer = 1 + random.nextInt(2);
+            int airings = once ? 1 : days * showsPer;
+            ArrayList<PendingRecord> list = new ArrayList<PendingRecord>();
+            for (int j = 0; j < airings; j++) {
+
+                int day = j / showsPer;
+                long start = base + day * 24 * HOUR + hour * HOUR
+                    + half * (HOUR / 2) + (j % showsPer) * 5 * HOUR;
+
+                PendingRecord pr = new PendingRecord();
+                pr.setRecordingRule(rr);
+                pr.setName("Show " + i);
+                pr.setChannel(chan);
+
+                // Reruns make duplicates of earlier episodes.
+                int episode = j;
+                if ((j > 2) && (random.nextInt(4) == 0)) {
+                    episode = random.nextInt(j);
+                }
+                pr.setShowId("EP" + i + "_" + episode);
+                pr.setStart(start);
+                pr.setDuration(1800L + random.nextInt(2) * 1800L);
+                list.add(pr);
+            }
+
+            Collections.sort(list);
+            result.addAll(list);
+        }
+
+        return (result);
+    }
+
+    private static RecorderInformation[] tuners(int count, Channel[] channels) {
+
+        RecorderInformation[] result = new RecorderInformation[count];
+        Channel[] lower = new Channel[Math.max(1, channels.length / 2)];
+        System.arraycopy(channels, 0, lower, 0, lower.length);
+        for (int i = 0; i < count; i++) {
+
+            result[i] = new RecorderInformation();
+            result[i].setChannels((i < (count + 1) / 2) ? channels : lower);
+        }
+
+        return (result);
+    }
+
+    private static void legacyCheckDuplicates(ArrayList<PendingRecord> list) {
+
+        ArrayList<PendingRecord> duplist = new ArrayList<PendingRecord>();
+        for (int i = 0; i < list.size(); i++) {
+
+            PendingRecord pr0 = list.get(i);
+            String showId = pr0.getShowId();
+            if ((pr0.isUndeterminedStatus()) && (showId != null)) {
+
+                duplist.clear();
+                for (int j = i + 1; j < list.size(); j++) {
+
+                    PendingRecord pr1 = list.get(j);
+                    if ((!pr1.isOnceType()) && (pr1.isUndeterminedStatus())
+                        && (showId.equals(pr1.getShowId()))) {
+
+                        if (!duplist.contains(pr0)) {
+                            duplist.add(pr0);
+                        }
+                        if (!duplist.contains(pr1)) {
+                            duplist.add(pr1);
+                        }
+                    }
+                }
+
+                Collections.sort(duplist);
+                for (int k = 0; k < duplist.size(); k++) {
+
+                    duplist.get(k).setLaterAvailable(k + 1 < duplist.size());
+                    duplist.get(k).setEarlierAvailable(k > 0);
+                }
+            }
+        }
+    }
+
+    private static int legacyAssign(ArrayList<PendingRecord> list,
+        RecorderInformation[] ris) {
+
+        // The old busy check walked every reserved range.
+        ArrayList<ArrayList<TimeRange>> ranges =
+            new ArrayList<ArrayList<TimeRange>>();
+        for (int i = 0; i < ris.length; i++) {
+            ranges.add(new ArrayList<TimeRange>());
+        }
+
+        int conflicts = 0;
+        for (int i = 0; i < list.size(); i++) {
+
+            PendingRecord pr = list.get(i);
+            if (pr.isEarlierStatus()) {
+                continue;
+            }
+
+            TimeRange tr = new TimeRange(pr.getStart(),
+                pr.getStart() + pr.getDuration() * 1000);
+            for (int j = 0; j < ris.length; j++) {
+
+                if (ris[j].supports(pr.getChannel())) {
+
+                    boolean busy = false;
+                    ArrayList<TimeRange> l = ranges.get(j);
+                    for (int k = 0; k < l.size(); k++) {
+
+                        if (l.get(k).overlaps(tr)) {
+
+                            busy = true;
+                            break;
+                        }
+                    }
+
+                    if (!busy) {
+
+                        l.add(tr);
+                        Collections.sort(l);
+                        pr.setStatus(PendingRecord.READY);
+                        if (pr.isLaterAvailable()) {
+                            flag(list, pr);
+                        }
+                        break;
+                    }
+                }
+            }
+
+            if (pr.isUndeterminedStatus()) {
+
+                if (pr.isLaterAvailable()) {
+                    pr.setStatus(PendingRecord.LATER);
+                } else {
+                    pr.setStatus(PendingRecord.CONFLICT);
+                    conflicts++;
+                }
+            }
+        }
+
+        return (conflicts);
+    }
+
+    private static void flag(ArrayList<PendingRecord> list, PendingRecord pr) {
+
+        if (!pr.isOnceType()) {
+
+            for (int i = 0; i < list.size(); i++) {
+
+                PendingRecord tmp = list.get(i);
+                if ((tmp != pr) && (!tmp.isOnceType())
+                    && (pr.getShowId().equals(tmp.getShowId()))) {
+                    tmp.setStatus(PendingRecord.EARLIER);
+                }
+            }
+        }
+    }
+
+    /**
+     * Simple main to run the benchmark.
+     *
+     * @param args Optional rule, day, tuner and channel counts.
+     */
+    public static void main(String[] args) {
+
+        int rcount = 80;
+        int days = 14;
+        int tcount = 4;
+        int ccount = 40;
+        if (args.length > 0) {
+            rcount = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            days = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            tcount = Integer.parseInt(args[2]);
+        }
+        if (args.length > 3) {
+            ccount = Integer.parseInt(args[3]);
+        }
+
+        Channel[] channels = new Channel[ccount];
+        for (int i = 0; i < ccount; i++) {
+
+            channels[i] = new Channel();
+            channels[i].setId(1000 + i);
+            channels[i].setNumber((i + 2) + ".1");
+        }
+
+        int runs = 5;
+        long legacyTime = 0L;
+        long newTime = 0L;
+        int legacyConflicts = 0;
+        int newConflicts = 0;
+        int resolved = 0;
+        int moved = 0;
+        int pending = 0;
+        boolean same = true;
+        for (int run = 0; run < runs; run++) {
+
+            ArrayList<PendingRecord> l0 = generate(run, rcount, days, channels);
+            ArrayList<PendingRecord> l1 = generate(run, rcount, days, channels);
+            pending = l0.size();
+
+            long start = System.nanoTime();
+            legacyCheckDuplicates(l0);
+            legacyConflicts = legacyAssign(l0, tuners(tcount, channels));
+            legacyTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            HashMap<String, ArrayList<PendingRecord>> map =
+                BaseScheduler.checkDuplicates(l1);
+            for (int i = 0; i < l1.size(); i++) {
+
+                PendingRecord pr0 = l0.get(i);
+                PendingRecord pr1 = l1.get(i);
+                if ((pr0.isLaterAvailable() != pr1.isLaterAvailable())
+                    || (pr0.isEarlierAvailable() != pr1.isEarlierAvailable())) {
+                    same = false;
+                }
+            }
+            RecorderAllocator ra =
+                new RecorderAllocator(tuners(tcount, channels));
+            newConflicts = 0;
+            for (int i = 0; i < l1.size(); i++) {
+
+                PendingRecord pr = l1.get(i);
+                if (!pr.isEarlierStatus()) {
+
+                    if (ra.assign(pr)) {
+
+                        pr.setStatus(PendingRecord.READY);
+                        if (pr.isLaterAvailable()) {
+                            BaseScheduler.flagDuplicates(map, pr);
+                        }
+
+                    } else if (pr.isLaterAvailable()) {
+
+                        pr.setStatus(PendingRecord.LATER);
+
+                    } else {
+
+                        pr.setStatus(PendingRecord.CONFLICT);
+                        newConflicts++;
+                    }
+                }
+            }
+            newTime += System.nanoTime() - start;
+            resolved = ra.getResolvedCount();
+            moved = ra.getMovedCount();
+        }
+
+        System.out.printf("%d rules, %d days, %d tuners, %d channels: "
+            + "%d pending records%n", rcount, days, tcount, ccount, pending);
+        System.out.printf("legacy:    %8.2f ms/reschedule %5d conflicts%n",
+            legacyTime / (runs * 1000000.0), legacyConflicts);
+        System.out.printf("allocator: %8.2f ms/reschedule %5d conflicts "
+            + "(%d resolved by moving %d recordings)%n",
+            newTime / (runs * 1000000.0), newConflicts, resolved, moved);
+        System.out.println("duplicate flags match legacy: " + same);
+    }
+
+}
@@ -0,0 +1,527 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.tv.scheduler.system;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jflicks.tv.Channel;
+import org.jflicks.tv.recorder.Recorder;
+import org.jflicks.tv.scheduler.PendingRecord;
+import org.jflicks.util.LogUtil;
+
+/**
+ * Launches recordings on time.  Each READY PendingRecord that starts in
+ * the next few minutes gets two timers.  The first goes off a while
+ * before the start to warm things up: live TV is stopped if it has the
+ * recorder and the output file is made.  The second starts the recorder
+ * early by the time it has been taking that recorder to tune, so the
+ * first bytes land when the show starts.
+ *
+ * After each start we watch for the first bytes to show up and log how
+ * late they were.  That also keeps the tune time of each recorder up to
+ * date.  The plan is rebuilt whenever the scheduler is rescheduled and
+ * once a minute to pick up recordings coming into range.
+ *
+ * If the recorder is still busy, say with the show before on the same
+ * tuner, we keep trying each second until a minute after the start.  The
+ * timers run on a few threads so recordings due at the same time start
+ * together.
+ *
+ * The warm up time defaults to 30 seconds and can be set with the system
+ * property "org.jflicks.tv.scheduler.warm" in seconds.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class RecordingLauncher {
+
+    /**
+     * The system property to set the warm up time in seconds.
+     */
+    public static final String WARM_PROPERTY = "org.jflicks.tv.scheduler.warm";
+
+    private static final long HORIZON = 10L * 60L * 1000L;
+    private static final long REFRESH = 60L * 1000L;
+    private static final long DEFAULT_LEAD = 2000L;
+    private static final long MAXIMUM_LEAD = 30000L;
+    private static final long RETRY = 1000L;
+    private static final long RETRY_LIMIT = 60000L;
+    private static final int THREADS = 4;
+    private static final long WATCH = 100L;
+    private static final long WATCH_LIMIT = 120000L;
+
+    private SystemScheduler systemScheduler;
+    private SystemSchedulerJob systemSchedulerJob;
+    private ScheduledExecutorService executor;
+    private HashMap<String, Launch> launchMap;
+    private HashMap<String, Long> leadMap;
+    private long warm;
+    private int launchCount;
+    private long totalLateness;
+    private long maximumLateness;
+    private long lastLateness;
+
+    /**
+     * Create a launcher.
+     *
+     * @param ss The SystemScheduler with the PendingRecords.
+     * @param job The SystemSchedulerJob that starts the recorders.
+     */
+    public RecordingLauncher(SystemScheduler ss, SystemSchedulerJob job) {
+
+        systemScheduler = ss;
+        systemSchedulerJob = job;
+        launchMap = new HashMap<String, Launch>();
+        leadMap = new HashMap<String, Long>();
+        warm = 30000L;
+
+        String value = System.getProperty(WARM_PROPERTY);
+        if (value != null) {
+
+            try {
+
+                warm = Math.max(0L, Long.parseLong(value.trim()) * 1000L);
+
+            } catch (NumberFormatException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "Bad " + WARM_PROPERTY + ": "
+                    + value);
+            }
+        }
+    }
+
+    /**
+     * The number of recordings launched.
+     *
+     * @return An int value.
+     */
+    public synchronized int getLaunchCount() {
+        return (launchCount);
+    }
+
+    /**
+     * The average time in milliseconds from the scheduled start to the
+     * first bytes of a recording.  Negative means early.
+     *
+     * @return A long value.
+     */
+    public synchronized long getAverageLateness() {
+
+        long result = 0L;
+
+        if (launchCount > 0) {
+            result = totalLateness / launchCount;
+        }
+
+        return (result);
+    }
+
+    /**
+     * The latest the first bytes of any recording have been.
+     *
+     * @return A long value in milliseconds.
+     */
+    public synchronized long getMaximumLateness() {
+        return (maximumLateness);
+    }
+
+    /**
+     * How late the first bytes of the most recent recording were.
+     *
+     * @return A long value in milliseconds.
+     */
+    public synchronized long getLastLateness() {
+        return (lastLateness);
+    }
+
+    /**
+     * Start the timers.
+     */
+    public synchronized void start() {
+
+        if (executor == null) {
+
+            executor = new ScheduledThreadPoolExecutor(THREADS,
+                new ThreadFactory() {
+
+                    private int count;
+
+                    public synchronized Thread newThread(Runnable r) {
+
+                        Thread result = new Thread(r, "jflicks-launcher-"
+                            + (++count));
+                        result.setDaemon(true);
+
+                        return (result);
+                    }
+                });
+
+            executor.scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+                    rebuild();
+                }
+            }, 0L, REFRESH, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop the timers.  Recordings already started keep going.
+     */
+    public synchronized void stop() {
+
+        if (executor != null) {
+
+            executor.shutdownNow();
+            executor = null;
+        }
+        launchMap.clear();
+    }
+
+    /**
+     * Build the timers again from the scheduler.  Recordings that are
+     * planned the same as before keep their timers.
+     */
+    public synchronized void rebuild() {
+
+        if (executor == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        PendingRecord[] array =
+            systemScheduler.getReadyPendingRecords(now + HORIZON);
+
+        HashMap<String, Launch> next = new HashMap<String, Launch>();
+        if (array != null) {
+
+            for (int i = 0; i < array.length; i++) {
+
+                String key = toKey(array[i]);
+                Launch old = launchMap.remove(key);
+                if ((old != null) && ((old.started)
+                    || (old.pendingRecord.getRecorder()
+                        == array[i].getRecorder()))) {
+
+                    // Same plan, keep the timers but use the latest copy.
+                    if (!old.started) {
+                        old.pendingRecord = array[i];
+                    }
+                    next.put(key, old);
+
+                } else {
+
+                    if (old != null) {
+                        old.cancel();
+                    }
+                    next.put(key, schedule(array[i], now));
+                }
+            }
+        }
+
+        // Anything left is gone from the schedule unless it has started.
+        Iterator<Launch> iter = launchMap.values().iterator();
+        while (iter.hasNext()) {
+
+            Launch l = iter.next();
+            if ((l.started) && (!l.done)) {
+
+                next.put(toKey(l.pendingRecord), l);
+
+            } else {
+
+                l.cancel();
+            }
+        }
+
+        launchMap = next;
+    }
+
+    private Launch schedule(PendingRecord pr, long now) {
+
+        Launch result = new Launch(pr);
+
+        long lead = getLead(pr.getRecorder());
+        long startAt = pr.getStart() - lead;
+        long warmAt = startAt - warm;
+        result.warmFuture = executor.schedule(new WarmTask(result),
+            Math.max(0L, warmAt - now), TimeUnit.MILLISECONDS);
+        result.startFuture = executor.schedule(new StartTask(result),
+            Math.max(0L, startAt - now), TimeUnit.MILLISECONDS);
+
+        return (result);
+    }
+
+    private static String toKey(PendingRecord pr) {
+
+        Channel c = pr.getChannel();
+        return (((c != null) ? c.getNumber() : "") + "_" + pr.getStart() + "_"
+            + pr.getShowId());
+    }
+
+    private static String toKey(Recorder r) {
+        return (r.getTitle() + " " + r.getDevice());
+    }
+
+    private synchronized long getLead(Recorder r) {
+
+        long result = DEFAULT_LEAD;
+
+        if (r != null) {
+
+            Long l = leadMap.get(toKey(r));
+            if (l != null) {
+                result = l.longValue();
+            }
+        }
+
+        return (result);
+    }
+
+    private synchronized void tuned(Launch l, long seen) {
+
+        l.done = true;
+        PendingRecord pr = l.pendingRecord;
+        Recorder r = pr.getRecorder();
+
+        long lateness = seen - pr.getStart();
+        long tune = seen - l.startedAt;
+        launchCount++;
+        totalLateness += lateness;
+        maximumLateness = Math.max(maximumLateness, lateness);
+        lastLateness = lateness;
+
+        // Ease toward the new tune time so one slow tune doesn't throw
+        // the next one off too much.
+        long lead = getLead(r);
+        lead = Math.max(0L, Math.min(MAXIMUM_LEAD, (lead * 7 + tune * 3) / 10));
+        leadMap.put(toKey(r), Long.valueOf(lead));
+
+        LogUtil.log(LogUtil.INFO, "start lateness for " + pr.getName() + ": "
+            + lateness + " ms (tune " + tune + " ms, next lead " + lead
+            + " ms, average " + getAverageLateness() + " ms over "
+            + launchCount + ")");
+    }
+
+    private static boolean hasData(File f) {
+
+        boolean result = false;
+
+        if (f != null) {
+
+            result = f.length() > 0L;
+            if (!result) {
+
+                // HLS recorders write segments and a playlist instead.
+                String path = f.getPath();
+                int dot = path.lastIndexOf(".");
+                if (dot != -1) {
+
+                    path = path.substring(0, dot);
+                    result = (new File(path + ".m3u8").exists())
+                        || (new File(path + ".000000.ts").exists());
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    class Launch {
+
+        PendingRecord pendingRecord;
+        ScheduledFuture<?> warmFuture;
+        ScheduledFuture<?> startFuture;
+        boolean started;
+        boolean done;
+        long startedAt;
+
+        Launch(PendingRecord pr) {
+            pendingRecord = pr;
+        }
+
+        void cancel() {
+
+            if (warmFuture != null) {
+                warmFuture.cancel(false);
+            }
+            if (startFuture != null) {
+                startFuture.cancel(false);
+            }
+        }
+    }
+
+    class WarmTask implements Runnable {
+
+        private Launch launch;
+
+        WarmTask(Launch l) {
+            launch = l;
+        }
+
+        public void run() {
+
+            PendingRecord pr = null;
+            synchronized (RecordingLauncher.this) {
+
+                if (launch.started) {
+                    return;
+                }
+                pr = launch.pendingRecord;
+            }
+
+            Recorder r = pr.getRecorder();
+            if (r != null) {
+
+                if (r.isRecordingLiveTV()) {
+
+                    LogUtil.log(LogUtil.INFO, "stopping live TV so "
+                        + pr.getName() + " can record");
+                    r.stopRecording();
+                }
+
+                // Disk space may have changed since we were scheduled so
+                // pick the file now instead of at the last second.
+                File f = systemScheduler.createFile(pr);
+                if (f != null) {
+
+                    pr.setFile(f);
+                    pr.getRecording().setPath(f.getPath());
+                }
+            }
+        }
+    }
+
+    class StartTask implements Runnable {
+
+        private Launch launch;
+
+        StartTask(Launch l) {
+            launch = l;
+        }
+
+        public void run() {
+
+            PendingRecord pr = null;
+            synchronized (RecordingLauncher.this) {
+
+                if ((launch.started) || (launchMap.get(toKey(launch.pendingRecord))
+                    != launch)) {
+                    return;
+                }
+                pr = launch.pendingRecord;
+            }
+
+            Recorder r = pr.getRecorder();
+            if ((r != null) && (r.isRecording())) {
+
+                if (r.isRecordingLiveTV()) {
+                    r.stopRecording();
+                }
+
+                synchronized (RecordingLauncher.this) {
+
+                    // The lead can be up to MAXIMUM_LEAD, so a recorder
+                    // still finishing the show before needs until after
+                    // the start and not just a few tries.
+                    long now = System.currentTimeMillis();
+                    if ((now < pr.getStart() + RETRY_LIMIT)
+                        && (executor != null)) {
+
+                        LogUtil.log(LogUtil.INFO, "recorder busy, will retry "
+                            + pr.getName());
+                        launch.startFuture = executor.schedule(this, RETRY,
+                            TimeUnit.MILLISECONDS);
+
+                    } else {
+
+                        LogUtil.log(LogUtil.INFO,
+                            "Recorder stayed busy. Give up " + pr.getName());
+                        launch.started = true;
+                        launch.done = true;
+                    }
+                }
+                return;
+            }
+
+            synchronized (RecordingLauncher.this) {
+
+                launch.started = true;
+                launch.startedAt = System.currentTimeMillis();
+            }
+
+            if (systemScheduler.dequeuePendingRecord(pr)) {
+
+                if (pr.getFile() == null) {
+
+                    File f = systemScheduler.createFile(pr);
+                    pr.setFile(f);
+                    pr.getRecording().setPath(f.getPath());
+                }
+                systemSchedulerJob.launch(pr, launch.startedAt);
+                watch(launch);
+
+            } else {
+
+                LogUtil.log(LogUtil.INFO, pr.getName()
+                    + " is no longer scheduled");
+                synchronized (RecordingLauncher.this) {
+                    launch.done = true;
+                }
+            }
+        }
+    }
+
+    private synchronized void watch(final Launch l) {
+
+        if (executor != null) {
+
+            executor.schedule(new Runnable() {
+
+                public void run() {
+
+                    long now = System.currentTimeMillis();
+                    if (hasData(l.pendingRecord.getFile())) {
+
+                        tuned(l, now);
+
+                    } else if (now - l.startedAt > WATCH_LIMIT) {
+
+                        LogUtil.log(LogUtil.WARNING, "no data for "
+                            + l.pendingRecord.getName() + " after "
+                            + (now - l.startedAt) + " ms");
+                        synchronized (RecordingLauncher.this) {
+                            l.done = true;
+                        }
+
+                    } else {
+
+                        watch(l);
+                    }
+                }
+            }, WATCH, TimeUnit.MILLISECONDS);
+        }
+    }
+
+}
@@ -21,7 +21,11 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jflicks.db.DbWorker;
 import org.jflicks.nms.NMS;
@@ -29,6 +33,7 @@ import org.jflicks.nms.NMSConstants;
 import org.jflicks.tv.Airing;
 import org.jflicks.tv.Channel;
 import org.jflicks.tv.Recording;
+import org.jflicks.tv.RecordingDelta;
 import org.jflicks.tv.RecordingRule;
 import org.jflicks.tv.Show;
 import org.jflicks.tv.ShowAiring;
@@ -58,6 +63,15 @@ public class SystemScheduler extends BaseScheduler implements DbWorker {
     private ObjectContainer recordedObjectContainer;
     private ObjectContainer recordingObjectContainer;
     private Db4oService db4oService;
+    private RecordingLauncher recordingLauncher;
+    private Object recordingLock;
+    private Recording[] recordingSnapshot;
+    private long recordingsVersion;
+    private long recordingsFloor;
+    private HashMap<String, Long> changedMap;
+    private LinkedHashMap<String, Long> removedMap;
+
+    private static final int MAXIMUM_REMOVED = 1000;
 
     /**
      * Simple default constructor.
@@ -65,6 +79,14 @@ public class SystemScheduler extends BaseScheduler implements DbWorker {
     public SystemScheduler() {
 
         setTitle("SystemScheduler");
+        recordingLock = new Object();
+        changedMap = new HashMap<String, Long>();
+        removedMap = new LinkedHashMap<String, Long>();
+
+        // Start the versions at the time so a version a client has from
+        // before a restart is always too old and it gets everything.
+        recordingsVersion = System.currentTimeMillis();
+        recordingsFloor = recordingsVersion;
     }
 
     /**
@@ -85,6 +107,25 @@ public class SystemScheduler extends BaseScheduler implements DbWorker {
         db4oService = s;
     }
 
+    RecordingLauncher getRecordingLauncher() {
+        return (recordingLauncher);
+    }
+
+    void setRecordingLauncher(RecordingLauncher l) {
+        recordingLauncher = l;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void pendingRecordsUpdated() {
+
+        RecordingLauncher l = getRecordingLauncher();
+        if (l != null) {
+            l.rebuild();
+        }
+    }
+
     private synchronized ObjectContainer getObjectContainer() {
 
         if (objectContainer == null) {
@@ -513,6 +554,124 @@ public class SystemScheduler extends BaseScheduler implements DbWorker {
 
         Recording[] result = null;
 
+        // The snapshot is only read from the database again after it has
+        // been changed.
+        synchronized (recordingLock) {
+
+            if (recordingSnapshot == null) {
+                recordingSnapshot = loadRecordings();
+            }
+
+            if (recordingSnapshot != null) {
+                result = recordingSnapshot.clone();
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getRecordingsVersion() {
+
+        synchronized (recordingLock) {
+            return (recordingsVersion);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public RecordingDelta getRecordingsSince(long version) {
+
+        RecordingDelta result = null;
+
+        synchronized (recordingLock) {
+
+            Recording[] all = getRecordings();
+            if (all == null) {
+                all = new Recording[0];
+            }
+
+            if (version == recordingsVersion) {
+
+                result = new RecordingDelta(recordingsVersion, false,
+                    new Recording[0], new String[0]);
+
+            } else if ((version < recordingsFloor)
+                || (version > recordingsVersion)) {
+
+                result = new RecordingDelta(recordingsVersion, true, all,
+                    new String[0]);
+
+            } else {
+
+                ArrayList<Recording> changed = new ArrayList<Recording>();
+                for (int i = 0; i < all.length; i++) {
+
+                    Long l = changedMap.get(all[i].getId());
+                    if ((l != null) && (l.longValue() > version)) {
+                        changed.add(all[i]);
+                    }
+                }
+
+                ArrayList<String> removed = new ArrayList<String>();
+                Iterator<Map.Entry<String, Long>> iter =
+                    removedMap.entrySet().iterator();
+                while (iter.hasNext()) {
+
+                    Map.Entry<String, Long> entry = iter.next();
+                    if (entry.getValue().longValue() > version) {
+                        removed.add(entry.getKey());
+                    }
+                }
+
+                result = new RecordingDelta(recordingsVersion, false,
+                    changed.toArray(new Recording[changed.size()]),
+                    removed.toArray(new String[removed.size()]));
+            }
+        }
+
+        return (result);
+    }
+
+    private void recordingChanged(String id) {
+
+        synchronized (recordingLock) {
+
+            recordingsVersion++;
+            recordingSnapshot = null;
+            removedMap.remove(id);
+            changedMap.put(id, Long.valueOf(recordingsVersion));
+        }
+    }
+
+    private void recordingRemoved(String id) {
+
+        synchronized (recordingLock) {
+
+            recordingsVersion++;
+            recordingSnapshot = null;
+            changedMap.remove(id);
+            removedMap.remove(id);
+            removedMap.put(id, Long.valueOf(recordingsVersion));
+
+            // Only remember so many, a client older than that gets all.
+            Iterator<Map.Entry<String, Long>> iter =
+                removedMap.entrySet().iterator();
+            while ((removedMap.size() > MAXIMUM_REMOVED) && (iter.hasNext())) {
+
+                recordingsFloor = iter.next().getValue().longValue();
+                iter.remove();
+            }
+        }
+    }
+
+    private Recording[] loadRecordings() {
+
+        Recording[] result = null;
+
         ObjectContainer oc = getRecordingObjectContainer();
         if (oc != null) {
 
@@ -581,6 +740,7 @@ public class SystemScheduler extends BaseScheduler implements DbWorker {
 
                     oc.store(new Recording(r));
                     oc.commit();
+                    recordingChanged(r.getId());
 
                     // Tell clients via the NMS.
                     n.sendMessage(NMSConstants.MESSAGE_RECORDING_UPDATE + " : " + r.getId());
@@ -632,6 +792,7 @@ public class SystemScheduler extends BaseScheduler implements DbWorker {
             removeRecording(r);
             oc.store(new Recording(r));
             oc.commit();
+            recordingChanged(r.getId());
 
             // We have added a recording so it's time to queue up any
             // post processing needed to be done.
@@ -671,6 +832,7 @@ public class SystemScheduler extends BaseScheduler implements DbWorker {
                     oc.delete(recs.get(i));
                 }
             }
+            recordingRemoved(id);
         }
     }
 
@@ -80,7 +80,10 @@ public class SystemSchedulerJob extends AbstractJob
         HashMap<Recorder, Recording> m = getRecordingHashMap();
         if ((m != null) && (r != null) && (rec != null)) {
 
-            m.put(r, rec);
+            // Recordings due together are launched on their own threads.
+            synchronized (m) {
+                m.put(r, rec);
+            }
         }
 
     }
@@ -105,7 +108,9 @@ public class SystemSchedulerJob extends AbstractJob
         HashMap<Recorder, Recording> m = getRecordingHashMap();
         if ((m != null) && (r != null)) {
 
-            result = m.get(r);
+            synchronized (m) {
+                result = m.get(r);
+            }
         }
 
         return (result);
@@ -116,7 +121,9 @@ public class SystemSchedulerJob extends AbstractJob
         HashMap<Recorder, Recording> m = getRecordingHashMap();
         if ((m != null) && (r != null)) {
 
-            m.remove(r);
+            synchronized (m) {
+                m.remove(r);
+            }
         }
     }
 
@@ -137,93 +144,52 @@ public class SystemSchedulerJob extends AbstractJob
         JobManager.sleep(getSleepTime());
         SystemScheduler ss = getSystemScheduler();
         if (ss != null) {
-            //ss.requestRescheduling();
-        }
 
-        while (!isTerminate()) {
+            // Recordings are started by timers now so we only have to
+            // look for imports and sample the disks here.
+            RecordingLauncher launcher = new RecordingLauncher(ss, this);
+            ss.setRecordingLauncher(launcher);
+            launcher.start();
 
-            // Get the recordings due to start in the next 60 seconds.
-            PendingRecord[] array = ss.getReadyPendingRecords();
-            if (array != null) {
-
-                // We have recordings to launch.
-                boolean done = false;
-                int index = 0;
-                int retries = 0;
-                while (!done) {
-
-                    long now = System.currentTimeMillis();
-                    if (array[index].getStart() < now) {
-
-                        // Ok, time to launch the recording...
-                        Recorder recorder = array[index].getRecorder();
-                        if (!recorder.isRecording()) {
-
-                            // Reassign a file name because disk space may
-                            // have changed at this point and we should make
-                            // sure we have space.
-                            File justintime = ss.createFile(array[index]);
-                            array[index].setFile(justintime);
-
-                            Recording crec = array[index].getRecording();
-                            crec.setPath(justintime.getPath());
-
-                            addRecording(recorder, crec);
-                            recorder.addPropertyChangeListener("Recording",
-                                this);
-                            LogUtil.log(LogUtil.INFO, "recording on :"
-                                + array[index].getChannel()
-                                + " "
-                                + new Date(now));
-                            long dur = array[index].getDuration();
-                            dur -= ((now - array[index].getStart()) / 1000);
-                            LogUtil.log(LogUtil.INFO, "adjust length: " + dur);
-                            crec.setRealStart(now);
-
-                            recorder.startRecording(array[index].getChannel(),
-                                dur, array[index].getFile(), false);
-                            index++;
-                            if (index == array.length) {
-                                done = true;
-                            }
-
-                            notifyClients(NMSConstants.MESSAGE_RECORDING_ADDED);
-
-                        } else if (retries < 15) {
-
-                            LogUtil.log(LogUtil.INFO,
-                                "hmm, recorder busy will retry");
-                            JobManager.sleep(1000);
-                            retries++;
-                            if (recorder.isRecordingLiveTV()) {
-
-                                recorder.stopRecording();
-                            }
-
-                        } else {
-
-                            LogUtil.log(LogUtil.INFO,
-                                "Recorder stayed busy. Give up");
-                            index++;
-                            if (index == array.length) {
-                                done = true;
-                            }
-                        }
+            while (!isTerminate()) {
 
-                    } else {
+                // Keep the disk write rates current for placement.
+                ss.sampleRecordingDirectories();
 
-                        // Sleep 5 seconds.
-                        JobManager.sleep(5000);
-                    }
-                }
+                // Check to see if we have any imports to work on.
+                checkImports();
+                JobManager.sleep(getSleepTime());
             }
 
-            JobManager.sleep(getSleepTime());
-
-            // Check to see if we have any imports to work on.
-            checkImports();
+            ss.setRecordingLauncher(null);
+            launcher.stop();
         }
+    }
 
+    /**
+     * Start recording a PendingRecord now.  The RecordingLauncher calls
+     * this at the right time after it has been dequeued.
+     *
+     * @param pr A given PendingRecord.
+     * @param now The time it is being started.
+     */
+    void launch(PendingRecord pr, long now) {
+
+        Recorder recorder = pr.getRecorder();
+        Recording crec = pr.getRecording();
+        addRecording(recorder, crec);
+        recorder.addPropertyChangeListener("Recording", this);
+        LogUtil.log(LogUtil.INFO, "recording on :" + pr.getChannel() + " "
+            + new Date(now));
+
+        // If we are early this makes it longer so it still ends on time.
+        long dur = pr.getDuration();
+        dur -= ((now - pr.getStart()) / 1000);
+        LogUtil.log(LogUtil.INFO, "adjust length: " + dur);
+        crec.setRealStart(now);
+
+        recorder.startRecording(pr.getChannel(), dur, pr.getFile(), false);
+        notifyClients(NMSConstants.MESSAGE_RECORDING_ADDED);
     }
 
     /**
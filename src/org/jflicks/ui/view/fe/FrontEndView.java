@@ -45,6 +45,7 @@ import javax.swing.KeyStroke;
 import javax.swing.Timer;
 
 import org.jflicks.nms.NMS;
+import org.jflicks.nms.NMSCache;
 import org.jflicks.nms.NMSConstants;
 import org.jflicks.nms.NMSUtil;
 import org.jflicks.nms.Video;
@@ -490,7 +491,9 @@ public class FrontEndView extends JFlicksView implements ActionListener,
 
                 NMS[] array = (NMS[]) event.getNewValue();
 
-                array = filterNMS(array);
+                // Screens get the NMS from us so they all share the
+                // cache in front of each one.
+                array = NMSCache.wrap(filterNMS(array));
                 setNMS(array);
             }
         }
@@ -816,6 +819,19 @@ public class FrontEndView extends JFlicksView implements ActionListener,
         NMS[] array = getNMS();
         if ((s != null) && (array != null)) {
 
+            // Let the caches drop what has changed before the screens ask
+            // for it again.
+            NMSCache.messageReceived(array, s);
+            for (int i = 0; i < array.length; i++) {
+
+                NMSCache c = NMSCache.getNMSCache(array[i]);
+                if (c != null) {
+
+                    LogUtil.log(LogUtil.DEBUG, "NMS cache hits: "
+                        + c.getHitCount() + " misses: " + c.getMissCount());
+                }
+            }
+
             Screen[] sarray = getScreens();
             if (sarray != null) {
 
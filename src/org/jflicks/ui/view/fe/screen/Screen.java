@@ -16,6 +16,7 @@
 */
 package org.jflicks.ui.view.fe.screen;
 
+import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -26,8 +27,10 @@ import javax.swing.AbstractAction;
 import javax.swing.InputMap;
 import javax.swing.JComponent;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 
 import org.jflicks.imagecache.ImageCache;
+import org.jflicks.imagecache.ImageCacheListener;
 import org.jflicks.imagecache.ImageCacheProperty;
 import org.jflicks.mvc.View;
 import org.jflicks.player.Player;
@@ -36,6 +39,7 @@ import org.jflicks.rc.RCProperty;
 import org.jflicks.tv.Recording;
 import org.jflicks.ui.view.fe.BaseCustomizePanel;
 import org.jflicks.util.RuntimeId;
+import org.jflicks.util.Util;
 
 import org.jdesktop.swingx.painter.ImagePainter;
 
@@ -68,6 +72,7 @@ public abstract class Screen extends BaseCustomizePanel implements RCProperty,
     private ImageCache imageCache;
     private BufferedImage defaultBackgroundImage;
     private BufferedImage currentBackgroundImage;
+    private String backgroundURL;
     private View view;
     private long lastCommandMillis;
 
@@ -302,6 +307,62 @@ public abstract class Screen extends BaseCustomizePanel implements RCProperty,
         }
     }
 
+    /**
+     * Make the image at the given URL the background once the ImageCache
+     * has it, the default background if there isn't one.  The image is
+     * fetched off the event thread so moving through a list stays quick,
+     * and if another URL is asked for before it arrives it is dropped.
+     *
+     * @param url The URL of the image, null for the default background.
+     */
+    public void applyBackgroundURL(String url) {
+
+        backgroundURL = url;
+        ImageCache ic = getImageCache();
+        if ((ic != null) && (url != null)) {
+
+            final String furl = url;
+            ic.getImageAsync(url, false, new ImageCacheListener() {
+
+                public void imageReady(String s, BufferedImage bi) {
+
+                    final BufferedImage fbi = bi;
+                    SwingUtilities.invokeLater(new Runnable() {
+
+                        public void run() {
+
+                            if (furl.equals(backgroundURL)) {
+                                applyBackgroundImage(fbi);
+                            }
+                        }
+                    });
+                }
+            });
+
+        } else {
+
+            applyBackgroundImage(null);
+        }
+    }
+
+    private void applyBackgroundImage(BufferedImage bi) {
+
+        Dimension d = getSize();
+        if ((bi != null) && (d != null)) {
+
+            if (bi.getWidth() < d.getWidth()) {
+
+                bi = Util.scaleLarger((int) d.getWidth(), bi);
+            }
+
+            setCurrentBackgroundImage(bi);
+
+        } else {
+
+            setCurrentBackgroundImage(getDefaultBackgroundImage());
+        }
+    }
+
     /**
      * A Screen is instantiated with a ServiceTracker which can find a
      * Player for a particular screen.  This property is populated by a
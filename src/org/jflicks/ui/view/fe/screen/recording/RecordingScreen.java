@@ -44,6 +44,8 @@ import javax.swing.Timer;
 
 import org.jflicks.imagecache.ImageCache;
 import org.jflicks.mvc.View;
+import org.jflicks.nms.NMSConstants;
+import org.jflicks.nms.NMSUtil;
 import org.jflicks.player.Bookmark;
 import org.jflicks.player.Player;
 import org.jflicks.player.PlayState;
@@ -1113,33 +1115,13 @@ public class RecordingScreen extends PlayerScreen implements RecordingProperty,
                 ImageCache ic = getImageCache();
                 if ((ic != null) && (r != null)) {
 
-                    BufferedImage bi = ic.getImage(r.getFanartURL(), false);
-                    if (bi != null) {
-
-                        Dimension d = getSize();
-                        if (d != null) {
-
-                            if (bi.getWidth() < d.getWidth()) {
-
-                                bi = Util.scaleLarger((int) d.getWidth(), bi);
-                            }
-                            setCurrentBackgroundImage(bi);
-
-                        } else {
-
-                            setCurrentBackgroundImage(
-                                getDefaultBackgroundImage());
-                        }
-
-                    } else {
-
-                        setCurrentBackgroundImage(getDefaultBackgroundImage());
-                    }
+                    applyBackgroundURL(NMSUtil.toImageURL(r.getFanartURL(),
+                        NMSConstants.IMAGE_SIZE_FULLSCREEN));
 
                     JXPanel ssp = getScreenShotPanel();
                     if (ssp != null) {
 
-                        bi = findBufferedImage(ic, r);
+                        BufferedImage bi = findBufferedImage(ic, r);
                         if (bi != null) {
 
                             ImagePainter painter =
@@ -842,35 +842,14 @@ public class VideoScreen extends PlayerScreen implements VideoProperty,
             }
         }
 
-        ImageCache ic = getImageCache();
-        if ((v != null) && (ic != null)) {
-
-            BufferedImage bi = ic.getImage(v.getFanartURL(), false);
-            if (bi != null) {
-
-                Dimension d = getSize();
-                if (d != null) {
-
-                    if (bi.getWidth() < d.getWidth()) {
-
-                        bi = Util.scaleLarger((int) d.getWidth(), bi);
-                    }
-
-                    setCurrentBackgroundImage(bi);
-
-                } else {
-
-                    setCurrentBackgroundImage(getDefaultBackgroundImage());
-                }
-
-            } else {
+        if (v != null) {
 
-                setCurrentBackgroundImage(getDefaultBackgroundImage());
-            }
+            applyBackgroundURL(NMSUtil.toImageURL(v.getFanartURL(),
+                NMSConstants.IMAGE_SIZE_FULLSCREEN));
 
         } else {
 
-            setCurrentBackgroundImage(getDefaultBackgroundImage());
+            applyBackgroundURL(null);
         }
     }
 
@@ -943,7 +922,10 @@ public class VideoScreen extends PlayerScreen implements VideoProperty,
             ArrayList<BufferedImage> l = new ArrayList<BufferedImage>();
             for (int i = 0; i < array.length; i++) {
 
-                String turl = array[i].getPosterURL();
+                // The list size is close to what we show so we download
+                // a lot less than the full poster.
+                String turl = NMSUtil.toImageURL(array[i].getPosterURL(),
+                    NMSConstants.IMAGE_SIZE_LIST);
 
                 BufferedImage bi = null;
                 long turltime = Util.lastModifiedURL(turl);
@@ -25,6 +25,8 @@ import javax.swing.ImageIcon;
 import javax.swing.JPanel;
 
 import org.jdesktop.swingx.JXLabel;
+import org.jflicks.nms.NMSConstants;
+import org.jflicks.nms.NMSUtil;
 import org.jflicks.nms.Video;
 import org.jflicks.util.Util;
 
@@ -170,10 +172,14 @@ public class ThumbnailPanel extends JPanel {
 
         if (v != null) {
 
-            getPosterLabel().setIcon(getImageIcon(v.getPosterURL(),
+            getPosterLabel().setIcon(getImageIcon(
+                NMSUtil.toImageURL(v.getPosterURL(),
+                NMSConstants.IMAGE_SIZE_THUMBNAIL),
                 POSTER_THUMB_WIDTH, POSTER_THUMB_HEIGHT,
                 getMissingPosterImageIcon()));
-            getFanartLabel().setIcon(getImageIcon(v.getFanartURL(),
+            getFanartLabel().setIcon(getImageIcon(
+                NMSUtil.toImageURL(v.getFanartURL(),
+                NMSConstants.IMAGE_SIZE_THUMBNAIL),
                 FANART_THUMB_WIDTH, FANART_THUMB_HEIGHT,
                 getMissingFanartImageIcon()));
 
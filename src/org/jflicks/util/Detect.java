@@ -55,8 +55,14 @@ public final class Detect {
      */
     public static final int DARK_GRAY_TYPE = 2;
 
+    private static final int X = 66;
+    private static final int Y = 0;
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 200;
+
     private int backup;
     private int span;
+    private FrameAnalyzer frameAnalyzer;
 
     /**
      * Default empty constructor.
@@ -65,6 +71,36 @@ public final class Detect {
 
         setBackup(0);
         setSpan(5);
+        frameAnalyzer = new FrameAnalyzer(X, Y, WIDTH, HEIGHT);
+    }
+
+    /**
+     * The FrameAnalyzer used to look at the frames.
+     *
+     * @return A FrameAnalyzer instance.
+     */
+    public FrameAnalyzer getFrameAnalyzer() {
+        return (frameAnalyzer);
+    }
+
+    /**
+     * The number of frames looked at at once.  Defaults to the number
+     * of processors.
+     *
+     * @return An int value.
+     */
+    public int getThreads() {
+        return (frameAnalyzer.getThreads());
+    }
+
+    /**
+     * The number of frames looked at at once.  Defaults to the number
+     * of processors.
+     *
+     * @param i An int value.
+     */
+    public void setThreads(int i) {
+        frameAnalyzer.setThreads(i);
     }
 
     /**
@@ -397,30 +433,28 @@ public final class Detect {
     public boolean examine(File f, int type, int range, int fudge,
         boolean compare, boolean verbose) throws IOException {
 
-        boolean result = false;
+        return (examine(f, getFrameAnalyzer().read(f), WIDTH, HEIGHT, type,
+            range, fudge, compare, verbose));
+    }
+
+    private boolean examine(File f, int[] data, int w, int h, int type,
+        int range, int fudge, boolean compare, boolean verbose)
+        throws IOException {
 
-        BufferedImage bi = ImageIO.read(f);
+        boolean result = false;
 
-        int x = 66;
-        int y = 0;
-        int w = 200;
-        int h = 200;
         int min = 44;
         int minx = 10;
         int miny = 20;
         double whitespace = 0.25;
         double border = 0.65;
-        int[] data = new int[w * h];
-
-        bi.getRGB(x, y, w, h, data, 0, w);
 
         String fname = f.getName();
-        BufferedImage crop =
-            new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        crop.setRGB(0, 0, w, h, data, 0, w);
-
         if (verbose) {
 
+            BufferedImage crop =
+                new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            crop.setRGB(0, 0, w, h, data, 0, w);
             ImageIO.write(crop, "png", new File(fname + "-crop.png"));
         }
 
@@ -491,12 +525,11 @@ public final class Detect {
             }
         }
 
-        BufferedImage white =
-            new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-        white.setRGB(0, 0, w, h, data, 0, w);
-
         if (verbose) {
 
+            BufferedImage white =
+                new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            white.setRGB(0, 0, w, h, data, 0, w);
             ImageIO.write(white, "png", new File(fname + "-white.png"));
         }
 
@@ -673,9 +706,40 @@ public final class Detect {
 
                 ArrayList<Integer> timelist = new ArrayList<Integer>();
                 Arrays.sort(all);
+
+                // Look at all the frames at once, then go through them in
+                // order like we always have.  When verbose one at a time
+                // so the output makes sense.
+                final int ftype = type;
+                final int ffudge = fudge;
+                final boolean fcompare = compare;
+                final boolean fverbose = verbose;
+                FrameAnalyzer fa = getFrameAnalyzer();
+                int threads = fa.getThreads();
+                if (verbose) {
+                    fa.setThreads(1);
+                }
+                boolean[][] hits = null;
+                try {
+
+                    hits = fa.analyze(all, 1, new FrameAnalyzer.FrameTest() {
+
+                        public boolean test(File f, int[] pixels, int w,
+                            int h, int plan) throws IOException {
+
+                            return (examine(f, pixels, w, h, ftype, 24,
+                                ffudge, fcompare, fverbose));
+                        }
+                    });
+
+                } finally {
+
+                    fa.setThreads(threads);
+                }
+
                 for (int i = 0; i < all.length; i++) {
 
-                    if (examine(all[i], type, 24, fudge, compare, verbose)) {
+                    if (hits[i][0]) {
 
                         int time = frameToSeconds(all[i]);
                         timelist.add(Integer.valueOf(time));
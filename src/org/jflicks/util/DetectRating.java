@@ -44,9 +44,15 @@ public final class DetectRating {
      */
     public static final int WHITE_TYPE = 1;
 
+    private static final int X = 70;
+    private static final int Y = 10;
+    private static final int WIDTH = 180;
+    private static final int HEIGHT = 180;
+
     private int backup;
     private int span;
     private RatingImage[] ratingImages;
+    private FrameAnalyzer frameAnalyzer;
 
     /**
      * Default empty constructor.
@@ -55,6 +61,16 @@ public final class DetectRating {
 
         setBackup(0);
         setSpan(5);
+        frameAnalyzer = new FrameAnalyzer(X, Y, WIDTH, HEIGHT);
+    }
+
+    /**
+     * The FrameAnalyzer used to look at the frames.
+     *
+     * @return A FrameAnalyzer instance.
+     */
+    public FrameAnalyzer getFrameAnalyzer() {
+        return (frameAnalyzer);
     }
 
     /**
@@ -97,7 +113,14 @@ public final class DetectRating {
         span = i;
     }
 
-    private void moveToTop(int index) {
+    private synchronized void moveToTop(RatingImage ri) {
+
+        // Frames are looked at by more than one thread so the order may
+        // have changed since the caller got the array.
+        int index = -1;
+        if (ratingImages != null) {
+            index = Arrays.asList(ratingImages).indexOf(ri);
+        }
 
         if ((ratingImages != null) && (index > 0)) {
 
@@ -115,7 +138,7 @@ public final class DetectRating {
         }
     }
 
-    private RatingImage[] getRatingImages(String path) {
+    private synchronized RatingImage[] getRatingImages(String path) {
 
         if (ratingImages == null) {
 
@@ -166,63 +189,39 @@ public final class DetectRating {
         return (ratingImages);
     }
 
-    private double compare(int[] first, int[] firstalpha, int[] second,
-        double accept) {
+    private double compare(int[] first, int[] src, int srcw, int x, int y,
+        int destw, int desth, double accept) {
 
         double result = 0.0;
 
-        if ((first != null) && (second != null)
-            && (first.length == second.length)) {
+        // Compare right against the source data instead of copying it out
+        // for every (x, y) first.
+        double dmax = (double) first.length;
+        int need = (int) (dmax * accept);
+        int count = 0;
+        int i = 0;
+        for (int row = 0; row < desth; row++) {
 
-            double dmax = (double) first.length;
-            int need = (int) (dmax * accept);
-            int count = 0;
-            for (int i = 0; i < first.length; i++) {
+            int index = (y + row) * srcw + x;
+            for (int col = 0; col < destw; col++) {
 
-                if (first[i] == second[i]) {
+                if (first[i] == src[index++]) {
 
                     count++;
 
                 } else if ((need - count) > (first.length - i)) {
 
                     // If we can't possibly make it, then quit now.
+                    row = desth;
                     break;
                 }
-            }
-
-            if (count > 0) {
-
-                result = (double) (((double) count) / ((double) first.length));
+                i++;
             }
         }
 
-        return (result);
-    }
-
-    private boolean fill(int x, int y, int[] src, int srcw, int srch,
-        int[] dest, int destw, int desth) {
-
-        boolean result = false;
-
-        if ((src != null) && (dest != null)) {
-
-            if (((x + destw) < srcw) && ((y + desth) < srch)) {
-
-                // We have a valid subset.
-                result = true;
-
-                int dindex = 0;
-                for (int row = 0; row < desth; row++) {
-
-                    int index = y * srcw + x;
-                    for (int col = 0; col < destw; col++) {
-
-                        dest[dindex++] = src[index++];
-                    }
+        if (count > 0) {
 
-                    y++;
-                }
-            }
+            result = (double) (((double) count) / ((double) first.length));
         }
 
         return (result);
@@ -239,8 +238,6 @@ public final class DetectRating {
             int[] rialphadata = ri.getAlphaData();
             if ((ridata != null) && (rialphadata != null)) {
 
-                // We need a "working" buffer to copy data.
-                int[] dest = ri.getBuffer();
                 int destw = ri.getWidth();
                 int desth = ri.getHeight();
 
@@ -252,16 +249,16 @@ public final class DetectRating {
 
                     for (int x = 0; x < w; x++) {
 
-                        if (fill(x, y, data, w, h, dest, destw, desth)) {
+                        if (((x + destw) < w) && ((y + desth) < h)) {
 
-                            // We have valid new data as the destination
-                            // data array "fits" at this (x, y) point.
-                            // The compare method will return a value
-                            // between 0.0 and 1.0.  If it is 1.0 (doubtful)
-                            // it means the two images are a perfect match.
-                            // Of course the lower the value the less likely.
-                            double d =
-                                compare(ridata, rialphadata, dest, accept);
+                            // The rating image "fits" at this (x, y)
+                            // point.  The compare method will return a
+                            // value between 0.0 and 1.0.  If it is 1.0
+                            // (doubtful) it means the two images are a
+                            // perfect match.  Of course the lower the
+                            // value the less likely.
+                            double d = compare(ridata, data, w, x, y, destw,
+                                desth, accept);
                             if (d > result) {
 
                                 result = d;
@@ -303,27 +300,30 @@ public final class DetectRating {
 
         boolean result = false;
 
-        // First need to make sure we have images to compare.
-        RatingImage[] rimages = getRatingImages(ratingDir);
-        if (rimages != null) {
+        if (getRatingImages(ratingDir) != null) {
 
-            BufferedImage bi = ImageIO.read(f);
+            result = examine(ratingDir, f, getFrameAnalyzer().read(f), WIDTH,
+                HEIGHT, type, fudge, verbose);
+        }
 
-            int x = 70;
-            int y = 10;
-            int w = 180;
-            int h = 180;
-            int[] data = new int[w * h];
+        return (result);
+    }
 
-            bi.getRGB(x, y, w, h, data, 0, w);
+    private boolean examine(String ratingDir, File f, int[] data, int w,
+        int h, int type, int fudge, boolean verbose) throws IOException {
 
-            String fname = f.getName();
-            BufferedImage crop =
-                new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-            crop.setRGB(0, 0, w, h, data, 0, w);
+        boolean result = false;
+
+        // First need to make sure we have images to compare.
+        RatingImage[] rimages = getRatingImages(ratingDir);
+        if (rimages != null) {
 
+            String fname = f.getName();
             if (verbose) {
 
+                BufferedImage crop =
+                    new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+                crop.setRGB(0, 0, w, h, data, 0, w);
                 ImageIO.write(crop, "png", new File(fname + "-crop.png"));
             }
 
@@ -369,12 +369,11 @@ public final class DetectRating {
                 }
             }
 
-            BufferedImage white =
-                new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-            white.setRGB(0, 0, w, h, data, 0, w);
-
             if (verbose) {
 
+                BufferedImage white =
+                    new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+                white.setRGB(0, 0, w, h, data, 0, w);
                 ImageIO.write(white, "png", new File(fname + "-white.png"));
             }
 
@@ -397,7 +396,7 @@ public final class DetectRating {
                         // The idea is that once we find a rating image
                         // that works, lets use it first on subsequent
                         // checks.
-                        moveToTop(i);
+                        moveToTop(rimages[i]);
                         i = rimages.length;
                     }
                 }
@@ -431,6 +430,50 @@ public final class DetectRating {
         return (result);
     }
 
+    private boolean[][] analyze(final String ratingDir, File[] all,
+        final DetectRatingPlan[] plans, final boolean verbose)
+        throws IOException {
+
+        boolean[][] result = null;
+
+        // Every frame is looked at with every plan all at once, then the
+        // caller goes through them in order like we always have.  When
+        // verbose one at a time so the output makes sense.
+        FrameAnalyzer fa = getFrameAnalyzer();
+        int threads = fa.getThreads();
+        if (verbose) {
+            fa.setThreads(1);
+        }
+
+        try {
+
+            if (getRatingImages(ratingDir) != null) {
+
+                result = fa.analyze(all, plans.length,
+                    new FrameAnalyzer.FrameTest() {
+
+                        public boolean test(File f, int[] pixels, int w,
+                            int h, int plan) throws IOException {
+
+                            return (examine(ratingDir, f, pixels, w, h,
+                                plans[plan].getType(),
+                                plans[plan].getValue(), verbose));
+                        }
+                    });
+
+            } else {
+
+                result = new boolean[all.length][plans.length];
+            }
+
+        } finally {
+
+            fa.setThreads(threads);
+        }
+
+        return (result);
+    }
+
     /**
      * This is our main worker method as it checks out all the images in
      * a given directory to determine if any are "rating frames".
@@ -461,9 +504,14 @@ public final class DetectRating {
 
                 ArrayList<Integer> timelist = new ArrayList<Integer>();
                 Arrays.sort(all);
+                DetectRatingPlan plan = new DetectRatingPlan();
+                plan.setType(type);
+                plan.setValue(fudge);
+                boolean[][] hits = analyze(ratingDir, all,
+                    new DetectRatingPlan[] {plan}, verbose);
                 for (int i = 0; i < all.length; i++) {
 
-                    if (examine(ratingDir, all[i], type, fudge, verbose)) {
+                    if (hits[i][0]) {
 
                         int time = frameToSeconds(all[i]);
                         timelist.add(Integer.valueOf(time));
@@ -526,16 +574,14 @@ public final class DetectRating {
                 boolean[] skipPlan = new boolean[plans.length];
                 boolean zappedPlans = false;
 
+                boolean[][] hits = analyze(ratingDir, all, plans, verbose);
                 for (int i = 0; i < all.length; i++) {
 
                     for (int j = 0; j < plans.length; j++) {
 
-                        if (!skipPlan[j]) {
+                        if ((!skipPlan[j]) && (i < all.length)) {
 
-                            int type = plans[j].getType();
-                            int fudge = plans[j].getValue();
-                            if (examine(ratingDir, all[i], type, fudge,
-                                verbose)) {
+                            if (hits[i][j]) {
 
                                 int time = frameToSeconds(all[i]);
                                 timelist.add(Integer.valueOf(time));
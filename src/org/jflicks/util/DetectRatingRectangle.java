@@ -48,8 +48,14 @@ public final class DetectRatingRectangle {
     public static final int MINIMUM_HEIGHT = 40;
     public static final int MINIMUM_WIDTH = 30;
 
+    private static final int X = 70;
+    private static final int Y = 10;
+    private static final int WIDTH = 180;
+    private static final int HEIGHT = 180;
+
     private int backup;
     private int span;
+    private FrameAnalyzer frameAnalyzer;
 
     /**
      * Default empty constructor.
@@ -58,6 +64,16 @@ public final class DetectRatingRectangle {
 
         setBackup(0);
         setSpan(5);
+        frameAnalyzer = new FrameAnalyzer(X, Y, WIDTH, HEIGHT);
+    }
+
+    /**
+     * The FrameAnalyzer used to look at the frames.
+     *
+     * @return A FrameAnalyzer instance.
+     */
+    public FrameAnalyzer getFrameAnalyzer() {
+        return (frameAnalyzer);
     }
 
     /**
@@ -113,25 +129,23 @@ public final class DetectRatingRectangle {
     public boolean examine(File f, int type, int red, int green, int blue, int range, boolean verbose,
         int planIndex) throws IOException {
 
-        boolean result = false;
-
-        BufferedImage bi = ImageIO.read(f);
+        return (examine(f, getFrameAnalyzer().read(f), WIDTH, HEIGHT, type, red, green, blue, range,
+            verbose, planIndex));
+    }
 
-        int x = 70;
-        int y = 10;
-        int w = 180;
-        int h = 180;
-        int[] data = new int[w * h];
+    private boolean examine(File f, int[] data, int w, int h, int type, int red, int green, int blue,
+        int range, boolean verbose, int planIndex) throws IOException {
 
-        bi.getRGB(x, y, w, h, data, 0, w);
+        boolean result = false;
 
-        double drange = range;
+        // Comparing the squares is the same as comparing the distance and
+        // saves a square root for every pixel.
+        int range2 = (range > 0) ? range * range : 0;
         String fname = f.getName();
-        BufferedImage crop = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        crop.setRGB(0, 0, w, h, data, 0, w);
-
         if (verbose) {
 
+            BufferedImage crop = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            crop.setRGB(0, 0, w, h, data, 0, w);
             ImageIO.write(crop, "png", new File(fname + "-" + planIndex + "-crop.png"));
         }
 
@@ -143,11 +157,13 @@ public final class DetectRatingRectangle {
             g = g >> 8;
             int b = data[i] & 0x000000ff;
 
-            double distance = Math.sqrt(Math.pow(red - r, 2) + Math.pow(green - g, 2) + Math.pow(blue - b, 2));
-            double percentage = distance / Math.sqrt(Math.pow(255, 2) + Math.pow(255, 2) + Math.pow(255, 2));
+            int dr = red - r;
+            int dg = green - g;
+            int db = blue - b;
+            int distance2 = dr * dr + dg * dg + db * db;
             if (type == BLACK_TYPE) {
 
-                if (distance < drange) {
+                if (distance2 < range2) {
 
                     data[i] = 0x00000000;
 
@@ -158,7 +174,7 @@ public final class DetectRatingRectangle {
 
             } else if (type == WHITE_TYPE) {
 
-                if (distance < drange) {
+                if (distance2 < range2) {
 
                     data[i] = 0x00000000;
 
@@ -169,11 +185,10 @@ public final class DetectRatingRectangle {
             }
         }
 
-        BufferedImage white = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-        white.setRGB(0, 0, w, h, data, 0, w);
-
         if (verbose) {
 
+            BufferedImage white = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            white.setRGB(0, 0, w, h, data, 0, w);
             ImageIO.write(white, "png", new File(fname + "-" + planIndex + "-white.png"));
             //ImageIO.write(tryit, "png", new File(fname + "-white.png"));
         }
@@ -531,18 +546,41 @@ public final class DetectRatingRectangle {
                 boolean[] skipPlan = new boolean[plans.length];
                 boolean zappedPlans = false;
 
+                // Every frame is looked at with every plan all at once,
+                // then we go through them in order like we always have.
+                // When verbose one at a time so the output makes sense.
+                final DetectRatingPlan[] fplans = plans;
+                final boolean fverbose = verbose;
+                FrameAnalyzer fa = getFrameAnalyzer();
+                int threads = fa.getThreads();
+                if (verbose) {
+                    fa.setThreads(1);
+                }
+                boolean[][] hits = null;
+                try {
+
+                    hits = fa.analyze(all, plans.length, new FrameAnalyzer.FrameTest() {
+
+                        public boolean test(File f, int[] pixels, int w, int h, int plan) throws IOException {
+
+                            DetectRatingPlan p = fplans[plan];
+                            return (examine(f, pixels, w, h, p.getType(), p.getRed(), p.getGreen(),
+                                p.getBlue(), p.getRange(), fverbose, plan));
+                        }
+                    });
+
+                } finally {
+
+                    fa.setThreads(threads);
+                }
+
                 for (int i = 0; i < all.length; i++) {
 
                     for (int j = 0; j < plans.length; j++) {
 
-                        if (!skipPlan[j]) {
+                        if ((!skipPlan[j]) && (i < all.length)) {
 
-                            int type = plans[j].getType();
-                            int red = plans[j].getRed();
-                            int green = plans[j].getGreen();
-                            int blue = plans[j].getBlue();
-                            int range = plans[j].getRange();
-                            if (examine(all[i], type, red, green, blue, range, verbose, j)) {
+                            if (hits[i][j]) {
 
                                 int time = frameToSeconds(all[i]);
                                 DetectResult dr = new DetectResult();
@@ -0,0 +1,452 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.util;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Look at a region of many frame images at once.  The Detect classes
+ * used to read one image at a time with ImageIO.read and copy the region
+ * out with getRGB, so a one hour show kept one core busy for a long time
+ * while the rest sat idle.  Here the frames are split up over a fork join
+ * pool, only the region is decoded, the pixels come straight out of the
+ * DataBuffer, and each thread keeps its reader and buffers from frame to
+ * frame.
+ *
+ * A frame can be tested more than one way, called plans.  The region is
+ * decoded once and each plan gets its own copy to change as it likes.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class FrameAnalyzer {
+
+    private static final int FRAMES_PER_TASK = 2;
+
+    private Rectangle region;
+    private int threads;
+    private boolean fullDecode;
+    private ThreadLocal<Worker> workers;
+
+    /**
+     * Something that can test the pixels of a frame.
+     */
+    public interface FrameTest {
+
+        /**
+         * Test a frame with a plan.
+         *
+         * @param f The frame File.
+         * @param pixels The region as packed ARGB, free to be changed.
+         * @param w The width of the region.
+         * @param h The height of the region.
+         * @param plan The plan index.
+         * @return True if the frame passes.
+         * @throws IOException on an error.
+         */
+        boolean test(File f, int[] pixels, int w, int h, int plan)
+            throws IOException;
+    }
+
+    /**
+     * Look at the given region of each frame.
+     *
+     * @param x The left of the region.
+     * @param y The top of the region.
+     * @param w The width of the region.
+     * @param h The height of the region.
+     */
+    public FrameAnalyzer(int x, int y, int w, int h) {
+
+        region = new Rectangle(x, y, w, h);
+        setThreads(Runtime.getRuntime().availableProcessors());
+        workers = new ThreadLocal<Worker>() {
+
+            protected Worker initialValue() {
+                return (new Worker());
+            }
+        };
+    }
+
+    /**
+     * The number of threads to use.  Defaults to the number of
+     * processors.
+     *
+     * @return An int value.
+     */
+    public int getThreads() {
+        return (threads);
+    }
+
+    /**
+     * The number of threads to use.  Defaults to the number of
+     * processors.
+     *
+     * @param i An int value.
+     */
+    public void setThreads(int i) {
+        threads = Math.max(1, i);
+    }
+
+    /**
+     * Decode the whole image with ImageIO.read and copy the region with
+     * getRGB like we used to.  Only here to compare against.
+     *
+     * @return A boolean value.
+     */
+    public boolean isFullDecode() {
+        return (fullDecode);
+    }
+
+    /**
+     * Decode the whole image with ImageIO.read and copy the region with
+     * getRGB like we used to.  Only here to compare against.
+     *
+     * @param b A boolean value.
+     */
+    public void setFullDecode(boolean b) {
+        fullDecode = b;
+    }
+
+    /**
+     * Read the region of one frame.  The array belongs to the calling
+     * thread and is reused by its next read.
+     *
+     * @param f A given frame File.
+     * @return The region as packed ARGB.
+     * @throws IOException on an error.
+     */
+    public int[] read(File f) throws IOException {
+        return (workers.get().read(f));
+    }
+
+    /**
+     * Test each frame with each plan.
+     *
+     * @param frames The frame files.
+     * @param plans The number of plans.
+     * @param test The FrameTest to run.
+     * @return The results by frame and then by plan.
+     * @throws IOException on an error.
+     */
+    public boolean[][] analyze(File[] frames, int plans, FrameTest test)
+        throws IOException {
+
+        boolean[][] result = new boolean[frames.length][];
+
+        if (threads == 1) {
+
+            for (int i = 0; i < frames.length; i++) {
+                result[i] = workers.get().test(frames[i], plans, test);
+            }
+
+        } else {
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+
+                pool.invoke(new FrameAction(frames, plans, test, result, 0,
+                    frames.length));
+
+            } catch (FrameException ex) {
+
+                throw ex.getIOException();
+
+            } finally {
+
+                pool.shutdown();
+            }
+        }
+
+        return (result);
+    }
+
+    /**
+     * Split the frames in half until there are just a few left.
+     */
+    class FrameAction extends RecursiveAction {
+
+        private File[] frames;
+        private int plans;
+        private FrameTest test;
+        private boolean[][] result;
+        private int from;
+        private int to;
+
+        FrameAction(File[] frames, int plans, FrameTest test,
+            boolean[][] result, int from, int to) {
+
+            this.frames = frames;
+            this.plans = plans;
+            this.test = test;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+
+            if (to - from <= FRAMES_PER_TASK) {
+
+                Worker w = workers.get();
+                for (int i = from; i < to; i++) {
+
+                    try {
+
+                        result[i] = w.test(frames[i], plans, test);
+
+                    } catch (IOException ex) {
+
+                        throw new FrameException(ex);
+                    }
+                }
+
+            } else {
+
+                int middle = (from + to) >>> 1;
+                invokeAll(new FrameAction(frames, plans, test, result, from,
+                    middle), new FrameAction(frames, plans, test, result,
+                    middle, to));
+            }
+        }
+    }
+
+    /**
+     * Carry an IOException out of the pool.
+     */
+    static class FrameException extends RuntimeException {
+
+        FrameException(IOException ex) {
+            super(ex);
+        }
+
+        IOException getIOException() {
+            return ((IOException) getCause());
+        }
+    }
+
+    /**
+     * What each thread keeps from frame to frame.
+     */
+    class Worker {
+
+        private HashMap<String, ImageReader> readerMap;
+        private int[] pixels;
+        private int[] work;
+
+        Worker() {
+
+            readerMap = new HashMap<String, ImageReader>();
+            pixels = new int[region.width * region.height];
+            work = new int[pixels.length];
+        }
+
+        boolean[] test(File f, int plans, FrameTest test) throws IOException {
+
+            boolean[] result = new boolean[plans];
+
+            int[] data = read(f);
+            for (int i = 0; i < plans; i++) {
+
+                System.arraycopy(data, 0, work, 0, data.length);
+                result[i] = test.test(f, work, region.width, region.height,
+                    i);
+            }
+
+            return (result);
+        }
+
+        int[] read(File f) throws IOException {
+
+            if (fullDecode) {
+
+                BufferedImage bi = ImageIO.read(f);
+                bi.getRGB(region.x, region.y, region.width, region.height,
+                    pixels, 0, region.width);
+
+            } else {
+
+                ImageReader reader = getReader(f);
+                BufferedImage bi = null;
+                if (reader != null) {
+
+                    ImageInputStream iis = ImageIO.createImageInputStream(f);
+                    if (iis == null) {
+                        throw new IOException("Can't read " + f);
+                    }
+
+                    try {
+
+                        reader.setInput(iis, true, true);
+                        if ((region.x + region.width <= reader.getWidth(0))
+                            && (region.y + region.height
+                            <= reader.getHeight(0))) {
+
+                            ImageReadParam param =
+                                reader.getDefaultReadParam();
+                            param.setSourceRegion(region);
+                            bi = reader.read(0, param);
+                        }
+
+                    } finally {
+
+                        reader.setInput(null);
+                        iis.close();
+                    }
+                }
+
+                if (bi != null) {
+
+                    copy(bi, pixels);
+
+                } else {
+
+                    // Let ImageIO and getRGB sort it out, or complain
+                    // about it, like they always have.
+                    bi = ImageIO.read(f);
+                    if (bi == null) {
+                        throw new IOException("Can't read " + f);
+                    }
+                    bi.getRGB(region.x, region.y, region.width,
+                        region.height, pixels, 0, region.width);
+                }
+            }
+
+            return (pixels);
+        }
+
+        private ImageReader getReader(File f) {
+
+            ImageReader result = null;
+
+            String name = f.getName();
+            int index = name.lastIndexOf('.');
+            if (index != -1) {
+
+                String suffix = name.substring(index + 1).toLowerCase();
+                result = readerMap.get(suffix);
+                if ((result == null) && (!readerMap.containsKey(suffix))) {
+
+                    Iterator<ImageReader> iter =
+                        ImageIO.getImageReadersBySuffix(suffix);
+                    if (iter.hasNext()) {
+                        result = iter.next();
+                    }
+                    readerMap.put(suffix, result);
+                }
+            }
+
+            return (result);
+        }
+
+        private void copy(BufferedImage bi, int[] dest) {
+
+            int w = region.width;
+            int h = region.height;
+            Raster raster = bi.getRaster();
+            SampleModel sm = raster.getSampleModel();
+            DataBuffer db = raster.getDataBuffer();
+            ColorModel cm = bi.getColorModel();
+            int tx = -raster.getSampleModelTranslateX();
+            int ty = -raster.getSampleModelTranslateY();
+
+            if ((bi.getWidth() == w) && (bi.getHeight() == h)
+                && (db instanceof DataBufferByte)
+                && (sm instanceof PixelInterleavedSampleModel)
+                && (cm instanceof ComponentColorModel)
+                && (cm.getColorSpace().isCS_sRGB())
+                && (!cm.isAlphaPremultiplied())
+                && (cm.getComponentSize(0) == 8)
+                && ((sm.getNumBands() == 3) || (sm.getNumBands() == 4))) {
+
+                // The usual JPEG, 3 bytes a pixel in some order.
+                PixelInterleavedSampleModel pism =
+                    (PixelInterleavedSampleModel) sm;
+                byte[] data = ((DataBufferByte) db).getData();
+                int[] band = pism.getBandOffsets();
+                int stride = pism.getPixelStride();
+                int scan = pism.getScanlineStride();
+                int base = db.getOffset() + ty * scan + tx * stride;
+                boolean alpha = sm.getNumBands() == 4;
+                int index = 0;
+                for (int row = 0; row < h; row++) {
+
+                    int p = base + row * scan;
+                    for (int col = 0; col < w; col++) {
+
+                        int a = (alpha) ? (data[p + band[3]] & 0xff) : 0xff;
+                        dest[index++] = (a << 24)
+                            | ((data[p + band[0]] & 0xff) << 16)
+                            | ((data[p + band[1]] & 0xff) << 8)
+                            | (data[p + band[2]] & 0xff);
+                        p += stride;
+                    }
+                }
+
+            } else if ((bi.getWidth() == w) && (bi.getHeight() == h)
+                && (db instanceof DataBufferInt)
+                && (sm instanceof SinglePixelPackedSampleModel)
+                && (cm instanceof DirectColorModel)
+                && (!cm.isAlphaPremultiplied())
+                && ((bi.getType() == BufferedImage.TYPE_INT_RGB)
+                || (bi.getType() == BufferedImage.TYPE_INT_ARGB))) {
+
+                // Already packed the way we want it.
+                int[] data = ((DataBufferInt) db).getData();
+                int scan = ((SinglePixelPackedSampleModel) sm)
+                    .getScanlineStride();
+                int base = db.getOffset() + ty * scan + tx;
+                int or = (bi.getType() == BufferedImage.TYPE_INT_RGB)
+                    ? 0xff000000 : 0;
+                int index = 0;
+                for (int row = 0; row < h; row++) {
+
+                    int p = base + row * scan;
+                    for (int col = 0; col < w; col++) {
+                        dest[index++] = data[p++] | or;
+                    }
+                }
+
+            } else {
+
+                bi.getRGB(0, 0, w, h, dest, 0, w);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * Compare looking at frames the way the Detect classes used to, one at
+ * a time decoding each frame in full for every plan, to looking at them
+ * with a FrameAnalyzer on one thread and then on all of them.  A set of
+ * frames like the ones ffmpeg makes for commercial detection is made up
+ * in the given directory, with a rating rectangle in a few of them.
+ *
+ * Usage: FrameBenchmark directory [frames] [width] [height]
+ *
+ * For each way we print the time and the frames per second, then the
+ * rating frames that were found so one can see they all agree.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public final class FrameBenchmark {
+
+    private static final String EXTENSION = "jpg";
+    private static final int RATING_EVERY = 97;
+
+    private FrameBenchmark() {
+    }
+
+    private static DetectRatingPlan[] makePlans() {
+
+        DetectRatingPlan[] result = new DetectRatingPlan[2];
+
+        result[0] = new DetectRatingPlan();
+        result[0].setType(DetectRatingRectangle.WHITE_TYPE);
+        result[0].setRed(255);
+        result[0].setGreen(255);
+        result[0].setBlue(255);
+        result[0].setRange(60);
+
+        result[1] = new DetectRatingPlan();
+        result[1].setType(DetectRatingRectangle.BLACK_TYPE);
+        result[1].setRed(0);
+        result[1].setGreen(0);
+        result[1].setBlue(0);
+        result[1].setRange(60);
+
+        return (result);
+    }
+
+    private static void makeFrames(File dir, int frames, int width,
+        int height) throws IOException {
+
+        Random random = new Random(frames);
+        BufferedImage bi =
+            new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = bi.createGraphics();
+        for (int i = 0; i < frames; i++) {
+
+            // Something busy and in the middle so the JPEG is not too
+            // small and nothing looks like a rating.
+            g2d.setColor(new Color(80 + random.nextInt(80),
+                80 + random.nextInt(80), 80 + random.nextInt(80)));
+            g2d.fillRect(0, 0, width, height);
+            for (int j = 0; j < 200; j++) {
+
+                g2d.setColor(new Color(60 + random.nextInt(120),
+                    60 + random.nextInt(120), 60 + random.nextInt(120)));
+                g2d.fillOval(random.nextInt(width), random.nextInt(height),
+                    10 + random.nextInt(80), 10 + random.nextInt(80));
+            }
+
+            if ((i % RATING_EVERY) == RATING_EVERY / 2) {
+
+                g2d.setColor(Color.BLACK);
+                g2d.fillRect(100, 40, 60, 90);
+                g2d.setColor(Color.WHITE);
+                g2d.fillRect(105, 45, 50, 80);
+            }
+
+            ImageIO.write(bi, EXTENSION, new File(dir,
+                "frame-" + String.format("%06d", i + 1) + "." + EXTENSION));
+        }
+        g2d.dispose();
+    }
+
+    private static String legacy(DetectRatingRectangle drr, File[] all,
+        DetectRatingPlan[] plans) throws IOException {
+
+        StringBuilder sb = new StringBuilder();
+
+        // This is how processDirectory used to go, examine decoding the
+        // whole frame for each plan and copying the region with getRGB.
+        drr.getFrameAnalyzer().setFullDecode(true);
+        boolean[] skipPlan = new boolean[plans.length];
+        boolean zappedPlans = false;
+        for (int i = 0; i < all.length; i++) {
+
+            for (int j = 0; j < plans.length; j++) {
+
+                DetectRatingPlan p = plans[j];
+                if ((!skipPlan[j]) && (i < all.length)
+                    && (drr.examine(all[i], p.getType(), p.getRed(),
+                    p.getGreen(), p.getBlue(), p.getRange(), false, j))) {
+
+                    sb.append(all[i].getName() + " ");
+                    i += 30 / drr.getSpan();
+                    if (!zappedPlans) {
+
+                        for (int k = 0; k < plans.length; k++) {
+
+                            if (k != j) {
+                                skipPlan[k] = true;
+                            }
+                        }
+                        zappedPlans = true;
+                    }
+                }
+            }
+        }
+        drr.getFrameAnalyzer().setFullDecode(false);
+
+        return (sb.toString());
+    }
+
+    private static String run(String label, DetectRatingRectangle drr,
+        File dir, File[] all, DetectRatingPlan[] plans, int threads,
+        PrintStream out) throws IOException {
+
+        StringBuilder sb = new StringBuilder();
+
+        long start = System.nanoTime();
+        if (threads == 0) {
+
+            sb.append(legacy(drr, all, plans));
+
+        } else {
+
+            drr.getFrameAnalyzer().setThreads(threads);
+            DetectResult[] array = drr.processDirectory(dir, EXTENSION,
+                plans, false);
+            if (array != null) {
+
+                for (int i = 0; i < array.length; i++) {
+                    sb.append(array[i].getFile().getName() + " ");
+                }
+            }
+        }
+        double secs = (System.nanoTime() - start) / 1000000000.0;
+        out.printf("%-10s %8.2f s %8.1f frames/s%n", label, secs,
+            all.length / secs);
+
+        return (sb.toString());
+    }
+
+    /**
+     * Simple main to run the benchmark.
+     *
+     * @param args The arguments as described above.
+     * @throws Exception on error.
+     */
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 1) {
+
+            System.out.println("Usage: FrameBenchmark directory [frames] "
+                + "[width] [height]");
+            System.exit(1);
+        }
+
+        File dir = new File(args[0]);
+        int frames = 720;
+        int width = 1280;
+        int height = 720;
+        if (args.length > 1) {
+            frames = Util.str2int(args[1], frames);
+        }
+        if (args.length > 2) {
+            width = Util.str2int(args[2], width);
+        }
+        if (args.length > 3) {
+            height = Util.str2int(args[3], height);
+        }
+
+        // Our logging goes to stderr without a LogService and the Detect
+        // classes like to talk on stdout.
+        PrintStream out = System.out;
+        PrintStream quiet = new PrintStream(new OutputStream() {
+
+            public void write(int b) {
+            }
+        });
+        System.setErr(quiet);
+
+        dir.mkdirs();
+        makeFrames(dir, frames, width, height);
+        File[] all = dir.listFiles(new ExtensionsFilter(
+            new String[] {EXTENSION}));
+        Arrays.sort(all);
+        out.printf("%d frames of %dx%d, %d processors%n", all.length, width,
+            height, Runtime.getRuntime().availableProcessors());
+
+        DetectRatingPlan[] plans = makePlans();
+        DetectRatingRectangle drr = new DetectRatingRectangle();
+        int cpus = Runtime.getRuntime().availableProcessors();
+
+        // Twice so the second time around is warm.
+        System.setOut(quiet);
+        String[] found = new String[3];
+        for (int i = 0; i < 2; i++) {
+
+            out.println("-- pass " + (i + 1));
+            found[0] = run("legacy", drr, dir, all, plans, 0, out);
+            found[1] = run("serial", drr, dir, all, plans, 1, out);
+            found[2] = run("parallel", drr, dir, all, plans, cpus, out);
+        }
+
+        out.println("found: " + found[0]);
+        out.println((found[0].equals(found[1]) && found[0].equals(found[2]))
+            ? "all agree" : "DIFFERENT: " + found[1] + " / " + found[2]);
+
+        for (int i = 0; i < all.length; i++) {
+            all[i].delete();
+        }
+        System.exit(0);
+    }
+
+}
@@ -16,7 +16,13 @@
 */
 package org.jflicks.videomanager.system;
 
+import java.io.File;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.jflicks.job.AbstractJob;
 import org.jflicks.job.JobContainer;
@@ -25,6 +31,8 @@ import org.jflicks.job.JobListener;
 import org.jflicks.job.JobManager;
 import org.jflicks.job.SystemJob;
 import org.jflicks.nms.Video;
+import org.jflicks.tv.postproc.TsProbe;
+import org.jflicks.util.LogUtil;
 import org.jflicks.util.Util;
 
 /**
@@ -35,6 +43,11 @@ import org.jflicks.util.Util;
  */
 public class MediainfoJob extends AbstractJob implements JobListener {
 
+    /**
+     * How long getDuration waits for ffmpeg, in milliseconds.
+     */
+    public static final long DURATION_TIMEOUT = 3000L;
+
     private Video video;
     private SystemJob systemJob;
     private JobContainer jobContainer;
@@ -148,44 +161,133 @@ public class MediainfoJob extends AbstractJob implements JobListener {
             Video v = getVideo();
             if ((v != null) && (job != null)) {
 
-                String output = job.getOutputText();
-                if (output != null) {
-
-                    String timeline = null;
-                    int tindex = output.indexOf("Duration:");
-                    if (tindex != -1) {
-
-                        timeline = output.substring(tindex + 9);
-                        timeline = timeline.trim();
-                        timeline = timeline.substring(0, timeline.indexOf(","));
-
-                        // Should have something like 00:00:00.00
-                        int hours = 0;
-                        int minutes = 0;
-                        int secs = 0;
-                        int index = 0;
-                        StringTokenizer st = new StringTokenizer(timeline, ":");
-                        while (st.hasMoreTokens()) {
-
-                            String tmp = st.nextToken();
-                            if (index == 0) {
-                                hours = Util.str2int(tmp, hours);
-                            } else if (index == 1) {
-                                minutes = Util.str2int(tmp, minutes);
-                            } else if (index == 2) {
-
-                                tmp = tmp.substring(0, tmp.indexOf("."));
-                                secs = Util.str2int(tmp, secs);
-                            }
-                            index++;
-                        }
+                setSeconds(parseSeconds(job.getOutputText()));
+            }
+
+            stop();
+        }
+    }
+
+    private static long parseSeconds(String output) {
+
+        long result = 0L;
+
+        if (output != null) {
+
+            int tindex = output.indexOf("Duration:");
+            if (tindex != -1) {
 
-                        setSeconds(hours * 3600 + minutes * 60 + secs);
+                String timeline = output.substring(tindex + 9);
+                timeline = timeline.trim();
+                timeline = timeline.substring(0, timeline.indexOf(","));
+
+                // Should have something like 00:00:00.00
+                int hours = 0;
+                int minutes = 0;
+                int secs = 0;
+                int index = 0;
+                StringTokenizer st = new StringTokenizer(timeline, ":");
+                while (st.hasMoreTokens()) {
+
+                    String tmp = st.nextToken();
+                    if (index == 0) {
+                        hours = Util.str2int(tmp, hours);
+                    } else if (index == 1) {
+                        minutes = Util.str2int(tmp, minutes);
+                    } else if (index == 2) {
+
+                        tmp = tmp.substring(0, tmp.indexOf("."));
+                        secs = Util.str2int(tmp, secs);
                     }
+                    index++;
                 }
+
+                result = hours * 3600 + minutes * 60 + secs;
             }
+        }
 
-            stop();
+        return (result);
+    }
+
+    /**
+     * Find the length of a Video on the calling thread.  A transport
+     * stream is read directly, anything else is handed to ffmpeg.  We
+     * wait for ffmpeg at most DURATION_TIMEOUT milliseconds so one bad
+     * file or a stalled mount can't hold up a scan.  If it takes longer
+     * the process is destroyed and no duration is recorded.
+     *
+     * @param v A given Video.
+     * @return The length in seconds.
+     */
+    public static long getDuration(Video v) {
+
+        long result = 0L;
+
+        if ((v != null) && (v.getPath() != null)) {
+
+            String path = v.getPath();
+            TsProbe probe = null;
+            if (path.toLowerCase().endsWith(".ts")) {
+                probe = new TsProbe(new File(path));
+            }
+
+            if ((probe != null) && (probe.probe())) {
+
+                result = probe.getDurationMillis() / 1000L;
+
+            } else {
+
+                final SystemJob job =
+                    SystemJob.getInstance("ffmpeg -i " + path);
+                job.start();
+                FutureTask<String> task = new FutureTask<String>(
+                    new Callable<String>() {
+
+                        public String call() {
+
+                            job.run();
+                            return (job.getOutputText());
+                        }
+                    });
+                Thread t = new Thread(task, "ffmpeg-duration");
+                t.setDaemon(true);
+                t.start();
+
+                try {
+
+                    result = parseSeconds(task.get(DURATION_TIMEOUT,
+                        TimeUnit.MILLISECONDS));
+
+                } catch (TimeoutException ex) {
+
+                    LogUtil.log(LogUtil.WARNING, "duration timed out: "
+                        + path);
+                    destroy(job);
+
+                } catch (ExecutionException ex) {
+
+                    LogUtil.log(LogUtil.WARNING, "duration failed: "
+                        + path + " " + ex.getCause());
+
+                } catch (InterruptedException ex) {
+
+                    destroy(job);
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    private static void destroy(SystemJob job) {
+
+        // Don't use stop, it waits for the process to exit and a process
+        // stuck on a stalled mount may not.  Our thread finishes the job
+        // once it does.
+        Process p = job.getProcess();
+        if (p != null) {
+            p.destroy();
         }
     }
 
@@ -23,7 +23,16 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
@@ -54,10 +63,15 @@ import com.db4o.query.Predicate;
 public class SystemVideoManager extends BaseVideoManager implements DbWorker {
 
     private static final String TV_REGEX = "S\\d\\dE\\d\\d";
+    private static final String PROPERTY = "org.jflicks.videomanager.";
+    private static final int DEFAULT_PROBES = 4;
 
     private ObjectContainer objectContainer;
     private Db4oService db4oService;
     private Pattern pattern;
+    private Object scanLock;
+    private VideoJournal videoJournal;
+    private VideoWatcher videoWatcher;
 
     /**
      * Default empty constructor.
@@ -66,6 +80,7 @@ public class SystemVideoManager extends BaseVideoManager implements DbWorker {
 
         setTitle("SystemVideoManager");
         setPattern(Pattern.compile(TV_REGEX));
+        scanLock = new Object();
     }
 
     private Pattern getPattern() {
@@ -137,6 +152,15 @@ public class SystemVideoManager extends BaseVideoManager implements DbWorker {
      */
     public void close() {
 
+        synchronized (scanLock) {
+
+            if (videoWatcher != null) {
+
+                videoWatcher.stop();
+                videoWatcher = null;
+            }
+        }
+
         if (objectContainer != null) {
 
             boolean result = objectContainer.close();
@@ -518,39 +542,173 @@ public class SystemVideoManager extends BaseVideoManager implements DbWorker {
         }
     }
 
-    private long computeDuration(Video v) {
+    private int getProbeCount() {
 
-        long result = 0L;
+        int result = DEFAULT_PROBES;
 
-        if (v != null) {
+        String s = System.getProperty(PROPERTY + "probes");
+        if (s != null) {
+            result = Math.max(1, Util.str2int(s.trim(), result));
+        }
 
-            MediainfoJob job = new MediainfoJob(v);
-            JobContainer jc = JobManager.getJobContainer(job);
-            jc.start();
+        return (result);
+    }
 
-            boolean done = false;
-            int count = 0;
-            while (!done) {
+    private boolean isWatch() {
+        return (!"false".equals(System.getProperty(PROPERTY + "watch")));
+    }
 
-                if (!jc.isAlive()) {
+    private VideoJournal getVideoJournal() {
 
-                    done = true;
+        if (videoJournal == null) {
 
-                } else {
+            File dir = new File("db");
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+            videoJournal = new VideoJournal(new File(dir, "videojournal.txt"));
+        }
 
-                    count += 100;
-                    if (count > 2900) {
+        return (videoJournal);
+    }
 
-                        done = true;
+    private HashMap<String, Video> toFilenameMap(Video[] array) {
 
-                    } else {
+        HashMap<String, Video> result = new HashMap<String, Video>();
+
+        if (array != null) {
+
+            // Like getVideoByFilename the first one wins.
+            for (int i = array.length - 1; i >= 0; i--) {
+
+                if (array[i].getFilename() != null) {
+                    result.put(array[i].getFilename(), array[i]);
+                }
+            }
+        }
+
+        return (result);
+    }
+
+    private void computeDurations(ArrayList<Video> list) {
+
+        if (list.size() > 0) {
+
+            int threads = Math.min(list.size(), getProbeCount());
+            ExecutorService es = Executors.newFixedThreadPool(threads,
+                new ProbeThreadFactory());
+            try {
 
-                        JobManager.sleep(100);
+                ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>();
+                for (int i = 0; i < list.size(); i++) {
+
+                    final Video v = list.get(i);
+                    futures.add(es.submit(new Callable<Long>() {
+
+                        public Long call() {
+                            return (Long.valueOf(MediainfoJob.getDuration(v)));
+                        }
+                    }));
+                }
+
+                for (int i = 0; i < futures.size(); i++) {
+
+                    try {
+
+                        list.get(i).setDuration(futures.get(i).get()
+                            .longValue());
+
+                    } catch (ExecutionException ex) {
+
+                        LogUtil.log(LogUtil.WARNING, "duration failed: "
+                            + list.get(i).getPath() + " " + ex.getCause());
+
+                    } catch (InterruptedException ex) {
+
+                        Thread.currentThread().interrupt();
+                        break;
                     }
                 }
+
+            } finally {
+
+                es.shutdownNow();
+            }
+        }
+    }
+
+    private int scanFiles(File[] files, HashMap<String, Video> map,
+        HashSet<String> seen) {
+
+        int result = 0;
+
+        VideoJournal journal = getVideoJournal();
+        ArrayList<Video> probeList = new ArrayList<Video>();
+        ArrayList<Video> saveList = new ArrayList<Video>();
+        for (int j = 0; j < files.length; j++) {
+
+            String name = files[j].getName();
+            String path = files[j].getPath();
+            long length = files[j].length();
+            long modified = files[j].lastModified();
+            boolean known = journal.contains(path);
+            boolean unchanged = journal.isUnchanged(path, length, modified);
+            seen.add(path);
+
+            Video v = map.get(name);
+            if (v == null) {
+
+                String title = name;
+                int index = title.lastIndexOf(".");
+                if (index != -1) {
+
+                    title = title.substring(0, index);
+                }
+                v = new Video();
+                v.setCategory(guessVideoCategory(title));
+                v.setSeason(guessSeason(title));
+                v.setEpisode(guessEpisode(title));
+                v.setFilename(name);
+                v.setTitle(guessVideoTitle(title, v.isTV()));
+                v.setPath(path);
+                v.setHidden(false);
+                if (v.isTV()) {
+                    v.setSubcategory(v.getTitle() + " Season "
+                        + v.getSeason());
+                } else {
+                    v.setSubcategory(
+                        NMSConstants.UNKNOWN_GENRE);
+                }
+                map.put(name, v);
+                probeList.add(v);
+
+            } else if ((!path.equals(v.getPath())) || (v.isHidden())) {
+
+                v.setPath(path);
+                v.setHidden(false);
+                if (unchanged) {
+                    saveList.add(v);
+                } else {
+                    probeList.add(v);
+                }
+
+            } else if ((known) && (!unchanged)) {
+
+                // Same name and place but a different file.
+                probeList.add(v);
+
+            } else {
+
+                result++;
             }
 
-            result = (long) job.getSeconds();
+            journal.update(path, length, modified);
+        }
+
+        computeDurations(probeList);
+        saveList.addAll(probeList);
+        for (int i = 0; i < saveList.size(); i++) {
+            addVideo(saveList.get(i));
         }
 
         return (result);
@@ -559,100 +717,134 @@ public class SystemVideoManager extends BaseVideoManager implements DbWorker {
     /**
      * {@inheritDoc}
      */
-    public synchronized void videoScan() {
-
-        LogUtil.log(LogUtil.INFO, "Time to scan for video files...");
-
-        // First we are going to see if the DB video has been
-        // changed to an mp4 extension.  This is really hack code
-        // and we should remove later.  What we will do is if the
-        // file path doesn't exist, but an mp4 version does, then
-        // we will update the database.
-        Video[] currentVids = getVideos();
-        if ((currentVids != null) && (currentVids.length > 0)) {
-
-            for (int i = 0; i < currentVids.length; i++) {
-
-                Video v = currentVids[i];
-                String path = v.getPath();
-                File vfile = new File(path);
-                if (!vfile.exists()) {
-
-                    // It's gone.  See if there is an mp4 version.
-                    path = path.substring(0, path.lastIndexOf("."));
-                    path = path + ".mp4";
-                    vfile = new File(path);
-                    if (vfile.exists()) {
-
-                        v.setPath(path);
-                        v.setFilename(vfile.getName());
-                        addVideo(v);
+    public void videoScan() {
+
+        synchronized (scanLock) {
+
+            LogUtil.log(LogUtil.INFO, "Time to scan for video files...");
+            long start = System.currentTimeMillis();
+
+            // First we are going to see if the DB video has been
+            // changed to an mp4 extension.  This is really hack code
+            // and we should remove later.  What we will do is if the
+            // file path doesn't exist, but an mp4 version does, then
+            // we will update the database.
+            Video[] currentVids = getVideos();
+            if ((currentVids != null) && (currentVids.length > 0)) {
+
+                for (int i = 0; i < currentVids.length; i++) {
+
+                    Video v = currentVids[i];
+                    String path = v.getPath();
+                    File vfile = new File(path);
+                    if (!vfile.exists()) {
+
+                        // It's gone.  See if there is an mp4 version.
+                        path = path.substring(0, path.lastIndexOf("."));
+                        path = path + ".mp4";
+                        vfile = new File(path);
+                        if (vfile.exists()) {
+
+                            v.setPath(path);
+                            v.setFilename(vfile.getName());
+                            addVideo(v);
+                        }
                     }
                 }
             }
+
+            // One query up front instead of one per file.
+            HashMap<String, Video> map = toFilenameMap(currentVids);
+            HashSet<String> seen = new HashSet<String>();
+            int unchanged = 0;
+
+            String[] array = getConfiguredVideoDirectories();
+            if (array != null) {
+
+                String[] exts = getConfiguredVideoExtensions();
+                for (int i = 0; i < array.length; i++) {
+
+                    File dir = new File(array[i]);
+                    if ((dir.exists()) && (dir.isDirectory())) {
+
+                        FileFind ff = FileFind.getInstance();
+                        File[] files = ff.find(dir, exts);
+                        if (files != null) {
+                            unchanged += scanFiles(files, map, seen);
+                        }
+                    }
+                }
+            }
+
+            removeMissingPaths();
+            VideoJournal journal = getVideoJournal();
+            journal.retain(seen);
+            journal.save();
+            updateWatcher(array);
+
+            LogUtil.log(LogUtil.INFO, "Video scan of " + seen.size()
+                + " files, " + unchanged + " unchanged, took "
+                + (System.currentTimeMillis() - start) + " ms");
         }
+    }
 
-        String[] array = getConfiguredVideoDirectories();
-        if (array != null) {
+    /**
+     * Called by our VideoWatcher when files have changed.  Only the given
+     * directories are looked at.
+     *
+     * @param dirs The directories that changed.
+     */
+    void watchScan(File[] dirs) {
+
+        synchronized (scanLock) {
 
+            long start = System.currentTimeMillis();
+            HashMap<String, Video> map = toFilenameMap(getVideos());
+            HashSet<String> seen = new HashSet<String>();
             String[] exts = getConfiguredVideoExtensions();
-            for (int i = 0; i < array.length; i++) {
+            for (int i = 0; i < dirs.length; i++) {
 
-                File dir = new File(array[i]);
-                if ((dir.exists()) && (dir.isDirectory())) {
+                if (dirs[i].isDirectory()) {
 
                     FileFind ff = FileFind.getInstance();
-                    File[] files = ff.find(dir, exts);
+                    File[] files = ff.find(dirs[i], exts);
                     if (files != null) {
+                        scanFiles(files, map, seen);
+                    }
+                }
+            }
 
-                        for (int j = 0; j < files.length; j++) {
+            removeMissingPaths();
+            getVideoJournal().save();
 
-                            String name = files[j].getName();
-                            String path = files[j].getPath();
-                            Video v = getVideoByFilename(name);
-                            if (v == null) {
+            LogUtil.log(LogUtil.INFO, "Video watch scan of " + dirs.length
+                + " directories, " + seen.size() + " files, took "
+                + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
 
-                                String title = name;
-                                int index = title.lastIndexOf(".");
-                                if (index != -1) {
+    private void updateWatcher(String[] array) {
 
-                                    title = title.substring(0, index);
-                                }
-                                v = new Video();
-                                v.setCategory(guessVideoCategory(title));
-                                v.setSeason(guessSeason(title));
-                                v.setEpisode(guessEpisode(title));
-                                v.setFilename(name);
-                                v.setTitle(guessVideoTitle(title, v.isTV()));
-                                v.setPath(path);
-                                v.setHidden(false);
-                                if (v.isTV()) {
-                                    v.setSubcategory(v.getTitle() + " Season "
-                                        + v.getSeason());
-                                } else {
-                                    v.setSubcategory(
-                                        NMSConstants.UNKNOWN_GENRE);
-                                }
-                                v.setDuration(computeDuration(v));
-                                addVideo(v);
+        if ((videoWatcher != null)
+            && ((array == null) || (!videoWatcher.isWatching(array)))) {
 
-                            } else if (path != null) {
+            videoWatcher.stop();
+            videoWatcher = null;
+        }
 
-                                if ((!path.equals(v.getPath()))
-                                    || (v.isHidden())) {
+        if ((videoWatcher == null) && (array != null) && (isWatch())) {
 
-                                    v.setPath(path);
-                                    v.setHidden(false);
-                                    addVideo(v);
-                                }
-                            }
-                        }
-                    }
-                }
+            try {
+
+                videoWatcher = new VideoWatcher(this, array);
+                videoWatcher.start();
+
+            } catch (IOException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "Can't watch videos: "
+                    + ex.getMessage());
             }
         }
-
-        removeMissingPaths();
     }
 
     private void removeMissingPaths() {
@@ -818,5 +1010,18 @@ public class SystemVideoManager extends BaseVideoManager implements DbWorker {
         }
     }
 
-}
+    static class ProbeThreadFactory implements ThreadFactory {
 
+        private AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+
+            Thread result = new Thread(r, "jflicks-videoprobe-"
+                + count.incrementAndGet());
+            result.setDaemon(true);
+
+            return (result);
+        }
+    }
+
+}
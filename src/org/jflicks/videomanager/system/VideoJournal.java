@@ -0,0 +1,230 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.videomanager.system;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.jflicks.util.LogUtil;
+
+/**
+ * Remembers the size and modified time of each video file we have seen
+ * so a scan can tell a file has not changed without doing any work on
+ * it.  It is kept in a simple text file, one file per line.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class VideoJournal {
+
+    private File file;
+    private HashMap<String, long[]> stateMap;
+    private boolean changed;
+
+    /**
+     * Constructor with our required argument.
+     *
+     * @param f The File the journal lives in.
+     */
+    public VideoJournal(File f) {
+
+        file = f;
+        stateMap = new HashMap<String, long[]>();
+        load();
+    }
+
+    /**
+     * The number of files in the journal.
+     *
+     * @return An int value.
+     */
+    public synchronized int size() {
+        return (stateMap.size());
+    }
+
+    /**
+     * Check if we have seen a file before.
+     *
+     * @param path The path of the file.
+     * @return True if it's in the journal.
+     */
+    public synchronized boolean contains(String path) {
+        return (stateMap.containsKey(path));
+    }
+
+    /**
+     * Check if a file is the same as the last time we saw it.
+     *
+     * @param path The path of the file.
+     * @param length The length of the file now.
+     * @param modified The modified time of the file now.
+     * @return True if it has not changed.
+     */
+    public synchronized boolean isUnchanged(String path, long length,
+        long modified) {
+
+        long[] state = stateMap.get(path);
+
+        return ((state != null) && (state[0] == length)
+            && (state[1] == modified));
+    }
+
+    /**
+     * Remember the state of a file.
+     *
+     * @param path The path of the file.
+     * @param length The length of the file.
+     * @param modified The modified time of the file.
+     */
+    public synchronized void update(String path, long length, long modified) {
+
+        if (!isUnchanged(path, length, modified)) {
+
+            stateMap.put(path, new long[] {length, modified});
+            changed = true;
+        }
+    }
+
+    /**
+     * Forget every file not in the given set.
+     *
+     * @param paths The paths to keep.
+     */
+    public synchronized void retain(HashSet<String> paths) {
+
+        Iterator<String> iter = stateMap.keySet().iterator();
+        while (iter.hasNext()) {
+
+            if (!paths.contains(iter.next())) {
+
+                iter.remove();
+                changed = true;
+            }
+        }
+    }
+
+    private void load() {
+
+        if ((file != null) && (file.exists())) {
+
+            BufferedReader br = null;
+            try {
+
+                br = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), "UTF-8"));
+                String line = null;
+                while ((line = br.readLine()) != null) {
+
+                    String[] parts = line.split("\t", 3);
+                    if (parts.length == 3) {
+
+                        try {
+
+                            stateMap.put(parts[2], new long[] {
+                                Long.parseLong(parts[0]),
+                                Long.parseLong(parts[1])
+                            });
+
+                        } catch (NumberFormatException ex) {
+
+                            LogUtil.log(LogUtil.DEBUG, "bad journal line");
+                        }
+                    }
+                }
+
+            } catch (IOException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "VideoJournal: " + ex.getMessage());
+
+            } finally {
+
+                if (br != null) {
+
+                    try {
+                        br.close();
+                    } catch (IOException ex) {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the journal if anything changed.  It is written to another
+     * file first and renamed so a crash can't leave half a journal.
+     */
+    public synchronized void save() {
+
+        if ((file != null) && (changed)) {
+
+            File tmp = new File(file.getPath() + ".tmp");
+            BufferedWriter bw = null;
+            try {
+
+                bw = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmp), "UTF-8"));
+                Iterator<Map.Entry<String, long[]>> iter =
+                    stateMap.entrySet().iterator();
+                while (iter.hasNext()) {
+
+                    Map.Entry<String, long[]> entry = iter.next();
+                    long[] state = entry.getValue();
+                    bw.write(state[0] + "\t" + state[1] + "\t"
+                        + entry.getKey());
+                    bw.newLine();
+                }
+                bw.close();
+                bw = null;
+
+                // Windows won't rename over a file.
+                if ((file.exists()) && (!file.delete())) {
+                    LogUtil.log(LogUtil.WARNING, "Can't delete " + file);
+                }
+                if (tmp.renameTo(file)) {
+                    changed = false;
+                } else {
+                    LogUtil.log(LogUtil.WARNING, "Can't rename " + tmp);
+                }
+
+            } catch (IOException ex) {
+
+                LogUtil.log(LogUtil.WARNING, "VideoJournal: " + ex.getMessage());
+
+            } finally {
+
+                if (bw != null) {
+
+                    try {
+                        bw.close();
+                    } catch (IOException ex) {
+                    }
+                }
+            }
+        }
+    }
+
+}
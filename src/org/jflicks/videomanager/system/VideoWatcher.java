@@ -0,0 +1,204 @@
+/*
+    This file is part of JFLICKS.
+
+    JFLICKS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JFLICKS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JFLICKS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.jflicks.videomanager.system;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jflicks.util.LogUtil;
+
+/**
+ * Watch the video directories and have the SystemVideoManager look at
+ * just the directories that changed.  We wait until a directory has been
+ * quiet for a few seconds as a file being copied in changes many times.
+ *
+ * Only local file systems tell us about changes, so a full scan is still
+ * needed now and then for network shares.
+ *
+ * @author Doug Barnum
+ * @version 1.0
+ */
+public class VideoWatcher implements Runnable {
+
+    private static final long QUIET_SECONDS = 10L;
+
+    private SystemVideoManager systemVideoManager;
+    private WatchService watchService;
+    private HashMap<WatchKey, File> keyMap;
+    private LinkedHashSet<File> changedSet;
+    private String[] directories;
+    private Thread thread;
+
+    /**
+     * Constructor with our required arguments.
+     *
+     * @param svm The SystemVideoManager to tell about changes.
+     * @param array The directories to watch.
+     * @throws IOException if watching is not possible.
+     */
+    public VideoWatcher(SystemVideoManager svm, String[] array)
+        throws IOException {
+
+        systemVideoManager = svm;
+        directories = Arrays.copyOf(array, array.length);
+        keyMap = new HashMap<WatchKey, File>();
+        changedSet = new LinkedHashSet<File>();
+        watchService = FileSystems.getDefault().newWatchService();
+        for (int i = 0; i < array.length; i++) {
+            register(new File(array[i]));
+        }
+    }
+
+    /**
+     * Check if we are watching the given directories.
+     *
+     * @param array The directories.
+     * @return True if they are the ones being watched.
+     */
+    public boolean isWatching(String[] array) {
+        return (Arrays.equals(directories, array));
+    }
+
+    private void register(File dir) throws IOException {
+
+        if ((dir.isDirectory()) && (!dir.getName().startsWith("."))) {
+
+            WatchKey key = dir.toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+            keyMap.put(key, dir);
+
+            File[] array = dir.listFiles();
+            if (array != null) {
+
+                for (int i = 0; i < array.length; i++) {
+
+                    if (array[i].isDirectory()) {
+                        register(array[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Start watching on a daemon thread.
+     */
+    public void start() {
+
+        thread = new Thread(this, "jflicks-videowatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching.
+     */
+    public void stop() {
+
+        try {
+
+            watchService.close();
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.DEBUG, "VideoWatcher: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void run() {
+
+        try {
+
+            while (true) {
+
+                WatchKey key = watchService.poll(QUIET_SECONDS,
+                    TimeUnit.SECONDS);
+                if (key != null) {
+
+                    File dir = keyMap.get(key);
+                    List<WatchEvent<?>> events = key.pollEvents();
+                    for (int i = 0; (dir != null) && (i < events.size());
+                        i++) {
+
+                        Object context = events.get(i).context();
+                        if (context instanceof Path) {
+
+                            File f = new File(dir, context.toString());
+                            if ((events.get(i).kind()
+                                == StandardWatchEventKinds.ENTRY_CREATE)
+                                && (f.isDirectory())) {
+
+                                register(f);
+                                changedSet.add(f);
+
+                            } else {
+
+                                changedSet.add(dir);
+                            }
+
+                        } else {
+
+                            // Too much happened at once, look at it all.
+                            changedSet.add(dir);
+                        }
+                    }
+
+                    if (!key.reset()) {
+                        keyMap.remove(key);
+                    }
+
+                } else if (changedSet.size() > 0) {
+
+                    File[] array =
+                        changedSet.toArray(new File[changedSet.size()]);
+                    changedSet.clear();
+                    systemVideoManager.watchScan(array);
+                }
+            }
+
+        } catch (ClosedWatchServiceException ex) {
+
+            LogUtil.log(LogUtil.DEBUG, "VideoWatcher: stopped");
+
+        } catch (InterruptedException ex) {
+
+            LogUtil.log(LogUtil.DEBUG, "VideoWatcher: interrupted");
+
+        } catch (IOException ex) {
+
+            LogUtil.log(LogUtil.WARNING, "VideoWatcher: " + ex.getMessage());
+        }
+    }
+
+}